@@ -0,0 +1,55 @@
+/*
+ *******************************************************************************
+ * Copyright (c) 2019 Whizzo Software, LLC.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************
+*/
+package com.whizzosoftware.wzwave.benchmark;
+
+import com.whizzosoftware.wzwave.commandclass.MeterCommandClass;
+import com.whizzosoftware.wzwave.commandclass.MultilevelSensorCommandClass;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures parsing of command class reports.
+ *
+ * @author Dan Noguerol
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CommandClassBenchmark {
+    private static final byte[] METER_REPORT = {0x32, 0x02, 0x21, 0x64, 0x00, 0x00, 0x00, 0x0c, 0x00, (byte)0x82, 0x00, 0x00, 0x00, 0x02, (byte)0xe4};
+    private static final byte[] SENSOR_REPORT = {0x31, 0x05, 0x01, 0x22, (byte)0xff, 0x3c};
+
+    private MeterCommandClass meter;
+    private MultilevelSensorCommandClass sensor;
+
+    @Setup
+    public void setup() {
+        meter = new MeterCommandClass();
+        meter.setVersion(2);
+        sensor = new MultilevelSensorCommandClass();
+    }
+
+    @Benchmark
+    public void parseMeterReport(Blackhole bh) {
+        meter.onApplicationCommand(null, METER_REPORT, 0);
+        bh.consume(meter.getLastValue(MeterCommandClass.Scale.KilowattHours));
+    }
+
+    @Benchmark
+    public void parseMultilevelSensorReport(Blackhole bh) {
+        sensor.onApplicationCommand(null, SENSOR_REPORT, 0);
+        bh.consume(sensor.getValues());
+    }
+}
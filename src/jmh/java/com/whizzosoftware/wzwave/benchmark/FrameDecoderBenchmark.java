@@ -0,0 +1,79 @@
+/*
+ *******************************************************************************
+ * Copyright (c) 2019 Whizzo Software, LLC.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************
+*/
+package com.whizzosoftware.wzwave.benchmark;
+
+import com.whizzosoftware.wzwave.codec.ZWaveFrameDecoder;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.ReferenceCountUtil;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures decoding of a mixed stream of single byte and data frames through ZWaveFrameDecoder.
+ *
+ * @author Dan Noguerol
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FrameDecoderBenchmark {
+    private EmbeddedChannel channel;
+    private ByteBuf mixedStream;
+    private ByteBuf fragmentHead;
+    private ByteBuf fragmentTail;
+
+    @Setup
+    public void setup() {
+        channel = new EmbeddedChannel(new ZWaveFrameDecoder());
+        mixedStream = Frames.stream(
+            Frames.ACK,
+            Frames.SEND_DATA_RESPONSE,
+            Frames.SEND_DATA_CALLBACK,
+            Frames.ACK,
+            Frames.VERSION_REPORT,
+            Frames.METER_REPORT,
+            Frames.SENSOR_REPORT
+        );
+        fragmentHead = Frames.stream(Frames.METER_REPORT).slice(0, 9);
+        fragmentTail = Frames.stream(Frames.METER_REPORT).slice(9, Frames.METER_REPORT.length - 9);
+    }
+
+    @TearDown
+    public void tearDown() {
+        channel.finish();
+    }
+
+    @Benchmark
+    public void decodeMixedStream(Blackhole bh) {
+        channel.writeInbound(mixedStream.duplicate());
+        drain(bh);
+    }
+
+    @Benchmark
+    public void decodeFragmentedFrame(Blackhole bh) {
+        channel.writeInbound(fragmentHead.duplicate());
+        channel.writeInbound(fragmentTail.duplicate());
+        drain(bh);
+    }
+
+    private void drain(Blackhole bh) {
+        Object o;
+        while ((o = channel.readInbound()) != null) {
+            bh.consume(o);
+            ReferenceCountUtil.release(o);
+        }
+    }
+}
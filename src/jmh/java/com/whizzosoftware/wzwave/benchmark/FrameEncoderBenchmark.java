@@ -0,0 +1,77 @@
+/*
+ *******************************************************************************
+ * Copyright (c) 2019 Whizzo Software, LLC.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************
+*/
+package com.whizzosoftware.wzwave.benchmark;
+
+import com.whizzosoftware.wzwave.codec.ZWaveFrameEncoder;
+import com.whizzosoftware.wzwave.commandclass.BinarySwitchCommandClass;
+import com.whizzosoftware.wzwave.frame.ACK;
+import com.whizzosoftware.wzwave.frame.DataFrame;
+import com.whizzosoftware.wzwave.frame.Version;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.ReferenceCountUtil;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures encoding of outbound frames through ZWaveFrameEncoder.
+ *
+ * @author Dan Noguerol
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FrameEncoderBenchmark {
+    private EmbeddedChannel channel;
+    private DataFrame sendData;
+    private DataFrame version;
+
+    @Setup
+    public void setup() {
+        channel = new EmbeddedChannel(new ZWaveFrameEncoder());
+        sendData = new BinarySwitchCommandClass().createSet((byte)0x02, true);
+        version = new Version();
+    }
+
+    @TearDown
+    public void tearDown() {
+        channel.finish();
+    }
+
+    @Benchmark
+    public void encodeSendData(Blackhole bh) {
+        channel.writeOutbound(sendData);
+        drain(bh);
+    }
+
+    @Benchmark
+    public void encodeVersion(Blackhole bh) {
+        channel.writeOutbound(version);
+        drain(bh);
+    }
+
+    @Benchmark
+    public void encodeACK(Blackhole bh) {
+        channel.writeOutbound(ACK.INSTANCE);
+        drain(bh);
+    }
+
+    private void drain(Blackhole bh) {
+        Object o;
+        while ((o = channel.readOutbound()) != null) {
+            bh.consume(o);
+            ReferenceCountUtil.release(o);
+        }
+    }
+}
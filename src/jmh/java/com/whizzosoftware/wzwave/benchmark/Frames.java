@@ -0,0 +1,58 @@
+/*
+ *******************************************************************************
+ * Copyright (c) 2019 Whizzo Software, LLC.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************
+*/
+package com.whizzosoftware.wzwave.benchmark;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+
+/**
+ * Raw frames shared by the benchmarks.
+ *
+ * @author Dan Noguerol
+ */
+class Frames {
+    static final byte[] ACK = {0x06};
+    static final byte[] SEND_DATA_RESPONSE = dataFrame(0x01, 0x13, 0x01);
+    static final byte[] SEND_DATA_CALLBACK = dataFrame(0x00, 0x13, 0x02, 0x00);
+    static final byte[] VERSION_REPORT = dataFrame(0x00, 0x04, 0x00, 0x0e, 0x07, 0x86, 0x12, 0x06, 0x03, 0x28, 0x03, 0x19);
+    static final byte[] METER_REPORT = dataFrame(0x00, 0x04, 0x00, 0x0e, 0x0f, 0x32, 0x02, 0x21, 0x64, 0x00, 0x00, 0x00, 0x0c, 0x00, 0x82, 0x00, 0x00, 0x00, 0x02, 0xe4);
+    static final byte[] SENSOR_REPORT = dataFrame(0x00, 0x04, 0x00, 0x0e, 0x06, 0x31, 0x05, 0x01, 0x22, 0xff, 0x3c);
+
+    /**
+     * Builds a complete data frame (SOF, length, body and checksum).
+     *
+     * @param body the frame type, function ID and payload
+     *
+     * @return a byte array
+     */
+    static byte[] dataFrame(int... body) {
+        byte[] b = new byte[body.length + 3];
+        b[0] = 0x01;
+        b[1] = (byte)(body.length + 1);
+        byte checksum = b[1];
+        for (int i=0; i < body.length; i++) {
+            b[i + 2] = (byte)body[i];
+            checksum ^= b[i + 2];
+        }
+        b[b.length - 1] = (byte)~checksum;
+        return b;
+    }
+
+    /**
+     * Returns a buffer that can be handed to a pipeline repeatedly by passing it duplicate().
+     *
+     * @param frames the frames to concatenate
+     *
+     * @return a ByteBuf
+     */
+    static ByteBuf stream(byte[]... frames) {
+        return Unpooled.unreleasableBuffer(Unpooled.wrappedBuffer(frames));
+    }
+}
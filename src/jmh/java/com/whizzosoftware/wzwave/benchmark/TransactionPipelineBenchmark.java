@@ -0,0 +1,156 @@
+/*
+ *******************************************************************************
+ * Copyright (c) 2019 Whizzo Software, LLC.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************
+*/
+package com.whizzosoftware.wzwave.benchmark;
+
+import com.whizzosoftware.wzwave.channel.*;
+import com.whizzosoftware.wzwave.channel.event.TransactionCompletedEvent;
+import com.whizzosoftware.wzwave.channel.event.TransactionFailedEvent;
+import com.whizzosoftware.wzwave.channel.event.TransactionStartedEvent;
+import com.whizzosoftware.wzwave.codec.ZWaveFrameDecoder;
+import com.whizzosoftware.wzwave.codec.ZWaveFrameEncoder;
+import com.whizzosoftware.wzwave.commandclass.BinarySwitchCommandClass;
+import com.whizzosoftware.wzwave.frame.*;
+import com.whizzosoftware.wzwave.frame.transaction.DefaultRetryPolicy;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures a complete SendData transaction (request, ACK, response and callback) through the same pipeline that
+ * NettyZWaveController builds, with FrameQueueHandler and TransactionInboundHandler driving the transaction.
+ *
+ * Run it with the gc profiler (the profile's default) to check the transaction path's allocation rate per operation;
+ * apart from the frames themselves, their buffers and Netty's write promises, a transaction shouldn't allocate
+ * beyond the transaction object and its phase timeouts.
+ *
+ * @author Dan Noguerol
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TransactionPipelineBenchmark {
+    private EmbeddedChannel channel;
+    private HashedWheelTimer timer;
+    private ByteBuf ackAndResponse;
+    private ByteBuf callback;
+    private BinarySwitchCommandClass binarySwitch;
+
+    @Setup
+    public void setup() {
+        final EventLoopbackListener listener = new EventLoopbackListener();
+        timer = new HashedWheelTimer(new DefaultThreadFactory("wzwave-timer", true), 20, TimeUnit.MILLISECONDS);
+        channel = new EmbeddedChannel(
+            new ZWaveFrameDecoder(),
+            new ACKInboundHandler(),
+            new ZWaveFrameEncoder(),
+            new FrameQueueHandler(),
+            new TransactionInboundHandler(timer, new RttEstimator(), new DefaultRetryPolicy()),
+            new ZWaveChannelInboundHandler(listener)
+        );
+        listener.channel = channel;
+        ackAndResponse = Frames.stream(Frames.ACK, Frames.SEND_DATA_RESPONSE);
+        callback = Unpooled.buffer(Frames.SEND_DATA_CALLBACK.length);
+        binarySwitch = new BinarySwitchCommandClass();
+    }
+
+    @TearDown
+    public void tearDown() {
+        channel.finish();
+        timer.stop();
+    }
+
+    @Benchmark
+    public void sendDataTransaction(Blackhole bh) {
+        channel.writeAndFlush(new OutboundDataFrame(binarySwitch.createSet((byte)0x02, true), true));
+
+        // the encoded SendData is the last thing written; its callback ID precedes the checksum
+        ByteBuf sent = (ByteBuf)channel.readOutbound();
+        byte callbackId = sent.getByte(sent.writerIndex() - 2);
+        sent.release();
+
+        channel.writeInbound(ackAndResponse.duplicate());
+        channel.writeInbound(createCallback(callbackId));
+        drainOutbound(bh);
+    }
+
+    private ByteBuf createCallback(byte callbackId) {
+        byte[] b = Frames.SEND_DATA_CALLBACK;
+        callback.clear();
+        callback.writeBytes(b, 0, 4);
+        callback.writeByte(callbackId);
+        callback.writeByte(b[5]);
+        callback.writeByte(b[6] ^ b[4] ^ callbackId);
+        return callback.retain();
+    }
+
+    private void drainOutbound(Blackhole bh) {
+        Object o;
+        while ((o = channel.readOutbound()) != null) {
+            bh.consume(o);
+            ReferenceCountUtil.release(o);
+        }
+    }
+
+    /**
+     * Hands transaction events back to the pipeline the way NettyZWaveController does.
+     */
+    private static class EventLoopbackListener implements ZWaveChannelListener {
+        EmbeddedChannel channel;
+
+        @Override
+        public void onTransactionStarted(TransactionStartedEvent evt) {
+            channel.write(evt);
+        }
+
+        @Override
+        public void onTransactionComplete(TransactionCompletedEvent evt) {
+            channel.write(evt);
+        }
+
+        @Override
+        public void onTransactionFailed(TransactionFailedEvent evt) {
+            channel.write(evt);
+        }
+
+        @Override
+        public void onLibraryInfo(String libraryVersion) {}
+
+        @Override
+        public void onControllerInfo(int homeId, byte nodeId) {}
+
+        @Override
+        public void onNodeProtocolInfo(byte nodeId, NodeProtocolInfo nodeProtocolInfo) {}
+
+        @Override
+        public void onApplicationCommand(ApplicationCommand cmd) {}
+
+        @Override
+        public void onApplicationUpdate(ApplicationUpdate update) {}
+
+        @Override
+        public void onAddNodeToNetwork(AddNodeToNetwork addNode) {}
+
+        @Override
+        public void onRemoveNodeFromNetwork(RemoveNodeFromNetwork removeNode) {}
+
+        @Override
+        public void onSetDefault() {}
+    }
+}
@@ -11,6 +11,9 @@ package com.whizzosoftware.wzwave.channel;
 
 import com.whizzosoftware.wzwave.frame.ACK;
 import com.whizzosoftware.wzwave.frame.DataFrame;
+import com.whizzosoftware.wzwave.util.LatencyHistogram;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
 import org.slf4j.Logger;
@@ -19,16 +22,45 @@ import org.slf4j.LoggerFactory;
 /**
  * An inbound handler that sends ACK frames when necessary.
  *
+ * ACKs are written as a pre-encoded byte from this handler's position in the pipeline so they go straight to the
+ * transport rather than through the encoder and frame queue. The time from a data frame being decoded to its ACK
+ * being written is recorded in a latency histogram.
+ *
  * @author Dan Noguerol
  */
 public class ACKInboundHandler extends ChannelInboundHandlerAdapter {
-    private static final Logger logger = LoggerFactory.getLogger(ZWaveChannelInboundHandler.class);
+    private static final Logger logger = LoggerFactory.getLogger(ACKInboundHandler.class);
+
+    private static final ByteBuf ACK_BUFFER = Unpooled.unreleasableBuffer(Unpooled.wrappedBuffer(new byte[] {ACK.ID}));
+
+    private final LatencyHistogram latencyHistogram;
+
+    public ACKInboundHandler() {
+        this(new LatencyHistogram());
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param latencyHistogram the histogram to record receive-to-ACK latency in
+     */
+    public ACKInboundHandler(LatencyHistogram latencyHistogram) {
+        this.latencyHistogram = latencyHistogram;
+    }
+
+    public LatencyHistogram getLatencyHistogram() {
+        return latencyHistogram;
+    }
 
     @Override
     public void channelRead(ChannelHandlerContext ctx, Object msg) {
         if (msg instanceof DataFrame) {
-            logger.trace("Sending ACK for received data frame: {}", msg);
-            ctx.channel().writeAndFlush(new ACK());
+            ctx.writeAndFlush(ACK_BUFFER.duplicate(), ctx.voidPromise());
+            long receiveTime = ((DataFrame)msg).getReceiveTime();
+            if (receiveTime != 0) {
+                latencyHistogram.record(System.nanoTime() - receiveTime);
+            }
+            logger.trace("Sent ACK for received data frame: {}", msg);
         }
         ctx.fireChannelRead(msg);
     }
@@ -0,0 +1,31 @@
+/*
+ *******************************************************************************
+ * Copyright (c) 2019 Whizzo Software, LLC.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************
+*/
+package com.whizzosoftware.wzwave.channel;
+
+import com.whizzosoftware.wzwave.ZWaveRuntimeException;
+import com.whizzosoftware.wzwave.frame.DataFrame;
+
+/**
+ * The cause used to fail the write of a data frame whose deadline passed before it could be sent.
+ *
+ * @author Dan Noguerol
+ */
+public class FrameExpiredException extends ZWaveRuntimeException {
+    private final transient DataFrame frame;
+
+    public FrameExpiredException(DataFrame frame) {
+        super("Frame expired before it could be sent: " + frame);
+        this.frame = frame;
+    }
+
+    public DataFrame getFrame() {
+        return frame;
+    }
+}
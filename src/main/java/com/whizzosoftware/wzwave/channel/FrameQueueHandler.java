@@ -12,19 +12,50 @@ package com.whizzosoftware.wzwave.channel;
 import com.whizzosoftware.wzwave.ZWaveRuntimeException;
 import com.whizzosoftware.wzwave.channel.event.*;
 import com.whizzosoftware.wzwave.frame.ACK;
-import com.whizzosoftware.wzwave.frame.DataFrame;
+import com.whizzosoftware.wzwave.frame.FramePriority;
 import com.whizzosoftware.wzwave.frame.OutboundDataFrame;
-import com.whizzosoftware.wzwave.frame.SendData;
+import com.whizzosoftware.wzwave.frame.transaction.RetryPolicy;
+import com.whizzosoftware.wzwave.metrics.ZWaveMetrics;
 import io.netty.channel.*;
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+import io.netty.util.TimerTask;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.net.SocketAddress;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Handler responsible for queueing data frames and writing them to the Z-Wave network when appropriate. This includes
- * managing wakeup queues for each node.
+ * managing wakeup queues for each node. Queued frames are sent in priority order (see SendQueue).
+ *
+ * Coalescable frames replace any queued frame with the same coalescing key (destination node, endpoint, command class
+ * and command) in both the send queue and the wakeup queues, so that e.g. a burst of level changes for a dimmer only
+ * results in the last one being sent.
+ *
+ * Frames can carry a deadline and each queue can apply a default time-to-live to the frames it holds. Expired frames
+ * are never sent and their promises are failed with a FrameExpiredException. Expired frames are always discarded when
+ * they reach the head of a queue; if a timer is provided, they are also removed as soon as they expire so they don't
+ * linger in the queue of a node that sleeps for hours.
+ *
+ * The send queue and each node's queues can be limited in size. When a queue is over capacity, either the new frame
+ * is rejected or the oldest lowest priority frame is dropped; in both cases the discarded frame's promise is failed
+ * with a QueueFullException. A QueueWritabilityChangedEvent is fired when the send queue fills up and again when it
+ * has drained to half its capacity so that producers can hold off. Frames are also held in the queue while the
+ * channel itself isn't writable.
+ *
+ * If a RetryPolicy is provided, frames for nodes it isn't allowing frames to be sent to (e.g. because they keep failing)
+ * are discarded when they reach the head of the send queue and their promises are failed with a
+ * NodeUnavailableException.
+ *
+ * Frames can carry a response promise (see OutboundDataFrame). It is handed to the TransactionInboundHandler along
+ * with the DataFrameSentEvent once the frame is sent, failed with the same cause as the write promise if the frame is
+ * discarded and failed with a NodeSleepingException if the frame is put in a wakeup queue.
+ *
+ * Queue depths, the time frames wait to be sent and the number of sent, coalesced, expired and discarded frames are
+ * kept in a ZWaveMetrics instance.
  *
  * @author Dan Noguerol
  */
@@ -34,19 +65,140 @@ public class FrameQueueHandler extends ChannelHandlerAdapter implements ChannelO
     /**
      * Queue of frames waiting to be written to the Z-Wave network.
      */
-    private final Deque<FrameWrite> sendQueue = new LinkedList<>();
+    private final SendQueue sendQueue = new SendQueue();
+    /**
+     * Queues used to hold outbound data frames for sleeping nodes, indexed by node ID.
+     */
+    @SuppressWarnings("unchecked")
+    private final Deque<FrameWrite>[] wakeupQueues = new Deque[SendQueue.NODE_SLOTS];
     /**
-     * Queues used to hold outbound data frames for sleeping nodes.
+     * Whether nodes are currently sleeping, indexed by node ID.
      */
-    private final Map<Byte,Deque<FrameWrite>> wakeupQueueMap = new HashMap<>();
+    private final boolean[] sleeping = new boolean[SendQueue.NODE_SLOTS];
     /**
-     * A map of whether nodes are currently sleeping.
+     * The ID of the currently active transaction (or 0 if there isn't one).
      */
-    private final Map<Byte,Boolean> sleepMap = new HashMap<>();
+    private long currentTransactionId;
     /**
-     * The ID of the currently active transaction (if any).
+     * The timer used to expire queued frames (if any).
      */
-    private String currentTransactionId;
+    private final Timer expiryTimer;
+    /**
+     * The event fired for each sent frame (see sendNextFrame()).
+     */
+    private final DataFrameSentEvent sentEvent = new DataFrameSentEvent(null, false);
+    private boolean sentEventInUse;
+    private long sendQueueTimeToLive;
+    private long wakeupQueueTimeToLive;
+    private int queueCapacity = Integer.MAX_VALUE;
+    private int nodeQueueCapacity = Integer.MAX_VALUE;
+    private OverflowPolicy overflowPolicy = OverflowPolicy.REJECT;
+    private boolean writable = true;
+    private ChannelHandlerContext handlerContext;
+    private RetryPolicy retryPolicy;
+    private final ZWaveMetrics metrics;
+
+    public FrameQueueHandler() {
+        this(null);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param expiryTimer the timer used to remove frames from the queues when they expire (or null to only discard
+     *                    expired frames when they are dequeued)
+     */
+    public FrameQueueHandler(Timer expiryTimer) {
+        this(expiryTimer, new ZWaveMetrics());
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param expiryTimer the timer used to remove frames from the queues when they expire (or null to only discard
+     *                    expired frames when they are dequeued)
+     * @param metrics the metrics to keep queue statistics in
+     */
+    public FrameQueueHandler(Timer expiryTimer, ZWaveMetrics metrics) {
+        this.expiryTimer = expiryTimer;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Sets the default time-to-live of frames added to the send queue.
+     *
+     * @param ttl the time-to-live (or 0 for none)
+     * @param unit the time unit of ttl
+     */
+    public void setSendQueueTimeToLive(long ttl, TimeUnit unit) {
+        this.sendQueueTimeToLive = unit.toNanos(ttl);
+    }
+
+    /**
+     * Sets the default time-to-live of frames added to a sleeping node's wakeup queue.
+     *
+     * @param ttl the time-to-live (or 0 for none)
+     * @param unit the time unit of ttl
+     */
+    public void setWakeupQueueTimeToLive(long ttl, TimeUnit unit) {
+        this.wakeupQueueTimeToLive = unit.toNanos(ttl);
+    }
+
+    /**
+     * Sets the capacity limits of the queues.
+     *
+     * @param queueCapacity the maximum number of frames in the send queue
+     * @param nodeQueueCapacity the maximum number of frames for a single node in the send queue and in its wakeup queue
+     * @param policy what to do when a queue is over capacity (BLOCK is handled by the producer; frames that still
+     *               reach a full queue are rejected)
+     */
+    public void setCapacity(int queueCapacity, int nodeQueueCapacity, OverflowPolicy policy) {
+        this.queueCapacity = queueCapacity;
+        this.nodeQueueCapacity = nodeQueueCapacity;
+        this.overflowPolicy = policy;
+    }
+
+    /**
+     * Sets the policy consulted before a frame is sent to a node.
+     *
+     * @param retryPolicy the retry policy (or null to send frames to all nodes)
+     */
+    public void setRetryPolicy(RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+    }
+
+    /**
+     * Indicates whether the send queue currently has room for more frames.
+     *
+     * @return a boolean
+     */
+    public boolean isWritable() {
+        return writable;
+    }
+
+    /**
+     * Returns the number of frames that have been discarded because their queue was full or their node was
+     * unavailable.
+     *
+     * @return a long
+     */
+    public long getDiscardedFrameCount() {
+        return metrics.getFramesDiscarded();
+    }
+
+    /**
+     * Returns the number of frames that have been discarded because they expired.
+     *
+     * @return a long
+     */
+    public long getExpiredFrameCount() {
+        return metrics.getFramesExpired();
+    }
+
+    @Override
+    public void handlerAdded(ChannelHandlerContext ctx) throws Exception {
+        this.handlerContext = ctx;
+    }
 
     @Override
     public void bind(ChannelHandlerContext ctx, SocketAddress localAddress, ChannelPromise promise) throws Exception {
@@ -91,19 +243,27 @@ public class FrameQueueHandler extends ChannelHandlerAdapter implements ChannelO
             logger.trace("Data frame transaction start: {}", currentTransactionId);
         } else if (msg instanceof TransactionCompletedEvent) {
             logger.trace("Data frame transaction completion for {}", currentTransactionId);
-            currentTransactionId = null;
+            currentTransactionId = 0;
             sendNextFrame(ctx, false);
         } else if (msg instanceof TransactionFailedEvent) {
             logger.trace("Data frame transaction failure for {}", currentTransactionId);
-            currentTransactionId = null;
+            currentTransactionId = 0;
             if (msg instanceof SendDataTransactionFailedEvent) {
                 SendDataTransactionFailedEvent sdtfe = (SendDataTransactionFailedEvent) msg;
                 // if the transaction failure was caused by the node going to sleep, process it as such
                 if (!sdtfe.isListeningNode() && !sdtfe.isTargetNodeACKReceived()) {
                     processNodeSleepChange(ctx, sdtfe.getNodeId(), true);
                     if (sdtfe.hasStartFrame()) {
-                        logger.trace("Adding failed transaction start frame to head of wakeup queue");
-                        getWakeupQueue(sdtfe.getNodeId()).addFirst(new FrameWrite(sdtfe.getStartFrame(), false, null));
+                        FrameWrite fw = new FrameWrite(sdtfe.getStartFrame(), false, FramePriority.NORMAL, null);
+                        Deque<FrameWrite> wakeupQueue = getWakeupQueue(sdtfe.getNodeId());
+                        if (SendQueue.containsKey(wakeupQueue, fw.coalescingKey)) {
+                            logger.trace("Discarding failed transaction start frame superseded by a queued frame");
+                            metrics.onFrameCoalesced();
+                        } else {
+                            logger.trace("Adding failed transaction start frame to head of wakeup queue");
+                            wakeupQueue.addFirst(fw);
+                            applyTimeToLive(fw, wakeupQueueTimeToLive);
+                        }
                     }
                 }
             }
@@ -113,12 +273,17 @@ public class FrameQueueHandler extends ChannelHandlerAdapter implements ChannelO
         } else {
             logger.error("Direct DataFrame write attempt detected");
         }
+        updateWritability(ctx);
     }
 
     boolean hasPendingFrames() {
         return (sendQueue.size() > 0);
     }
 
+    int getPendingFrameCount(FramePriority priority) {
+        return sendQueue.size(priority);
+    }
+
     boolean hasWakeupFrames(byte nodeId) {
         return (getWakeupQueue(nodeId).size() > 0);
     }
@@ -127,23 +292,43 @@ public class FrameQueueHandler extends ChannelHandlerAdapter implements ChannelO
         return getWakeupQueue(nodeId).size();
     }
 
+    private int getWakeupFrameCount() {
+        int count = 0;
+        for (Deque<FrameWrite> q : wakeupQueues) {
+            if (q != null) {
+                count += q.size();
+            }
+        }
+        return count;
+    }
+
     boolean hasTransaction() {
-        return (currentTransactionId != null);
+        return (currentTransactionId != 0);
     }
 
     private void processOutboundDataFrame(ChannelHandlerContext ctx, OutboundDataFrame odf, ChannelPromise promise) {
         if (odf.hasDataFrame()) {
-            FrameWrite fw = new FrameWrite(odf.getDataFrame(), odf.isListeningNode(), promise);
+            FrameWrite fw = new FrameWrite(odf.getDataFrame(), odf.isListeningNode(), odf.getPriority(), promise);
+            fw.responsePromise = odf.getResponsePromise();
+            fw.applyDeadline(odf.getDeadline());
             Byte nodeId = fw.getNodeId();
             if (nodeId == null || !isSleeping(nodeId)) {
                 boolean forceSend = false;
-                if (currentTransactionId != null && odf.matchesTransaction(currentTransactionId)) {
+                if (currentTransactionId != 0 && odf.matchesTransaction(currentTransactionId)) {
                     logger.trace("Data frame is in context of current transaction; adding to head of send queue");
                     sendQueue.addFirst(fw);
                     forceSend = true;
                 } else {
-                    logger.trace("Data frame appended to send queue");
-                    sendQueue.add(fw);
+                    if (sendQueue.add(fw)) {
+                        logger.trace("Data frame appended to send queue with priority {}", fw.priority);
+                        enforceCapacity(fw);
+                    } else {
+                        logger.trace("Data frame coalesced with queued frame: {}", fw.frame);
+                        metrics.onFrameCoalesced();
+                    }
+                    if (!fw.dequeued) {
+                        applyTimeToLive(fw, sendQueueTimeToLive);
+                    }
                 }
                 sendNextFrame(ctx, forceSend);
             } else {
@@ -155,60 +340,250 @@ public class FrameQueueHandler extends ChannelHandlerAdapter implements ChannelO
     }
 
     private void sendNextFrame(ChannelHandlerContext ctx, boolean forceSend) {
-        if (sendQueue.size() > 0 && (currentTransactionId == null || forceSend)) {
-            FrameWrite fw = sendQueue.pop();
+        FrameWrite fw = null;
+        if ((currentTransactionId == 0 && isChannelWritable(ctx)) || forceSend) {
+            fw = pollUnexpired();
+        }
+        if (fw != null) {
             logger.trace("Sending next queued data frame: {}", fw.frame);
-            ctx.writeAndFlush(fw.frame, fw.promise);
+            ChannelPromise promise = fw.promise;
+            if (fw.hasSupersededPromises() && (promise == null || FrameWrite.isVoid(promise))) {
+                promise = ctx.newPromise();
+            }
+            ctx.writeAndFlush(fw.frame, promise);
+            fw.notifySupersededPromises(promise);
             fw.frame.incremenentSendCount();
-            ctx.fireUserEventTriggered(new DataFrameSentEvent(fw.frame, fw.isListeningNode));
+            metrics.onDataFrameSent();
+            metrics.recordQueueWait(System.nanoTime() - fw.queueTime);
+            fireDataFrameSent(ctx, fw);
         } else {
             logger.trace("No pending data frames to send");
         }
     }
 
+    private void fireDataFrameSent(ChannelHandlerContext ctx, FrameWrite fw) {
+        if (sentEventInUse) {
+            // a frame was sent while the previous one's event was being handled
+            ctx.fireUserEventTriggered(new DataFrameSentEvent(fw.frame, fw.isListeningNode, fw.priority, fw.deadline, fw.responsePromise));
+        } else {
+            sentEventInUse = true;
+            sentEvent.set(fw.frame, fw.isListeningNode, fw.priority, fw.deadline, fw.responsePromise);
+            try {
+                ctx.fireUserEventTriggered(sentEvent);
+            } finally {
+                sentEventInUse = false;
+            }
+        }
+    }
+
     private void queueWakeupFrame(byte nodeId, FrameWrite fw) {
         logger.trace("Queueing wakeup frame for node {}", nodeId);
         Deque<FrameWrite> wakeupQueue = getWakeupQueue(nodeId);
-        wakeupQueue.push(fw);
+        if (SendQueue.coalesce(wakeupQueue, fw, true)) {
+            logger.trace("Wakeup frame coalesced with queued frame: {}", fw.frame);
+            metrics.onFrameCoalesced();
+        } else {
+            wakeupQueue.push(fw);
+            if (wakeupQueue.size() > nodeQueueCapacity) {
+                FrameWrite discarded = fw;
+                if (overflowPolicy == OverflowPolicy.DROP_OLDEST) {
+                    // the oldest frame is at the tail of the wakeup queue
+                    discarded = wakeupQueue.pollLast();
+                } else {
+                    wakeupQueue.remove(fw);
+                }
+                discard(discarded, "Wakeup queue for node " + nodeId + " is full");
+            }
+        }
+        if (!fw.dequeued) {
+            applyTimeToLive(fw, wakeupQueueTimeToLive);
+        }
+        fw.failResponse(new NodeSleepingException(fw.frame));
     }
 
     private boolean isSleeping(byte nodeId) {
-        Boolean b = sleepMap.get(nodeId);
-        return (b != null && b);
+        return sleeping[SendQueue.slot(nodeId)];
     }
 
     private Deque<FrameWrite> getWakeupQueue(byte nodeId) {
-        Deque<FrameWrite> wakeupQueue = wakeupQueueMap.get(nodeId);
+        int slot = SendQueue.slot(nodeId);
+        Deque<FrameWrite> wakeupQueue = wakeupQueues[slot];
         if (wakeupQueue == null) {
-            wakeupQueue = new LinkedList<>();
-            wakeupQueueMap.put(nodeId, wakeupQueue);
+            wakeupQueue = new ArrayDeque<>();
+            wakeupQueues[slot] = wakeupQueue;
         }
         return wakeupQueue;
     }
 
     private void processNodeSleepChange(ChannelHandlerContext ctx, byte nodeId, boolean sleeping) throws Exception {
         logger.debug("Detected sleep change for node {}: {}", nodeId, sleeping);
-        sleepMap.put(nodeId, sleeping);
+        this.sleeping[SendQueue.slot(nodeId)] = sleeping;
         Deque<FrameWrite> wakeupQueue = getWakeupQueue(nodeId);
         if (!sleeping) {
             logger.trace("Moving wakeup queue for node {} into send queue", nodeId);
+            long now = System.nanoTime();
             while (!wakeupQueue.isEmpty()) {
-                sendQueue.push(wakeupQueue.pop());
+                FrameWrite fw = wakeupQueue.pop();
+                if (fw.isExpired(now)) {
+                    expire(fw);
+                } else {
+                    // the time spent waiting for the node to wake up doesn't count as queue wait
+                    fw.queueTime = now;
+                    sendQueue.addFirst(fw);
+                }
             }
             sendNextFrame(ctx, false);
         } else if (sendQueue.size() > 0){
             logger.trace("Moving pending frames for node {} into wakeup queue", nodeId);
-            Iterator<FrameWrite> it = sendQueue.iterator();
-            while (it.hasNext()) {
-                FrameWrite fw = it.next();
-                if (fw.hasDestinationNode(nodeId)) {
-                    wakeupQueue.push(fw);
-                    it.remove();
+            sendQueue.moveFramesForNode(nodeId, wakeupQueue);
+            for (FrameWrite fw : wakeupQueue) {
+                applyTimeToLive(fw, wakeupQueueTimeToLive);
+                fw.failResponse(new NodeSleepingException(fw.frame));
+            }
+        }
+    }
+
+    /**
+     * Removes the next frame to send from the send queue, discarding any expired frames and frames for unavailable
+     * nodes ahead of it.
+     *
+     * @return a FrameWrite (or null if there are no frames to send)
+     */
+    private FrameWrite pollUnexpired() {
+        long now = 0;
+        FrameWrite fw;
+        while ((fw = sendQueue.poll()) != null) {
+            if (fw.hasDeadline()) {
+                if (now == 0) {
+                    now = System.nanoTime();
                 }
+                if (fw.isExpired(now)) {
+                    expire(fw);
+                    continue;
+                }
+            }
+            fw.dequeued = true;
+            fw.cancelExpiry();
+            Byte nodeId = fw.getNodeId();
+            if (retryPolicy != null && nodeId != null) {
+                if (!retryPolicy.isSendAllowed(nodeId & 0xFF)) {
+                    logger.debug("Node {} is unavailable; discarding data frame: {}", nodeId, fw.frame);
+                    fw.fail(new NodeUnavailableException(fw.frame));
+                    metrics.onFrameDiscarded();
+                    continue;
+                }
+                retryPolicy.onSendAllowed(nodeId & 0xFF);
+            }
+            break;
+        }
+        return fw;
+    }
+
+    /**
+     * Applies a queue's time-to-live to a frame that was just queued and (re)schedules its expiry.
+     *
+     * @param fw the frame
+     * @param ttl the queue's time-to-live in nanoseconds (or 0 for none)
+     */
+    private void applyTimeToLive(final FrameWrite fw, long ttl) {
+        boolean changed = (ttl > 0 && fw.applyDeadline(System.nanoTime() + ttl));
+        if (expiryTimer != null && fw.hasDeadline() && (changed || fw.expiryTimeout == null)) {
+            fw.cancelExpiry();
+            fw.expiryTimeout = expiryTimer.newTimeout(new TimerTask() {
+                @Override
+                public void run(Timeout timeout) throws Exception {
+                    if (!timeout.isCancelled() && handlerContext != null) {
+                        handlerContext.executor().execute(new Runnable() {
+                            @Override
+                            public void run() {
+                                expireQueuedFrame(fw);
+                            }
+                        });
+                    }
+                }
+            }, Math.max(0, fw.deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Removes an expired frame from whichever queue it is in.
+     *
+     * @param fw the frame
+     */
+    private void expireQueuedFrame(FrameWrite fw) {
+        if (!fw.dequeued) {
+            Byte nodeId = fw.getNodeId();
+            if (sendQueue.remove(fw) || (nodeId != null && getWakeupQueue(nodeId).removeFirstOccurrence(fw))) {
+                expire(fw);
+                updateWritability(handlerContext);
             }
         }
     }
 
+    /**
+     * Makes sure the send queue is within its capacity limits after a frame was added.
+     *
+     * @param fw the frame that was added
+     */
+    private void enforceCapacity(FrameWrite fw) {
+        Byte nodeId = fw.getNodeId();
+        if (nodeId != null && nodeQueueCapacity < Integer.MAX_VALUE && sendQueue.size(nodeId) > nodeQueueCapacity) {
+            FrameWrite discarded = (overflowPolicy == OverflowPolicy.DROP_OLDEST) ? sendQueue.removeOldest(nodeId) : null;
+            if (discarded == null) {
+                sendQueue.remove(fw);
+                discarded = fw;
+            }
+            discard(discarded, "Send queue for node " + nodeId + " is full");
+        }
+        if (sendQueue.size() > queueCapacity) {
+            FrameWrite discarded = (overflowPolicy == OverflowPolicy.DROP_OLDEST) ? sendQueue.removeOldest() : null;
+            if (discarded == null && sendQueue.remove(fw)) {
+                discarded = fw;
+            }
+            if (discarded != null) {
+                discard(discarded, "Send queue is full");
+            }
+        }
+    }
+
+    private void discard(FrameWrite fw, String reason) {
+        logger.debug("{}; discarding data frame: {}", reason, fw.frame);
+        fw.dequeued = true;
+        fw.cancelExpiry();
+        fw.fail(new QueueFullException(reason, fw.frame));
+        metrics.onFrameDiscarded();
+    }
+
+    /**
+     * Updates the queue depth metrics and the send queue's writability after the queues have changed.
+     *
+     * @param ctx the handler context
+     */
+    private void updateWritability(ChannelHandlerContext ctx) {
+        metrics.setQueueDepths(sendQueue.size(), getWakeupFrameCount());
+        if (writable && sendQueue.size() >= queueCapacity) {
+            logger.debug("Send queue is full");
+            writable = false;
+            ctx.fireUserEventTriggered(new QueueWritabilityChangedEvent(false));
+        } else if (!writable && sendQueue.size() <= queueCapacity / 2) {
+            logger.debug("Send queue has drained");
+            writable = true;
+            ctx.fireUserEventTriggered(new QueueWritabilityChangedEvent(true));
+        }
+    }
+
+    private boolean isChannelWritable(ChannelHandlerContext ctx) {
+        return (ctx.channel() == null || ctx.channel().isWritable());
+    }
+
+    private void expire(FrameWrite fw) {
+        logger.debug("Discarding expired data frame: {}", fw.frame);
+        fw.dequeued = true;
+        fw.cancelExpiry();
+        fw.fail(new FrameExpiredException(fw.frame));
+        metrics.onFrameExpired();
+    }
+
     @Override
     public void flush(ChannelHandlerContext ctx) throws Exception {
         ctx.flush();
@@ -251,30 +626,11 @@ public class FrameQueueHandler extends ChannelHandlerAdapter implements ChannelO
 
     @Override
     public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
-        ctx.fireChannelWritabilityChanged();
-    }
-
-    private class FrameWrite {
-        private DataFrame frame;
-        private ChannelPromise promise;
-        private boolean isListeningNode;
-
-        FrameWrite(DataFrame frame, boolean isListeningNode, ChannelPromise promise) {
-            this.frame = frame;
-            this.promise = promise;
-            this.isListeningNode = isListeningNode;
-        }
-
-        Byte getNodeId() {
-            if (frame instanceof SendData) {
-                return ((SendData)frame).getNodeId();
-            } else {
-                return null;
-            }
-        }
-
-        boolean hasDestinationNode(byte node) {
-            return (frame instanceof SendData && ((SendData)frame).getNodeId() == node);
+        // resume sending frames that were held while the channel wasn't writable
+        if (isChannelWritable(ctx)) {
+            sendNextFrame(ctx, false);
+            updateWritability(ctx);
         }
+        ctx.fireChannelWritabilityChanged();
     }
 }
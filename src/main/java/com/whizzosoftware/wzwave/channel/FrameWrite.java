@@ -0,0 +1,227 @@
+/*
+ *******************************************************************************
+ * Copyright (c) 2019 Whizzo Software, LLC.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************
+*/
+package com.whizzosoftware.wzwave.channel;
+
+import com.whizzosoftware.wzwave.frame.DataFrame;
+import com.whizzosoftware.wzwave.frame.FramePriority;
+import com.whizzosoftware.wzwave.frame.SendData;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelPromise;
+import io.netty.util.Timeout;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.GenericFutureListener;
+import io.netty.util.concurrent.Promise;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A data frame waiting in one of FrameQueueHandler's queues along with the information needed to send it.
+ *
+ * When a queued frame is coalesced with a newer one, the newer frame takes over the promises of the frame it
+ * superseded and completes them once it has been written.
+ *
+ * A frame can have a deadline (in System.nanoTime() terms) after which it is discarded instead of being sent.
+ *
+ * A frame can also carry a response promise that is completed with the outcome of its transaction. It is failed
+ * along with the write promise if the frame is discarded, and a frame that supersedes another one completes the
+ * superseded frame's response promise with its own outcome.
+ *
+ * @author Dan Noguerol
+ */
+class FrameWrite {
+    final DataFrame frame;
+    final ChannelPromise promise;
+    final boolean isListeningNode;
+    final FramePriority priority;
+    final long coalescingKey;
+    final long commandClassKey;
+    private List<ChannelPromise> supersededPromises;
+    long deadline;
+    Timeout expiryTimeout;
+    Promise<DataFrame> responsePromise;
+    boolean dequeued;
+    /**
+     * When the frame was queued (in System.nanoTime() terms).
+     */
+    long queueTime = System.nanoTime();
+
+    FrameWrite(DataFrame frame, boolean isListeningNode, FramePriority priority, ChannelPromise promise) {
+        this.frame = frame;
+        this.promise = promise;
+        this.isListeningNode = isListeningNode;
+        this.priority = priority;
+        this.coalescingKey = (frame instanceof SendData) ? ((SendData)frame).getCoalescingKey() : -1;
+        this.commandClassKey = (frame instanceof SendData) ? ((SendData)frame).getCommandClassKey() : -1;
+    }
+
+    boolean isCoalescable() {
+        return (coalescingKey != -1);
+    }
+
+    boolean hasDeadline() {
+        return (deadline != 0);
+    }
+
+    /**
+     * Applies a deadline to the frame. A frame's deadline can only move earlier.
+     *
+     * @param deadline the System.nanoTime() value after which the frame expires (or 0 for none)
+     *
+     * @return true if the frame's deadline changed
+     */
+    boolean applyDeadline(long deadline) {
+        if (deadline != 0 && (this.deadline == 0 || deadline - this.deadline < 0)) {
+            this.deadline = deadline;
+            return true;
+        }
+        return false;
+    }
+
+    boolean isExpired(long now) {
+        return (deadline != 0 && now - deadline >= 0);
+    }
+
+    void cancelExpiry() {
+        if (expiryTimeout != null) {
+            expiryTimeout.cancel();
+            expiryTimeout = null;
+        }
+    }
+
+    /**
+     * Fails the promise of this frame and those of any frames it superseded.
+     *
+     * @param cause the failure cause
+     */
+    void fail(Throwable cause) {
+        if (promise != null && !isVoid(promise)) {
+            promise.tryFailure(cause);
+        }
+        if (supersededPromises != null) {
+            for (ChannelPromise p : supersededPromises) {
+                p.tryFailure(cause);
+            }
+            supersededPromises = null;
+        }
+        failResponse(cause);
+    }
+
+    /**
+     * Fails the response promise of this frame (if it has one) without affecting its write promises.
+     *
+     * @param cause the failure cause
+     */
+    void failResponse(Throwable cause) {
+        if (responsePromise != null) {
+            responsePromise.tryFailure(cause);
+            responsePromise = null;
+        }
+    }
+
+    /**
+     * Takes the place of an older queued frame with the same coalescing key.
+     *
+     * @param older the frame being superseded
+     */
+    void supersede(FrameWrite older) {
+        older.dequeued = true;
+        older.cancelExpiry();
+        if (older.supersededPromises != null) {
+            getSupersededPromises().addAll(older.supersededPromises);
+        }
+        if (older.promise != null && !isVoid(older.promise)) {
+            getSupersededPromises().add(older.promise);
+        }
+        if (older.responsePromise != null) {
+            if (responsePromise == null) {
+                responsePromise = older.responsePromise;
+            } else {
+                cascade(responsePromise, older.responsePromise);
+            }
+            older.responsePromise = null;
+        }
+    }
+
+    /**
+     * Completes a promise with the outcome of a future once it is done.
+     *
+     * @param from the future
+     * @param to the promise
+     */
+    static void cascade(Future<DataFrame> from, final Promise<DataFrame> to) {
+        from.addListener(new GenericFutureListener<Future<DataFrame>>() {
+            @Override
+            public void operationComplete(Future<DataFrame> f) throws Exception {
+                if (f.isSuccess()) {
+                    to.trySuccess(f.getNow());
+                } else if (f.isCancelled()) {
+                    to.cancel(false);
+                } else {
+                    to.tryFailure(f.cause());
+                }
+            }
+        });
+    }
+
+    boolean hasSupersededPromises() {
+        return (supersededPromises != null);
+    }
+
+    /**
+     * Completes the promises of superseded frames when this frame's write completes.
+     *
+     * @param future the future of this frame's write
+     */
+    void notifySupersededPromises(ChannelFuture future) {
+        if (supersededPromises != null && future != null) {
+            final List<ChannelPromise> promises = supersededPromises;
+            supersededPromises = null;
+            future.addListener(new ChannelFutureListener() {
+                @Override
+                public void operationComplete(ChannelFuture f) throws Exception {
+                    for (ChannelPromise p : promises) {
+                        if (f.isSuccess()) {
+                            p.trySuccess();
+                        } else if (f.isCancelled()) {
+                            p.cancel(false);
+                        } else {
+                            p.tryFailure(f.cause());
+                        }
+                    }
+                }
+            });
+        }
+    }
+
+    static boolean isVoid(ChannelPromise promise) {
+        return (promise.channel() != null && promise == promise.channel().voidPromise());
+    }
+
+    private List<ChannelPromise> getSupersededPromises() {
+        if (supersededPromises == null) {
+            supersededPromises = new ArrayList<>();
+        }
+        return supersededPromises;
+    }
+
+    Byte getNodeId() {
+        if (frame instanceof SendData) {
+            return ((SendData)frame).getNodeId();
+        } else {
+            return null;
+        }
+    }
+
+    boolean hasDestinationNode(byte node) {
+        return (frame instanceof SendData && ((SendData)frame).getNodeId() == node);
+    }
+}
@@ -0,0 +1,32 @@
+/*
+ *******************************************************************************
+ * Copyright (c) 2019 Whizzo Software, LLC.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************
+*/
+package com.whizzosoftware.wzwave.channel;
+
+import com.whizzosoftware.wzwave.ZWaveRuntimeException;
+import com.whizzosoftware.wzwave.frame.DataFrame;
+
+/**
+ * The cause used to fail the response future of a data frame for a node that is asleep. The frame itself isn't
+ * discarded; it stays in the node's wakeup queue and is sent when the node next wakes up.
+ *
+ * @author Dan Noguerol
+ */
+public class NodeSleepingException extends ZWaveRuntimeException {
+    private final transient DataFrame frame;
+
+    public NodeSleepingException(DataFrame frame) {
+        super("Node is asleep; frame queued until it wakes up: " + frame);
+        this.frame = frame;
+    }
+
+    public DataFrame getFrame() {
+        return frame;
+    }
+}
@@ -0,0 +1,32 @@
+/*
+ *******************************************************************************
+ * Copyright (c) 2019 Whizzo Software, LLC.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************
+*/
+package com.whizzosoftware.wzwave.channel;
+
+import com.whizzosoftware.wzwave.ZWaveRuntimeException;
+import com.whizzosoftware.wzwave.frame.DataFrame;
+
+/**
+ * The cause used to fail the write of a data frame to a node that the retry policy is currently holding frames off
+ * from (e.g. because the node's circuit breaker is open).
+ *
+ * @author Dan Noguerol
+ */
+public class NodeUnavailableException extends ZWaveRuntimeException {
+    private final transient DataFrame frame;
+
+    public NodeUnavailableException(DataFrame frame) {
+        super("Node is unavailable: " + frame);
+        this.frame = frame;
+    }
+
+    public DataFrame getFrame() {
+        return frame;
+    }
+}
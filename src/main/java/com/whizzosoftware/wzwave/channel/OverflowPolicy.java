@@ -0,0 +1,31 @@
+/*
+ *******************************************************************************
+ * Copyright (c) 2019 Whizzo Software, LLC.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************
+*/
+package com.whizzosoftware.wzwave.channel;
+
+/**
+ * What happens when a frame is written to a queue that is already at capacity.
+ *
+ * @author Dan Noguerol
+ */
+public enum OverflowPolicy {
+    /**
+     * The new frame is discarded and its promise is failed.
+     */
+    REJECT,
+    /**
+     * The oldest frame of the lowest priority queued is discarded (and its promise failed) to make room.
+     */
+    DROP_OLDEST,
+    /**
+     * The caller writing the frame is blocked until the queue has room again or a timeout elapses. Frames that
+     * still reach a full queue are rejected.
+     */
+    BLOCK
+}
@@ -0,0 +1,26 @@
+/*
+ *******************************************************************************
+ * Copyright (c) 2019 Whizzo Software, LLC.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************
+*/
+package com.whizzosoftware.wzwave.channel;
+
+import com.whizzosoftware.wzwave.channel.event.QueueWritabilityChangedEvent;
+
+/**
+ * Optional interface for a ZWaveChannelListener that wants to know when the outbound frame queue fills up or drains.
+ *
+ * @author Dan Noguerol
+ */
+public interface QueueWritabilityListener {
+    /**
+     * Called when the outbound frame queue fills up or drains.
+     *
+     * @param evt the event
+     */
+    void onQueueWritabilityChanged(QueueWritabilityChangedEvent evt);
+}
@@ -0,0 +1,145 @@
+/*
+ *******************************************************************************
+ * Copyright (c) 2019 Whizzo Software, LLC.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************
+*/
+package com.whizzosoftware.wzwave.channel;
+
+import com.whizzosoftware.wzwave.frame.DataFrame;
+import com.whizzosoftware.wzwave.frame.FramePriority;
+import com.whizzosoftware.wzwave.frame.SendData;
+import io.netty.util.Timeout;
+import io.netty.util.concurrent.Promise;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A table of application reports that nodes are expected to send back after a SendData transaction has completed.
+ *
+ * Waits are kept per node slot and keyed by the report they expect (see SendData.getExpectedReportKey()). Only a
+ * handful of waits are outstanding for a node at any time so each slot is a short list that is searched linearly.
+ * A new wait for a report that is already being waited on replaces the old one.
+ *
+ * @author Dan Noguerol
+ */
+class ReportWaitTable {
+    @SuppressWarnings("unchecked")
+    private final List<ReportWait>[] slots = new List[SendQueue.NODE_SLOTS];
+    private int size;
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Adds a wait.
+     *
+     * @param w the wait
+     *
+     * @return the wait it replaced (or null if there was none)
+     */
+    ReportWait add(ReportWait w) {
+        int ix = SendQueue.slot(w.frame.getNodeId());
+        List<ReportWait> l = slots[ix];
+        if (l == null) {
+            l = new ArrayList<>(2);
+            slots[ix] = l;
+        }
+        for (int i = 0; i < l.size(); i++) {
+            ReportWait e = l.get(i);
+            if (e.key == w.key && e.frame.getNodeId() == w.frame.getNodeId()) {
+                l.set(i, w);
+                return e;
+            }
+        }
+        l.add(w);
+        size++;
+        return null;
+    }
+
+    /**
+     * Returns the wait for a report from a node.
+     *
+     * @param nodeId the node ID
+     * @param key the report key
+     *
+     * @return the wait (or null if the report isn't being waited on)
+     */
+    ReportWait get(byte nodeId, int key) {
+        List<ReportWait> l = slots[SendQueue.slot(nodeId)];
+        if (l != null) {
+            for (ReportWait e : l) {
+                if (e.key == key && e.frame.getNodeId() == nodeId) {
+                    return e;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Removes the wait for a report received from a node.
+     *
+     * @param nodeId the node ID
+     * @param key the report key
+     *
+     * @return the wait that was removed (or null if the report wasn't being waited on)
+     */
+    ReportWait remove(byte nodeId, int key) {
+        List<ReportWait> l = slots[SendQueue.slot(nodeId)];
+        if (l != null) {
+            for (int i = 0; i < l.size(); i++) {
+                ReportWait e = l.get(i);
+                if (e.key == key && e.frame.getNodeId() == nodeId) {
+                    l.remove(i);
+                    size--;
+                    return e;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Removes a specific wait.
+     *
+     * @param w the wait
+     *
+     * @return true if the wait was still in the table
+     */
+    boolean remove(ReportWait w) {
+        List<ReportWait> l = slots[SendQueue.slot(w.frame.getNodeId())];
+        if (l != null && l.remove(w)) {
+            size--;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * An outstanding wait for a report.
+     */
+    static class ReportWait {
+        final SendData frame;
+        final int key;
+        final boolean listeningNode;
+        final long startTime;
+        Timeout timeout;
+        Promise<DataFrame> responsePromise;
+        // how the frame is re-sent if the report doesn't arrive
+        FramePriority priority = FramePriority.NORMAL;
+        long deadline;
+
+        ReportWait(SendData frame, int key, boolean listeningNode, long startTime) {
+            this.frame = frame;
+            this.key = key;
+            this.listeningNode = listeningNode;
+            this.startTime = startTime;
+        }
+    }
+}
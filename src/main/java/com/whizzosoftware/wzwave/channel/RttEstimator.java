@@ -0,0 +1,144 @@
+/*
+ *******************************************************************************
+ * Copyright (c) 2019 Whizzo Software, LLC.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************
+*/
+package com.whizzosoftware.wzwave.channel;
+
+import com.whizzosoftware.wzwave.frame.transaction.TransactionPhase;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tracks smoothed round-trip times for each node and transaction phase and derives timeouts from them the way TCP
+ * derives its retransmission timeout (RFC 6298): an exponentially weighted moving average of the RTT plus four times
+ * its mean deviation, clamped to a configurable floor and ceiling.
+ *
+ * Samples are only added and timeouts only computed on the channel's event loop; the estimates may be read from
+ * other threads for diagnostic purposes.
+ *
+ * @author Dan Noguerol
+ */
+public class RttEstimator {
+    public static final long DEFAULT_MIN_TIMEOUT = 250;
+    public static final long DEFAULT_MAX_TIMEOUT = 10000;
+
+    private static final int NODE_SLOTS = 256;
+    private static final int PHASE_COUNT = TransactionPhase.values().length;
+
+    // both in nanoseconds; an srtt of 0 means there have been no samples
+    private final long[] srtt = new long[NODE_SLOTS * PHASE_COUNT];
+    private final long[] rttvar = new long[NODE_SLOTS * PHASE_COUNT];
+    private volatile long minTimeout = TimeUnit.MILLISECONDS.toNanos(DEFAULT_MIN_TIMEOUT);
+    private volatile long maxTimeout = TimeUnit.MILLISECONDS.toNanos(DEFAULT_MAX_TIMEOUT);
+
+    /**
+     * Sets the bounds that derived timeouts are clamped to.
+     *
+     * @param min the minimum timeout
+     * @param max the maximum timeout
+     * @param unit the unit of both bounds
+     */
+    public void setTimeoutBounds(long min, long max, TimeUnit unit) {
+        if (min <= 0 || max < min) {
+            throw new IllegalArgumentException("Invalid timeout bounds: " + min + ", " + max);
+        }
+        this.minTimeout = unit.toNanos(min);
+        this.maxTimeout = unit.toNanos(max);
+    }
+
+    public long getMinTimeout(TimeUnit unit) {
+        return unit.convert(minTimeout, TimeUnit.NANOSECONDS);
+    }
+
+    public long getMaxTimeout(TimeUnit unit) {
+        return unit.convert(maxTimeout, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Adds a round-trip time sample. Samples from retransmitted frames should not be added since there's no telling
+     * which transmission the reply belongs to.
+     *
+     * @param nodeId the node the transaction was addressed to (0 for the controller itself)
+     * @param phase the phase that was completed
+     * @param rttNanos the time the phase took in nanoseconds
+     */
+    public void addSample(int nodeId, TransactionPhase phase, long rttNanos) {
+        int ix = index(nodeId, phase);
+        long r = Math.max(rttNanos, 1);
+        if (srtt[ix] == 0) {
+            srtt[ix] = r;
+            rttvar[ix] = r / 2;
+        } else {
+            long err = r - srtt[ix];
+            srtt[ix] += err >> 3;
+            rttvar[ix] += (Math.abs(err) - rttvar[ix]) >> 2;
+        }
+    }
+
+    /**
+     * Returns the timeout for a node's transaction phase.
+     *
+     * @param nodeId the node the transaction is addressed to (0 for the controller itself)
+     * @param phase the phase being waited on
+     * @param defaultTimeout the timeout to use if the phase has no samples yet (in milliseconds)
+     *
+     * @return a timeout in milliseconds
+     */
+    public long getTimeout(int nodeId, TransactionPhase phase, long defaultTimeout) {
+        int ix = index(nodeId, phase);
+        long s = srtt[ix];
+        if (s == 0) {
+            return defaultTimeout;
+        }
+        long rto = Math.min(Math.max(s + 4 * rttvar[ix], minTimeout), maxTimeout);
+        return TimeUnit.NANOSECONDS.toMillis(rto + TimeUnit.MILLISECONDS.toNanos(1) - 1);
+    }
+
+    /**
+     * Returns the smoothed round-trip time for a node's transaction phase.
+     *
+     * @param nodeId the node ID (0 for the controller itself)
+     * @param phase the phase
+     * @param unit the unit to return
+     *
+     * @return the smoothed RTT (or 0 if there have been no samples)
+     */
+    public long getSmoothedRtt(int nodeId, TransactionPhase phase, TimeUnit unit) {
+        return unit.convert(srtt[index(nodeId, phase)], TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns the round-trip time variation for a node's transaction phase.
+     *
+     * @param nodeId the node ID (0 for the controller itself)
+     * @param phase the phase
+     * @param unit the unit to return
+     *
+     * @return the RTT variation (or 0 if there have been no samples)
+     */
+    public long getRttVariation(int nodeId, TransactionPhase phase, TimeUnit unit) {
+        return unit.convert(rttvar[index(nodeId, phase)], TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Discards all estimates for a node (e.g. after it has been removed or re-included).
+     *
+     * @param nodeId the node ID
+     */
+    public void reset(int nodeId) {
+        int base = (nodeId & 0xFF) * PHASE_COUNT;
+        for (int i = 0; i < PHASE_COUNT; i++) {
+            srtt[base + i] = 0;
+            rttvar[base + i] = 0;
+        }
+    }
+
+    private int index(int nodeId, TransactionPhase phase) {
+        return (nodeId & 0xFF) * PHASE_COUNT + phase.ordinal();
+    }
+}
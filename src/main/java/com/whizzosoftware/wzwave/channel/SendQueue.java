@@ -0,0 +1,497 @@
+/*
+ *******************************************************************************
+ * Copyright (c) 2019 Whizzo Software, LLC.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************
+*/
+package com.whizzosoftware.wzwave.channel;
+
+import com.whizzosoftware.wzwave.frame.FramePriority;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+
+/**
+ * The queue of frames waiting to be written to the Z-Wave network.
+ *
+ * Frames are normally dequeued highest priority first. To prevent starvation, a non-empty priority level that has
+ * been passed over starvationLimit times in a row is served next regardless of what is waiting above it.
+ *
+ * Within a priority level each destination node has its own sub-queue and nodes are served round-robin, one frame
+ * per turn, so a node with many queued frames can't hold up the rest of the network. Frames not addressed to a node
+ * share slot 0.
+ *
+ * Coalescable frames (see SendData.isCoalescable()) replace a queued frame with the same coalescing key in place, so
+ * only the most recent SET of a value (or a single copy of a GET) is ever sent. If the queued frame has a lower
+ * priority than the new one, it is removed and the new frame is queued at its own priority instead. A queued frame
+ * isn't replaced in place if another command for the same node and command class is queued behind it since the new
+ * frame would then overtake that command (e.g. a GET being sent ahead of a SET it was queued after).
+ *
+ * Frames added to the head of the queue (transaction continuations and frames for a node that just woke up) bypass
+ * the priority levels entirely and are always sent first.
+ *
+ * @author Dan Noguerol
+ */
+class SendQueue {
+    static final int DEFAULT_STARVATION_LIMIT = 8;
+    /**
+     * The number of node slots (node IDs are 1 - 232).
+     */
+    static final int NODE_SLOTS = 233;
+
+    private static final FramePriority[] PRIORITIES = FramePriority.values();
+
+    private final Deque<FrameWrite> head = new ArrayDeque<>();
+    private final NodeQueue[] levels;
+    private final int[] passedOver;
+    private final int starvationLimit;
+    private int size;
+
+    SendQueue() {
+        this(DEFAULT_STARVATION_LIMIT);
+    }
+
+    @SuppressWarnings("unchecked")
+    SendQueue(int starvationLimit) {
+        this.starvationLimit = starvationLimit;
+        this.levels = new NodeQueue[PRIORITIES.length];
+        this.passedOver = new int[PRIORITIES.length];
+        for (int i=0; i < levels.length; i++) {
+            levels[i] = new NodeQueue();
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return (size == 0);
+    }
+
+    int size(FramePriority priority) {
+        return levels[priority.ordinal()].size();
+    }
+
+    /**
+     * Adds a frame to the tail of its priority level unless it can be coalesced with a frame already queued.
+     *
+     * @param fw the frame
+     *
+     * @return true if the frame was added; false if it took the place of a queued frame
+     */
+    boolean add(FrameWrite fw) {
+        if (fw.isCoalescable()) {
+            int slot = slot(fw.getNodeId());
+            int ordinal = fw.priority.ordinal();
+            for (int i=0; i < levels.length; i++) {
+                if (i <= ordinal) {
+                    if (levels[i].replace(slot, fw)) {
+                        return false;
+                    }
+                } else {
+                    FrameWrite older = levels[i].remove(slot, fw.coalescingKey);
+                    if (older != null) {
+                        fw.supersede(older);
+                        size--;
+                        break;
+                    }
+                }
+            }
+        }
+        levels[fw.priority.ordinal()].add(fw);
+        size++;
+        return true;
+    }
+
+    /**
+     * Adds a frame ahead of everything else in the queue.
+     *
+     * @param fw the frame
+     */
+    void addFirst(FrameWrite fw) {
+        head.addFirst(fw);
+        size++;
+    }
+
+    /**
+     * Removes and returns the next frame to send.
+     *
+     * @return a FrameWrite (or null if the queue is empty)
+     */
+    FrameWrite poll() {
+        if (size == 0) {
+            return null;
+        }
+
+        size--;
+        if (!head.isEmpty()) {
+            return head.poll();
+        }
+
+        // serve a starved level first (favoring higher priorities), otherwise the highest non-empty level
+        int chosen = -1;
+        for (int i=0; i < levels.length; i++) {
+            if (!levels[i].isEmpty() && passedOver[i] >= starvationLimit) {
+                chosen = i;
+                break;
+            }
+        }
+        if (chosen == -1) {
+            for (int i=0; i < levels.length; i++) {
+                if (!levels[i].isEmpty()) {
+                    chosen = i;
+                    break;
+                }
+            }
+        }
+
+        for (int i=0; i < levels.length; i++) {
+            if (i == chosen || levels[i].isEmpty()) {
+                passedOver[i] = 0;
+            } else {
+                passedOver[i]++;
+            }
+        }
+
+        return levels[chosen].poll();
+    }
+
+    /**
+     * Removes the oldest frame (i.e. the one queued first) of the lowest priority level that has frames. Frames at
+     * the head of the queue are never removed.
+     *
+     * @return a FrameWrite (or null if there are only frames at the head of the queue)
+     */
+    FrameWrite removeOldest() {
+        for (int i=levels.length-1; i >= 0; i--) {
+            if (!levels[i].isEmpty()) {
+                size--;
+                return levels[i].pollOldest();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Removes the oldest frame for a node from the lowest priority level that has frames for it. Frames at the head
+     * of the queue are never removed.
+     *
+     * @param nodeId the node ID
+     *
+     * @return a FrameWrite (or null if there are no frames for the node outside the head of the queue)
+     */
+    FrameWrite removeOldest(byte nodeId) {
+        int slot = slot(nodeId);
+        for (int i=levels.length-1; i >= 0; i--) {
+            FrameWrite fw = levels[i].poll(slot);
+            if (fw != null) {
+                size--;
+                return fw;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Removes a specific frame from the queue.
+     *
+     * @param fw the frame
+     *
+     * @return true if the frame was found and removed
+     */
+    boolean remove(FrameWrite fw) {
+        boolean removed = head.removeFirstOccurrence(fw);
+        if (!removed) {
+            int slot = slot(fw.getNodeId());
+            for (int i=0; i < levels.length && !removed; i++) {
+                removed = levels[i].remove(slot, fw);
+            }
+        }
+        if (removed) {
+            size--;
+        }
+        return removed;
+    }
+
+    /**
+     * Returns the number of frames queued for a node.
+     *
+     * @param nodeId the node ID
+     *
+     * @return an int
+     */
+    int size(byte nodeId) {
+        int slot = slot(nodeId);
+        int count = 0;
+        for (FrameWrite fw : head) {
+            if (fw.hasDestinationNode(nodeId)) {
+                count++;
+            }
+        }
+        for (NodeQueue level : levels) {
+            count += level.size(slot);
+        }
+        return count;
+    }
+
+    /**
+     * Moves all frames destined for a node into another queue.
+     *
+     * @param nodeId the node ID
+     * @param dest the queue to move frames to (each is pushed onto its head)
+     */
+    void moveFramesForNode(byte nodeId, Deque<FrameWrite> dest) {
+        Iterator<FrameWrite> it = head.iterator();
+        while (it.hasNext()) {
+            FrameWrite fw = it.next();
+            if (fw.hasDestinationNode(nodeId)) {
+                dest.push(fw);
+                it.remove();
+                size--;
+            }
+        }
+        int slot = slot(nodeId);
+        if (slot > 0) {
+            for (NodeQueue level : levels) {
+                size -= level.moveAll(slot, dest);
+            }
+        }
+    }
+
+    /**
+     * Returns the slot used for a node ID.
+     *
+     * @param nodeId the node ID (or null for frames not addressed to a node)
+     *
+     * @return an index between 0 and NODE_SLOTS - 1
+     */
+    static int slot(Byte nodeId) {
+        if (nodeId == null) {
+            return 0;
+        }
+        int ix = nodeId & 0xFF;
+        return (ix < NODE_SLOTS) ? ix : 0;
+    }
+
+    /**
+     * Replaces the frame in a queue that has the same coalescing key as a new frame, keeping its position. Only the
+     * most recent such frame can be replaced and only if no other command for the same node and command class is
+     * queued behind it.
+     *
+     * @param q the queue
+     * @param fw the new frame
+     * @param newestFirst indicates whether frames are pushed onto the head of the queue (as in a wakeup queue) rather
+     *                    than added to its tail
+     *
+     * @return true if a frame was replaced
+     */
+    static boolean coalesce(Deque<FrameWrite> q, FrameWrite fw, boolean newestFirst) {
+        if (!fw.isCoalescable()) {
+            return false;
+        }
+        // find the frame to replace in the order frames are sent
+        int match = -1;
+        int ix = 0;
+        Iterator<FrameWrite> it = newestFirst ? q.descendingIterator() : q.iterator();
+        while (it.hasNext()) {
+            FrameWrite e = it.next();
+            if (e.coalescingKey == fw.coalescingKey) {
+                match = ix;
+            } else if (match != -1 && e.commandClassKey == fw.commandClassKey) {
+                // replacing the earlier frame would send the new one ahead of this command
+                match = -1;
+            }
+            ix++;
+        }
+        if (match == -1) {
+            return false;
+        }
+        if (newestFirst) {
+            match = q.size() - 1 - match;
+        }
+        for (int i=0, n=q.size(); i < n; i++) {
+            FrameWrite e = q.poll();
+            if (i == match) {
+                fw.supersede(e);
+                e = fw;
+            }
+            q.add(e);
+        }
+        return true;
+    }
+
+    /**
+     * Indicates whether a queue contains a frame with a coalescing key.
+     *
+     * @param q the queue
+     * @param key the coalescing key
+     *
+     * @return a boolean
+     */
+    static boolean containsKey(Deque<FrameWrite> q, long key) {
+        if (key != -1) {
+            for (FrameWrite e : q) {
+                if (e.coalescingKey == key) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The frames of a single priority level: a sub-queue per node plus a ring of the slots that currently have
+     * frames, in the order they will be served.
+     */
+    private static class NodeQueue {
+        private final ArrayDeque[] queues = new ArrayDeque[NODE_SLOTS];
+        private final int[] ring = new int[NODE_SLOTS];
+        private int ringHead;
+        private int ringSize;
+        private int size;
+
+        boolean isEmpty() {
+            return (ringSize == 0);
+        }
+
+        int size() {
+            return size;
+        }
+
+        int size(int slot) {
+            return (queues[slot] != null) ? queues[slot].size() : 0;
+        }
+
+        @SuppressWarnings("unchecked")
+        void add(FrameWrite fw) {
+            int slot = slot(fw.getNodeId());
+            ArrayDeque<FrameWrite> q = queues[slot];
+            if (q == null) {
+                q = new ArrayDeque<>();
+                queues[slot] = q;
+            }
+            if (q.isEmpty()) {
+                ring[(ringHead + ringSize) % NODE_SLOTS] = slot;
+                ringSize++;
+            }
+            q.add(fw);
+            size++;
+        }
+
+        @SuppressWarnings("unchecked")
+        boolean replace(int slot, FrameWrite fw) {
+            ArrayDeque<FrameWrite> q = queues[slot];
+            return (q != null && coalesce(q, fw, false));
+        }
+
+        @SuppressWarnings("unchecked")
+        FrameWrite remove(int slot, long key) {
+            ArrayDeque<FrameWrite> q = queues[slot];
+            if (q != null) {
+                for (FrameWrite fw : q) {
+                    if (fw.coalescingKey == key) {
+                        remove(slot, fw);
+                        return fw;
+                    }
+                }
+            }
+            return null;
+        }
+
+        @SuppressWarnings("unchecked")
+        boolean remove(int slot, FrameWrite fw) {
+            ArrayDeque<FrameWrite> q = queues[slot];
+            if (q != null && q.removeFirstOccurrence(fw)) {
+                size--;
+                if (q.isEmpty()) {
+                    removeFromRing(slot);
+                }
+                return true;
+            }
+            return false;
+        }
+
+        @SuppressWarnings("unchecked")
+        FrameWrite poll() {
+            int slot = ring[ringHead];
+            ringHead = (ringHead + 1) % NODE_SLOTS;
+            ringSize--;
+            ArrayDeque<FrameWrite> q = queues[slot];
+            FrameWrite fw = q.poll();
+            size--;
+            // if the node has more frames, it goes to the back of the line
+            if (!q.isEmpty()) {
+                ring[(ringHead + ringSize) % NODE_SLOTS] = slot;
+                ringSize++;
+            }
+            return fw;
+        }
+
+        /**
+         * Removes the oldest frame of the level. Each node's sub-queue is in the order its frames were queued, so
+         * the oldest frame is the oldest of the sub-queue heads.
+         *
+         * @return a FrameWrite
+         */
+        @SuppressWarnings("unchecked")
+        FrameWrite pollOldest() {
+            int oldestSlot = -1;
+            long oldestTime = 0;
+            for (int i=0; i < ringSize; i++) {
+                int slot = ring[(ringHead + i) % NODE_SLOTS];
+                FrameWrite fw = (FrameWrite)queues[slot].peek();
+                if (oldestSlot == -1 || fw.queueTime - oldestTime < 0) {
+                    oldestSlot = slot;
+                    oldestTime = fw.queueTime;
+                }
+            }
+            return poll(oldestSlot);
+        }
+
+        @SuppressWarnings("unchecked")
+        FrameWrite poll(int slot) {
+            ArrayDeque<FrameWrite> q = queues[slot];
+            if (q == null || q.isEmpty()) {
+                return null;
+            }
+            FrameWrite fw = q.poll();
+            size--;
+            if (q.isEmpty()) {
+                removeFromRing(slot);
+            }
+            return fw;
+        }
+
+        @SuppressWarnings("unchecked")
+        int moveAll(int slot, Deque<FrameWrite> dest) {
+            ArrayDeque<FrameWrite> q = queues[slot];
+            if (q == null || q.isEmpty()) {
+                return 0;
+            }
+            int count = q.size();
+            while (!q.isEmpty()) {
+                dest.push(q.poll());
+            }
+            removeFromRing(slot);
+            size -= count;
+            return count;
+        }
+
+        private void removeFromRing(int slot) {
+            int n = 0;
+            for (int i=0; i < ringSize; i++) {
+                int s = ring[(ringHead + i) % NODE_SLOTS];
+                if (s != slot) {
+                    ring[(ringHead + n) % NODE_SLOTS] = s;
+                    n++;
+                }
+            }
+            ringSize = n;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ *******************************************************************************
+ * Copyright (c) 2019 Whizzo Software, LLC.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************
+*/
+package com.whizzosoftware.wzwave.channel;
+
+import com.whizzosoftware.wzwave.ZWaveRuntimeException;
+import com.whizzosoftware.wzwave.frame.DataFrame;
+import com.whizzosoftware.wzwave.frame.transaction.FailureReason;
+
+/**
+ * The cause used to fail the response future of a data frame whose transaction failed after all retries allowed by
+ * the RetryPolicy. The reason is that of the last failed attempt (e.g. a timeout, the node not acknowledging the
+ * frame or network congestion).
+ *
+ * @author Dan Noguerol
+ */
+public class TransactionFailedException extends ZWaveRuntimeException {
+    private final transient DataFrame frame;
+    private final FailureReason reason;
+
+    public TransactionFailedException(DataFrame frame, FailureReason reason) {
+        super("Transaction failed (" + reason + "): " + frame);
+        this.frame = frame;
+        this.reason = reason;
+    }
+
+    public DataFrame getFrame() {
+        return frame;
+    }
+
+    public FailureReason getReason() {
+        return reason;
+    }
+}
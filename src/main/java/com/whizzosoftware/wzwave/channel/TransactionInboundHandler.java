@@ -13,13 +13,25 @@ import com.whizzosoftware.wzwave.channel.event.*;
 import com.whizzosoftware.wzwave.frame.*;
 import com.whizzosoftware.wzwave.frame.transaction.NodeInclusionTransaction;
 import com.whizzosoftware.wzwave.frame.transaction.DataFrameTransaction;
+import com.whizzosoftware.wzwave.frame.transaction.DefaultRetryPolicy;
+import com.whizzosoftware.wzwave.frame.transaction.FailureReason;
+import com.whizzosoftware.wzwave.frame.transaction.RetryPolicy;
+import com.whizzosoftware.wzwave.frame.transaction.SendDataTransaction;
+import com.whizzosoftware.wzwave.frame.transaction.TransactionPhase;
+import com.whizzosoftware.wzwave.metrics.ZWaveMetrics;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+import io.netty.util.TimerTask;
+import io.netty.util.concurrent.Promise;
 import io.netty.util.concurrent.ScheduledFuture;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 
@@ -27,14 +39,93 @@ import java.util.concurrent.TimeUnit;
  * Handler for all Z-Wave frame transactions. Responsible for tracking the state of the current transaction
  * including successes, failures and timeouts.
  *
+ * Each phase of a transaction (ACK, RESPONSE, callback and report) is timed separately. The time each phase takes is
+ * fed to an RttEstimator and the timeout for the next phase is derived from the destination node's estimate for it.
+ * Phases of a re-sent frame aren't sampled since it can't be known which transmission was answered.
+ *
+ * When a Timer is provided, timeouts are scheduled on it (typically a hashed wheel) and handed back to the event
+ * loop when they fire; otherwise they are scheduled on the channel's executor. The same goes for re-sends that the
+ * RetryPolicy delays; the transaction's timeout is suspended until the frame has actually been re-sent.
+ *
+ * A SendData transaction whose frame expects a report completes as soon as the controller has transmitted it, which
+ * frees the serial interface for other frames while the node prepares its answer. The expected report is tracked
+ * in a ReportWaitTable instead; if it doesn't arrive in time, the frame is queued again as long as the RetryPolicy
+ * allows it.
+ *
+ * A frame sent with a response promise has it completed with the frame that concluded its transaction: the node's
+ * report for a SendData that expects one and the controller's final response otherwise (or null if there is none).
+ * Response frames are materialized first so they remain readable after their buffer has been released. If the
+ * transaction fails, the promise is failed with a TransactionFailedException carrying the reason, or with a
+ * NodeSleepingException when the frame was queued until its node wakes up.
+ *
+ * The common path of a transaction doesn't allocate: the contexts transactions write to are reused, as are the
+ * started and completed events they fire and the task that times out their phases. Those events are only valid
+ * while they're being handled and must not be kept by handlers or listeners further up the pipeline.
+ *
+ * The number of transactions started, completed and failed (by reason), timeouts, retries and how long transactions
+ * take are kept in a ZWaveMetrics instance.
+ *
  * @author Dan Noguerol
  */
 public class TransactionInboundHandler extends ChannelInboundHandlerAdapter {
     private static final Logger logger = LoggerFactory.getLogger(TransactionInboundHandler.class);
 
     private ChannelHandlerContext handlerContext;
+    private final TransactionRegistry registry = new TransactionRegistry();
+    private final ReportWaitTable reportWaits = new ReportWaitTable();
     private DataFrameTransaction currentDataFrameTransaction;
+    private Promise<DataFrame> currentResponsePromise;
+    private FramePriority currentPriority;
+    private long currentDeadline;
     private ScheduledFuture timeoutFuture;
+    private final Timer timer;
+    private final RttEstimator rttEstimator;
+    private final RetryPolicy retryPolicy;
+    private final ZWaveMetrics metrics;
+    private long transactionStartTime;
+    private Timeout timerTimeout;
+    private long timeoutTransactionId;
+    private final PhaseTimeout phaseTimeout = new PhaseTimeout();
+    private long phaseStartTime;
+    private final List<NettyZWaveChannelContext> contexts = new ArrayList<>();
+    private int contextDepth;
+
+    /**
+     * Constructor that schedules timeouts on the channel's executor.
+     */
+    public TransactionInboundHandler() {
+        this(null, new RttEstimator(), new DefaultRetryPolicy());
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param timer the timer to schedule transaction timeouts on (or null to use the channel's executor)
+     * @param rttEstimator the estimator used to derive transaction phase timeouts
+     * @param retryPolicy the policy that decides whether and when failed transactions are retried
+     */
+    public TransactionInboundHandler(Timer timer, RttEstimator rttEstimator, RetryPolicy retryPolicy) {
+        this(timer, rttEstimator, retryPolicy, new ZWaveMetrics());
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param timer the timer to schedule transaction timeouts on (or null to use the channel's executor)
+     * @param rttEstimator the estimator used to derive transaction phase timeouts
+     * @param retryPolicy the policy that decides whether and when failed transactions are retried
+     * @param metrics the metrics to keep transaction statistics in
+     */
+    public TransactionInboundHandler(Timer timer, RttEstimator rttEstimator, RetryPolicy retryPolicy, ZWaveMetrics metrics) {
+        this.timer = timer;
+        this.rttEstimator = rttEstimator;
+        this.retryPolicy = retryPolicy;
+        this.metrics = metrics;
+    }
+
+    public RttEstimator getRttEstimator() {
+        return rttEstimator;
+    }
 
     @Override
     public void handlerAdded(ChannelHandlerContext ctx) throws Exception {
@@ -51,29 +142,59 @@ public class TransactionInboundHandler extends ChannelInboundHandlerAdapter {
     public void channelRead(ChannelHandlerContext ctx, Object msg) {
         if (msg instanceof Frame) {
             Frame frame = (Frame) msg;
+            if (msg instanceof ApplicationCommand && reportWaits.size() > 0) {
+                onReportReceived((ApplicationCommand)msg);
+            }
             if (hasCurrentTransaction()) {
-                String tid = currentDataFrameTransaction.getId();
-                logger.trace("Received frame within transaction ({}) context: {}", tid, frame);
+                long tid = currentDataFrameTransaction.getId();
+                // guarded so the transaction ID isn't boxed when tracing is off
+                if (logger.isTraceEnabled()) {
+                    logger.trace("Received frame within transaction ({}) context: {}", tid, frame);
+                }
 
                 // give new frame to current transaction
-                NettyZWaveChannelContext zctx = new NettyZWaveChannelContext();
-                if (currentDataFrameTransaction.addFrame(zctx, frame)) {
-                    if (currentDataFrameTransaction.isComplete()) {
-                        logger.trace("*** Data frame transaction ({}) completed", tid);
-                        logger.trace("");
-                        cancelTimeoutCallback();
+                NettyZWaveChannelContext zctx = acquireContext();
+                try {
+                    TransactionPhase phase = currentDataFrameTransaction.getExpectedPhase();
+                    if (currentDataFrameTransaction.addFrame(zctx, frame)) {
+                        if (currentDataFrameTransaction.isComplete()) {
+                            if (logger.isTraceEnabled()) {
+                                logger.trace("*** Data frame transaction ({}) completed", tid);
+                                logger.trace("");
+                            }
+                            cancelTimeoutCallback();
+                            if (zctx.hasCompletedTransaction()) {
+                                onPhaseCompleted(currentDataFrameTransaction, phase);
+                                awaitReportIfPending(ctx, currentDataFrameTransaction);
+                            }
+                        } else if (hasAdvanced(phase, currentDataFrameTransaction.getExpectedPhase())) {
+                            onPhaseCompleted(currentDataFrameTransaction, phase);
+                            startTimeoutCallback();
+                        }
+                        zctx.process(ctx);
+                        retireIfComplete(currentDataFrameTransaction);
+                        // the transaction has consumed the frame; anything it needs to hand along has been retained
+                        ReferenceCountUtil.release(msg);
+                    // if transaction didn't consume frame, then pass it down the pipeline
+                    } else {
+                        logger.trace("Transaction ignored frame so passing it along");
+                        ctx.fireChannelRead(msg);
                     }
-                    zctx.process(ctx);
-                // if transaction didn't consume frame, then pass it down the pipeline
-                } else {
-                    logger.trace("Transaction ignored frame so passing it along");
-                    ctx.fireChannelRead(msg);
+                } finally {
+                    releaseContext(zctx);
                 }
             } else if (msg instanceof AddNodeToNetwork) {
                 logger.trace("Received ADD_NODE_STATUS_NODE_FOUND; starting transaction");
-                NettyZWaveChannelContext zctx = new NettyZWaveChannelContext();
-                currentDataFrameTransaction = new NodeInclusionTransaction(zctx, (DataFrame)msg);
-                zctx.process(ctx);
+                NettyZWaveChannelContext zctx = acquireContext();
+                try {
+                    transactionStartTime = System.nanoTime();
+                    currentDataFrameTransaction = new NodeInclusionTransaction(zctx, (DataFrame)msg);
+                    registry.add(currentDataFrameTransaction);
+                    zctx.process(ctx);
+                } finally {
+                    releaseContext(zctx);
+                }
+                ReferenceCountUtil.release(msg);
             } else {
                 logger.trace("Received frame outside of transaction context so passing it along: {}", frame);
                 ctx.fireChannelRead(msg);
@@ -91,12 +212,30 @@ public class TransactionInboundHandler extends ChannelInboundHandlerAdapter {
             DataFrameSentEvent dfse = (DataFrameSentEvent)evt;
             logger.trace("Detected data frame write event: {}", dfse.getDataFrame());
             if (!hasCurrentTransaction()) {
-                NettyZWaveChannelContext zctx = new NettyZWaveChannelContext();
-                currentDataFrameTransaction = dfse.getDataFrame().createWrapperTransaction(zctx, dfse.isListeningNode());
                 if (currentDataFrameTransaction != null) {
-                    logger.trace("*** Data frame transaction started for {} with ID {}", dfse.getDataFrame(), currentDataFrameTransaction.getId());
-                    startTimeoutCallback();
-                    zctx.process(ctx);
+                    registry.remove(currentDataFrameTransaction.getId());
+                }
+                NettyZWaveChannelContext zctx = acquireContext();
+                try {
+                    transactionStartTime = System.nanoTime();
+                    currentDataFrameTransaction = dfse.getDataFrame().createWrapperTransaction(zctx, dfse.isListeningNode());
+                    currentResponsePromise = dfse.getResponsePromise();
+                    currentPriority = dfse.getPriority();
+                    currentDeadline = dfse.getDeadline();
+                    if (currentDataFrameTransaction != null) {
+                        registry.add(currentDataFrameTransaction);
+                        if (logger.isTraceEnabled()) {
+                            logger.trace("*** Data frame transaction started for {} with ID {}", dfse.getDataFrame(), currentDataFrameTransaction.getId());
+                        }
+                        startTimeoutCallback();
+                        zctx.process(ctx);
+                    } else if (currentResponsePromise != null) {
+                        // frames without a transaction are done once they've been written
+                        currentResponsePromise.trySuccess(null);
+                        currentResponsePromise = null;
+                    }
+                } finally {
+                    releaseContext(zctx);
                 }
             } else if (currentDataFrameTransaction != null && currentDataFrameTransaction.getStartFrame() == dfse.getDataFrame()) {
                 logger.trace("Detected re-send of transaction start frame; starting timeout");
@@ -105,21 +244,14 @@ public class TransactionInboundHandler extends ChannelInboundHandlerAdapter {
                 logger.trace("Wrote a data frame with a current transaction: {}", dfse.getDataFrame());
             }
         } else if (evt instanceof TransactionTimeoutEvent) {
-            TransactionTimeoutEvent tte = (TransactionTimeoutEvent) evt;
-            if (tte.getId().equals(currentDataFrameTransaction.getId())) {
-                logger.trace("Detected transaction timeout");
-                timeoutFuture = null;
-                NettyZWaveChannelContext zctx = new NettyZWaveChannelContext();
-                currentDataFrameTransaction.timeout(zctx);
-                zctx.process(ctx);
-            } else {
-                logger.error("Received timeout event for unknown transaction: {}", tte.getId());
-            }
+            onTransactionTimeout(ctx, ((TransactionTimeoutEvent)evt).getId());
         } else if (evt instanceof TransactionFailedEvent) {
             TransactionFailedEvent tfe = (TransactionFailedEvent)evt;
-            if (tfe.getId().equals(currentDataFrameTransaction.getId())) {
+            if (registry.remove(tfe.getId()) != null) {
                 logger.trace("Aborting failed transaction: {}", tfe.getId());
-                currentDataFrameTransaction = null;
+                if (currentDataFrameTransaction != null && currentDataFrameTransaction.getId() == tfe.getId()) {
+                    currentDataFrameTransaction = null;
+                }
             } else {
                 logger.error("Received transaction failure for unknown transaction: {}", tfe.getId());
             }
@@ -128,6 +260,169 @@ public class TransactionInboundHandler extends ChannelInboundHandlerAdapter {
         }
     }
 
+    /**
+     * Called on the event loop when a transaction's current phase has timed out.
+     *
+     * @param ctx the handler context
+     * @param id the ID of the transaction
+     */
+    private void onTransactionTimeout(ChannelHandlerContext ctx, long id) {
+        DataFrameTransaction t = registry.get(id);
+        if (t != null) {
+            logger.trace("Detected transaction timeout");
+            metrics.onTransactionTimeout();
+            timeoutFuture = null;
+            timerTimeout = null;
+            NettyZWaveChannelContext zctx = acquireContext();
+            try {
+                t.timeout(zctx);
+                zctx.process(ctx);
+            } finally {
+                releaseContext(zctx);
+            }
+            retireIfComplete(t);
+        } else {
+            logger.debug("Ignoring timeout event for transaction that is no longer in flight: {}", id);
+        }
+    }
+
+    /**
+     * Returns a context for a transaction to fire events and write frames to. Contexts are reused; a new one is
+     * only needed when the processing of a context leads back into this handler (e.g. a completion event that
+     * causes the next queued frame to be sent).
+     *
+     * @return a NettyZWaveChannelContext
+     */
+    private NettyZWaveChannelContext acquireContext() {
+        if (contextDepth == contexts.size()) {
+            contexts.add(new NettyZWaveChannelContext());
+        }
+        return contexts.get(contextDepth++);
+    }
+
+    private void releaseContext(NettyZWaveChannelContext zctx) {
+        zctx.clear();
+        contextDepth--;
+    }
+
+    int getInFlightTransactionCount() {
+        return registry.size();
+    }
+
+    int getPendingReportCount() {
+        return reportWaits.size();
+    }
+
+    /**
+     * Starts waiting for the report a completed SendData transaction's node is expected to send back.
+     *
+     * @param ctx the handler context
+     * @param t the completed transaction
+     */
+    private void awaitReportIfPending(ChannelHandlerContext ctx, DataFrameTransaction t) {
+        if (t instanceof SendDataTransaction && ((SendDataTransaction)t).isReportPending()) {
+            SendData frame = (SendData)t.getStartFrame();
+            int key = frame.getExpectedReportKey();
+            if (key >= 0) {
+                ReportTimeout w = new ReportTimeout(ctx, frame, key, t.isListeningNode(), System.nanoTime());
+                if (t == currentDataFrameTransaction) {
+                    w.responsePromise = currentResponsePromise;
+                    w.priority = currentPriority;
+                    w.deadline = currentDeadline;
+                    currentResponsePromise = null;
+                }
+                ReportWaitTable.ReportWait replaced = reportWaits.add(w);
+                if (replaced != null) {
+                    if (replaced.timeout != null) {
+                        replaced.timeout.cancel();
+                    }
+                    // both frames asked for the same report, so the one that ends the new wait answers the old one too
+                    if (replaced.responsePromise != null) {
+                        if (w.responsePromise == null) {
+                            w.responsePromise = replaced.responsePromise;
+                        } else {
+                            FrameWrite.cascade(w.responsePromise, replaced.responsePromise);
+                        }
+                    }
+                }
+                long timeout = rttEstimator.getTimeout(frame.getNodeId() & 0xFF, TransactionPhase.REPORT, t.getTimeout());
+                if (timer != null) {
+                    w.timeout = timer.newTimeout(w, timeout, TimeUnit.MILLISECONDS);
+                } else if (ctx.executor() != null) {
+                    ctx.executor().schedule(w, timeout, TimeUnit.MILLISECONDS);
+                } else {
+                    logger.warn("Unable to schedule report timeout callback");
+                }
+            }
+        }
+    }
+
+    /**
+     * Matches a received application command against the reports being waited on.
+     *
+     * @param cmd the application command
+     */
+    private void onReportReceived(ApplicationCommand cmd) {
+        ReportWaitTable.ReportWait w = reportWaits.remove(cmd.getNodeId(), cmd.getReportKey());
+        if (w != null) {
+            logger.trace("Received expected report from node {}", cmd.getNodeId());
+            if (w.timeout != null) {
+                w.timeout.cancel();
+            }
+            if (w.frame.getSendCount() <= 1) {
+                rttEstimator.addSample(cmd.getNodeId() & 0xFF, TransactionPhase.REPORT, System.nanoTime() - w.startTime);
+            }
+            if (w.responsePromise != null) {
+                w.responsePromise.trySuccess(cmd.materialize());
+            }
+        }
+    }
+
+    /**
+     * Called on the event loop when a node didn't send an expected report in time.
+     *
+     * @param ctx the handler context
+     * @param w the wait that expired
+     */
+    void onReportTimeout(final ChannelHandlerContext ctx, ReportWaitTable.ReportWait w) {
+        if (reportWaits.remove(w)) {
+            metrics.onReportTimeout();
+            int nodeId = w.frame.getNodeId() & 0xFF;
+            long delay = retryPolicy.getRetryDelay(nodeId, FailureReason.TIMEOUT, w.frame.getSendCount(), 0);
+            if (delay != RetryPolicy.NO_RETRY) {
+                logger.debug("Timed out waiting for report from node {}; re-queueing {} in {} ms", nodeId, w.frame, delay);
+                metrics.onTransactionRetry();
+                // the frame goes back into the queue the way it was originally sent
+                final OutboundDataFrame f = new OutboundDataFrame(w.frame, w.listeningNode, w.priority, w.deadline, w.responsePromise);
+                if (delay > 0) {
+                    schedule(ctx, new Runnable() {
+                        @Override
+                        public void run() {
+                            ctx.writeAndFlush(f);
+                        }
+                    }, delay);
+                } else {
+                    ctx.writeAndFlush(f);
+                }
+            } else {
+                logger.debug("Timed out waiting for report from node {}; giving up on {}", nodeId, w.frame);
+                if (w.responsePromise != null) {
+                    w.responsePromise.tryFailure(new TransactionFailedException(w.frame, FailureReason.TIMEOUT));
+                }
+            }
+        }
+    }
+
+    ReportWaitTable getReportWaits() {
+        return reportWaits;
+    }
+
+    private void retireIfComplete(DataFrameTransaction t) {
+        if (t.isComplete()) {
+            registry.remove(t.getId());
+        }
+    }
+
     /**
      * Indicates whether there is an active transaction.
      *
@@ -137,18 +432,53 @@ public class TransactionInboundHandler extends ChannelInboundHandlerAdapter {
         return (currentDataFrameTransaction != null && !currentDataFrameTransaction.isComplete());
     }
 
+    private boolean hasAdvanced(TransactionPhase previous, TransactionPhase current) {
+        return (previous != null && current != null && current.ordinal() > previous.ordinal());
+    }
+
+    /**
+     * Samples the round-trip time of a transaction phase that just completed successfully.
+     *
+     * @param t the transaction
+     * @param phase the phase that completed
+     */
+    private void onPhaseCompleted(DataFrameTransaction t, TransactionPhase phase) {
+        long now = System.nanoTime();
+        if (phase != null && phaseStartTime != 0 && t.getStartFrame().getSendCount() <= 1) {
+            rttEstimator.addSample(getNodeId(t), phase, now - phaseStartTime);
+        }
+        phaseStartTime = now;
+    }
+
+    private int getNodeId(DataFrameTransaction t) {
+        DataFrame f = t.getStartFrame();
+        if (f instanceof SendData) {
+            return ((SendData)f).getNodeId() & 0xFF;
+        } else if (f instanceof RequestNodeInfo && ((RequestNodeInfo)f).getNodeId() != null) {
+            return ((RequestNodeInfo)f).getNodeId() & 0xFF;
+        } else {
+            return 0;
+        }
+    }
+
+    private long getPhaseTimeout(DataFrameTransaction t) {
+        TransactionPhase phase = t.getExpectedPhase();
+        if (phase != null) {
+            return rttEstimator.getTimeout(getNodeId(t), phase, t.getTimeout());
+        } else {
+            return t.getTimeout();
+        }
+    }
+
     private void startTimeoutCallback() {
         cancelTimeoutCallback();
-        if (currentDataFrameTransaction.getTimeout() > 0 && handlerContext != null && handlerContext.executor() != null) {
-            timeoutFuture = handlerContext.executor().schedule(
-                new TransactionTimeoutHandler(
-                    currentDataFrameTransaction.getId(),
-                    handlerContext,
-                    this
-                ),
-                currentDataFrameTransaction.getTimeout(),
-                TimeUnit.MILLISECONDS
-            );
+        phaseStartTime = System.nanoTime();
+        long timeout = getPhaseTimeout(currentDataFrameTransaction);
+        timeoutTransactionId = currentDataFrameTransaction.getId();
+        if (timeout > 0 && timer != null && handlerContext != null) {
+            timerTimeout = timer.newTimeout(phaseTimeout, timeout, TimeUnit.MILLISECONDS);
+        } else if (timeout > 0 && handlerContext != null && handlerContext.executor() != null) {
+            timeoutFuture = handlerContext.executor().schedule(phaseTimeout, timeout, TimeUnit.MILLISECONDS);
         } else {
             logger.warn("Unable to schedule transaction timeout callback");
         }
@@ -159,39 +489,268 @@ public class TransactionInboundHandler extends ChannelInboundHandlerAdapter {
             timeoutFuture.cancel(true);
             timeoutFuture = null;
         }
+        if (timerTimeout != null) {
+            timerTimeout.cancel();
+            timerTimeout = null;
+        }
+    }
+
+    /**
+     * Writes a transaction's start frame once its retry delay has passed. The transaction's timeout is suspended in
+     * the meantime.
+     *
+     * @param ctx the handler context
+     * @param f the frame to write
+     * @param delay the delay in milliseconds
+     */
+    private void scheduleRetry(final ChannelHandlerContext ctx, final OutboundDataFrame f, long delay) {
+        final DataFrameTransaction t = currentDataFrameTransaction;
+        final Runnable retry = new Runnable() {
+            @Override
+            public void run() {
+                // don't re-send if the transaction was ended in the meantime
+                if (t == currentDataFrameTransaction && !t.isComplete()) {
+                    ctx.writeAndFlush(f);
+                } else {
+                    logger.debug("Transaction {} ended before its retry was due", t.getId());
+                }
+            }
+        };
+        cancelTimeoutCallback();
+        schedule(ctx, retry, delay);
+    }
+
+    /**
+     * Runs a task on the event loop once a delay has passed. The delay is scheduled on the handler's timer or,
+     * lacking one, the channel's executor.
+     *
+     * @param ctx the handler context
+     * @param task the task
+     * @param delay the delay in milliseconds
+     */
+    private void schedule(final ChannelHandlerContext ctx, final Runnable task, long delay) {
+        if (timer != null) {
+            timer.newTimeout(new TimerTask() {
+                @Override
+                public void run(Timeout timeout) {
+                    ctx.executor().execute(task);
+                }
+            }, delay, TimeUnit.MILLISECONDS);
+        } else if (ctx.executor() != null) {
+            ctx.executor().schedule(task, delay, TimeUnit.MILLISECONDS);
+        } else {
+            // running the task right away would defeat the retry policy's backoff
+            throw new IllegalStateException("Unable to delay a re-send without a timer or executor");
+        }
     }
 
+    /**
+     * Completes the response promise of the current transaction if an event concludes it.
+     *
+     * @param o an event fired by a transaction
+     */
+    private void notifyResponsePromise(Object o) {
+        if (currentResponsePromise == null || currentDataFrameTransaction == null) {
+            return;
+        }
+        if (o instanceof TransactionCompletedEvent && ((TransactionCompletedEvent)o).getId() == currentDataFrameTransaction.getId()) {
+            if (currentDataFrameTransaction instanceof SendDataTransaction) {
+                SendDataTransaction sdt = (SendDataTransaction)currentDataFrameTransaction;
+                // a pending report has its own wait that took the promise over (see awaitReportIfPending())
+                currentResponsePromise.trySuccess(sdt.getReport());
+            } else {
+                DataFrame f = ((TransactionCompletedEvent)o).getFrame();
+                currentResponsePromise.trySuccess(f != null ? f.materialize() : null);
+            }
+            currentResponsePromise = null;
+        } else if (o instanceof TransactionFailedEvent && ((TransactionFailedEvent)o).getId() == currentDataFrameTransaction.getId()) {
+            TransactionFailedEvent tfe = (TransactionFailedEvent)o;
+            DataFrame f = currentDataFrameTransaction.getStartFrame();
+            if (tfe instanceof SendDataTransactionFailedEvent && !((SendDataTransactionFailedEvent)tfe).isListeningNode() && !((SendDataTransactionFailedEvent)tfe).isTargetNodeACKReceived()) {
+                currentResponsePromise.tryFailure(new NodeSleepingException(f));
+            } else {
+                currentResponsePromise.tryFailure(new TransactionFailedException(f, tfe.getReason() != null ? tfe.getReason() : FailureReason.FAILED));
+            }
+            currentResponsePromise = null;
+        }
+    }
+
+    /**
+     * Counts transaction starts and outcomes in the metrics.
+     *
+     * @param o an event fired by a transaction
+     */
+    private void updateMetrics(Object o) {
+        if (o instanceof TransactionStartedEvent) {
+            metrics.onTransactionStarted();
+        } else if (o instanceof TransactionCompletedEvent) {
+            metrics.onTransactionCompleted(System.nanoTime() - transactionStartTime);
+        } else if (o instanceof TransactionFailedEvent) {
+            metrics.onTransactionFailed(((TransactionFailedEvent)o).getReason());
+        }
+    }
+
+    /**
+     * Lets the retry policy know about the outcome of transactions with nodes.
+     *
+     * @param o an event fired by a transaction
+     */
+    private void notifyRetryPolicy(Object o) {
+        if (o instanceof SendDataTransactionCompletedEvent) {
+            retryPolicy.onTransactionCompleted(((SendDataTransactionCompletedEvent)o).getNodeId() & 0xFF);
+        } else if (o instanceof SendDataTransactionFailedEvent && ((SendDataTransactionFailedEvent)o).isListeningNode()) {
+            retryPolicy.onTransactionFailed(((SendDataTransactionFailedEvent)o).getNodeId() & 0xFF);
+        }
+    }
+
+    /**
+     * Times out the current transaction's phase. A single instance serves all phase timeouts.
+     */
+    private class PhaseTimeout implements TimerTask, Runnable {
+        @Override
+        public void run(Timeout timeout) {
+            handlerContext.executor().execute(this);
+        }
+
+        @Override
+        public void run() {
+            // the timeout may have been cancelled or replaced after it fired but before it got here
+            if (timer == null || (timerTimeout != null && timerTimeout.isExpired())) {
+                onTransactionTimeout(handlerContext, timeoutTransactionId);
+            }
+        }
+    }
+
+    /**
+     * A report wait that also serves as its own timeout task.
+     */
+    private class ReportTimeout extends ReportWaitTable.ReportWait implements TimerTask, Runnable {
+        private final ChannelHandlerContext ctx;
+
+        ReportTimeout(ChannelHandlerContext ctx, SendData frame, int key, boolean listeningNode, long startTime) {
+            super(frame, key, listeningNode, startTime);
+            this.ctx = ctx;
+        }
+
+        @Override
+        public void run(Timeout timeout) {
+            ctx.executor().execute(this);
+        }
+
+        @Override
+        public void run() {
+            onReportTimeout(ctx, this);
+        }
+    }
+
+    /**
+     * Collects the events and frames a transaction produces so they can be passed along once the transaction is done
+     * with them. Instances are reused (see acquireContext()), and so are the started and completed events they fire;
+     * those are only valid while they're being handled.
+     */
     private class NettyZWaveChannelContext implements ZWaveChannelContext {
-        private List<Object> events;
-        private List<OutboundDataFrame> frames;
+        private final List<Object> events = new ArrayList<>();
+        private final List<OutboundDataFrame> frames = new ArrayList<>();
+        private final List<OutboundDataFrame> delayedFrames = new ArrayList<>();
+        private long[] delays = new long[4];
+        private final TransactionStartedEvent startedEvent = new TransactionStartedEvent(0);
+        private final TransactionCompletedEvent completedEvent = new TransactionCompletedEvent(0, null);
+        private final SendDataTransactionCompletedEvent sendDataCompletedEvent = new SendDataTransactionCompletedEvent(0, null, (byte)0);
 
         void process(ChannelHandlerContext ctx) {
-            if (events != null) {
-                for (Object o : events) {
-                    ctx.fireUserEventTriggered(o);
+            for (int i = 0; i < events.size(); i++) {
+                Object o = events.get(i);
+                updateMetrics(o);
+                notifyRetryPolicy(o);
+                notifyResponsePromise(o);
+                ctx.fireUserEventTriggered(o);
+            }
+            for (int i = 0; i < frames.size(); i++) {
+                metrics.onTransactionRetry();
+                ctx.writeAndFlush(frames.get(i));
+            }
+            for (int i = 0; i < delayedFrames.size(); i++) {
+                metrics.onTransactionRetry();
+                scheduleRetry(ctx, delayedFrames.get(i), delays[i]);
+            }
+        }
+
+        void clear() {
+            events.clear();
+            frames.clear();
+            delayedFrames.clear();
+        }
+
+        boolean hasCompletedTransaction() {
+            for (int i = 0; i < events.size(); i++) {
+                if (events.get(i) instanceof TransactionCompletedEvent) {
+                    return true;
                 }
             }
-            if (frames != null) {
-                for (OutboundDataFrame f : frames) {
-                    ctx.writeAndFlush(f);
+            return false;
+        }
+
+        private boolean isPending(Object o) {
+            for (int i = 0; i < events.size(); i++) {
+                if (events.get(i) == o) {
+                    return true;
                 }
             }
+            return false;
         }
 
         @Override
         public void fireEvent(Object o) {
-            if (events == null) {
-                events = new ArrayList<>();
-            }
             events.add(o);
         }
 
         @Override
-        public void writeFrame(OutboundDataFrame f) {
-            if (frames == null) {
-                frames = new ArrayList<>();
+        public void fireTransactionStarted(long id) {
+            if (isPending(startedEvent)) {
+                fireEvent(new TransactionStartedEvent(id));
+            } else {
+                startedEvent.setId(id);
+                fireEvent(startedEvent);
+            }
+        }
+
+        @Override
+        public void fireTransactionCompleted(long id, DataFrame frame) {
+            if (isPending(completedEvent)) {
+                fireEvent(new TransactionCompletedEvent(id, frame));
+            } else {
+                completedEvent.set(id, frame, null);
+                fireEvent(completedEvent);
             }
+        }
+
+        @Override
+        public void fireSendDataTransactionCompleted(long id, byte nodeId) {
+            if (isPending(sendDataCompletedEvent)) {
+                fireEvent(new SendDataTransactionCompletedEvent(id, null, nodeId));
+            } else {
+                sendDataCompletedEvent.set(id, null, nodeId);
+                fireEvent(sendDataCompletedEvent);
+            }
+        }
+
+        @Override
+        public void writeFrame(OutboundDataFrame f) {
             frames.add(f);
         }
+
+        @Override
+        public void writeFrame(OutboundDataFrame f, long delay, TimeUnit unit) {
+            if (delayedFrames.size() == delays.length) {
+                delays = Arrays.copyOf(delays, delays.length * 2);
+            }
+            delays[delayedFrames.size()] = unit.toMillis(delay);
+            delayedFrames.add(f);
+        }
+
+        @Override
+        public RetryPolicy getRetryPolicy() {
+            return retryPolicy;
+        }
     }
 }
@@ -0,0 +1,123 @@
+/*
+ *******************************************************************************
+ * Copyright (c) 2019 Whizzo Software, LLC.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************
+*/
+package com.whizzosoftware.wzwave.channel;
+
+import com.whizzosoftware.wzwave.frame.transaction.DataFrameTransaction;
+
+/**
+ * An index of in-flight transactions by ID.
+ *
+ * Transaction IDs are allocated in increasing order and only a handful of transactions are in flight at any time, so
+ * transactions are kept in a small power-of-two table indexed by the low bits of their ID. A lookup is a single array
+ * access plus a comparison of the stored ID, which makes rejecting events for stale transactions (e.g. a timeout that
+ * fires just after its transaction completed) an O(1) operation.
+ *
+ * @author Dan Noguerol
+ */
+class TransactionRegistry {
+    static final int DEFAULT_CAPACITY = 16;
+
+    private long[] ids;
+    private DataFrameTransaction[] transactions;
+    private int size;
+
+    TransactionRegistry() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    TransactionRegistry(int capacity) {
+        int c = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+        this.ids = new long[c];
+        this.transactions = new DataFrameTransaction[c];
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Adds an in-flight transaction.
+     *
+     * @param t the transaction
+     */
+    void add(DataFrameTransaction t) {
+        long id = t.getId();
+        while (transactions[index(id, ids.length)] != null && ids[index(id, ids.length)] != id) {
+            grow();
+        }
+        int ix = index(id, ids.length);
+        if (transactions[ix] == null) {
+            size++;
+        }
+        ids[ix] = id;
+        transactions[ix] = t;
+    }
+
+    /**
+     * Returns the in-flight transaction with an ID.
+     *
+     * @param id the transaction ID
+     *
+     * @return a DataFrameTransaction (or null if no transaction with that ID is in flight)
+     */
+    DataFrameTransaction get(long id) {
+        int ix = index(id, ids.length);
+        return (ids[ix] == id) ? transactions[ix] : null;
+    }
+
+    /**
+     * Removes the in-flight transaction with an ID.
+     *
+     * @param id the transaction ID
+     *
+     * @return the removed DataFrameTransaction (or null if no transaction with that ID was in flight)
+     */
+    DataFrameTransaction remove(long id) {
+        int ix = index(id, ids.length);
+        DataFrameTransaction t = null;
+        if (ids[ix] == id && transactions[ix] != null) {
+            t = transactions[ix];
+            ids[ix] = 0;
+            transactions[ix] = null;
+            size--;
+        }
+        return t;
+    }
+
+    private void grow() {
+        int c = ids.length;
+        boolean placed = false;
+        long[] newIds = null;
+        DataFrameTransaction[] newTransactions = null;
+        while (!placed) {
+            c <<= 1;
+            newIds = new long[c];
+            newTransactions = new DataFrameTransaction[c];
+            placed = true;
+            for (int i=0; i < transactions.length && placed; i++) {
+                if (transactions[i] != null) {
+                    int ix = index(ids[i], c);
+                    if (newTransactions[ix] == null) {
+                        newIds[ix] = ids[i];
+                        newTransactions[ix] = transactions[i];
+                    } else {
+                        placed = false;
+                    }
+                }
+            }
+        }
+        ids = newIds;
+        transactions = newTransactions;
+    }
+
+    private static int index(long id, int length) {
+        return (int)id & (length - 1);
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ *******************************************************************************
+ * Copyright (c) 2019 Whizzo Software, LLC.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************
+*/
+package com.whizzosoftware.wzwave.channel;
+
+import com.whizzosoftware.wzwave.trace.WireTraceRecorder;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+
+/**
+ * A handler that sits next to the transport and records all raw bytes read from and written to it.
+ *
+ * @author Dan Noguerol
+ */
+public class WireTraceHandler extends ChannelDuplexHandler {
+    private WireTraceRecorder recorder;
+
+    public WireTraceHandler(WireTraceRecorder recorder) {
+        this.recorder = recorder;
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        if (msg instanceof ByteBuf) {
+            recorder.record(WireTraceRecorder.DIRECTION_RX, (ByteBuf)msg);
+        }
+        ctx.fireChannelRead(msg);
+    }
+
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+        if (msg instanceof ByteBuf) {
+            recorder.record(WireTraceRecorder.DIRECTION_TX, (ByteBuf)msg);
+        }
+        ctx.write(msg, promise);
+    }
+}
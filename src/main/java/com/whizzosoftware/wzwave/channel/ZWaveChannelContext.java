@@ -9,7 +9,11 @@
 */
 package com.whizzosoftware.wzwave.channel;
 
+import com.whizzosoftware.wzwave.frame.DataFrame;
 import com.whizzosoftware.wzwave.frame.OutboundDataFrame;
+import com.whizzosoftware.wzwave.frame.transaction.RetryPolicy;
+
+import java.util.concurrent.TimeUnit;
 
 /**
  * An interface that allows firing events and writing data frames.
@@ -18,5 +22,44 @@ import com.whizzosoftware.wzwave.frame.OutboundDataFrame;
  */
 public interface ZWaveChannelContext {
     void fireEvent(Object o);
+
+    /**
+     * Fires a TransactionStartedEvent. The context may reuse the event object for later transactions.
+     *
+     * @param id the transaction ID
+     */
+    void fireTransactionStarted(long id);
+
+    /**
+     * Fires a TransactionCompletedEvent. The context may reuse the event object for later transactions.
+     *
+     * @param id the transaction ID
+     * @param frame the data frame associated with the completed transaction (or null)
+     */
+    void fireTransactionCompleted(long id, DataFrame frame);
+
+    /**
+     * Fires a SendDataTransactionCompletedEvent. The context may reuse the event object for later transactions.
+     *
+     * @param id the transaction ID
+     * @param nodeId the ID of the node the data was sent to
+     */
+    void fireSendDataTransactionCompleted(long id, byte nodeId);
     void writeFrame(OutboundDataFrame f);
+
+    /**
+     * Writes a data frame once a delay has passed.
+     *
+     * @param f the frame to write
+     * @param delay the delay
+     * @param unit the time unit of delay
+     */
+    void writeFrame(OutboundDataFrame f, long delay, TimeUnit unit);
+
+    /**
+     * Returns the policy that decides whether and when failed transactions are retried.
+     *
+     * @return a RetryPolicy
+     */
+    RetryPolicy getRetryPolicy();
 }
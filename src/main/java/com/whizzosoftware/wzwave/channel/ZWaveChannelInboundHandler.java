@@ -9,12 +9,14 @@
 */
 package com.whizzosoftware.wzwave.channel;
 
+import com.whizzosoftware.wzwave.channel.event.QueueWritabilityChangedEvent;
 import com.whizzosoftware.wzwave.channel.event.TransactionCompletedEvent;
 import com.whizzosoftware.wzwave.channel.event.TransactionFailedEvent;
 import com.whizzosoftware.wzwave.channel.event.TransactionStartedEvent;
 import com.whizzosoftware.wzwave.frame.*;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.util.ReferenceCountUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -37,7 +39,15 @@ public class ZWaveChannelInboundHandler extends ChannelInboundHandlerAdapter {
 
     @Override
     public void channelRead(ChannelHandlerContext ctx, Object msg) {
-        Frame frame = (Frame)msg;
+        try {
+            processFrame(ctx, (Frame)msg);
+        } finally {
+            // this is the end of the line for inbound frames so release them
+            ReferenceCountUtil.release(msg);
+        }
+    }
+
+    private void processFrame(ChannelHandlerContext ctx, Frame frame) {
         if (frame instanceof Version) {
             if (listener != null) {
                 listener.onLibraryInfo(((Version) frame).getLibraryVersion());
@@ -71,6 +81,8 @@ public class ZWaveChannelInboundHandler extends ChannelInboundHandlerAdapter {
             if (listener != null) {
                 listener.onSetDefault();
             }
+        } else if (frame instanceof RawDataFrame) {
+            logger.debug("Received unhandled data frame: {}", frame);
         } else {
             logger.error("Received unknown data frame: " + frame);
         }
@@ -95,6 +107,8 @@ public class ZWaveChannelInboundHandler extends ChannelInboundHandlerAdapter {
             }
         } else if (evt instanceof TransactionFailedEvent) {
             listener.onTransactionFailed((TransactionFailedEvent)evt);
+        } else if (evt instanceof QueueWritabilityChangedEvent && listener instanceof QueueWritabilityListener) {
+            ((QueueWritabilityListener)listener).onQueueWritabilityChanged((QueueWritabilityChangedEvent)evt);
         }
     }
 
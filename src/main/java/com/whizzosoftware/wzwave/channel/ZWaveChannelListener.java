@@ -17,6 +17,9 @@ import com.whizzosoftware.wzwave.frame.*;
 /**
  * An interface with callbacks of interest from the Z-Wave network.
  *
+ * Transaction started and completed events may be reused for later transactions, so they shouldn't be kept beyond
+ * the callback they're passed to.
+ *
  * @author Dan Noguerol
  */
 public interface ZWaveChannelListener {
@@ -10,6 +10,8 @@
 package com.whizzosoftware.wzwave.channel.event;
 
 import com.whizzosoftware.wzwave.frame.DataFrame;
+import com.whizzosoftware.wzwave.frame.FramePriority;
+import io.netty.util.concurrent.Promise;
 
 /**
  * An event fired when a data frame is sent to the Z-Wave network.
@@ -19,6 +21,9 @@ import com.whizzosoftware.wzwave.frame.DataFrame;
 public class DataFrameSentEvent {
     private DataFrame dataFrame;
     private boolean listeningNode;
+    private Promise<DataFrame> responsePromise;
+    private FramePriority priority;
+    private long deadline;
 
     /**
      * Constructor.
@@ -27,8 +32,35 @@ public class DataFrameSentEvent {
      * @param listeningNode indicates if the destination node is a listening node
      */
     public DataFrameSentEvent(DataFrame dataFrame, boolean listeningNode) {
+        this(dataFrame, listeningNode, null);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param dataFrame the data frame that was sent
+     * @param listeningNode indicates if the destination node is a listening node
+     * @param responsePromise the promise to complete with the outcome of the frame's transaction (or null)
+     */
+    public DataFrameSentEvent(DataFrame dataFrame, boolean listeningNode, Promise<DataFrame> responsePromise) {
+        this(dataFrame, listeningNode, FramePriority.NORMAL, 0, responsePromise);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param dataFrame the data frame that was sent
+     * @param listeningNode indicates if the destination node is a listening node
+     * @param priority the priority the frame was sent with
+     * @param deadline the System.nanoTime() value after which the frame should no longer be sent (or 0 for none)
+     * @param responsePromise the promise to complete with the outcome of the frame's transaction (or null)
+     */
+    public DataFrameSentEvent(DataFrame dataFrame, boolean listeningNode, FramePriority priority, long deadline, Promise<DataFrame> responsePromise) {
         this.dataFrame = dataFrame;
         this.listeningNode = listeningNode;
+        this.priority = priority;
+        this.deadline = deadline;
+        this.responsePromise = responsePromise;
     }
 
     public DataFrame getDataFrame() {
@@ -39,6 +71,36 @@ public class DataFrameSentEvent {
         return listeningNode;
     }
 
+    public Promise<DataFrame> getResponsePromise() {
+        return responsePromise;
+    }
+
+    public FramePriority getPriority() {
+        return priority;
+    }
+
+    public long getDeadline() {
+        return deadline;
+    }
+
+    /**
+     * Re-initializes the event. This allows a single event to be reused for successive frames; an event that is
+     * reused this way is only valid while it's being handled.
+     *
+     * @param dataFrame the data frame that was sent
+     * @param listeningNode indicates if the destination node is a listening node
+     * @param priority the priority the frame was sent with
+     * @param deadline the System.nanoTime() value after which the frame should no longer be sent (or 0 for none)
+     * @param responsePromise the promise to complete with the outcome of the frame's transaction (or null)
+     */
+    public void set(DataFrame dataFrame, boolean listeningNode, FramePriority priority, long deadline, Promise<DataFrame> responsePromise) {
+        this.dataFrame = dataFrame;
+        this.listeningNode = listeningNode;
+        this.priority = priority;
+        this.deadline = deadline;
+        this.responsePromise = responsePromise;
+    }
+
     @Override
     public String toString()
     {
@@ -0,0 +1,35 @@
+/*
+ *******************************************************************************
+ * Copyright (c) 2019 Whizzo Software, LLC.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************
+*/
+package com.whizzosoftware.wzwave.channel.event;
+
+/**
+ * An event sent when the frame queue fills up (and stops accepting frames without blocking or discarding them) or
+ * drains enough to accept frames again.
+ *
+ * @author Dan Noguerol
+ */
+public class QueueWritabilityChangedEvent {
+    private boolean writable;
+
+    public QueueWritabilityChangedEvent(boolean writable) {
+        this.writable = writable;
+    }
+
+    public boolean isWritable() {
+        return writable;
+    }
+
+    @Override
+    public String toString() {
+        return "QueueWritabilityChangedEvent{" +
+                "writable=" + writable +
+                '}';
+    }
+}
@@ -12,7 +12,7 @@ package com.whizzosoftware.wzwave.channel.event;
 import com.whizzosoftware.wzwave.frame.DataFrame;
 
 public class SendDataTransactionCompletedEvent extends TransactionCompletedEvent {
-    public SendDataTransactionCompletedEvent(String id, DataFrame frame, byte nodeId) {
+    public SendDataTransactionCompletedEvent(long id, DataFrame frame, byte nodeId) {
         super(id, frame, nodeId);
     }
 
@@ -10,13 +10,18 @@
 package com.whizzosoftware.wzwave.channel.event;
 
 import com.whizzosoftware.wzwave.frame.DataFrame;
+import com.whizzosoftware.wzwave.frame.transaction.FailureReason;
 
 public class SendDataTransactionFailedEvent extends TransactionFailedEvent {
     private boolean listeningNode;
     private boolean tgtNodeACKReceived;
 
-    public SendDataTransactionFailedEvent(String id, DataFrame startFrame, byte nodeId, boolean listeningNode, boolean tgtNodeACKReceived) {
-        super(id, startFrame, nodeId);
+    public SendDataTransactionFailedEvent(long id, DataFrame startFrame, byte nodeId, boolean listeningNode, boolean tgtNodeACKReceived) {
+        this(id, startFrame, nodeId, listeningNode, tgtNodeACKReceived, FailureReason.FAILED);
+    }
+
+    public SendDataTransactionFailedEvent(long id, DataFrame startFrame, byte nodeId, boolean listeningNode, boolean tgtNodeACKReceived, FailureReason reason) {
+        super(id, startFrame, nodeId, reason);
         this.listeningNode = listeningNode;
         this.tgtNodeACKReceived = tgtNodeACKReceived;
     }
@@ -37,6 +42,7 @@ public class SendDataTransactionFailedEvent extends TransactionFailedEvent {
                 ", nodeId=" + getNodeId() +
                 ", listeningNode=" + isListeningNode() +
                 ", tgtNodeACKReceived=" + isTargetNodeACKReceived() +
+                ", reason=" + getReason() +
                 '}';
     }
 }
@@ -17,7 +17,7 @@ import com.whizzosoftware.wzwave.frame.DataFrame;
  * @author Dan Noguerol
  */
 public class TransactionCompletedEvent {
-    private String id;
+    private long id;
     private DataFrame frame;
     private Byte nodeId;
 
@@ -27,7 +27,7 @@ public class TransactionCompletedEvent {
      * @param id the transaction ID
      * @param frame the data frame associated with the completed transaction
      */
-    public TransactionCompletedEvent(String id, DataFrame frame) {
+    public TransactionCompletedEvent(long id, DataFrame frame) {
         this.id = id;
         this.frame = frame;
     }
@@ -39,12 +39,12 @@ public class TransactionCompletedEvent {
      * @param frame the data frame associated with the completed transaction
      * @param nodeId the node ID associated with the transaction
      */
-    public TransactionCompletedEvent(String id, DataFrame frame, byte nodeId) {
+    public TransactionCompletedEvent(long id, DataFrame frame, byte nodeId) {
         this(id, frame);
         this.nodeId = nodeId;
     }
 
-    public String getId() {
+    public long getId() {
         return id;
     }
 
@@ -60,6 +60,20 @@ public class TransactionCompletedEvent {
         return nodeId;
     }
 
+    /**
+     * Re-initializes the event. This allows a single event to be reused for successive transactions; an event that
+     * is reused this way is only valid while it's being handled.
+     *
+     * @param id the transaction ID
+     * @param frame the data frame associated with the completed transaction
+     * @param nodeId the node ID associated with the transaction (or null)
+     */
+    public void set(long id, DataFrame frame, Byte nodeId) {
+        this.id = id;
+        this.frame = frame;
+        this.nodeId = nodeId;
+    }
+
     @Override
     public String toString()
     {
@@ -10,6 +10,7 @@
 package com.whizzosoftware.wzwave.channel.event;
 
 import com.whizzosoftware.wzwave.frame.DataFrame;
+import com.whizzosoftware.wzwave.frame.transaction.FailureReason;
 
 /**
  * A user event that indicates a Z-Wave data frame transaction has failed.
@@ -17,9 +18,10 @@ import com.whizzosoftware.wzwave.frame.DataFrame;
  * @author Dan Noguerol
  */
 public class TransactionFailedEvent {
-    private String id;
+    private long id;
     private Byte nodeId;
     private DataFrame startFrame;
+    private FailureReason reason;
 
     /**
      * Constructor.
@@ -27,7 +29,7 @@ public class TransactionFailedEvent {
      * @param id the transaction ID
      * @param startFrame the data frame that initiated the transaction
      */
-    public TransactionFailedEvent(String id, DataFrame startFrame) {
+    public TransactionFailedEvent(long id, DataFrame startFrame) {
         this(id, startFrame, null);
     }
 
@@ -38,13 +40,26 @@ public class TransactionFailedEvent {
      * @param startFrame the data frame that initiated the transaction
      * @param nodeId the node ID associated with the transaction
      */
-    public TransactionFailedEvent(String id, DataFrame startFrame, Byte nodeId) {
+    public TransactionFailedEvent(long id, DataFrame startFrame, Byte nodeId) {
+        this(id, startFrame, nodeId, FailureReason.FAILED);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param id the transaction ID
+     * @param startFrame the data frame that initiated the transaction
+     * @param nodeId the node ID associated with the transaction
+     * @param reason the reason the transaction's last attempt failed
+     */
+    public TransactionFailedEvent(long id, DataFrame startFrame, Byte nodeId, FailureReason reason) {
         this.id = id;
         this.nodeId = nodeId;
         this.startFrame = startFrame;
+        this.reason = reason;
     }
 
-    public String getId() {
+    public long getId() {
         return id;
     }
 
@@ -60,12 +75,17 @@ public class TransactionFailedEvent {
         return startFrame;
     }
 
+    public FailureReason getReason() {
+        return reason;
+    }
+
     @Override
     public String toString()
     {
         return "TransactionFailedEvent{" +
                 "id=" + getId() +
                 ", nodeId=" + getNodeId() +
+                ", reason=" + getReason() +
                 '}';
     }
 }
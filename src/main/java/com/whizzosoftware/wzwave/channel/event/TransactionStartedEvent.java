@@ -15,16 +15,26 @@ package com.whizzosoftware.wzwave.channel.event;
  * @author Dan Noguerol
  */
 public class TransactionStartedEvent {
-    private String id;
+    private long id;
 
-    public TransactionStartedEvent(String id) {
+    public TransactionStartedEvent(long id) {
         this.id = id;
     }
 
-    public String getId() {
+    public long getId() {
         return id;
     }
 
+    /**
+     * Sets the transaction ID. This allows a single event to be reused for successive transactions; an event that is
+     * reused this way is only valid while it's being handled.
+     *
+     * @param id the transaction ID
+     */
+    public void setId(long id) {
+        this.id = id;
+    }
+
     @Override
     public String toString()
     {
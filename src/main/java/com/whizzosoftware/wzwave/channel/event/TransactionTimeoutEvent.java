@@ -15,13 +15,13 @@ package com.whizzosoftware.wzwave.channel.event;
  * @author Dan Noguerol
  */
 public class TransactionTimeoutEvent {
-    private String id;
+    private long id;
 
-    public TransactionTimeoutEvent(String id) {
+    public TransactionTimeoutEvent(long id) {
         this.id = id;
     }
 
-    public String getId() {
+    public long getId() {
         return id;
     }
 
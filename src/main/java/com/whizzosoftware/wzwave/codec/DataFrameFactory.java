@@ -0,0 +1,29 @@
+/*
+ *******************************************************************************
+ * Copyright (c) 2019 Whizzo Software, LLC.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************
+*/
+package com.whizzosoftware.wzwave.codec;
+
+import com.whizzosoftware.wzwave.frame.DataFrame;
+import io.netty.buffer.ByteBuf;
+
+/**
+ * Interface for classes that can create a specific type of DataFrame from a received buffer.
+ *
+ * @author Dan Noguerol
+ */
+public interface DataFrameFactory {
+    /**
+     * Creates a new DataFrame.
+     *
+     * @param buffer the buffer containing the complete frame (starting with the SOF byte and excluding the checksum)
+     *
+     * @return a DataFrame instance
+     */
+    DataFrame createDataFrame(ByteBuf buffer);
+}
@@ -0,0 +1,166 @@
+/*
+ *******************************************************************************
+ * Copyright (c) 2019 Whizzo Software, LLC.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************
+*/
+package com.whizzosoftware.wzwave.codec;
+
+import com.whizzosoftware.wzwave.frame.*;
+import io.netty.buffer.ByteBuf;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A registry of DataFrameFactory instances indexed by Serial API function ID. Lookups are a single array access so
+ * the decoder can dispatch every received frame in constant time. Frames with function IDs that have no registered
+ * factory are returned as RawDataFrame instances.
+ *
+ * @author Dan Noguerol
+ */
+public class DataFrameFactoryRegistry {
+    private static final int FUNCTION_ID_COUNT = 256;
+
+    private final AtomicReferenceArray<DataFrameFactory> factories = new AtomicReferenceArray<>(FUNCTION_ID_COUNT);
+
+    /**
+     * Constructor. The registry is pre-populated with factories for all data frames supported by the library.
+     */
+    public DataFrameFactoryRegistry() {
+        register(Version.ID, new DataFrameFactory() {
+            @Override
+            public DataFrame createDataFrame(ByteBuf buffer) {
+                return new Version(buffer);
+            }
+        });
+        register(MemoryGetId.ID, new DataFrameFactory() {
+            @Override
+            public DataFrame createDataFrame(ByteBuf buffer) {
+                return new MemoryGetId(buffer);
+            }
+        });
+        register(InitData.ID, new DataFrameFactory() {
+            @Override
+            public DataFrame createDataFrame(ByteBuf buffer) {
+                return new InitData(buffer);
+            }
+        });
+        register(NodeProtocolInfo.ID, new DataFrameFactory() {
+            @Override
+            public DataFrame createDataFrame(ByteBuf buffer) {
+                return new NodeProtocolInfo(buffer);
+            }
+        });
+        register(SendData.ID, new DataFrameFactory() {
+            @Override
+            public DataFrame createDataFrame(ByteBuf buffer) {
+                return new SendData(buffer);
+            }
+        });
+        register(SendDataMulti.ID, new DataFrameFactory() {
+            @Override
+            public DataFrame createDataFrame(ByteBuf buffer) {
+                return new SendDataMulti(buffer);
+            }
+        });
+        register(ApplicationCommand.ID, new DataFrameFactory() {
+            @Override
+            public DataFrame createDataFrame(ByteBuf buffer) {
+                return new ApplicationCommand(buffer);
+            }
+        });
+        register(ApplicationUpdate.ID, new DataFrameFactory() {
+            @Override
+            public DataFrame createDataFrame(ByteBuf buffer) {
+                return new ApplicationUpdate(buffer);
+            }
+        });
+        register(RequestNodeInfo.ID, new DataFrameFactory() {
+            @Override
+            public DataFrame createDataFrame(ByteBuf buffer) {
+                return new RequestNodeInfo(buffer);
+            }
+        });
+        register(GetRoutingInfo.ID, new DataFrameFactory() {
+            @Override
+            public DataFrame createDataFrame(ByteBuf buffer) {
+                return new GetRoutingInfo(buffer);
+            }
+        });
+        register(GetSUCNodeId.ID, new DataFrameFactory() {
+            @Override
+            public DataFrame createDataFrame(ByteBuf buffer) {
+                return new GetSUCNodeId(buffer);
+            }
+        });
+        register(AddNodeToNetwork.ID, new DataFrameFactory() {
+            @Override
+            public DataFrame createDataFrame(ByteBuf buffer) {
+                return new AddNodeToNetwork(buffer);
+            }
+        });
+        register(RemoveNodeFromNetwork.ID, new DataFrameFactory() {
+            @Override
+            public DataFrame createDataFrame(ByteBuf buffer) {
+                return new RemoveNodeFromNetwork(buffer);
+            }
+        });
+        register(SetDefault.ID, new DataFrameFactory() {
+            @Override
+            public DataFrame createDataFrame(ByteBuf buffer) {
+                return new SetDefault(buffer);
+            }
+        });
+    }
+
+    /**
+     * Registers a factory for a function ID. This replaces any factory previously registered for that ID.
+     *
+     * @param functionId the Serial API function ID
+     * @param factory the factory
+     */
+    public void register(byte functionId, DataFrameFactory factory) {
+        factories.set(functionId & 0xFF, factory);
+    }
+
+    /**
+     * Removes the factory for a function ID. Frames with that ID will subsequently be created as RawDataFrame
+     * instances.
+     *
+     * @param functionId the Serial API function ID
+     */
+    public void unregister(byte functionId) {
+        factories.set(functionId & 0xFF, null);
+    }
+
+    /**
+     * Returns the factory registered for a function ID.
+     *
+     * @param functionId the Serial API function ID
+     *
+     * @return a DataFrameFactory instance (or null if none is registered)
+     */
+    public DataFrameFactory getFactory(byte functionId) {
+        return factories.get(functionId & 0xFF);
+    }
+
+    /**
+     * Creates a DataFrame from a buffer using the factory registered for its function ID.
+     *
+     * @param functionId the Serial API function ID
+     * @param buffer the buffer containing the complete frame
+     *
+     * @return a DataFrame instance (a RawDataFrame if no factory is registered for the function ID)
+     */
+    public DataFrame createDataFrame(byte functionId, ByteBuf buffer) {
+        DataFrameFactory factory = factories.get(functionId & 0xFF);
+        if (factory != null) {
+            return factory.createDataFrame(buffer);
+        } else {
+            return new RawDataFrame(buffer);
+        }
+    }
+}
@@ -10,11 +10,13 @@
 package com.whizzosoftware.wzwave.codec;
 
 import com.whizzosoftware.wzwave.frame.*;
+import com.whizzosoftware.wzwave.metrics.ZWaveMetrics;
 import com.whizzosoftware.wzwave.util.ByteUtil;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufProcessor;
+import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.ByteToMessageDecoder;
-import io.netty.handler.codec.CorruptedFrameException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -23,11 +25,70 @@ import java.util.List;
 /**
  * Class responsible for receiving a stream of bytes and converting them into one or more Z-Wave frames.
  *
+ * Decoded data frames are backed by a retained slice of the inbound buffer and must be released by the handler
+ * that ultimately consumes them.
+ *
+ * Bytes that can't start a frame are skipped in bulk up to the next plausible frame start. Data frames with an invalid
+ * checksum are discarded and answered immediately with a NAK so the sender can retransmit without waiting for its
+ * own timeout. Both conditions are counted as framing errors.
+ *
+ * Received frames and errors are counted in a ZWaveMetrics instance.
+ *
  * @author Dan Noguerol
  */
 public class ZWaveFrameDecoder extends ByteToMessageDecoder {
     private static final Logger logger = LoggerFactory.getLogger(ZWaveFrameDecoder.class);
 
+    /**
+     * The minimum value of a data frame's length field (type, function ID and checksum).
+     */
+    private static final int MIN_FRAME_LENGTH = 3;
+
+    /**
+     * Pre-encoded NAK that is written directly to the transport.
+     */
+    private static final ByteBuf NAK_BUFFER = Unpooled.unreleasableBuffer(Unpooled.wrappedBuffer(new byte[] {NAK.ID}));
+
+    /**
+     * Stops at the first byte that can start a frame.
+     */
+    private static final ByteBufProcessor FRAME_START_FINDER = new ByteBufProcessor() {
+        @Override
+        public boolean process(byte value) throws Exception {
+            return (value != DataFrame.START_OF_FRAME && value != ACK.ID && value != NAK.ID && value != CAN.ID);
+        }
+    };
+
+    private final DataFrameFactoryRegistry registry;
+    private final ZWaveMetrics metrics;
+
+    /**
+     * Constructor that uses a registry containing the library's built-in data frames.
+     */
+    public ZWaveFrameDecoder() {
+        this(new DataFrameFactoryRegistry());
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param registry the registry used to create data frames from their function IDs
+     */
+    public ZWaveFrameDecoder(DataFrameFactoryRegistry registry) {
+        this(registry, new ZWaveMetrics());
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param registry the registry used to create data frames from their function IDs
+     * @param metrics the metrics to count received frames and errors in
+     */
+    public ZWaveFrameDecoder(DataFrameFactoryRegistry registry, ZWaveMetrics metrics) {
+        this.registry = registry;
+        this.metrics = metrics;
+    }
+
     // Visible for testing
     @Override
     protected void callDecode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) {
@@ -36,21 +97,21 @@ public class ZWaveFrameDecoder extends ByteToMessageDecoder {
 
     @Override
     protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) {
-        if (logger.isDebugEnabled()) {
-            logger.debug("RCVD: {}", ByteUtil.createString(in));
+        if (logger.isTraceEnabled()) {
+            logger.trace("RCVD: {}", ByteUtil.createString(in));
         }
 
         if (isSingleByteFrame(in, in.readerIndex())) {
             out.add(createSingleByteFrame(in));
-        }
-        else if (isDataFrame(in, in.readerIndex()))
-        {
-            DataFrame dataFrame = tryCreateDataFrame(in);
+        } else if (isDataFrame(in, in.readerIndex())) {
+            DataFrame dataFrame = tryCreateDataFrame(ctx, in);
             if (dataFrame != null) {
+                metrics.onDataFrameReceived();
+                dataFrame.setReceiveTime(System.nanoTime());
                 out.add(dataFrame);
             }
         } else {
-            in.readByte(); // discard invalid START OF FRAME
+            skipToFrameStart(in);
         }
 
         logger.trace("Done processing received data: {}", out);
@@ -71,11 +132,14 @@ public class ZWaveFrameDecoder extends ByteToMessageDecoder {
     private Frame createSingleByteFrame(ByteBuf data) {
         byte b = data.readByte();
         if (b == ACK.ID) {
-            return new ACK();
+            metrics.onACKReceived();
+            return ACK.INSTANCE;
         } else if (b == NAK.ID) {
-            return new NAK();
+            metrics.onNAKReceived();
+            return NAK.INSTANCE;
         } else {
-            return new CAN();
+            metrics.onCANReceived();
+            return CAN.INSTANCE;
         }
     }
 
@@ -83,20 +147,55 @@ public class ZWaveFrameDecoder extends ByteToMessageDecoder {
         return in.getByte(readerIndex) == DataFrame.START_OF_FRAME;
     }
 
-    private DataFrame tryCreateDataFrame(ByteBuf in) {
-        if (isFullDataFrame(in, in.readerIndex()))
-        {
+    /**
+     * Returns the number of framing errors (skipped garbage and invalid data frames) detected so far.
+     *
+     * @return a long
+     */
+    public long getFramingErrorCount() {
+        return metrics.getFramingErrors() + metrics.getChecksumErrors();
+    }
+
+    private void skipToFrameStart(ByteBuf in) {
+        int ix = in.forEachByte(in.readerIndex(), in.readableBytes(), FRAME_START_FINDER);
+        int skipped = (ix == -1) ? in.readableBytes() : ix - in.readerIndex();
+        in.skipBytes(skipped);
+        metrics.onFramingError();
+        logger.debug("Skipped {} invalid byte(s) looking for start of frame", skipped);
+    }
+
+    private DataFrame tryCreateDataFrame(ChannelHandlerContext ctx, ByteBuf in) {
+        if (in.readableBytes() >= 2 && peekLength(in, in.readerIndex()) < MIN_FRAME_LENGTH) {
+            // this can't be a real frame so treat the SOF as garbage
+            in.skipBytes(1);
+            skipToFrameStart(in);
+            return null;
+        } else if (isFullDataFrame(in, in.readerIndex())) {
             int frameLength = peekLength(in, in.readerIndex());
             byte calculatedChecksum = calculateChecksum(in, in.readerIndex() + 1, in.readerIndex() + 1 + frameLength);
             byte frameChecksum = peekChecksum(in, in.readerIndex(), frameLength);
-            if (calculatedChecksum != frameChecksum)
-            {
-                in.readBytes(frameLength + 2); // discard frame
-                throw new CorruptedFrameException("Invalid frame checksum calc=" + ByteUtil.createString(calculatedChecksum) + " field=" + ByteUtil.createString(frameChecksum));
+            if (calculatedChecksum != frameChecksum) {
+                metrics.onChecksumError();
+                logger.debug("Invalid frame checksum calc={} field={}; sending NAK", ByteUtil.createString(calculatedChecksum), ByteUtil.createString(frameChecksum));
+                ctx.writeAndFlush(NAK_BUFFER.duplicate());
+                // the SOF may have been noise in front of a real frame, so only discard it and look for the next start
+                in.skipBytes(1);
+                int ix = in.forEachByte(in.readerIndex(), in.readableBytes(), FRAME_START_FINDER);
+                in.skipBytes((ix == -1) ? in.readableBytes() : ix - in.readerIndex());
+                return null;
             }
-            ByteBuf frameBuffer = in.readSlice(frameLength + 1);
+            // the frame keeps a retained view of the inbound buffer rather than a copy of it
+            ByteBuf frameBuffer = in.readSlice(frameLength + 1).retain();
             in.readByte(); // discard checksum
-            return createDataFrame(frameBuffer);
+            DataFrame frame = null;
+            try {
+                frame = createDataFrame(frameBuffer);
+                return frame;
+            } finally {
+                if (frame == null) {
+                    frameBuffer.release();
+                }
+            }
         } else {
             return null;
         }
@@ -114,7 +213,7 @@ public class ZWaveFrameDecoder extends ByteToMessageDecoder {
     }
 
     private int peekLength(ByteBuf in, int readerIndex) {
-        return in.getByte(readerIndex + 1);
+        return in.getUnsignedByte(readerIndex + 1);
     }
 
     private byte peekChecksum(ByteBuf in, int readerIndex, int frameLength) {
@@ -139,36 +238,7 @@ public class ZWaveFrameDecoder extends ByteToMessageDecoder {
      */
     private DataFrame createDataFrame(ByteBuf buf) {
         if (buf.readableBytes() > 3) {
-            byte messageType = buf.getByte(buf.readerIndex() + 3);
-
-            switch (messageType) {
-                case Version.ID:
-                    return new Version(buf);
-                case MemoryGetId.ID:
-                    return new MemoryGetId(buf);
-                case InitData.ID:
-                    return new InitData(buf);
-                case NodeProtocolInfo.ID:
-                    return new NodeProtocolInfo(buf);
-                case SendData.ID:
-                    return new SendData(buf);
-                case ApplicationCommand.ID:
-                    return new ApplicationCommand(buf);
-                case ApplicationUpdate.ID:
-                    return new ApplicationUpdate(buf);
-                case RequestNodeInfo.ID:
-                    return new RequestNodeInfo(buf);
-                case GetRoutingInfo.ID:
-                    return new GetRoutingInfo(buf);
-                case GetSUCNodeId.ID:
-                    return new GetSUCNodeId(buf);
-                case AddNodeToNetwork.ID:
-                    return new AddNodeToNetwork(buf);
-                case RemoveNodeFromNetwork.ID:
-                    return new RemoveNodeFromNetwork(buf);
-                case SetDefault.ID:
-                    return new SetDefault(buf);
-            }
+            return registry.createDataFrame(buf.getByte(buf.readerIndex() + 3), buf);
         }
         return null;
     }
@@ -27,8 +27,10 @@ public class ZWaveFrameEncoder extends MessageToByteEncoder<Frame> {
 
     @Override
     protected void encode(ChannelHandlerContext channelHandlerContext, Frame frame, ByteBuf byteBuf) throws Exception {
-        byte[] bytes = frame.getBytes();
-        logger.debug("SENT {}: {}", frame.toString(), ByteUtil.createString(bytes, bytes.length));
-        byteBuf.writeBytes(bytes);
+        int ix = byteBuf.writerIndex();
+        frame.writeTo(byteBuf);
+        if (logger.isDebugEnabled()) {
+            logger.debug("SENT {}: {}", frame, ByteUtil.createString(byteBuf.slice(ix, byteBuf.writerIndex() - ix)));
+        }
     }
 }
@@ -21,8 +21,8 @@ public class AlarmCommandClass extends CommandClass {
 
     public static final byte ID = (byte)0x71;
 
-    private byte type;
-    private byte level;
+    private volatile byte type;
+    private volatile byte level;
 
     @Override
     public byte getId() {
@@ -59,7 +59,7 @@ public class AlarmCommandClass extends CommandClass {
     }
 
     public DataFrame createGet(byte nodeId) {
-        return createSendDataFrame("ALARM_GET", nodeId, new byte[] {AlarmCommandClass.ID, ALARM_GET}, true);
+        return createCoalescableSendDataFrame("ALARM_GET", nodeId, new byte[] {AlarmCommandClass.ID, ALARM_GET}, true);
     }
 
     @Override
@@ -26,8 +26,8 @@ public class AlarmSensorCommandClass extends CommandClass {
 
     public static final byte ID = (byte)0x9C;
 
-    private Type type;
-    private byte level;
+    private volatile Type type;
+    private volatile byte level;
 
     @Override
     public byte getId() {
@@ -64,7 +64,7 @@ public class AlarmSensorCommandClass extends CommandClass {
     }
 
     public DataFrame createGet(byte nodeId) {
-        return createSendDataFrame("SENSOR_ALARM_GET", nodeId, new byte[] {AlarmSensorCommandClass.ID, SENSOR_ALARM_GET}, true);
+        return createCoalescableSendDataFrame("SENSOR_ALARM_GET", nodeId, new byte[] {AlarmSensorCommandClass.ID, SENSOR_ALARM_GET}, true);
     }
 
     public enum Type {
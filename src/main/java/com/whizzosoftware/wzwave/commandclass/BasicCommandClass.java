@@ -29,7 +29,7 @@ public class BasicCommandClass extends CommandClass {
 
     public static final byte ID = (byte)0x20;
 
-    private Byte value;
+    private volatile Byte value;
 
     @Override
     public byte getId() {
@@ -62,11 +62,11 @@ public class BasicCommandClass extends CommandClass {
     }
 
     public DataFrame createSet(byte nodeId, byte value) {
-        return createSendDataFrame("BASIC_SET", nodeId, new byte[]{BasicCommandClass.ID, BASIC_SET, value}, false);
+        return createCoalescableSendDataFrame("BASIC_SET", nodeId, new byte[]{BasicCommandClass.ID, BASIC_SET, value}, false);
     }
 
     public DataFrame createGet(byte nodeId) {
-        return createSendDataFrame("BASIC_GET", nodeId, new byte[]{BasicCommandClass.ID, BASIC_GET}, true);
+        return createCoalescableSendDataFrame("BASIC_GET", nodeId, new byte[]{BasicCommandClass.ID, BASIC_GET}, true);
     }
 
     @Override
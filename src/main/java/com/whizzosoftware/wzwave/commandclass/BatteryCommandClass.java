@@ -26,7 +26,7 @@ public class BatteryCommandClass extends CommandClass {
 
     public static final byte ID = (byte)0x80;
 
-    private Byte level;
+    private volatile Byte level;
 
     @Override
     public byte getId() {
@@ -65,7 +65,7 @@ public class BatteryCommandClass extends CommandClass {
     }
 
     public DataFrame createGet(byte nodeId) {
-        return createSendDataFrame("BATTERY_GET", nodeId, new byte[]{BatteryCommandClass.ID, BATTERY_GET}, true);
+        return createCoalescableSendDataFrame("BATTERY_GET", nodeId, new byte[]{BatteryCommandClass.ID, BATTERY_GET}, true);
     }
 
     @Override
@@ -27,7 +27,7 @@ public class BinarySensorCommandClass extends CommandClass {
 
     public static final byte ID = 0x30;
 
-    public Boolean isIdle;
+    public volatile Boolean isIdle;
 
     @Override
     public byte getId() {
@@ -69,7 +69,7 @@ public class BinarySensorCommandClass extends CommandClass {
     }
 
     public DataFrame createGet(byte nodeId) {
-        return createSendDataFrame("SENSOR_BINARY_GET", nodeId, new byte[]{BinarySensorCommandClass.ID, SENSOR_BINARY_GET}, true);
+        return createCoalescableSendDataFrame("SENSOR_BINARY_GET", nodeId, new byte[]{BinarySensorCommandClass.ID, SENSOR_BINARY_GET}, true);
     }
 
     @Override
@@ -27,7 +27,7 @@ public class BinarySwitchCommandClass extends CommandClass {
 
     public static final byte ID = 0x25;
 
-    private Boolean isOn;
+    private volatile Boolean isOn;
 
     @Override
     public byte getId() {
@@ -67,11 +67,11 @@ public class BinarySwitchCommandClass extends CommandClass {
     }
 
     public DataFrame createGet(byte nodeId) {
-        return createSendDataFrame("SWITCH_BINARY_GET", nodeId, new byte[]{BinarySwitchCommandClass.ID, SWITCH_BINARY_GET}, true);
+        return createCoalescableSendDataFrame("SWITCH_BINARY_GET", nodeId, new byte[]{BinarySwitchCommandClass.ID, SWITCH_BINARY_GET}, true);
     }
 
     public DataFrame createSet(byte nodeId, boolean isOn) {
-        return createSendDataFrame("SWITCH_BINARY_SET", nodeId, new byte[]{BinarySwitchCommandClass.ID, SWITCH_BINARY_SET, isOn ? (byte) 0xFF : (byte) 0x00}, false);
+        return createCoalescableSendDataFrame("SWITCH_BINARY_SET", nodeId, new byte[]{BinarySwitchCommandClass.ID, SWITCH_BINARY_SET, isOn ? (byte) 0xFF : (byte) 0x00}, false);
     }
 
     @Override
@@ -25,8 +25,8 @@ public class ColorControlCommandClass extends CommandClass {
     public static final byte CAPABILITY_ID_GREEN = 0x03;
     public static final byte CAPABILITY_ID_BLUE = 0x04;
 
-    private Byte capabilityId;
-    private Byte value;
+    private volatile Byte capabilityId;
+    private volatile Byte value;
 
     @Override
     public byte getId() {
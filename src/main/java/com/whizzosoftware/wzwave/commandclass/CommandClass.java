@@ -22,7 +22,7 @@ import java.util.Map;
  * @author Dan Noguerol
  */
 abstract public class CommandClass {
-    private Integer version; // always assume version 1 unless told otherwise
+    private volatile Integer version; // always assume version 1 unless told otherwise
 
     /**
      * Returns the command class version
@@ -137,6 +137,23 @@ abstract public class CommandClass {
         return new SendData(name, nodeId, data, (byte)(SendData.TRANSMIT_OPTION_ACK | SendData.TRANSMIT_OPTION_AUTO_ROUTE), isResponseExpected);
     }
 
+    /**
+     * Convenience method for creating SendData frames that can be coalesced with queued frames carrying the same
+     * command (see SendData.isCoalescable()).
+     *
+     * @param name the name for logging purposes
+     * @param nodeId the destination node ID
+     * @param data the data portion of the SendData frame
+     * @param isResponseExpected indicates whether sending this data frame should require a response
+     *
+     * @return a DataFrame instance
+     */
+    static protected DataFrame createCoalescableSendDataFrame(String name, byte nodeId, byte[] data, boolean isResponseExpected) {
+        SendData sd = new SendData(name, nodeId, data, (byte)(SendData.TRANSMIT_OPTION_ACK | SendData.TRANSMIT_OPTION_AUTO_ROUTE), isResponseExpected);
+        sd.setCoalescable(true);
+        return sd;
+    }
+
     @Override
     public String toString() {
         return "CommandClass{" +
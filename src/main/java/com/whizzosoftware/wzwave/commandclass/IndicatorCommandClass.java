@@ -27,7 +27,7 @@ public class IndicatorCommandClass extends CommandClass {
 
     public static final byte ID = (byte)0x87;
 
-    private Boolean isOn;
+    private volatile Boolean isOn;
 
     @Override
     public byte getId() {
@@ -67,11 +67,11 @@ public class IndicatorCommandClass extends CommandClass {
     }
 
     public DataFrame createGet(byte nodeId) {
-        return createSendDataFrame("INDICATOR_GET", nodeId, new byte[]{IndicatorCommandClass.ID, INDICATOR_GET}, true);
+        return createCoalescableSendDataFrame("INDICATOR_GET", nodeId, new byte[]{IndicatorCommandClass.ID, INDICATOR_GET}, true);
     }
 
     public DataFrame createSet(byte nodeId, boolean isOn) {
-        return createSendDataFrame("INDICATOR_SET", nodeId, new byte[]{IndicatorCommandClass.ID, INDICATOR_SET, isOn ? (byte) 0xFF : (byte) 0x00}, false);
+        return createCoalescableSendDataFrame("INDICATOR_SET", nodeId, new byte[]{IndicatorCommandClass.ID, INDICATOR_SET, isOn ? (byte) 0xFF : (byte) 0x00}, false);
     }
 
     @Override
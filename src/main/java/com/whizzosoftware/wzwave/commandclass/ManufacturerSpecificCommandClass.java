@@ -33,10 +33,10 @@ public class ManufacturerSpecificCommandClass extends CommandClass {
 
     public static final byte ID = 0x72;
 
-    private ProductInfo productInfo;
+    private volatile ProductInfo productInfo;
 
     public DataFrame createGet(byte nodeId) {
-        return createSendDataFrame("MANUFACTURER_SPECIFIC_GET", nodeId, new byte[] {ManufacturerSpecificCommandClass.ID, MANUFACTURER_SPECIFIC_GET}, true);
+        return createCoalescableSendDataFrame("MANUFACTURER_SPECIFIC_GET", nodeId, new byte[] {ManufacturerSpecificCommandClass.ID, MANUFACTURER_SPECIFIC_GET}, true);
     }
 
     @Override
@@ -15,8 +15,8 @@ import com.whizzosoftware.wzwave.util.ByteUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Meter command class
@@ -33,7 +33,7 @@ public class MeterCommandClass extends CommandClass {
 
 
 
-    Map<Scale, MeterReadingValue> value = new HashMap<>();
+    Map<Scale, MeterReadingValue> value = new ConcurrentHashMap<>();
 
     @Override
     public byte getId() {
@@ -180,7 +180,7 @@ public class MeterCommandClass extends CommandClass {
     public DataFrame createGet(byte nodeId, Scale s) {
         switch (getVersion()) {
             case 1:
-                return createSendDataFrame("METER_GET", nodeId, new byte[]{MeterCommandClass.ID, METER_GET}, true);
+                return createCoalescableSendDataFrame("METER_GET", nodeId, new byte[]{MeterCommandClass.ID, METER_GET}, true);
             default: {
                 byte scale = scaleToByte(s);
                 byte b = (byte) ((scale << 3) & 0x18);
@@ -233,10 +233,10 @@ public class MeterCommandClass extends CommandClass {
 
     public class MeterReadingValue {
 
-        private Type type;
-        private Double currentValue;
-        private Double previousValue;
-        private Integer delta;
+        private final Type type;
+        private final Double currentValue;
+        private final Double previousValue;
+        private final Integer delta;
 
         public MeterReadingValue(Type type, Double currentValue, Double previousValue, Integer delta) {
             this.type = type;
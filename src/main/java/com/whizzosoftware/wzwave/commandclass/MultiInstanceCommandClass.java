@@ -20,8 +20,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Multi Instance Command Class
@@ -49,10 +49,10 @@ public class MultiInstanceCommandClass extends CommandClass {
 
     public static final byte IDENTICAL_ENDPOINTS = 0x40;
 
-    private Map<Byte, ZWaveMultiChannelEndpoint> endpointMap = new HashMap<Byte, ZWaveMultiChannelEndpoint>();
-    private int instanceCount;
-    private int endpointCount;
-    private boolean endpointsIdentical;
+    private Map<Byte, ZWaveMultiChannelEndpoint> endpointMap = new ConcurrentHashMap<Byte, ZWaveMultiChannelEndpoint>();
+    private volatile int instanceCount;
+    private volatile int endpointCount;
+    private volatile boolean endpointsIdentical;
 
     @Override
     public byte getId() {
@@ -324,12 +324,15 @@ public class MultiInstanceCommandClass extends CommandClass {
             newData[3] = destEndpoint;
             System.arraycopy(data, 0, newData, 4, data.length);
 
-            return createSendDataFrame(
+            SendData esd = (SendData)createSendDataFrame(
                 "MULTI_CHANNEL_CMD_ENCAP",
                 sd.getNodeId(),
                 newData,
                 responseExpected
             );
+            // the encapsulated frame can be coalesced if the command it carries can be
+            esd.setCoalescable(sd.isCoalescable());
+            return esd;
         } else {
             throw new ZWaveRuntimeException("Unable to encapsulate frames other than SendData");
         }
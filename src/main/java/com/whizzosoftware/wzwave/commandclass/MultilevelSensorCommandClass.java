@@ -31,9 +31,9 @@ public class MultilevelSensorCommandClass extends CommandClass {
 
     public static final byte ID = 0x31;
 
-    private Type type;
-    private Scale scale;
-    private List<Double> values = new ArrayList<>();
+    private volatile Type type;
+    private volatile Scale scale;
+    private volatile List<Double> values = new ArrayList<>();
 
     @Override
     public byte getId() {
@@ -70,11 +70,13 @@ public class MultilevelSensorCommandClass extends CommandClass {
                     int precision = (ccb[startIndex + 3] >> 5) & 0x07;
                     int size = ccb[startIndex + 3] & 0x07;
                     logger.trace("{} meter precision: {}, size: {}, scale: {}", type, precision, size, scale);
-                    values.clear();
+                    // readers on other threads see either the previous or the new values, never a partial list
+                    List<Double> newValues = new ArrayList<>();
                     for (int i=0; i < (ccb.length - (startIndex + 4)) / size; i++) {
-                        values.add(i, ByteUtil.parseValue(ccb, (startIndex + 4) * (i+1), size, precision));
+                        newValues.add(i, ByteUtil.parseValue(ccb, (startIndex + 4) * (i+1), size, precision));
                     }
-                    logger.trace("Current values are {}", values);
+                    values = newValues;
+                    logger.trace("Current values are {}", newValues);
                 } else {
                     logger.warn("Ignoring unsupported command: {}", ByteUtil.createString(ccb[startIndex+1]));
                 }
@@ -92,7 +94,7 @@ public class MultilevelSensorCommandClass extends CommandClass {
     }
 
     public DataFrame createGet(byte nodeId) {
-        return createSendDataFrame("SENSOR_MULTILEVEL_GET", nodeId, new byte[] {MultilevelSensorCommandClass.ID, SENSOR_MULTILEVEL_GET}, true);
+        return createCoalescableSendDataFrame("SENSOR_MULTILEVEL_GET", nodeId, new byte[] {MultilevelSensorCommandClass.ID, SENSOR_MULTILEVEL_GET}, true);
     }
 
     private void setTypeAndScale(byte t, int s) {
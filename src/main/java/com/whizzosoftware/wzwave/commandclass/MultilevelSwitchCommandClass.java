@@ -27,7 +27,7 @@ public class MultilevelSwitchCommandClass extends CommandClass {
 
     public static final byte ID = 0x26;
 
-    private Byte level;
+    private volatile Byte level;
 
     @Override
     public byte getId() {
@@ -64,11 +64,11 @@ public class MultilevelSwitchCommandClass extends CommandClass {
     }
 
     public DataFrame createSet(byte nodeId, byte level) {
-        return createSendDataFrame("SWITCH_MULTILEVEL_SET", nodeId, new byte[]{MultilevelSwitchCommandClass.ID, SWITCH_MULTILEVEL_SET, level}, false);
+        return createCoalescableSendDataFrame("SWITCH_MULTILEVEL_SET", nodeId, new byte[]{MultilevelSwitchCommandClass.ID, SWITCH_MULTILEVEL_SET, level}, false);
     }
 
     public DataFrame createGet(byte nodeId) {
-        return createSendDataFrame("SWITCH_MULTILEVEL_GET", nodeId, new byte[]{MultilevelSwitchCommandClass.ID, SWITCH_MULTILEVEL_GET}, true);
+        return createCoalescableSendDataFrame("SWITCH_MULTILEVEL_GET", nodeId, new byte[]{MultilevelSwitchCommandClass.ID, SWITCH_MULTILEVEL_GET}, true);
     }
 
     @Override
@@ -30,9 +30,9 @@ public class VersionCommandClass extends CommandClass {
     private static final byte VERSION_COMMAND_CLASS_GET = 0x13;
     private static final byte VERSION_COMMAND_CLASS_REPORT = 0x14;
 
-    private String library;
-    private String protocol;
-    private String application;
+    private volatile String library;
+    private volatile String protocol;
+    private volatile String application;
 
     @Override
     public byte getId() {
@@ -0,0 +1,129 @@
+/*
+ *******************************************************************************
+ * Copyright (c) 2019 Whizzo Software, LLC.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************
+*/
+package com.whizzosoftware.wzwave.controller;
+
+/**
+ * The progress of the node interviews a controller performs when it starts up or includes new nodes.
+ *
+ * Sleeping nodes whose interviews are deferred until they wake up aren't included in the estimated time remaining
+ * since it depends on when they wake up.
+ *
+ * @author Dan Noguerol
+ */
+public class InterviewProgress {
+    private final int total;
+    private final int completed;
+    private final int timedOut;
+    private final int active;
+    private final int pending;
+    private final int deferred;
+    private final long elapsedMillis;
+    private final long estimatedMillisRemaining;
+
+    public InterviewProgress(int total, int completed, int timedOut, int active, int pending, int deferred, long elapsedMillis, long estimatedMillisRemaining) {
+        this.total = total;
+        this.completed = completed;
+        this.timedOut = timedOut;
+        this.active = active;
+        this.pending = pending;
+        this.deferred = deferred;
+        this.elapsedMillis = elapsedMillis;
+        this.estimatedMillisRemaining = estimatedMillisRemaining;
+    }
+
+    /**
+     * Returns the number of nodes that have been scheduled for an interview.
+     *
+     * @return an int
+     */
+    public int getTotal() {
+        return total;
+    }
+
+    public int getCompleted() {
+        return completed;
+    }
+
+    /**
+     * Returns the number of interviews that were given up on because they took too long.
+     *
+     * @return an int
+     */
+    public int getTimedOut() {
+        return timedOut;
+    }
+
+    /**
+     * Returns the number of nodes currently being interviewed.
+     *
+     * @return an int
+     */
+    public int getActive() {
+        return active;
+    }
+
+    /**
+     * Returns the number of nodes waiting for their interview to start.
+     *
+     * @return an int
+     */
+    public int getPending() {
+        return pending;
+    }
+
+    /**
+     * Returns the number of sleeping nodes waiting to wake up before they're interviewed.
+     *
+     * @return an int
+     */
+    public int getDeferred() {
+        return deferred;
+    }
+
+    /**
+     * Returns the time since the first interview started.
+     *
+     * @return a time in milliseconds
+     */
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    /**
+     * Returns the estimated time until all active and pending interviews are complete, based on the rate interviews
+     * have completed at so far.
+     *
+     * @return a time in milliseconds (or -1 if no interview has completed yet)
+     */
+    public long getEstimatedMillisRemaining() {
+        return estimatedMillisRemaining;
+    }
+
+    /**
+     * Indicates whether all interviews except deferred ones are complete.
+     *
+     * @return a boolean
+     */
+    public boolean isComplete() {
+        return (active == 0 && pending == 0);
+    }
+
+    public String toString() {
+        return "InterviewProgress{" +
+            "completed=" + completed + "/" + total +
+            ", timedOut=" + timedOut +
+            ", active=" + active +
+            ", pending=" + pending +
+            ", deferred=" + deferred +
+            ", elapsed=" + elapsedMillis + "ms" +
+            ", eta=" + estimatedMillisRemaining + "ms" +
+            '}';
+    }
+}
@@ -0,0 +1,24 @@
+/*
+ *******************************************************************************
+ * Copyright (c) 2019 Whizzo Software, LLC.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************
+*/
+package com.whizzosoftware.wzwave.controller;
+
+/**
+ * Listener interface for the progress of node interviews.
+ *
+ * @author Dan Noguerol
+ */
+public interface InterviewProgressListener {
+    /**
+     * Callback when a node interview has completed or timed out.
+     *
+     * @param progress the progress of all node interviews
+     */
+    void onInterviewProgress(InterviewProgress progress);
+}
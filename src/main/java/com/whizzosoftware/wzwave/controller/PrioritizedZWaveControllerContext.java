@@ -0,0 +1,30 @@
+/*
+ *******************************************************************************
+ * Copyright (c) 2019 Whizzo Software, LLC.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************
+*/
+package com.whizzosoftware.wzwave.controller;
+
+import com.whizzosoftware.wzwave.frame.DataFrame;
+import com.whizzosoftware.wzwave.frame.FramePriority;
+
+/**
+ * A ZWaveControllerContext that can send frames with a specific priority. Nodes send their frames at the priority
+ * that fits their state when their context supports it and at the default priority otherwise.
+ *
+ * @author Dan Noguerol
+ */
+public interface PrioritizedZWaveControllerContext extends ZWaveControllerContext {
+    /**
+     * Sends a data frame to the Z-Wave network with a specific priority.
+     *
+     * @param frame the data frame to send
+     * @param isListeningNode indicates whether the node is known to be a listening node
+     * @param priority the priority to send the frame with
+     */
+    void sendDataFrame(DataFrame frame, boolean isListeningNode, FramePriority priority);
+}
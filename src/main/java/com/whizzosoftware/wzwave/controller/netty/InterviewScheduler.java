@@ -0,0 +1,276 @@
+/*
+ *******************************************************************************
+ * Copyright (c) 2019 Whizzo Software, LLC.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************
+*/
+package com.whizzosoftware.wzwave.controller.netty;
+
+import com.whizzosoftware.wzwave.controller.InterviewProgress;
+import com.whizzosoftware.wzwave.node.ZWaveNode;
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+import io.netty.util.TimerTask;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides when nodes are interviewed. Only a limited number of nodes are interviewed at once so that interview
+ * frames don't flood the send queue; listening nodes are interviewed before non-listening ones so the mains powered
+ * part of the network becomes usable first. Non-listening nodes can also be deferred until they're heard from, since
+ * a sleeping node can't answer anyway; they are interviewed as soon as they wake up, regardless of the limit.
+ *
+ * Interviews are started through a Listener (so the controller can start them on the right thread) and the
+ * listener is told about the progress whenever an interview completes (once the interviews it makes room for have
+ * been started). An interview that doesn't complete within the interview timeout (e.g. because the node stopped
+ * answering halfway through) is given up on so that it doesn't hold its slot forever.
+ *
+ * @author Dan Noguerol
+ */
+class InterviewScheduler {
+    private static final Logger logger = LoggerFactory.getLogger(InterviewScheduler.class);
+
+    static final long DEFAULT_INTERVIEW_TIMEOUT = 120000;
+
+    private final Listener listener;
+    private int maxConcurrent = Integer.MAX_VALUE;
+    private boolean deferSleepingNodes;
+    private Timer timer;
+    private long interviewTimeout = DEFAULT_INTERVIEW_TIMEOUT;
+
+    private final Deque<ZWaveNode> listeningQueue = new ArrayDeque<>();
+    private final Deque<ZWaveNode> nonListeningQueue = new ArrayDeque<>();
+    private final Map<Byte,ZWaveNode> deferred = new HashMap<>();
+    private final Map<Byte,ZWaveNode> active = new HashMap<>();
+    private final Map<Byte,Timeout> timeouts = new HashMap<>();
+    private int total;
+    private int completed;
+    private int timedOut;
+    private boolean started;
+    private long firstStartTime;
+
+    InterviewScheduler(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Sets how interviews are scheduled.
+     *
+     * @param maxConcurrent the maximum number of nodes to interview at once
+     * @param deferSleepingNodes indicates whether non-listening nodes should only be interviewed once they wake up
+     */
+    synchronized void setConcurrency(int maxConcurrent, boolean deferSleepingNodes) {
+        if (maxConcurrent < 1) {
+            throw new IllegalArgumentException("At least one interview must be allowed at a time");
+        }
+        this.maxConcurrent = maxConcurrent;
+        this.deferSleepingNodes = deferSleepingNodes;
+    }
+
+    /**
+     * Sets how long an interview can take before it's given up on.
+     *
+     * @param timer the timer used to time interviews (or null to never give up on them)
+     * @param interviewTimeout the timeout in milliseconds
+     */
+    synchronized void setTimeout(Timer timer, long interviewTimeout) {
+        this.timer = timer;
+        this.interviewTimeout = interviewTimeout;
+    }
+
+    /**
+     * Schedules a node's interview, replacing any interview already scheduled for a node with the same ID.
+     *
+     * @param node the node
+     */
+    void schedule(ZWaveNode node) {
+        synchronized (this) {
+            if (remove(node.getNodeId())) {
+                total--;
+            }
+            total++;
+            if (node.isListeningNode()) {
+                listeningQueue.add(node);
+            } else if (deferSleepingNodes) {
+                logger.debug("Deferring interview of node {} until it wakes up", node.getNodeId() & 0xFF);
+                deferred.put(node.getNodeId(), node);
+            } else {
+                nonListeningQueue.add(node);
+            }
+        }
+        startNext();
+    }
+
+    /**
+     * Called when a node has been heard from. If its interview was deferred, it's started right away.
+     *
+     * @param node the node
+     */
+    void onNodeAwake(ZWaveNode node) {
+        synchronized (this) {
+            if (deferred.remove(node.getNodeId()) == null) {
+                return;
+            }
+            logger.debug("Node {} woke up; starting deferred interview", node.getNodeId() & 0xFF);
+            start(node);
+        }
+        listener.startInterview(node);
+    }
+
+    /**
+     * Called when a node has finished its interview.
+     *
+     * @param node the node
+     */
+    void onInterviewCompleted(ZWaveNode node) {
+        synchronized (this) {
+            if (active.get(node.getNodeId()) != node) {
+                return;
+            }
+            release(node);
+            completed++;
+        }
+        startNext();
+        InterviewProgress progress = getProgress();
+        logger.debug("Interview of node {} complete: {}", node.getNodeId() & 0xFF, progress);
+        listener.onInterviewProgress(progress);
+    }
+
+    /**
+     * Called when a node's interview has taken longer than the interview timeout. The node keeps whatever state it
+     * reached but no longer counts against the limit; if it finishes later, that's ignored here.
+     *
+     * @param node the node
+     */
+    void onInterviewTimedOut(ZWaveNode node) {
+        synchronized (this) {
+            if (active.get(node.getNodeId()) != node) {
+                return;
+            }
+            release(node);
+            timedOut++;
+        }
+        startNext();
+        InterviewProgress progress = getProgress();
+        logger.warn("Interview of node {} timed out in state {}: {}", node.getNodeId() & 0xFF, node.getState(), progress);
+        listener.onInterviewProgress(progress);
+    }
+
+    synchronized InterviewProgress getProgress() {
+        int pending = listeningQueue.size() + nonListeningQueue.size();
+        long elapsed = started ? TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - firstStartTime) : 0;
+        long eta = -1;
+        if (completed + timedOut > 0) {
+            // assume the remaining interviews finish at the rate the previous ones did
+            eta = elapsed * (active.size() + pending) / (completed + timedOut);
+        }
+        return new InterviewProgress(total, completed, timedOut, active.size(), pending, deferred.size(), elapsed, eta);
+    }
+
+    /**
+     * Starts interviews until the limit is reached. Interviews are started outside the lock since a node whose
+     * interview completes right away calls back into the scheduler.
+     */
+    private void startNext() {
+        for (;;) {
+            ZWaveNode node;
+            synchronized (this) {
+                if (active.size() >= maxConcurrent) {
+                    return;
+                }
+                node = listeningQueue.poll();
+                if (node == null) {
+                    node = nonListeningQueue.poll();
+                }
+                if (node == null) {
+                    return;
+                }
+                start(node);
+            }
+            listener.startInterview(node);
+        }
+    }
+
+    private void start(final ZWaveNode node) {
+        if (!started) {
+            started = true;
+            firstStartTime = System.nanoTime();
+        }
+        active.put(node.getNodeId(), node);
+        if (timer != null && interviewTimeout > 0) {
+            try {
+                timeouts.put(node.getNodeId(), timer.newTimeout(new TimerTask() {
+                    @Override
+                    public void run(Timeout timeout) {
+                        // the timer thread is shared; don't hold it up with the scheduler or its listener
+                        listener.execute(new Runnable() {
+                            @Override
+                            public void run() {
+                                onInterviewTimedOut(node);
+                            }
+                        });
+                    }
+                }, interviewTimeout, TimeUnit.MILLISECONDS));
+            } catch (IllegalStateException e) {
+                logger.debug("Unable to time interview of node {}; controller is stopping", node.getNodeId() & 0xFF);
+            }
+        }
+    }
+
+    private void release(ZWaveNode node) {
+        active.remove(node.getNodeId());
+        Timeout t = timeouts.remove(node.getNodeId());
+        if (t != null) {
+            t.cancel();
+        }
+    }
+
+    private boolean remove(byte nodeId) {
+        ZWaveNode node = active.get(nodeId);
+        if (node != null) {
+            release(node);
+            return true;
+        }
+        return (deferred.remove(nodeId) != null || remove(listeningQueue, nodeId) || remove(nonListeningQueue, nodeId));
+    }
+
+    private boolean remove(Deque<ZWaveNode> queue, byte nodeId) {
+        Iterator<ZWaveNode> it = queue.iterator();
+        while (it.hasNext()) {
+            if (it.next().getNodeId() == nodeId) {
+                it.remove();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    interface Listener {
+        /**
+         * Called when a node's interview should start.
+         *
+         * @param node the node
+         */
+        void startInterview(ZWaveNode node);
+
+        /**
+         * Called when an interview has completed.
+         *
+         * @param progress the progress of all interviews
+         */
+        void onInterviewProgress(InterviewProgress progress);
+
+        /**
+         * Called to run a task on the thread the scheduler's work is done on (e.g. when an interview times out).
+         *
+         * @param task the task
+         */
+        void execute(Runnable task);
+    }
+}
@@ -9,37 +9,53 @@
 */
 package com.whizzosoftware.wzwave.controller.netty;
 
+import com.whizzosoftware.wzwave.ZWaveRuntimeException;
 import com.whizzosoftware.wzwave.channel.*;
 import com.whizzosoftware.wzwave.channel.event.*;
 import com.whizzosoftware.wzwave.channel.ACKInboundHandler;
 import com.whizzosoftware.wzwave.channel.ZWaveChannelInboundHandler;
 import com.whizzosoftware.wzwave.channel.TransactionInboundHandler;
 import com.whizzosoftware.wzwave.channel.FrameQueueHandler;
+import com.whizzosoftware.wzwave.codec.DataFrameFactoryRegistry;
 import com.whizzosoftware.wzwave.codec.ZWaveFrameDecoder;
 import com.whizzosoftware.wzwave.codec.ZWaveFrameEncoder;
 import com.whizzosoftware.wzwave.commandclass.WakeUpCommandClass;
+import com.whizzosoftware.wzwave.controller.InterviewProgress;
+import com.whizzosoftware.wzwave.controller.InterviewProgressListener;
+import com.whizzosoftware.wzwave.controller.PrioritizedZWaveControllerContext;
 import com.whizzosoftware.wzwave.controller.ZWaveController;
-import com.whizzosoftware.wzwave.controller.ZWaveControllerContext;
 import com.whizzosoftware.wzwave.controller.ZWaveControllerListener;
+import com.whizzosoftware.wzwave.controller.netty.transport.SerialTransport;
+import com.whizzosoftware.wzwave.controller.netty.transport.ZWaveTransport;
 import com.whizzosoftware.wzwave.frame.*;
+import com.whizzosoftware.wzwave.frame.transaction.DefaultRetryPolicy;
+import com.whizzosoftware.wzwave.frame.transaction.RetryPolicy;
+import com.whizzosoftware.wzwave.metrics.ZWaveMetrics;
 import com.whizzosoftware.wzwave.node.*;
 import com.whizzosoftware.wzwave.persist.PersistentStore;
 import com.whizzosoftware.wzwave.persist.mapdb.MapDbPersistentStore;
+import com.whizzosoftware.wzwave.trace.WireTraceRecorder;
 import com.whizzosoftware.wzwave.util.ByteUtil;
+import com.whizzosoftware.wzwave.util.LatencyHistogram;
 import io.netty.bootstrap.Bootstrap;
 import io.netty.channel.*;
-import io.netty.channel.oio.OioEventLoopGroup;
-import io.netty.channel.jsc.JSerialCommChannel;
-import io.netty.channel.jsc.JSerialCommChannelConfig;
-import io.netty.channel.jsc.JSerialCommDeviceAddress;
+import io.netty.util.Timer;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.GenericFutureListener;
+import io.netty.util.concurrent.Promise;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 import java.io.File;
+import java.lang.management.ManagementFactory;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 
 /**
- * A Netty implementation of a ZWaveController.
+ * A Netty implementation of a ZWaveController. The connection to the Z-Wave controller is made through a
+ * ZWaveTransport (serial port, TCP socket or in-VM channel); all transports share the same pipeline.
  *
  * The pipeline looks like this:
  *
@@ -73,6 +89,11 @@ import java.util.*;
  * |    |       ZWaveFrameDecoder        |            |      ZWaveFrameEncoder     |    |
  * |    +---------------+----------------+            +-------------+--------------+    |
  * |                   /|\                                          |                   |
+ * |                    |                                          \|/                  |
+ * |    +---------------+-------------------------------------------+--------------+    |
+ * |    |                                WireTraceHandler                          |    |
+ * |    +---------------+-------------------------------------------+--------------+    |
+ * |                   /|\                                          |                   |
  * +--------------------+-------------------------------------------+-------------------+
  * |                    |                                          \|/                  |
  * +--------------------+-------------------------------------------+-------------------+
@@ -80,23 +101,73 @@ import java.util.*;
  * |            [ Socket.read() ]                           [ Socket.write() ]          |
  * +------------------------------------------------------------------------------------+
  *
+ * By default, node processing and listener callbacks run on the channel's event loop. When dispatch threads are
+ * configured, they are handed to a NodeDispatcher instead so that the event loop only decodes frames, ACKs them and
+ * advances transactions.
+ *
+ * Nodes are interviewed by an InterviewScheduler that can limit how many nodes are interviewed at once and defer
+ * sleeping nodes until they wake up.
+ *
  * @author Dan Noguerol
  */
-public class NettyZWaveController implements ZWaveController, ZWaveControllerContext, ZWaveControllerListener, ZWaveChannelListener, NodeListener {
+public class NettyZWaveController implements ZWaveController, PrioritizedZWaveControllerContext, ZWaveControllerListener, ZWaveChannelListener, QueueWritabilityListener, NodeListener {
     private static final Logger logger = LoggerFactory.getLogger(NettyZWaveController.class);
 
-    private String serialPort;
+    private ZWaveTransport transport;
     private PersistentStore store;
     private boolean autoCloseStore;
-    private Channel channel;
+    private volatile Channel channel;
     private EventLoopGroup eventLoopGroup;
+    private boolean ownsEventLoopGroup;
     private String libraryVersion;
-    private Integer homeId;
+    private volatile Integer homeId;
+    private Runnable homeIdCallback;
     private Byte nodeId;
     private ZWaveChannelInboundHandler inboundHandler;
+    private final DataFrameFactoryRegistry frameFactoryRegistry = new DataFrameFactoryRegistry();
+    private final WireTraceRecorder wireTraceRecorder = new WireTraceRecorder();
+    private final ZWaveMetrics metrics = new ZWaveMetrics();
+    private ObjectName metricsName;
+    private Timer timer;
+    private final RttEstimator rttEstimator = new RttEstimator();
+    private RetryPolicy retryPolicy = new DefaultRetryPolicy();
+    private long sendQueueTimeToLive;
+    private long wakeupQueueTimeToLive;
+    private int queueCapacity = Integer.MAX_VALUE;
+    private int nodeQueueCapacity = Integer.MAX_VALUE;
+    private OverflowPolicy overflowPolicy = OverflowPolicy.REJECT;
+    private long blockTimeout;
+    private final Object writabilityLock = new Object();
+    private volatile boolean writable = true;
     private ZWaveControllerListener listener;
-    private final List<ZWaveNode> nodes = new ArrayList<>();
-    private final Map<Byte,ZWaveNode> nodeMap = new HashMap<>();
+    private volatile InterviewProgressListener interviewProgressListener;
+    private final NodeRegistry nodes = new NodeRegistry();
+    private int dispatchThreadCount;
+    private int dispatchUpdateCapacity;
+    private boolean conflateUpdates;
+    private volatile NodeDispatcher dispatcher;
+    private long interviewTimeout = InterviewScheduler.DEFAULT_INTERVIEW_TIMEOUT;
+    private final InterviewScheduler interviews = new InterviewScheduler(new InterviewScheduler.Listener() {
+        @Override
+        public void startInterview(ZWaveNode node) {
+            NettyZWaveController.this.startInterview(node);
+        }
+
+        @Override
+        public void onInterviewProgress(InterviewProgress progress) {
+            dispatchInterviewProgress(progress);
+        }
+
+        @Override
+        public void execute(Runnable task) {
+            Channel c = channel;
+            if (c != null && c.eventLoop() != null) {
+                c.eventLoop().execute(task);
+            } else {
+                logger.debug("Controller is stopped; ignoring interview task");
+            }
+        }
+    });
 
     /**
      * Constructor.
@@ -105,7 +176,7 @@ public class NettyZWaveController implements ZWaveController, ZWaveControllerCon
      * @param dataDirectory a directory in which to store persistent data
      */
     public NettyZWaveController(String serialPort, File dataDirectory) {
-        this(serialPort, new MapDbPersistentStore(dataDirectory), true);
+        this(new SerialTransport(serialPort), new MapDbPersistentStore(dataDirectory), true);
     }
 
     /**
@@ -115,7 +186,7 @@ public class NettyZWaveController implements ZWaveController, ZWaveControllerCon
      * @param store the persistent store to use for storing/retrieving node information
      */
     public NettyZWaveController(String serialPort, PersistentStore store) {
-        this(serialPort, store, false);
+        this(new SerialTransport(serialPort), store, false);
     }
 
     /**
@@ -126,9 +197,55 @@ public class NettyZWaveController implements ZWaveController, ZWaveControllerCon
      * @param autoCloseStore indicates whether store should be automatically closed when controller is stopped
      */
     public NettyZWaveController(String serialPort, PersistentStore store, boolean autoCloseStore) {
-        this.serialPort = serialPort;
+        this(new SerialTransport(serialPort), store, autoCloseStore);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param transport the transport the Z-Wave controller is accessible from
+     * @param dataDirectory a directory in which to store persistent data
+     */
+    public NettyZWaveController(ZWaveTransport transport, File dataDirectory) {
+        this(transport, new MapDbPersistentStore(dataDirectory), true);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param transport the transport the Z-Wave controller is accessible from
+     * @param store the persistent store to use for storing/retrieving node information
+     */
+    public NettyZWaveController(ZWaveTransport transport, PersistentStore store) {
+        this(transport, store, false);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param transport the transport the Z-Wave controller is accessible from
+     * @param store the persistent store to use for storing/retrieving node information
+     * @param autoCloseStore indicates whether store should be automatically closed when controller is stopped
+     */
+    public NettyZWaveController(ZWaveTransport transport, PersistentStore store, boolean autoCloseStore) {
+        this(transport, store, autoCloseStore, null);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param transport the transport the Z-Wave controller is accessible from
+     * @param store the persistent store to use for storing/retrieving node information
+     * @param autoCloseStore indicates whether store should be automatically closed when controller is stopped
+     * @param eventLoopGroup a shared event loop group compatible with the transport (or null to have the controller
+     *                       create and shut down its own)
+     */
+    public NettyZWaveController(ZWaveTransport transport, PersistentStore store, boolean autoCloseStore, EventLoopGroup eventLoopGroup) {
+        this.transport = transport;
         this.store = store;
         this.autoCloseStore = autoCloseStore;
+        this.eventLoopGroup = eventLoopGroup;
+        this.ownsEventLoopGroup = (eventLoopGroup == null);
         this.inboundHandler = new ZWaveChannelInboundHandler(this);
     }
 
@@ -136,6 +253,184 @@ public class NettyZWaveController implements ZWaveController, ZWaveControllerCon
         this.channel = channel;
     }
 
+    /**
+     * Returns the registry used to create data frames received from the Z-Wave controller. Applications can register
+     * factories for additional Serial API functions before the controller is started.
+     *
+     * @return a DataFrameFactoryRegistry instance
+     */
+    public DataFrameFactoryRegistry getFrameFactoryRegistry() {
+        return frameFactoryRegistry;
+    }
+
+    /**
+     * Returns the recorder that captures all raw bytes exchanged with the Z-Wave controller. Its contents can be
+     * written to a capture file at any time for offline analysis.
+     *
+     * @return a WireTraceRecorder instance
+     */
+    public WireTraceRecorder getWireTraceRecorder() {
+        return wireTraceRecorder;
+    }
+
+    /**
+     * Returns the distribution of time between a data frame being received and its ACK being written.
+     *
+     * @return a LatencyHistogram instance
+     */
+    public LatencyHistogram getACKLatencyHistogram() {
+        return metrics.getACKLatencyHistogram();
+    }
+
+    /**
+     * Returns the runtime metrics of the controller's queues, transactions and serial link. The metrics are also
+     * registered as an MXBean with the platform MBean server while the controller is started.
+     *
+     * @return a ZWaveMetrics instance
+     */
+    public ZWaveMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Sets the default time-to-live of frames waiting to be sent. Frames that expire are discarded without being sent.
+     * This must be called before the controller is started.
+     *
+     * @param ttl the time-to-live (or 0 for none)
+     * @param unit the time unit of ttl
+     */
+    public void setSendQueueTimeToLive(long ttl, TimeUnit unit) {
+        this.sendQueueTimeToLive = unit.toNanos(ttl);
+    }
+
+    /**
+     * Sets the default time-to-live of frames waiting for a sleeping node to wake up. Frames that expire are discarded
+     * without being sent. This must be called before the controller is started.
+     *
+     * @param ttl the time-to-live (or 0 for none)
+     * @param unit the time unit of ttl
+     */
+    public void setWakeupQueueTimeToLive(long ttl, TimeUnit unit) {
+        this.wakeupQueueTimeToLive = unit.toNanos(ttl);
+    }
+
+    /**
+     * Sets the bounds that the adaptive transaction timeouts derived from each node's round-trip times are clamped
+     * to. Phases that haven't been measured yet use the transaction's default timeout.
+     *
+     * @param min the minimum timeout
+     * @param max the maximum timeout
+     * @param unit the time unit of min and max
+     */
+    public void setTransactionTimeoutBounds(long min, long max, TimeUnit unit) {
+        rttEstimator.setTimeoutBounds(min, max, unit);
+    }
+
+    /**
+     * Sets the policy that decides whether and when failed transactions are retried and whether frames are sent to
+     * nodes that keep failing. This must be called before the controller is started.
+     *
+     * @param retryPolicy the retry policy
+     */
+    public void setRetryPolicy(RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+    }
+
+    /**
+     * Returns the round-trip time estimates used to derive transaction timeouts.
+     *
+     * @return an RttEstimator
+     */
+    public RttEstimator getRttEstimator() {
+        return rttEstimator;
+    }
+
+    /**
+     * Limits the number of frames that can wait to be sent. This must be called before the controller is started.
+     *
+     * @param queueCapacity the maximum number of frames waiting to be sent
+     * @param nodeQueueCapacity the maximum number of frames waiting to be sent to a single node (this applies
+     *                          separately to a sleeping node's wakeup queue)
+     * @param policy what to do when frames are sent while a queue is full
+     * @param blockTimeout how long the BLOCK policy waits for room in the queue before giving up
+     * @param unit the time unit of blockTimeout
+     */
+    public void setQueueCapacity(int queueCapacity, int nodeQueueCapacity, OverflowPolicy policy, long blockTimeout, TimeUnit unit) {
+        this.queueCapacity = queueCapacity;
+        this.nodeQueueCapacity = nodeQueueCapacity;
+        this.overflowPolicy = policy;
+        this.blockTimeout = unit.toNanos(blockTimeout);
+    }
+
+    /**
+     * Runs node processing (application commands, updates and interviews) and listener callbacks on a pool of
+     * dispatch threads instead of the channel's event loop. Work for a node always runs in order on the same thread.
+     * This must be called before the controller is started.
+     *
+     * @param threadCount the number of dispatch threads (or 0 to run everything on the event loop)
+     * @param updateCapacity the maximum number of node updates that can wait to be delivered to the listener for a
+     *                       single node; further updates are dropped (node processing itself is never dropped)
+     * @param conflateUpdates indicates whether a node update that hasn't been delivered to the listener yet should
+     *                        be replaced by a newer one so that a lagging listener only sees the latest node state
+     */
+    public void setDispatchThreads(int threadCount, int updateCapacity, boolean conflateUpdates) {
+        this.dispatchThreadCount = threadCount;
+        this.dispatchUpdateCapacity = updateCapacity;
+        this.conflateUpdates = conflateUpdates;
+    }
+
+    /**
+     * Limits how many nodes are interviewed at once. Listening nodes are interviewed before non-listening ones
+     * either way. This must be called before the controller is started.
+     *
+     * @param maxConcurrent the maximum number of nodes to interview at once
+     * @param deferSleepingNodes indicates whether non-listening nodes should only be interviewed once they're heard
+     *                           from (e.g. when they send a wake up notification)
+     */
+    public void setInterviewConcurrency(int maxConcurrent, boolean deferSleepingNodes) {
+        interviews.setConcurrency(maxConcurrent, deferSleepingNodes);
+    }
+
+    /**
+     * Sets how long a node interview can take before it's given up on so that a node that stops answering halfway
+     * through its interview doesn't hold up the interviews of other nodes. This must be called before the controller
+     * is started.
+     *
+     * @param timeout the timeout (or 0 to never give up on an interview)
+     * @param unit the time unit of timeout
+     */
+    public void setInterviewTimeout(long timeout, TimeUnit unit) {
+        this.interviewTimeout = unit.toMillis(timeout);
+    }
+
+    /**
+     * Sets a listener that's told about the progress of the node interviews whenever one completes or times out.
+     *
+     * @param listener the listener (or null for none)
+     */
+    public void setInterviewProgressListener(InterviewProgressListener listener) {
+        this.interviewProgressListener = listener;
+    }
+
+    /**
+     * Returns the progress of the node interviews.
+     *
+     * @return an InterviewProgress instance
+     */
+    public InterviewProgress getInterviewProgress() {
+        return interviews.getProgress();
+    }
+
+    /**
+     * Indicates whether the send queue currently has room for more frames. Producers can use this to hold off
+     * instead of having frames rejected or dropped.
+     *
+     * @return a boolean
+     */
+    public boolean isWritable() {
+        return writable;
+    }
+
     /*
      * ZWaveController methods
      */
@@ -156,33 +451,45 @@ public class NettyZWaveController implements ZWaveController, ZWaveControllerCon
         if (channel == null) {
             // set up Netty bootstrap
             Bootstrap bootstrap = new Bootstrap();
-            eventLoopGroup = new OioEventLoopGroup();
+            if (ownsEventLoopGroup) {
+                eventLoopGroup = transport.createEventLoopGroup(1);
+            }
             bootstrap.group(eventLoopGroup);
-            bootstrap.channel(JSerialCommChannel.class);
-            bootstrap.handler(new ChannelInitializer<JSerialCommChannel>() {
+            timer = SharedTimer.INSTANCE.acquire();
+            interviews.setTimeout(timer, interviewTimeout);
+            transport.configure(bootstrap);
+            registerMetrics();
+            if (dispatchThreadCount > 0) {
+                dispatcher = new NodeDispatcher(dispatchThreadCount, dispatchUpdateCapacity, conflateUpdates, metrics);
+            }
+            bootstrap.handler(new ChannelInitializer<Channel>() {
                 @Override
-                protected void initChannel(JSerialCommChannel channel) throws Exception {
+                protected void initChannel(Channel channel) throws Exception {
                     NettyZWaveController.this.channel = channel;
-                    channel.config().setBaudrate(115200);
-                    channel.config().setDatabits(8);
-                    channel.config().setParitybit(JSerialCommChannelConfig.Paritybit.NONE);
-                    channel.config().setStopbits(JSerialCommChannelConfig.Stopbits.STOPBITS_1);
-                    channel.pipeline().addLast("decoder", new ZWaveFrameDecoder());
-                    channel.pipeline().addLast("ack", new ACKInboundHandler());
+                    channel.pipeline().addLast("trace", new WireTraceHandler(wireTraceRecorder));
+                    channel.pipeline().addLast("decoder", new ZWaveFrameDecoder(frameFactoryRegistry, metrics));
+                    channel.pipeline().addLast("ack", new ACKInboundHandler(metrics.getACKLatencyHistogram()));
                     channel.pipeline().addLast("encoder", new ZWaveFrameEncoder());
-                    channel.pipeline().addLast("writeQueue", new FrameQueueHandler());
-                    channel.pipeline().addLast("transaction", new TransactionInboundHandler());
+                    FrameQueueHandler writeQueue = new FrameQueueHandler(timer, metrics);
+                    writeQueue.setSendQueueTimeToLive(sendQueueTimeToLive, TimeUnit.NANOSECONDS);
+                    writeQueue.setWakeupQueueTimeToLive(wakeupQueueTimeToLive, TimeUnit.NANOSECONDS);
+                    writeQueue.setCapacity(queueCapacity, nodeQueueCapacity, overflowPolicy);
+                    writeQueue.setRetryPolicy(retryPolicy);
+                    channel.pipeline().addLast("writeQueue", writeQueue);
+                    channel.pipeline().addLast("transaction", new TransactionInboundHandler(timer, rttEstimator, retryPolicy, metrics));
                     channel.pipeline().addLast("handler", inboundHandler);
                 }
             });
 
-            bootstrap.connect(new JSerialCommDeviceAddress(serialPort)).addListener(new ChannelFutureListener() {
+            bootstrap.connect(transport.getAddress()).addListener(new ChannelFutureListener() {
                 @Override
                 public void operationComplete(ChannelFuture future) throws Exception {
                     if (future.isSuccess()) {
-                        sendDataFrame(new Version());
-                        sendDataFrame(new MemoryGetId());
-                        sendDataFrame(new InitData());
+                        // write to the connected channel directly in case the controller is stopped meanwhile
+                        Channel c = future.channel();
+                        c.write(new OutboundDataFrame(new Version(), true));
+                        c.write(new OutboundDataFrame(new MemoryGetId(), true));
+                        c.write(new OutboundDataFrame(new InitData(), true));
                     } else {
                         shutdown();
                         onZWaveConnectionFailure(future.cause());
@@ -204,23 +511,97 @@ public class NettyZWaveController implements ZWaveController, ZWaveControllerCon
         }
         store = null;
 
-        // clean up the channel
+        // clean up the channel; the timer used for queue expiry, transaction and interview timeouts is released once
+        // the channel has closed so that its handlers are done with it
+        interviews.setTimeout(null, interviewTimeout);
+        boolean releaseTimer = (timer != null);
+        timer = null;
         if (channel != null) {
-            channel.close();
+            ChannelFuture closeFuture = channel.close();
             channel = null;
+            if (releaseTimer) {
+                closeFuture.addListener(new ChannelFutureListener() {
+                    @Override
+                    public void operationComplete(ChannelFuture future) {
+                        SharedTimer.INSTANCE.release();
+                    }
+                });
+            }
+        } else if (releaseTimer) {
+            SharedTimer.INSTANCE.release();
         }
 
-        // shutdown the event loop group
-        if (eventLoopGroup != null) {
+        // release any callers waiting for room in the send queue
+        onQueueWritabilityChanged(new QueueWritabilityChangedEvent(true));
+
+        unregisterMetrics();
+
+        // stop dispatching node work
+        NodeDispatcher d = dispatcher;
+        dispatcher = null;
+        if (d != null) {
+            d.shutdown();
+        }
+
+        // shutdown the event loop group if it isn't shared
+        if (eventLoopGroup != null && ownsEventLoopGroup) {
             eventLoopGroup.shutdownGracefully();
         }
     }
 
+    /**
+     * Registers the controller's metrics with the platform MBean server. A failure to do so (e.g. because another
+     * controller uses the same transport address) is logged and otherwise ignored.
+     */
+    private void registerMetrics() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName("com.whizzosoftware.wzwave:type=ZWaveController,name=" + ObjectName.quote(transport.toString()));
+            server.registerMBean(metrics, name);
+            metricsName = name;
+        } catch (Exception e) {
+            logger.warn("Unable to register controller metrics MBean", e);
+        }
+    }
+
+    private void unregisterMetrics() {
+        if (metricsName != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(metricsName);
+            } catch (Exception e) {
+                logger.warn("Unable to unregister controller metrics MBean", e);
+            }
+            metricsName = null;
+        }
+    }
+
     @Override
     public int getHomeId() {
         return homeId;
     }
 
+    /**
+     * Indicates whether the home ID has been received from the Z-Wave controller yet.
+     *
+     * @return a boolean
+     */
+    public boolean hasHomeId() {
+        return (homeId != null);
+    }
+
+    /**
+     * Sets a callback that is run (on the I/O thread) when the home ID is received from the Z-Wave controller.
+     *
+     * @param homeIdCallback the callback
+     */
+    void setHomeIdCallback(Runnable homeIdCallback) {
+        this.homeIdCallback = homeIdCallback;
+    }
+
+    public ZWaveTransport getTransport() {
+        return transport;
+    }
+
     @Override
     public byte getNodeId() {
         return nodeId;
@@ -231,22 +612,154 @@ public class NettyZWaveController implements ZWaveController, ZWaveControllerCon
         return libraryVersion;
     }
 
+    /**
+     * Returns an immutable snapshot of the nodes this controller knows about, ordered by node ID. It is safe to
+     * call from any thread and doesn't reflect nodes added later.
+     *
+     * @return a Collection of nodes
+     */
     @Override
     public Collection<ZWaveNode> getNodes() {
-        return nodes;
+        return nodes.snapshot();
     }
 
     @Override
     public ZWaveNode getNode(byte nodeId) {
-        return nodeMap.get(nodeId);
+        return nodes.get(nodeId);
     }
 
     public void sendDataFrame(DataFrame frame) {
-        channel.write(new OutboundDataFrame(frame, true));
+        writeFrame(new OutboundDataFrame(frame, true));
+    }
+
+    /**
+     * Sends a data frame to the Z-Wave network with a specific priority. Frames sent in response to a user action
+     * should use FramePriority.INTERACTIVE so they aren't held up behind background traffic.
+     *
+     * @param frame the data frame
+     * @param priority the priority to send the frame with
+     */
+    public void sendDataFrame(DataFrame frame, FramePriority priority) {
+        writeFrame(new OutboundDataFrame(frame, true, priority));
     }
 
     public void sendDataFrame(DataFrame frame, boolean isListeningNode) {
-        channel.write(new OutboundDataFrame(frame, isListeningNode));
+        writeFrame(new OutboundDataFrame(frame, isListeningNode));
+    }
+
+    @Override
+    public void sendDataFrame(DataFrame frame, boolean isListeningNode, FramePriority priority) {
+        writeFrame(new OutboundDataFrame(frame, isListeningNode, priority));
+    }
+
+    /**
+     * Sends a data frame to the Z-Wave network and returns a future for its outcome. The future is completed with
+     * the frame that concluded the frame's transaction: the node's report for a command that expects one or the
+     * controller's response otherwise (null if there is none). A command that expects a report is never completed
+     * without one; if the report can't be received, the future is failed instead. A report that can't be recognized by
+     * its command (e.g. the answer to a GET with parameters) is the next command the node sends. If the frame can't
+     * be delivered, the future is failed with a cause describing why (e.g. a TransactionFailedException,
+     * NodeSleepingException, FrameExpiredException, QueueFullException or NodeUnavailableException).
+     *
+     * Listeners added to the future are notified on the controller's event loop and must not block.
+     *
+     * @param frame the data frame
+     *
+     * @return a Future
+     */
+    public Future<DataFrame> sendAsync(DataFrame frame) {
+        return sendAsync(frame, true, FramePriority.NORMAL);
+    }
+
+    /**
+     * Sends a data frame to the Z-Wave network with a specific priority and returns a future for its outcome.
+     *
+     * @param frame the data frame
+     * @param priority the priority to send the frame with
+     *
+     * @return a Future
+     */
+    public Future<DataFrame> sendAsync(DataFrame frame, FramePriority priority) {
+        return sendAsync(frame, true, priority);
+    }
+
+    /**
+     * Sends a data frame to the Z-Wave network and returns a future for its outcome.
+     *
+     * @param frame the data frame
+     * @param isListeningNode whether the destination node is a listening node
+     * @param priority the priority to send the frame with
+     *
+     * @return a Future
+     */
+    public Future<DataFrame> sendAsync(DataFrame frame, boolean isListeningNode, FramePriority priority) {
+        Promise<DataFrame> promise = channel.eventLoop().newPromise();
+        try {
+            writeFrame(new OutboundDataFrame(frame, isListeningNode, priority, 0, promise));
+        } catch (ZWaveRuntimeException e) {
+            // the send queue stayed full for longer than the block timeout
+            promise.tryFailure(e);
+        }
+        return promise;
+    }
+
+    /**
+     * Sends a command to a group of nodes with a single multicast frame so that they all act on it at the same time
+     * (e.g. the lights of a scene). Nodes don't acknowledge multicast frames, so the command can optionally be
+     * followed up with a singlecast of the same command to each node. Follow-ups are sent once the multicast is done
+     * (whether or not it succeeded) and replace any not yet sent frame with the same command for the node.
+     *
+     * @param nodeIds the IDs of the nodes to send the command to
+     * @param command the command (i.e. the command class ID, command and parameters)
+     * @param followUp whether to follow the multicast up with singlecasts to each node
+     *
+     * @return a Future that completes when the multicast frame has been transmitted
+     */
+    public Future<DataFrame> sendGroupCommand(final byte[] nodeIds, final byte[] command, boolean followUp) {
+        final byte txOptions = (byte)(SendData.TRANSMIT_OPTION_ACK | SendData.TRANSMIT_OPTION_AUTO_ROUTE);
+        Future<DataFrame> future = sendAsync(new SendDataMulti("GROUP_COMMAND", nodeIds, command, txOptions), true, FramePriority.INTERACTIVE);
+        if (followUp) {
+            future.addListener(new GenericFutureListener<Future<DataFrame>>() {
+                @Override
+                public void operationComplete(Future<DataFrame> f) throws Exception {
+                    for (byte id : nodeIds) {
+                        ZWaveNode node = nodes.get(id);
+                        SendData sd = new SendData("GROUP_FOLLOW_UP", id, command, txOptions, false);
+                        sd.setCoalescable(true);
+                        sendDataFrame(sd, (node == null || node.isListeningNode()), FramePriority.NORMAL);
+                    }
+                }
+            });
+        }
+        return future;
+    }
+
+    private void writeFrame(OutboundDataFrame odf) {
+        Channel c = channel;
+        // callers on the event loop (e.g. node callbacks when there are no dispatch threads) can never be blocked
+        if (overflowPolicy == OverflowPolicy.BLOCK && !writable && c != null && !c.eventLoop().inEventLoop()) {
+            awaitWritable(odf);
+        }
+        c.write(odf);
+    }
+
+    private void awaitWritable(OutboundDataFrame odf) {
+        long deadline = System.nanoTime() + blockTimeout;
+        synchronized (writabilityLock) {
+            long remaining = blockTimeout;
+            while (!writable) {
+                if (remaining <= 0) {
+                    throw new QueueFullException("Timed out waiting for room in the send queue", odf.getDataFrame());
+                }
+                try {
+                    TimeUnit.NANOSECONDS.timedWait(writabilityLock, remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new ZWaveRuntimeException("Interrupted while waiting for room in the send queue", e);
+                }
+                remaining = deadline - System.nanoTime();
+            }
+        }
     }
 
     @Override
@@ -296,15 +809,30 @@ public class NettyZWaveController implements ZWaveController, ZWaveControllerCon
     }
 
     @Override
-    public void onZWaveInclusion(NodeInfo nodeInfo, boolean success) {
+    public void onZWaveInclusion(final NodeInfo nodeInfo, boolean success) {
+        // the new node is created on the node's own dispatch thread so it's never touched by two threads at once
+        NodeDispatcher d = dispatcher;
+        if (d != null) {
+            d.dispatch(nodeInfo.getNodeId(), new Runnable() {
+                @Override
+                public void run() {
+                    includeNode(nodeInfo);
+                }
+            });
+        } else {
+            includeNode(nodeInfo);
+        }
+        if (listener != null) {
+            listener.onZWaveInclusion(nodeInfo, success);
+        }
+    }
+
+    private void includeNode(NodeInfo nodeInfo) {
         try {
             logger.trace("Inclusion of new node {}", ByteUtil.createString(nodeInfo.getNodeId()));
             ZWaveNode node = ZWaveNodeFactory.createNode(nodeInfo, !nodeInfo.hasCommandClass(WakeUpCommandClass.ID), this);
             logger.trace("Created new node [{}]: {}", node.getNodeId(), node);
             addNode(node);
-            if (listener != null) {
-                listener.onZWaveInclusion(nodeInfo, success);
-            }
         } catch (NodeCreationException e) {
             logger.error("Unable to create node", e);
         }
@@ -345,18 +873,53 @@ public class NettyZWaveController implements ZWaveController, ZWaveControllerCon
     @Override
     public void onLibraryInfo(String libraryVersion) {
         this.libraryVersion = libraryVersion;
-        onZWaveControllerInfo(libraryVersion, homeId, nodeId);
+        dispatchControllerInfo();
     }
 
     @Override
     public void onControllerInfo(int homeId, byte nodeId) {
         this.homeId = homeId;
         this.nodeId = nodeId;
-        onZWaveControllerInfo(libraryVersion, homeId, nodeId);
+        Runnable r = homeIdCallback;
+        if (r != null) {
+            r.run();
+        }
+        dispatchControllerInfo();
+    }
+
+    private void dispatchControllerInfo() {
+        final String libraryVersion = this.libraryVersion;
+        final Integer homeId = this.homeId;
+        final Byte nodeId = this.nodeId;
+        NodeDispatcher d = dispatcher;
+        if (d != null) {
+            d.dispatch((byte)0, new Runnable() {
+                @Override
+                public void run() {
+                    onZWaveControllerInfo(libraryVersion, homeId, nodeId);
+                }
+            });
+        } else {
+            onZWaveControllerInfo(libraryVersion, homeId, nodeId);
+        }
     }
 
     @Override
-    public void onNodeProtocolInfo(byte nodeId, NodeProtocolInfo npi) {
+    public void onNodeProtocolInfo(final byte nodeId, final NodeProtocolInfo npi) {
+        NodeDispatcher d = dispatcher;
+        if (d != null) {
+            d.dispatch(nodeId, new Runnable() {
+                @Override
+                public void run() {
+                    processNodeProtocolInfo(nodeId, npi);
+                }
+            });
+        } else {
+            processNodeProtocolInfo(nodeId, npi);
+        }
+    }
+
+    private void processNodeProtocolInfo(byte nodeId, NodeProtocolInfo npi) {
         try {
             logger.trace("Received protocol info for node {}", nodeId);
             ZWaveNode node = store.getNode(nodeId, this);
@@ -377,31 +940,93 @@ public class NettyZWaveController implements ZWaveController, ZWaveControllerCon
     }
 
     private void addNode(ZWaveNode node) {
-        ZWaveNode n = nodeMap.get(node.getNodeId());
-        if (n != null) {
-            nodes.remove(n);
-            nodeMap.remove(node.getNodeId());
+        nodes.put(node);
+        interviews.schedule(node);
+    }
+
+    private void startInterview(final ZWaveNode node) {
+        Runnable r = new Runnable() {
+            @Override
+            public void run() {
+                node.startInterview(NettyZWaveController.this);
+            }
+        };
+        Channel c = channel;
+        NodeDispatcher d = dispatcher;
+        if (d != null) {
+            d.dispatch(node.getNodeId(), r);
+        } else if (c != null && c.eventLoop() != null && !c.eventLoop().inEventLoop()) {
+            // interviews are started on the event loop when there is no dispatcher
+            c.eventLoop().execute(r);
+        } else {
+            node.startInterview(this);
+        }
+    }
+
+    private void dispatchInterviewProgress(final InterviewProgress progress) {
+        final InterviewProgressListener l = interviewProgressListener;
+        if (l == null) {
+            return;
+        }
+        NodeDispatcher d = dispatcher;
+        if (d != null) {
+            d.dispatch((byte)0, new Runnable() {
+                @Override
+                public void run() {
+                    l.onInterviewProgress(progress);
+                }
+            });
+        } else {
+            l.onInterviewProgress(progress);
         }
-        nodes.add(node);
-        nodeMap.put(node.getNodeId(), node);
-        node.startInterview(this);
     }
 
     @Override
     public void onApplicationCommand(ApplicationCommand applicationCommand) {
-        ZWaveNode node = nodeMap.get(applicationCommand.getNodeId());
+        NodeDispatcher d = dispatcher;
+        if (d != null) {
+            // the frame's buffer is released once this returns
+            final ApplicationCommand cmd = (ApplicationCommand)applicationCommand.materialize();
+            d.dispatch(cmd.getNodeId(), new Runnable() {
+                @Override
+                public void run() {
+                    processApplicationCommand(cmd);
+                }
+            });
+        } else {
+            processApplicationCommand(applicationCommand);
+        }
+    }
+
+    private void processApplicationCommand(ApplicationCommand applicationCommand) {
+        ZWaveNode node = nodes.get(applicationCommand.getNodeId());
         if (node != null) {
             node.onApplicationCommand(this, applicationCommand);
             if (node.isStarted()) {
-                onZWaveNodeUpdated(node);
+                notifyNodeUpdated(node);
             }
+            interviews.onNodeAwake(node);
         } else {
-            logger.error("Unable to find node: {}", nodeId);
+            logger.error("Unable to find node: {}", applicationCommand.getNodeId());
         }
     }
 
     @Override
-    public void onApplicationUpdate(ApplicationUpdate applicationUpdate) {
+    public void onApplicationUpdate(final ApplicationUpdate applicationUpdate) {
+        NodeDispatcher d = dispatcher;
+        if (d != null && applicationUpdate.getNodeId() != null) {
+            d.dispatch(applicationUpdate.getNodeId(), new Runnable() {
+                @Override
+                public void run() {
+                    processApplicationUpdate(applicationUpdate);
+                }
+            });
+        } else {
+            processApplicationUpdate(applicationUpdate);
+        }
+    }
+
+    private void processApplicationUpdate(ApplicationUpdate applicationUpdate) {
         Byte nodeId = applicationUpdate.getNodeId();
 
         if (applicationUpdate.didInfoRequestFail()) {
@@ -409,11 +1034,14 @@ public class NettyZWaveController implements ZWaveController, ZWaveControllerCon
         }
 
         if (nodeId != null) {
-            ZWaveNode node = nodeMap.get(nodeId);
-            if (node != null) {
+            ZWaveNode node = nodes.get(nodeId);
+            if (node != null && node.getState() == null) {
+                // the node's interview was deferred until it was heard from and will request its node info
+                interviews.onNodeAwake(node);
+            } else if (node != null) {
                 node.onApplicationUpdate(this, applicationUpdate);
                 if (node.isStarted()) {
-                    onZWaveNodeUpdated(node);
+                    notifyNodeUpdated(node);
                 }
             } else {
                 logger.error("Unable to find node: {}", nodeId);
@@ -433,12 +1061,7 @@ public class NettyZWaveController implements ZWaveController, ZWaveControllerCon
     public void onTransactionComplete(TransactionCompletedEvent evt) {
         logger.trace("Detected end of transaction: {}", evt.getId());
         if (evt instanceof SendDataTransactionCompletedEvent) {
-            ZWaveNode node = nodeMap.get(evt.getNodeId());
-            if (node != null) {
-                node.onSendDataCallback(this, true);
-            } else {
-                logger.error("Unable to find node: {}", evt.getNodeId());
-            }
+            dispatchSendDataCallback(evt.getNodeId(), true);
         }
         channel.write(evt);
     }
@@ -447,18 +1070,80 @@ public class NettyZWaveController implements ZWaveController, ZWaveControllerCon
     public void onTransactionFailed(TransactionFailedEvent evt) {
         logger.trace("Detected transaction failure: {}", evt.getId());
         if (evt instanceof SendDataTransactionFailedEvent) {
-            ZWaveNode node = nodeMap.get(evt.getNodeId());
-            if (node != null) {
-                node.onSendDataCallback(this, ((SendDataTransactionFailedEvent)evt).isTargetNodeACKReceived());
-            } else {
-                logger.error("Unable to find node: {}", evt.getNodeId());
-            }
+            dispatchSendDataCallback(evt.getNodeId(), ((SendDataTransactionFailedEvent)evt).isTargetNodeACKReceived());
         }
         channel.write(evt);
     }
 
+    /**
+     * Tells a node about the outcome of a frame sent to it. The event that carried the outcome may be reused once
+     * this returns, so only its values are handed to the dispatcher.
+     *
+     * @param nodeId the node ID
+     * @param wasACKReceived whether the node ACKed the frame
+     */
+    private void dispatchSendDataCallback(final byte nodeId, final boolean wasACKReceived) {
+        NodeDispatcher d = dispatcher;
+        if (d != null) {
+            d.dispatch(nodeId, new Runnable() {
+                @Override
+                public void run() {
+                    processSendDataCallback(nodeId, wasACKReceived);
+                }
+            });
+        } else {
+            processSendDataCallback(nodeId, wasACKReceived);
+        }
+    }
+
+    private void processSendDataCallback(byte nodeId, boolean wasACKReceived) {
+        ZWaveNode node = nodes.get(nodeId);
+        if (node != null) {
+            // nodes whose interview hasn't started yet have nothing to do with the outcome
+            if (node.getState() != null) {
+                node.onSendDataCallback(this, wasACKReceived);
+            }
+        } else {
+            logger.error("Unable to find node: {}", nodeId);
+        }
+    }
+
+    /**
+     * Tells the listener that a node has been updated. When updates are conflated, the listener may only be told
+     * about the latest of several updates.
+     *
+     * @param node the node
+     */
+    private void notifyNodeUpdated(final ZWaveNode node) {
+        NodeDispatcher d = dispatcher;
+        if (d != null) {
+            d.dispatchUpdate(node.getNodeId(), new Runnable() {
+                @Override
+                public void run() {
+                    onZWaveNodeUpdated(node);
+                }
+            });
+        } else {
+            onZWaveNodeUpdated(node);
+        }
+    }
+
     @Override
-    public void onAddNodeToNetwork(AddNodeToNetwork update) {
+    public void onAddNodeToNetwork(final AddNodeToNetwork update) {
+        NodeDispatcher d = dispatcher;
+        if (d != null) {
+            d.dispatch((byte)0, new Runnable() {
+                @Override
+                public void run() {
+                    processAddNodeToNetwork(update);
+                }
+            });
+        } else {
+            processAddNodeToNetwork(update);
+        }
+    }
+
+    private void processAddNodeToNetwork(AddNodeToNetwork update) {
         if (listener != null) {
             switch (update.getStatus()) {
                 case AddNodeToNetwork.ADD_NODE_STATUS_LEARN_READY:
@@ -481,7 +1166,21 @@ public class NettyZWaveController implements ZWaveController, ZWaveControllerCon
     }
 
     @Override
-    public void onRemoveNodeFromNetwork(RemoveNodeFromNetwork update) {
+    public void onRemoveNodeFromNetwork(final RemoveNodeFromNetwork update) {
+        NodeDispatcher d = dispatcher;
+        if (d != null) {
+            d.dispatch((byte)0, new Runnable() {
+                @Override
+                public void run() {
+                    processRemoveNodeFromNetwork(update);
+                }
+            });
+        } else {
+            processRemoveNodeFromNetwork(update);
+        }
+    }
+
+    private void processRemoveNodeFromNetwork(RemoveNodeFromNetwork update) {
         if (listener != null) {
             switch (update.getStatus()) {
                 case RemoveNodeFromNetwork.REMOVE_NODE_STATUS_LEARN_READY:
@@ -511,6 +1210,14 @@ public class NettyZWaveController implements ZWaveController, ZWaveControllerCon
         logger.info("Z-Wave controller has been reset to factory default");
     }
 
+    @Override
+    public void onQueueWritabilityChanged(QueueWritabilityChangedEvent evt) {
+        synchronized (writabilityLock) {
+            writable = evt.isWritable();
+            writabilityLock.notifyAll();
+        }
+    }
+
     /*
      * NodeListener methods
      */
@@ -523,5 +1230,8 @@ public class NettyZWaveController implements ZWaveController, ZWaveControllerCon
 
         // when a node moves to the "started" state, alert listeners that it's ready to be added
         onZWaveNodeAdded(node);
+
+        // let the next node be interviewed
+        interviews.onInterviewCompleted(node);
     }
 }
@@ -0,0 +1,227 @@
+/*
+ *******************************************************************************
+ * Copyright (c) 2019 Whizzo Software, LLC.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************
+*/
+package com.whizzosoftware.wzwave.controller.netty;
+
+import com.whizzosoftware.wzwave.metrics.ZWaveMetrics;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Runs node processing and listener callbacks off the channel's event loop so that a slow listener can't hold up
+ * ACKs and transactions.
+ *
+ * Each node has a mailbox that is drained by one of a fixed number of single-threaded stripes (chosen by node ID), so
+ * work for a node runs in the order it was dispatched and never concurrently while different nodes proceed in
+ * parallel. Node work drives the nodes' state machines and is never dropped.
+ *
+ * Updates (e.g. telling the listener a node has changed) are what a lagging listener piles up, so only they are
+ * bounded: a mailbox holds a limited number of pending updates and further ones are rejected. Updates can also be
+ * conflated instead: a node has at most one pending update and dispatching another one replaces it, so a lagging
+ * listener only sees the node's latest state. A pending conflated update is run once the work dispatched before it
+ * has run.
+ *
+ * @author Dan Noguerol
+ */
+class NodeDispatcher {
+    private static final Logger logger = LoggerFactory.getLogger(NodeDispatcher.class);
+
+    /**
+     * The number of tasks a mailbox runs before giving other mailboxes of its stripe a turn.
+     */
+    private static final int BATCH_SIZE = 16;
+
+    private final ExecutorService[] stripes;
+    private final Mailbox[] mailboxes = new Mailbox[256];
+    private final int updateCapacity;
+    private final boolean conflateUpdates;
+    private final ZWaveMetrics metrics;
+
+    /**
+     * Constructor.
+     *
+     * @param threadCount the number of stripes
+     * @param updateCapacity the maximum number of updates that can wait for a single node
+     * @param conflateUpdates indicates whether updates should be conflated
+     * @param metrics the metrics to count rejected and conflated updates in
+     */
+    NodeDispatcher(int threadCount, int updateCapacity, boolean conflateUpdates, ZWaveMetrics metrics) {
+        if (threadCount < 1 || updateCapacity < 1) {
+            throw new IllegalArgumentException("Thread count and update capacity must be positive");
+        }
+        this.updateCapacity = updateCapacity;
+        this.conflateUpdates = conflateUpdates;
+        this.metrics = metrics;
+
+        ThreadFactory threadFactory = new DefaultThreadFactory("wzwave-dispatch", true);
+        stripes = new ExecutorService[threadCount];
+        for (int i = 0; i < threadCount; i++) {
+            stripes[i] = Executors.newSingleThreadExecutor(threadFactory);
+        }
+        for (int i = 0; i < mailboxes.length; i++) {
+            mailboxes[i] = new Mailbox(stripes[i % threadCount]);
+        }
+    }
+
+    /**
+     * Dispatches a task for a node. The task is always accepted unless the dispatcher has been shut down.
+     *
+     * @param nodeId the node ID (0 for work that isn't specific to a node)
+     * @param task the task
+     *
+     * @return false if the dispatcher has been shut down and the task was dropped
+     */
+    boolean dispatch(byte nodeId, Runnable task) {
+        return mailboxes[nodeId & 0xFF].offer(nodeId, task, false, false);
+    }
+
+    /**
+     * Dispatches an update for a node. If updates are conflated, the task replaces any update for the node that
+     * hasn't run yet.
+     *
+     * @param nodeId the node ID
+     * @param task the task
+     *
+     * @return false if the node already has the maximum number of pending updates (or the dispatcher has been shut
+     *         down) and the task was rejected
+     */
+    boolean dispatchUpdate(byte nodeId, Runnable task) {
+        return mailboxes[nodeId & 0xFF].offer(nodeId, task, true, conflateUpdates);
+    }
+
+    /**
+     * Stops the stripes. Mailboxes that are already waiting for their stripe run one more batch of tasks; the rest
+     * are dropped.
+     */
+    void shutdown() {
+        for (ExecutorService stripe : stripes) {
+            stripe.shutdown();
+        }
+    }
+
+    private class Mailbox implements Runnable {
+        private final ExecutorService stripe;
+        private final Deque<Runnable> tasks = new ArrayDeque<>();
+        /**
+         * The number of unconflated updates in tasks.
+         */
+        private int updates;
+        private Runnable update;
+        /**
+         * The number of tasks that were dispatched before the pending conflated update.
+         */
+        private int tasksBeforeUpdate;
+        private boolean scheduled;
+
+        Mailbox(ExecutorService stripe) {
+            this.stripe = stripe;
+        }
+
+        boolean offer(byte nodeId, Runnable task, boolean isUpdate, boolean conflate) {
+            synchronized (this) {
+                if (conflate) {
+                    if (update != null) {
+                        update = task;
+                        metrics.onUpdateConflated();
+                        return true;
+                    }
+                    update = task;
+                    tasksBeforeUpdate = tasks.size();
+                } else if (isUpdate) {
+                    if (updates >= updateCapacity) {
+                        metrics.onDispatchRejected();
+                        logger.warn("Node {} has too many pending updates; rejecting update", nodeId & 0xFF);
+                        return false;
+                    }
+                    updates++;
+                    tasks.add(new Update(task));
+                } else {
+                    tasks.add(task);
+                }
+                if (scheduled) {
+                    return true;
+                }
+                scheduled = true;
+            }
+            return schedule();
+        }
+
+        @Override
+        public void run() {
+            for (int i = 0; i < BATCH_SIZE; i++) {
+                Runnable task;
+                synchronized (this) {
+                    if (update != null && tasksBeforeUpdate == 0) {
+                        task = update;
+                        update = null;
+                    } else {
+                        task = tasks.poll();
+                        if (task != null && update != null) {
+                            tasksBeforeUpdate--;
+                        }
+                        if (task instanceof Update) {
+                            updates--;
+                        }
+                    }
+                    if (task == null) {
+                        scheduled = false;
+                        return;
+                    }
+                }
+                try {
+                    task.run();
+                } catch (Throwable t) {
+                    logger.error("Error running dispatched task", t);
+                }
+            }
+            // let the other mailboxes of this stripe have a turn
+            schedule();
+        }
+
+        private boolean schedule() {
+            try {
+                stripe.execute(this);
+                return true;
+            } catch (RejectedExecutionException e) {
+                logger.debug("Dispatcher has been shut down; dropping tasks");
+                synchronized (this) {
+                    tasks.clear();
+                    updates = 0;
+                    update = null;
+                    scheduled = false;
+                }
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Marks an unconflated update in a mailbox so it can be counted against the update capacity.
+     */
+    private static class Update implements Runnable {
+        private final Runnable task;
+
+        Update(Runnable task) {
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            task.run();
+        }
+    }
+}
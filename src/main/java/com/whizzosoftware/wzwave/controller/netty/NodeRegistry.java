@@ -0,0 +1,114 @@
+/*
+ *******************************************************************************
+ * Copyright (c) 2019 Whizzo Software, LLC.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************
+*/
+package com.whizzosoftware.wzwave.controller.netty;
+
+import com.whizzosoftware.wzwave.node.ZWaveNode;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The nodes a controller knows about. Nodes are kept in an array indexed by node ID so that looking one up is a
+ * single volatile read, and in an immutable list (ordered by node ID) that is replaced whenever a node is added or
+ * removed so that the nodes can be iterated from any thread without copying or locking.
+ *
+ * Readers never block. Writers (normally only the channel's event loop) are serialized so that the list always
+ * reflects the array.
+ *
+ * The nodes themselves are updated on the event loop. Their state and the values their command classes report are
+ * kept in volatile fields (or concurrent collections), so a reader sees the most recent value of each one, though
+ * not necessarily a consistent set of them.
+ *
+ * @author Dan Noguerol
+ */
+class NodeRegistry {
+    /**
+     * The highest node ID a Z-Wave network can contain.
+     */
+    static final int MAX_NODE_ID = 232;
+
+    private final AtomicReferenceArray<ZWaveNode> nodes = new AtomicReferenceArray<>(MAX_NODE_ID + 1);
+    private volatile List<ZWaveNode> snapshot = Collections.emptyList();
+
+    /**
+     * Returns the node with a specific ID.
+     *
+     * @param nodeId the node ID
+     *
+     * @return a ZWaveNode (or null if there is no such node)
+     */
+    ZWaveNode get(byte nodeId) {
+        int ix = nodeId & 0xFF;
+        return (ix <= MAX_NODE_ID ? nodes.get(ix) : null);
+    }
+
+    /**
+     * Adds a node, replacing any existing node with the same ID.
+     *
+     * @param node the node to add
+     *
+     * @return the node that was replaced (or null if there was none)
+     */
+    synchronized ZWaveNode put(ZWaveNode node) {
+        int ix = node.getNodeId() & 0xFF;
+        if (ix > MAX_NODE_ID) {
+            throw new IllegalArgumentException("Invalid node ID: " + ix);
+        }
+        ZWaveNode previous = nodes.getAndSet(ix, node);
+        updateSnapshot();
+        return previous;
+    }
+
+    /**
+     * Removes a node.
+     *
+     * @param nodeId the node ID
+     *
+     * @return the node that was removed (or null if there was none)
+     */
+    synchronized ZWaveNode remove(byte nodeId) {
+        int ix = nodeId & 0xFF;
+        if (ix > MAX_NODE_ID) {
+            return null;
+        }
+        ZWaveNode previous = nodes.getAndSet(ix, null);
+        if (previous != null) {
+            updateSnapshot();
+        }
+        return previous;
+    }
+
+    /**
+     * Returns an immutable snapshot of the nodes ordered by node ID. Nodes added or removed later aren't reflected
+     * in it.
+     *
+     * @return a List of nodes
+     */
+    List<ZWaveNode> snapshot() {
+        return snapshot;
+    }
+
+    int size() {
+        return snapshot.size();
+    }
+
+    private void updateSnapshot() {
+        List<ZWaveNode> list = new ArrayList<>();
+        for (int i = 0; i <= MAX_NODE_ID; i++) {
+            ZWaveNode n = nodes.get(i);
+            if (n != null) {
+                list.add(n);
+            }
+        }
+        snapshot = Collections.unmodifiableList(list);
+    }
+}
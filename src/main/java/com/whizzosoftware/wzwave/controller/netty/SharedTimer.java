@@ -0,0 +1,58 @@
+/*
+ *******************************************************************************
+ * Copyright (c) 2019 Whizzo Software, LLC.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************
+*/
+package com.whizzosoftware.wzwave.controller.netty;
+
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timer;
+import io.netty.util.concurrent.DefaultThreadFactory;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The timer used for queue expiry, transaction and interview timeouts. A single timer is shared by all running
+ * controllers so that starting several of them (or restarting one) doesn't create a timer each. It is created when
+ * the first controller acquires it and stopped once the last one has released it.
+ *
+ * @author Dan Noguerol
+ */
+class SharedTimer {
+    /**
+     * The timer shared by all controllers.
+     */
+    static final SharedTimer INSTANCE = new SharedTimer();
+
+    private Timer timer;
+    private int refCount;
+
+    /**
+     * Returns the shared timer, creating it if no controller is currently using it. Each call must be matched by a
+     * call to release().
+     *
+     * @return a Timer
+     */
+    synchronized Timer acquire() {
+        if (timer == null) {
+            timer = new HashedWheelTimer(new DefaultThreadFactory("wzwave-timer", true), 20, TimeUnit.MILLISECONDS);
+        }
+        refCount++;
+        return timer;
+    }
+
+    /**
+     * Releases the shared timer, stopping it if no other controller is using it. Callers must be done scheduling
+     * timeouts on it.
+     */
+    synchronized void release() {
+        if (refCount > 0 && --refCount == 0) {
+            timer.stop();
+            timer = null;
+        }
+    }
+}
@@ -0,0 +1,239 @@
+/*
+ *******************************************************************************
+ * Copyright (c) 2019 Whizzo Software, LLC.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************
+*/
+package com.whizzosoftware.wzwave.controller.netty;
+
+import com.whizzosoftware.wzwave.controller.netty.transport.ZWaveTransport;
+import com.whizzosoftware.wzwave.node.NodeCreationException;
+import com.whizzosoftware.wzwave.node.NodeListener;
+import com.whizzosoftware.wzwave.node.ZWaveNode;
+import com.whizzosoftware.wzwave.persist.PartitionedPersistentStore;
+import com.whizzosoftware.wzwave.persist.PersistentStore;
+import com.whizzosoftware.wzwave.persist.mapdb.MapDbPersistentStore;
+import io.netty.channel.EventLoopGroup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Hosts multiple NettyZWaveControllers in one JVM. Controllers share an event loop group per transport type and a
+ * single persistent store that is partitioned by each network's home ID.
+ *
+ * The thread count bounds the event loop groups of socket based transports (TCP and local). Serial ports can only be
+ * read with blocking I/O, so SerialTransport ignores it and uses a thread per controller.
+ *
+ * @author Dan Noguerol
+ */
+public class ZWaveControllerManager {
+    private static final Logger logger = LoggerFactory.getLogger(ZWaveControllerManager.class);
+
+    private final PartitionedPersistentStore store;
+    private final boolean autoCloseStore;
+    private final int threadCount;
+    private final Map<Class<? extends ZWaveTransport>,EventLoopGroup> eventLoopGroups = new HashMap<>();
+    private final List<NettyZWaveController> controllers = new CopyOnWriteArrayList<>();
+
+    /**
+     * Constructor.
+     *
+     * @param dataDirectory a directory in which to store persistent data for all networks
+     */
+    public ZWaveControllerManager(File dataDirectory) {
+        this(new MapDbPersistentStore(dataDirectory), true, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param store the store to use for all networks
+     * @param autoCloseStore indicates whether store should be automatically closed when the manager is stopped
+     * @param threadCount the maximum number of event loop threads to use per transport type (ignored by
+     *                    SerialTransport, which needs a thread per controller)
+     */
+    public ZWaveControllerManager(PartitionedPersistentStore store, boolean autoCloseStore, int threadCount) {
+        this.store = store;
+        this.autoCloseStore = autoCloseStore;
+        this.threadCount = threadCount;
+    }
+
+    /**
+     * Creates a new controller that uses the manager's shared resources. The controller must be started by the
+     * caller.
+     *
+     * @param transport the transport the Z-Wave controller is accessible from
+     *
+     * @return a NettyZWaveController instance
+     */
+    public NettyZWaveController addController(ZWaveTransport transport) {
+        final ControllerStore cs = new ControllerStore(store);
+        NettyZWaveController controller = new NettyZWaveController(transport, cs, false, getEventLoopGroup(transport));
+        cs.setController(controller);
+        controller.setHomeIdCallback(new Runnable() {
+            @Override
+            public void run() {
+                cs.onHomeId();
+            }
+        });
+        controllers.add(controller);
+        logger.debug("Added controller for {}", transport);
+        return controller;
+    }
+
+    /**
+     * Stops a controller and removes it from the manager.
+     *
+     * @param controller the controller
+     */
+    public void removeController(NettyZWaveController controller) {
+        if (controllers.remove(controller)) {
+            controller.stop();
+        }
+    }
+
+    /**
+     * Returns all controllers hosted by the manager.
+     *
+     * @return a List of NettyZWaveController instances
+     */
+    public List<NettyZWaveController> getControllers() {
+        return Collections.unmodifiableList(controllers);
+    }
+
+    /**
+     * Returns the controller for a Z-Wave network.
+     *
+     * @param homeId the home ID of the network
+     *
+     * @return a NettyZWaveController (or null if no controller has reported that home ID)
+     */
+    public NettyZWaveController getController(int homeId) {
+        for (NettyZWaveController c : controllers) {
+            if (c.hasHomeId() && c.getHomeId() == homeId) {
+                return c;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the nodes of all networks hosted by the manager.
+     *
+     * @return a Collection of ZWaveNode instances
+     */
+    public Collection<ZWaveNode> getNodes() {
+        List<ZWaveNode> nodes = new ArrayList<>();
+        for (NettyZWaveController c : controllers) {
+            nodes.addAll(c.getNodes());
+        }
+        return nodes;
+    }
+
+    /**
+     * Stops all controllers and releases the shared resources.
+     */
+    public void stop() {
+        for (NettyZWaveController c : controllers) {
+            c.stop();
+        }
+        controllers.clear();
+
+        synchronized (eventLoopGroups) {
+            for (EventLoopGroup g : eventLoopGroups.values()) {
+                g.shutdownGracefully();
+            }
+            eventLoopGroups.clear();
+        }
+
+        if (autoCloseStore) {
+            store.close();
+        }
+    }
+
+    EventLoopGroup getEventLoopGroup(ZWaveTransport transport) {
+        synchronized (eventLoopGroups) {
+            EventLoopGroup g = eventLoopGroups.get(transport.getClass());
+            if (g == null) {
+                g = transport.createEventLoopGroup(threadCount);
+                eventLoopGroups.put(transport.getClass(), g);
+            }
+            return g;
+        }
+    }
+
+    /**
+     * A store handed to each controller that resolves to the shared store's partition for the controller's home ID
+     * once it is known. Nodes saved before then are held (latest save per node) and written to the partition as soon
+     * as it resolves.
+     */
+    private static class ControllerStore implements PersistentStore {
+        private final PartitionedPersistentStore store;
+        private NettyZWaveController controller;
+        private PersistentStore partition;
+        private final Map<Byte,ZWaveNode> pendingSaves = new LinkedHashMap<>();
+
+        ControllerStore(PartitionedPersistentStore store) {
+            this.store = store;
+        }
+
+        void setController(NettyZWaveController controller) {
+            this.controller = controller;
+        }
+
+        private synchronized PersistentStore getPartition() {
+            if (partition == null && controller.hasHomeId()) {
+                partition = store.getPartition(controller.getHomeId());
+                if (!pendingSaves.isEmpty()) {
+                    logger.debug("Saving {} node(s) that were saved before home ID was known", pendingSaves.size());
+                    for (ZWaveNode node : pendingSaves.values()) {
+                        partition.saveNode(node);
+                    }
+                    pendingSaves.clear();
+                }
+            }
+            return partition;
+        }
+
+        /**
+         * Called when the controller learns its home ID so that deferred saves don't wait for the next store access.
+         */
+        void onHomeId() {
+            getPartition();
+        }
+
+        @Override
+        public ZWaveNode getNode(byte nodeId, NodeListener listener) throws NodeCreationException {
+            PersistentStore p = getPartition();
+            return (p != null) ? p.getNode(nodeId, listener) : null;
+        }
+
+        @Override
+        public synchronized void saveNode(ZWaveNode node) {
+            PersistentStore p = getPartition();
+            if (p != null) {
+                p.saveNode(node);
+            } else {
+                logger.debug("Deferring save of node {} until home ID is known", node.getNodeId());
+                pendingSaves.put(node.getNodeId(), node);
+            }
+        }
+
+        @Override
+        public synchronized void close() {
+            // the shared store is closed by the manager; just make sure nothing is left unsaved if it can be helped
+            getPartition();
+            if (!pendingSaves.isEmpty()) {
+                logger.warn("Discarding {} node save(s) because home ID never became known", pendingSaves.size());
+                pendingSaves.clear();
+            }
+        }
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ *******************************************************************************
+ * Copyright (c) 2019 Whizzo Software, LLC.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************
+*/
+package com.whizzosoftware.wzwave.controller.netty.transport;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.local.LocalAddress;
+import io.netty.channel.local.LocalChannel;
+import io.netty.channel.local.LocalEventLoopGroup;
+
+import java.net.SocketAddress;
+
+/**
+ * A transport that connects to an in-VM LocalServerChannel. This is primarily useful for testing against a
+ * simulated Z-Wave controller.
+ *
+ * @author Dan Noguerol
+ */
+public class LocalTransport implements ZWaveTransport {
+    private LocalAddress address;
+
+    /**
+     * Constructor.
+     *
+     * @param id the ID of the LocalServerChannel to connect to
+     */
+    public LocalTransport(String id) {
+        this(new LocalAddress(id));
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param address the address of the LocalServerChannel to connect to
+     */
+    public LocalTransport(LocalAddress address) {
+        this.address = address;
+    }
+
+    @Override
+    public EventLoopGroup createEventLoopGroup(int threadCount) {
+        return new LocalEventLoopGroup(threadCount);
+    }
+
+    @Override
+    public void configure(Bootstrap bootstrap) {
+        bootstrap.channel(LocalChannel.class);
+    }
+
+    @Override
+    public SocketAddress getAddress() {
+        return address;
+    }
+
+    public String toString() {
+        return "local:" + address.id();
+    }
+}
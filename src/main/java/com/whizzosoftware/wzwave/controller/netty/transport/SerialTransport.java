@@ -0,0 +1,68 @@
+/*
+ *******************************************************************************
+ * Copyright (c) 2019 Whizzo Software, LLC.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************
+*/
+package com.whizzosoftware.wzwave.controller.netty.transport;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.jsc.JSerialCommChannel;
+import io.netty.channel.jsc.JSerialCommChannelConfig;
+import io.netty.channel.jsc.JSerialCommChannelOption;
+import io.netty.channel.jsc.JSerialCommDeviceAddress;
+import io.netty.channel.oio.OioEventLoopGroup;
+
+import java.net.SocketAddress;
+
+/**
+ * A transport for a Z-Wave controller attached to a local serial port (115200 baud, 8N1).
+ *
+ * @author Dan Noguerol
+ */
+public class SerialTransport implements ZWaveTransport {
+    private String serialPort;
+
+    /**
+     * Constructor.
+     *
+     * @param serialPort the serial port the Z-Wave controller is accessible from
+     */
+    public SerialTransport(String serialPort) {
+        this.serialPort = serialPort;
+    }
+
+    public String getSerialPort() {
+        return serialPort;
+    }
+
+    /**
+     * Serial channels use blocking I/O and always need a thread per channel, so the thread count is ignored.
+     */
+    @Override
+    public EventLoopGroup createEventLoopGroup(int threadCount) {
+        return new OioEventLoopGroup();
+    }
+
+    @Override
+    public void configure(Bootstrap bootstrap) {
+        bootstrap.channel(JSerialCommChannel.class);
+        bootstrap.option(JSerialCommChannelOption.BAUD_RATE, 115200);
+        bootstrap.option(JSerialCommChannelOption.DATA_BITS, 8);
+        bootstrap.option(JSerialCommChannelOption.PARITY_BIT, JSerialCommChannelConfig.Paritybit.NONE);
+        bootstrap.option(JSerialCommChannelOption.STOP_BITS, JSerialCommChannelConfig.Stopbits.STOPBITS_1);
+    }
+
+    @Override
+    public SocketAddress getAddress() {
+        return new JSerialCommDeviceAddress(serialPort);
+    }
+
+    public String toString() {
+        return "serial:" + serialPort;
+    }
+}
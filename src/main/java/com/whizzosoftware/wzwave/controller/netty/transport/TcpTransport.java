@@ -0,0 +1,72 @@
+/*
+ *******************************************************************************
+ * Copyright (c) 2019 Whizzo Software, LLC.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************
+*/
+package com.whizzosoftware.wzwave.controller.netty.transport;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioSocketChannel;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+
+/**
+ * A transport for a Z-Wave controller whose serial port is exposed over a raw TCP socket (e.g. by ser2net).
+ *
+ * @author Dan Noguerol
+ */
+public class TcpTransport implements ZWaveTransport {
+    private static final int CONNECT_TIMEOUT_MILLIS = 5000;
+
+    private InetSocketAddress address;
+
+    /**
+     * Constructor.
+     *
+     * @param host the host the serial port is exposed on
+     * @param port the TCP port the serial port is exposed on
+     */
+    public TcpTransport(String host, int port) {
+        this(InetSocketAddress.createUnresolved(host, port));
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param address the address the serial port is exposed on
+     */
+    public TcpTransport(InetSocketAddress address) {
+        this.address = address;
+    }
+
+    @Override
+    public EventLoopGroup createEventLoopGroup(int threadCount) {
+        return new NioEventLoopGroup(threadCount);
+    }
+
+    @Override
+    public void configure(Bootstrap bootstrap) {
+        bootstrap.channel(NioSocketChannel.class);
+        bootstrap.option(ChannelOption.TCP_NODELAY, true);
+        bootstrap.option(ChannelOption.SO_KEEPALIVE, true);
+        bootstrap.option(ChannelOption.CONNECT_TIMEOUT_MILLIS, CONNECT_TIMEOUT_MILLIS);
+    }
+
+    @Override
+    public SocketAddress getAddress() {
+        // resolve at connect time so a changed DNS entry is picked up on restart
+        return address.isUnresolved() ? new InetSocketAddress(address.getHostString(), address.getPort()) : address;
+    }
+
+    public String toString() {
+        return "tcp:" + address.getHostString() + ":" + address.getPort();
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ *******************************************************************************
+ * Copyright (c) 2019 Whizzo Software, LLC.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************
+*/
+package com.whizzosoftware.wzwave.controller.netty.transport;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.EventLoopGroup;
+
+import java.net.SocketAddress;
+
+/**
+ * Describes how NettyZWaveController connects to a Z-Wave controller. Every transport carries the same byte stream
+ * and shares the same channel pipeline; only the underlying channel differs.
+ *
+ * @author Dan Noguerol
+ */
+public interface ZWaveTransport {
+    /**
+     * Creates an event loop group the transport's channels can be registered with.
+     *
+     * @param threadCount the maximum number of threads the group should use; transports that need a thread per
+     *                    channel may ignore this
+     *
+     * @return an EventLoopGroup instance
+     */
+    EventLoopGroup createEventLoopGroup(int threadCount);
+
+    /**
+     * Sets the channel class and any transport specific options on a bootstrap.
+     *
+     * @param bootstrap the bootstrap to configure
+     */
+    void configure(Bootstrap bootstrap);
+
+    /**
+     * Returns the address to connect to.
+     *
+     * @return a SocketAddress instance
+     */
+    SocketAddress getAddress();
+}
@@ -9,6 +9,8 @@
 */
 package com.whizzosoftware.wzwave.frame;
 
+import io.netty.buffer.ByteBuf;
+
 /**
  * An acknowledgement (ACK) frame. This is an indicator to a source node that a
  * destination node has received a frame sent to it.
@@ -18,11 +20,21 @@ package com.whizzosoftware.wzwave.frame;
 public class ACK extends Frame {
     public static final byte ID = 0x06;
 
+    /**
+     * Shared instance used for every acknowledgement sent or received.
+     */
+    public static final ACK INSTANCE = new ACK();
+
     @Override
     public byte[] getBytes() {
         return new byte[] { ID };
     }
 
+    @Override
+    public void writeTo(ByteBuf buf) {
+        buf.writeByte(ID);
+    }
+
     public String toString() {
         return "ACK";
     }
@@ -46,10 +46,8 @@ public class AddNodeToNetwork extends DataFrame {
     private byte source;
     private NodeInfo nodeInfo;
 
-    private static byte nextCallbackId;
-
     public AddNodeToNetwork(byte mode) {
-        super(DataFrameType.REQUEST, ID, new byte[] {mode, ++nextCallbackId});
+        super(DataFrameType.REQUEST, ID, new byte[] {mode, CallbackIdAllocator.getDefault().next()});
     }
 
     public AddNodeToNetwork(ByteBuf buffer) {
@@ -22,9 +22,13 @@ import io.netty.buffer.ByteBuf;
 public class ApplicationCommand extends DataFrame {
     public static final byte ID = 0x04;
 
+    private static final int MULTI_CHANNEL_ID = 0x60;
+    private static final int MULTI_CHANNEL_CMD_ENCAP = 0x0D;
+
     private byte nodeId;
     private byte status;
     private byte[] commandClassBytes;
+    private ByteBuf commandClassBuffer;
 
     public ApplicationCommand(DataFrameType type, byte rxStatus, byte sourceNode, byte[] commandClassBytes) {
         super(type, ID, null);
@@ -47,7 +51,7 @@ public class ApplicationCommand extends DataFrame {
         this.nodeId = buffer.readByte();
 
         byte cmdLength = buffer.readByte();
-        commandClassBytes = buffer.readBytes(cmdLength).array();
+        commandClassBuffer = buffer.readSlice(cmdLength);
     }
 
     public byte getNodeId() {
@@ -59,15 +63,57 @@ public class ApplicationCommand extends DataFrame {
     }
 
     public byte getCommandClassId() {
+        if (commandClassBytes == null && commandClassBuffer != null) {
+            return commandClassBuffer.getByte(commandClassBuffer.readerIndex());
+        }
         return commandClassBytes[0];
     }
 
     public byte[] getCommandClassBytes() {
+        if (commandClassBytes == null && commandClassBuffer != null) {
+            commandClassBytes = toByteArray(commandClassBuffer);
+        }
         return commandClassBytes;
     }
 
+    /**
+     * Returns the key of the report this command carries. The key is made up of the (source) endpoint, command class
+     * and command so it can be matched with SendData.getExpectedReportKey().
+     *
+     * @return a non-negative key (or -1 if the command is too short)
+     */
+    public int getReportKey() {
+        int endpoint = 0;
+        int ix = 0;
+        if (getCommandByte(0) == MULTI_CHANNEL_ID && getCommandByte(1) == MULTI_CHANNEL_CMD_ENCAP) {
+            endpoint = getCommandByte(2);
+            ix = 4;
+        }
+        int cc = getCommandByte(ix);
+        int cmd = getCommandByte(ix + 1);
+        if (endpoint < 0 || cc < 0 || cmd < 0) {
+            return -1;
+        }
+        return (endpoint << 16) | (cc << 8) | cmd;
+    }
+
+    private int getCommandByte(int ix) {
+        if (commandClassBytes == null && commandClassBuffer != null) {
+            return (ix < commandClassBuffer.readableBytes()) ? commandClassBuffer.getUnsignedByte(commandClassBuffer.readerIndex() + ix) : -1;
+        } else {
+            return (commandClassBytes != null && ix < commandClassBytes.length) ? commandClassBytes[ix] & 0xFF : -1;
+        }
+    }
+
     public String toString() {
-        return "ZW_APPLICATION_COMMAND_HANDLER[" + ByteUtil.createString(getNodeId()) + "]: " + ByteUtil.createString(commandClassBytes, commandClassBytes.length);
+        byte[] b = getCommandClassBytes();
+        return "ZW_APPLICATION_COMMAND_HANDLER[" + ByteUtil.createString(getNodeId()) + "]: " + ByteUtil.createString(b, b.length);
+    }
+
+    @Override
+    public DataFrame materialize() {
+        getCommandClassBytes();
+        return this;
     }
 
     @Override
@@ -9,6 +9,8 @@
 */
 package com.whizzosoftware.wzwave.frame;
 
+import io.netty.buffer.ByteBuf;
+
 /**
  * A cancel (CAN) frame.
  *
@@ -17,8 +19,18 @@ package com.whizzosoftware.wzwave.frame;
 public class CAN extends Frame {
     public static final byte ID = 0x18;
 
+    /**
+     * Shared instance used by the decoder.
+     */
+    public static final CAN INSTANCE = new CAN();
+
     @Override
     public byte[] getBytes() {
         return new byte[] { ID };
     }
+
+    @Override
+    public void writeTo(ByteBuf buf) {
+        buf.writeByte(ID);
+    }
 }
@@ -0,0 +1,47 @@
+/*
+ *******************************************************************************
+ * Copyright (c) 2019 Whizzo Software, LLC.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************
+*/
+package com.whizzosoftware.wzwave.frame;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Allocates the callback IDs that the Z-Wave controller echoes back in the callbacks for a request. IDs cycle through
+ * 1 to 255; 0 is never allocated since it tells the controller that no callback is wanted. Allocation is thread-safe
+ * so frames can be created from any thread.
+ *
+ * @author Dan Noguerol
+ */
+public final class CallbackIdAllocator {
+    private static final CallbackIdAllocator DEFAULT = new CallbackIdAllocator();
+
+    private final AtomicInteger lastId = new AtomicInteger();
+
+    /**
+     * Returns the allocator shared by all frames created by the library.
+     *
+     * @return a CallbackIdAllocator
+     */
+    public static CallbackIdAllocator getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Allocates the next callback ID.
+     *
+     * @return a callback ID between 1 and 255 (as a signed byte)
+     */
+    public byte next() {
+        int id;
+        do {
+            id = lastId.incrementAndGet() & 0xFF;
+        } while (id == 0);
+        return (byte)id;
+    }
+}
@@ -13,21 +13,31 @@ import com.whizzosoftware.wzwave.ZWaveRuntimeException;
 import com.whizzosoftware.wzwave.channel.ZWaveChannelContext;
 import com.whizzosoftware.wzwave.frame.transaction.DataFrameTransaction;
 import io.netty.buffer.ByteBuf;
+import io.netty.util.ReferenceCounted;
 
 /**
  * Abstract base class for all data frames.
  *
+ * Data frames created from a received ByteBuf hold a reference to that buffer rather than copying it. Variable-length
+ * payloads are only materialized into arrays when asked for. The frame's reference count is that of its backing
+ * buffer; whichever handler consumes the frame is responsible for releasing it. Frames created for sending have no
+ * backing buffer and the reference counting methods are no-ops.
+ *
  * @author Dan Noguerol
  */
-abstract public class DataFrame extends Frame {
+abstract public class DataFrame extends Frame implements ReferenceCounted {
     public static final byte START_OF_FRAME = 0x01;
 
     int dataFrameLength;
+    private ByteBuf buffer;
     private DataFrameType type;
     private byte commandId;
     private byte[] data;
+    private boolean checksumValid;
+    private byte checksum;
     private int sendCount;
-    private String transactionId;
+    private long transactionId;
+    private long receiveTime;
 
     /**
      * Constructor.
@@ -35,6 +45,7 @@ abstract public class DataFrame extends Frame {
      * @param buffer the readable byte buffer
      */
     public DataFrame(ByteBuf buffer) {
+        this.buffer = buffer;
         if (buffer.readByte() != START_OF_FRAME) {
             throw new ZWaveRuntimeException("Data frame parsing error: no SOF");
         }
@@ -63,6 +74,10 @@ abstract public class DataFrame extends Frame {
         return type;
     }
 
+    public byte getCommandId() {
+        return commandId;
+    }
+
     public int getSendCount() {
         return sendCount;
     }
@@ -75,16 +90,88 @@ abstract public class DataFrame extends Frame {
         sendCount--;
     }
 
-    String getTransactionId() {
+    /**
+     * Returns the System.nanoTime() value at which the frame was received from the Z-Wave controller.
+     *
+     * @return a nano time (or 0 if the frame was not received)
+     */
+    public long getReceiveTime() {
+        return receiveTime;
+    }
+
+    public void setReceiveTime(long receiveTime) {
+        this.receiveTime = receiveTime;
+    }
+
+    long getTransactionId() {
         return transactionId;
     }
 
-    public void setTransactionId(String transactionId) {
+    public void setTransactionId(long transactionId) {
         this.transactionId = transactionId;
     }
 
+    /**
+     * Copies any payload that is still backed by the receive buffer into arrays so that the frame remains readable
+     * after the buffer has been released (e.g. when the frame is handed to another thread).
+     *
+     * @return this frame
+     */
+    public DataFrame materialize() {
+        return this;
+    }
+
     protected void setData(byte[] data) {
         this.data = data;
+        this.checksumValid = false;
+    }
+
+    /**
+     * Copies the readable bytes of a buffer into a new array without consuming them.
+     *
+     * @param buf the buffer
+     *
+     * @return a byte array (or null if the buffer is null)
+     */
+    protected static byte[] toByteArray(ByteBuf buf) {
+        if (buf != null) {
+            byte[] b = new byte[buf.readableBytes()];
+            buf.getBytes(buf.readerIndex(), b);
+            return b;
+        } else {
+            return null;
+        }
+    }
+
+    @Override
+    public int refCnt() {
+        return (buffer != null) ? buffer.refCnt() : 1;
+    }
+
+    @Override
+    public DataFrame retain() {
+        if (buffer != null) {
+            buffer.retain();
+        }
+        return this;
+    }
+
+    @Override
+    public DataFrame retain(int increment) {
+        if (buffer != null) {
+            buffer.retain(increment);
+        }
+        return this;
+    }
+
+    @Override
+    public boolean release() {
+        return (buffer != null && buffer.release());
+    }
+
+    @Override
+    public boolean release(int decrement) {
+        return (buffer != null && buffer.release(decrement));
     }
 
     @Override
@@ -105,15 +192,49 @@ abstract public class DataFrame extends Frame {
             System.arraycopy(data, 0, bytes, 4, data.length);
         }
 
-        byte checksum = (byte)0xff;
-        for (int i=1; i < bytes.length - 1; i++) {
-            checksum ^= bytes[i];
-        }
-        bytes[dataLen+4] = checksum;
+        bytes[dataLen+4] = getChecksum();
 
         return bytes;
     }
 
+    /**
+     * Writes the frame header, data and checksum directly to a buffer. The checksum is only computed once so
+     * re-sending a frame costs nothing beyond the write itself.
+     *
+     * @param buf the buffer to write to
+     */
+    @Override
+    public void writeTo(ByteBuf buf) {
+        int dataLen = (data != null) ? data.length : 0;
+        buf.ensureWritable(dataLen + 5);
+        buf.writeByte(START_OF_FRAME);
+        buf.writeByte(dataLen + 3);
+        buf.writeByte(type.ordinal());
+        buf.writeByte(commandId);
+        if (data != null) {
+            buf.writeBytes(data);
+        }
+        buf.writeByte(getChecksum());
+    }
+
+    private byte getChecksum() {
+        if (!checksumValid) {
+            int dataLen = (data != null) ? data.length : 0;
+            byte cs = (byte)0xff;
+            cs ^= (byte)(dataLen + 3);
+            cs ^= (byte)type.ordinal();
+            cs ^= commandId;
+            if (data != null) {
+                for (byte b : data) {
+                    cs ^= b;
+                }
+            }
+            checksum = cs;
+            checksumValid = true;
+        }
+        return checksum;
+    }
+
     public DataFrameTransaction createWrapperTransaction(ZWaveChannelContext ctx, boolean listeningNode) {
         DataFrameTransaction t = createTransaction(ctx, listeningNode);
         setTransactionId(t.getId());
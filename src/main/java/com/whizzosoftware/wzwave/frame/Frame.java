@@ -9,6 +9,8 @@
 */
 package com.whizzosoftware.wzwave.frame;
 
+import io.netty.buffer.ByteBuf;
+
 /**
  * Abstract base class for all Z-Wave frames.
  *
@@ -16,4 +18,14 @@ package com.whizzosoftware.wzwave.frame;
  */
 abstract public class Frame {
     abstract public byte[] getBytes();
+
+    /**
+     * Writes the encoded frame to a buffer. Subclasses should override this to avoid the intermediate array
+     * created by getBytes().
+     *
+     * @param buf the buffer to write to
+     */
+    public void writeTo(ByteBuf buf) {
+        buf.writeBytes(getBytes());
+    }
 }
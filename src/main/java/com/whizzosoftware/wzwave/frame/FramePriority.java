@@ -0,0 +1,35 @@
+/*
+ *******************************************************************************
+ * Copyright (c) 2019 Whizzo Software, LLC.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************
+*/
+package com.whizzosoftware.wzwave.frame;
+
+/**
+ * The priority with which an outbound data frame is sent relative to other queued frames. Priorities are declared
+ * from highest to lowest.
+ *
+ * @author Dan Noguerol
+ */
+public enum FramePriority {
+    /**
+     * Frames sent in direct response to a user action (e.g. turning on a light).
+     */
+    INTERACTIVE,
+    /**
+     * Frames with no particular urgency. This is the default.
+     */
+    NORMAL,
+    /**
+     * Frames sent to periodically refresh node state.
+     */
+    POLLING,
+    /**
+     * Frames sent while interviewing nodes or performing other background work.
+     */
+    INTERVIEW
+}
@@ -22,6 +22,7 @@ public class GetRoutingInfo extends DataFrame {
     public static final byte ID = (byte)0x80;
 
     private byte[] nodeMask;
+    private ByteBuf nodeMaskBuffer;
 
     public GetRoutingInfo() {
         super(DataFrameType.REQUEST, ID, null);
@@ -29,13 +30,22 @@ public class GetRoutingInfo extends DataFrame {
 
     public GetRoutingInfo(ByteBuf buffer) {
         super(buffer);
-        nodeMask = buffer.readBytes(29).array();
+        nodeMaskBuffer = buffer.readSlice(29);
     }
 
     public byte[] getNodeMask() {
+        if (nodeMask == null && nodeMaskBuffer != null) {
+            nodeMask = toByteArray(nodeMaskBuffer);
+        }
         return nodeMask;
     }
 
+    @Override
+    public DataFrame materialize() {
+        getNodeMask();
+        return this;
+    }
+
     @Override
     public DataFrameTransaction createTransaction(ZWaveChannelContext ctx, boolean listeningNode) {
         return null;
@@ -9,6 +9,8 @@
 */
 package com.whizzosoftware.wzwave.frame;
 
+import io.netty.buffer.ByteBuf;
+
 /**
  * A negative acknowledgement (NAK) frame.
  *
@@ -17,8 +19,18 @@ package com.whizzosoftware.wzwave.frame;
 public class NAK extends Frame {
     public static final byte ID = 0x15;
 
+    /**
+     * Shared instance; a NAK carries no state.
+     */
+    public static final NAK INSTANCE = new NAK();
+
     @Override
     public byte[] getBytes() {
         return new byte[] { ID };
     }
+
+    @Override
+    public void writeTo(ByteBuf buf) {
+        buf.writeByte(ID);
+    }
 }
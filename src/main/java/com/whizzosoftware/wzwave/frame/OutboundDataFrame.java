@@ -9,19 +9,60 @@
 */
 package com.whizzosoftware.wzwave.frame;
 
+import io.netty.util.concurrent.Promise;
+
 /**
  * A wrapper class that provides an indication of whether an outbound data frame is destined for a listening node.
- * This is important to know in transmission failure situations.
+ * This is important to know in transmission failure situations. It also carries the priority the frame should be
+ * sent with and an optional deadline after which the frame should no longer be sent.
+ *
+ * A response promise can be attached to learn the outcome of the frame's transaction; it is completed with the frame
+ * that concluded it (or failed with the reason it didn't).
  *
  * @author Dan Noguerol
  */
 public class OutboundDataFrame {
     private DataFrame dataFrame;
     private boolean isListeningNode;
+    private FramePriority priority;
+    private long deadline;
+    private Promise<DataFrame> responsePromise;
 
     public OutboundDataFrame(DataFrame dataFrame, boolean isListeningNode) {
+        this(dataFrame, isListeningNode, FramePriority.NORMAL);
+    }
+
+    public OutboundDataFrame(DataFrame dataFrame, boolean isListeningNode, FramePriority priority) {
+        this(dataFrame, isListeningNode, priority, 0);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param dataFrame the data frame to send
+     * @param isListeningNode whether the destination node is a listening node
+     * @param priority the priority to send the frame with
+     * @param deadline the System.nanoTime() value after which the frame should be discarded (or 0 for no deadline)
+     */
+    public OutboundDataFrame(DataFrame dataFrame, boolean isListeningNode, FramePriority priority, long deadline) {
+        this(dataFrame, isListeningNode, priority, deadline, null);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param dataFrame the data frame to send
+     * @param isListeningNode whether the destination node is a listening node
+     * @param priority the priority to send the frame with
+     * @param deadline the System.nanoTime() value after which the frame should be discarded (or 0 for no deadline)
+     * @param responsePromise the promise to complete with the outcome of the frame's transaction (or null)
+     */
+    public OutboundDataFrame(DataFrame dataFrame, boolean isListeningNode, FramePriority priority, long deadline, Promise<DataFrame> responsePromise) {
         this.dataFrame = dataFrame;
         this.isListeningNode = isListeningNode;
+        this.priority = priority;
+        this.deadline = deadline;
+        this.responsePromise = responsePromise;
     }
 
     public boolean hasDataFrame() {
@@ -36,8 +77,24 @@ public class OutboundDataFrame {
         return isListeningNode;
     }
 
-    public boolean matchesTransaction(String transactionId) {
-        return (transactionId != null && transactionId.equals(dataFrame.getTransactionId()));
+    public FramePriority getPriority() {
+        return priority;
+    }
+
+    public boolean hasDeadline() {
+        return (deadline != 0);
+    }
+
+    public long getDeadline() {
+        return deadline;
+    }
+
+    public Promise<DataFrame> getResponsePromise() {
+        return responsePromise;
+    }
+
+    public boolean matchesTransaction(long transactionId) {
+        return (transactionId != 0 && transactionId == dataFrame.getTransactionId());
     }
 
     public String toString() {
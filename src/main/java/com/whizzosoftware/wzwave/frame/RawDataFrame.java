@@ -0,0 +1,54 @@
+/*
+ *******************************************************************************
+ * Copyright (c) 2019 Whizzo Software, LLC.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************
+*/
+package com.whizzosoftware.wzwave.frame;
+
+import com.whizzosoftware.wzwave.channel.ZWaveChannelContext;
+import com.whizzosoftware.wzwave.frame.transaction.DataFrameTransaction;
+import com.whizzosoftware.wzwave.util.ByteUtil;
+import io.netty.buffer.ByteBuf;
+
+/**
+ * A data frame for Serial API functions the library doesn't have a specific frame class for. The payload
+ * (everything after the function ID) is available as-is.
+ *
+ * @author Dan Noguerol
+ */
+public class RawDataFrame extends DataFrame {
+    private ByteBuf payloadBuffer;
+    private byte[] payload;
+
+    public RawDataFrame(ByteBuf buffer) {
+        super(buffer);
+        payloadBuffer = buffer.readSlice(buffer.readableBytes());
+    }
+
+    public byte[] getPayload() {
+        if (payload == null && payloadBuffer != null) {
+            payload = toByteArray(payloadBuffer);
+        }
+        return payload;
+    }
+
+    @Override
+    public DataFrame materialize() {
+        getPayload();
+        return this;
+    }
+
+    @Override
+    public DataFrameTransaction createTransaction(ZWaveChannelContext ctx, boolean listeningNode) {
+        return null;
+    }
+
+    public String toString() {
+        byte[] b = getPayload();
+        return "RawDataFrame(" + ByteUtil.createString(getCommandId()) + ")[" + ByteUtil.createString(b, b.length) + "]";
+    }
+}
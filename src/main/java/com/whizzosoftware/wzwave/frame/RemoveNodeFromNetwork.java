@@ -42,10 +42,8 @@ public class RemoveNodeFromNetwork extends DataFrame {
     private byte source;
     private NodeInfo nodeInfo;
 
-    private static byte nextCallbackId;
-
     public RemoveNodeFromNetwork(byte mode) {
-        super(DataFrameType.REQUEST, ID, new byte[] {mode, ++nextCallbackId});
+        super(DataFrameType.REQUEST, ID, new byte[] {mode, CallbackIdAllocator.getDefault().next()});
     }
 
     public RemoveNodeFromNetwork(ByteBuf buffer) {
@@ -28,18 +28,25 @@ public class SendData extends DataFrame {
     public static final byte TRANSMIT_OPTION_AUTO_ROUTE = 0x04;
     public static final byte TRANSMIT_OPTION_NO_ROUTE = 0x10;
 
-    private static byte nextCallbackId;
+    /**
+     * Multi channel command encapsulation (the coalescing key of an encapsulated command includes its endpoint).
+     */
+    private static final byte MULTI_CHANNEL_ID = 0x60;
+    private static final byte MULTI_CHANNEL_CMD_ENCAP = 0x0D;
+    private static final byte MULTI_INSTANCE_CMD_ENCAP = 0x06;
 
     private String name;
     private byte nodeId;
     private byte[] sendData;
+    private ByteBuf sendDataBuffer;
     private Byte retVal;
     private Byte callbackId;
     private Byte tx;
     private boolean responseExpected;
+    private boolean coalescable;
 
     public SendData(String name, byte nodeId, byte[] data, byte txOptions, boolean responseExpected) {
-        this(name, nodeId, data, txOptions, ++nextCallbackId, responseExpected);
+        this(name, nodeId, data, txOptions, CallbackIdAllocator.getDefault().next(), responseExpected);
     }
 
     public SendData(String name, byte nodeId, byte[] data, byte txOptions, byte callbackId, boolean responseExpected) {
@@ -69,7 +76,7 @@ public class SendData extends DataFrame {
         } else if (dataFrameLength > 5) {
             this.nodeId = buffer.readByte();
             byte dataLength = buffer.readByte();
-            this.sendData = buffer.readBytes(dataLength).array();
+            this.sendDataBuffer = buffer.readSlice(dataLength);
             this.tx = buffer.readByte();
             this.callbackId = buffer.readByte();
         }
@@ -108,6 +115,9 @@ public class SendData extends DataFrame {
     }
 
     public byte[] getSendData() {
+        if (sendData == null && sendDataBuffer != null) {
+            sendData = toByteArray(sendDataBuffer);
+        }
         return sendData;
     }
 
@@ -115,16 +125,115 @@ public class SendData extends DataFrame {
         return responseExpected;
     }
 
+    /**
+     * Indicates whether this frame can be coalesced with other queued frames. A coalescable frame carries a command
+     * whose effect depends only on its last occurrence (e.g. a SET of a switch level or a parameterless GET), so a
+     * newer frame with the same coalescing key can take the place of an older one that hasn't been sent yet.
+     *
+     * @return a boolean
+     */
+    public boolean isCoalescable() {
+        return coalescable;
+    }
+
+    public void setCoalescable(boolean coalescable) {
+        this.coalescable = coalescable;
+    }
+
+    /**
+     * Returns the key used to coalesce this frame with other queued frames. The key is made up of the destination
+     * node, endpoint, command class and command.
+     *
+     * @return a non-negative key (or -1 if the frame isn't coalescable)
+     */
+    public long getCoalescingKey() {
+        byte[] data = getSendData();
+        if (!coalescable || data == null || data.length < 2) {
+            return -1;
+        }
+        int endpoint = 0;
+        int ix = 0;
+        if (data[0] == MULTI_CHANNEL_ID && data[1] == MULTI_CHANNEL_CMD_ENCAP) {
+            if (data.length < 6) {
+                return -1;
+            }
+            endpoint = data[3] & 0xFF;
+            ix = 4;
+        }
+        return ((long)(nodeId & 0xFF) << 24) | (endpoint << 16) | ((data[ix] & 0xFF) << 8) | (data[ix + 1] & 0xFF);
+    }
+
+    /**
+     * Returns a key identifying the destination node, endpoint and command class of this frame's command, whether
+     * or not the frame is coalescable.
+     *
+     * @return a non-negative key (or -1 if the frame carries no command)
+     */
+    public long getCommandClassKey() {
+        byte[] data = getSendData();
+        if (data == null || data.length < 2) {
+            return -1;
+        }
+        int endpoint = 0;
+        int ix = 0;
+        if (data[0] == MULTI_CHANNEL_ID && data[1] == MULTI_CHANNEL_CMD_ENCAP) {
+            if (data.length < 6) {
+                return -1;
+            }
+            endpoint = data[3] & 0xFF;
+            ix = 4;
+        }
+        return ((long)(nodeId & 0xFF) << 16) | (endpoint << 8) | (data[ix] & 0xFF);
+    }
+
+    /**
+     * Returns the key of the report a node is expected to answer this frame with. By convention, the report for a
+     * GET is the command that follows it in its command class. The key is made up of the endpoint, command class and
+     * report command (see ApplicationCommand.getReportKey()).
+     *
+     * GETs that carry parameters have no key: their parameters usually select which report the node sends back (e.g.
+     * the scale of a METER_GET or the capability of a COLOR_CONTROL_GET) and the key can't tell those reports apart.
+     *
+     * @return a non-negative key (or -1 if no report is expected or it can't be determined)
+     */
+    public int getExpectedReportKey() {
+        byte[] data = getSendData();
+        if (!responseExpected || data == null || data.length < 2) {
+            return -1;
+        }
+        int endpoint = 0;
+        int ix = 0;
+        if (data[0] == MULTI_CHANNEL_ID && data[1] == MULTI_CHANNEL_CMD_ENCAP) {
+            if (data.length < 6) {
+                return -1;
+            }
+            endpoint = data[3] & 0xFF;
+            ix = 4;
+        } else if (data[0] == MULTI_CHANNEL_ID && data[1] == MULTI_INSTANCE_CMD_ENCAP) {
+            return -1;
+        }
+        if (data.length > ix + 2) {
+            return -1;
+        }
+        return (endpoint << 16) | ((data[ix] & 0xFF) << 8) | ((data[ix + 1] + 1) & 0xFF);
+    }
+
     public String toString() {
         if (name != null) {
             return "SendData(" + ByteUtil.createString(getNodeId()) + ")[" + name + "]," + callbackId;
-        } else if (sendData != null) {
+        } else if (getSendData() != null) {
             return "SendData(" + ByteUtil.createString(getNodeId()) + ")[" + ByteUtil.createString(sendData, sendData.length) + "]," + callbackId;
         } else {
             return "SendData(" + ByteUtil.createString(getNodeId()) + ")";
         }
     }
 
+    @Override
+    public DataFrame materialize() {
+        getSendData();
+        return this;
+    }
+
     @Override
     public DataFrameTransaction createTransaction(ZWaveChannelContext ctx, boolean listeningNode) {
         return new SendDataTransaction(ctx, this, listeningNode, responseExpected);
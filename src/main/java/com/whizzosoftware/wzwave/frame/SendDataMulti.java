@@ -0,0 +1,130 @@
+/*
+ *******************************************************************************
+ * Copyright (c) 2019 Whizzo Software, LLC.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************
+*/
+package com.whizzosoftware.wzwave.frame;
+
+import com.whizzosoftware.wzwave.ZWaveRuntimeException;
+import com.whizzosoftware.wzwave.channel.ZWaveChannelContext;
+import com.whizzosoftware.wzwave.frame.transaction.DataFrameTransaction;
+import com.whizzosoftware.wzwave.frame.transaction.SendDataMultiTransaction;
+import com.whizzosoftware.wzwave.util.ByteUtil;
+import io.netty.buffer.ByteBuf;
+
+/**
+ * A data frame used to send the same data to a group of nodes with a single multicast transmission
+ * (ZW_SendDataMulti). Multicast frames aren't acknowledged by the nodes that receive them so the controller's
+ * callback only confirms that the frame was transmitted.
+ *
+ * @author Dan Noguerol
+ */
+public class SendDataMulti extends DataFrame {
+    public static final byte ID = 0x14;
+
+    /**
+     * The maximum number of nodes a multicast frame can be addressed to.
+     */
+    public static final int MAX_NODES = 232;
+
+    private String name;
+    private byte[] nodeIds;
+    private byte[] sendData;
+    private Byte retVal;
+    private Byte callbackId;
+    private Byte tx;
+
+    public SendDataMulti(String name, byte[] nodeIds, byte[] data, byte txOptions) {
+        this(name, nodeIds, data, txOptions, CallbackIdAllocator.getDefault().next());
+    }
+
+    public SendDataMulti(String name, byte[] nodeIds, byte[] data, byte txOptions, byte callbackId) {
+        super(DataFrameType.REQUEST, ID, null);
+
+        if (nodeIds.length == 0 || nodeIds.length > MAX_NODES) {
+            throw new ZWaveRuntimeException("Invalid number of multicast nodes: " + nodeIds.length);
+        }
+        if (nodeIds.length + data.length + 7 > 0xFF) {
+            throw new ZWaveRuntimeException("Multicast frame is too long");
+        }
+
+        this.name = name;
+        this.nodeIds = nodeIds;
+        this.sendData = data;
+        this.callbackId = callbackId;
+
+        byte b[] = new byte[nodeIds.length + data.length + 4];
+        b[0] = (byte)nodeIds.length;
+        System.arraycopy(nodeIds, 0, b, 1, nodeIds.length);
+        b[nodeIds.length + 1] = (byte)data.length;
+        System.arraycopy(data, 0, b, nodeIds.length + 2, data.length);
+        b[b.length - 2] = txOptions;
+        b[b.length - 1] = callbackId;
+        setData(b);
+    }
+
+    public SendDataMulti(ByteBuf buffer) {
+        super(buffer);
+        if (dataFrameLength == 4) {
+            this.retVal = buffer.readByte();
+        } else if (dataFrameLength == 5) {
+            this.callbackId = buffer.readByte();
+            this.tx = buffer.readByte();
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public byte[] getNodeIds() {
+        return nodeIds;
+    }
+
+    public byte[] getSendData() {
+        return sendData;
+    }
+
+    public boolean hasRetVal() {
+        return (retVal != null);
+    }
+
+    public Byte getRetVal() {
+        return retVal;
+    }
+
+    public boolean hasCallbackId() {
+        return (callbackId != null);
+    }
+
+    public Byte getCallbackId() {
+        return callbackId;
+    }
+
+    public boolean hasTx() {
+        return (tx != null);
+    }
+
+    public Byte getTx() {
+        return tx;
+    }
+
+    public String toString() {
+        if (name != null) {
+            return "SendDataMulti(" + nodeIds.length + " nodes)[" + name + "]," + callbackId;
+        } else if (sendData != null) {
+            return "SendDataMulti(" + nodeIds.length + " nodes)[" + ByteUtil.createString(sendData, sendData.length) + "]," + callbackId;
+        } else {
+            return "SendDataMulti(" + (hasRetVal() ? "retVal=" + retVal : "tx=" + tx) + ")," + callbackId;
+        }
+    }
+
+    @Override
+    public DataFrameTransaction createTransaction(ZWaveChannelContext ctx, boolean listeningNode) {
+        return new SendDataMultiTransaction(ctx, this, listeningNode);
+    }
+}
@@ -13,6 +13,7 @@ import com.whizzosoftware.wzwave.channel.ZWaveChannelContext;
 import com.whizzosoftware.wzwave.frame.transaction.DataFrameTransaction;
 import com.whizzosoftware.wzwave.frame.transaction.RequestResponseTransaction;
 import io.netty.buffer.ByteBuf;
+import io.netty.util.CharsetUtil;
 
 /**
  * Message for retrieving version information.
@@ -23,6 +24,7 @@ public class Version extends DataFrame {
     public static final byte ID = 0x15;
 
     private String libraryVersion;
+    private ByteBuf libraryVersionBuffer;
     private byte libraryType;
 
     public Version() {
@@ -37,11 +39,14 @@ public class Version extends DataFrame {
 
     public Version(ByteBuf buffer) {
         super(buffer);
-        libraryVersion = new String(buffer.readBytes(12).array()).trim();
+        libraryVersionBuffer = buffer.readSlice(12);
         libraryType = buffer.readByte();
     }
 
     public String getLibraryVersion() {
+        if (libraryVersion == null && libraryVersionBuffer != null) {
+            libraryVersion = libraryVersionBuffer.toString(CharsetUtil.US_ASCII).trim();
+        }
         return libraryVersion;
     }
 
@@ -49,6 +54,12 @@ public class Version extends DataFrame {
         return libraryType;
     }
 
+    @Override
+    public DataFrame materialize() {
+        getLibraryVersion();
+        return this;
+    }
+
     @Override
     public DataFrameTransaction createTransaction(ZWaveChannelContext ctx, boolean listeningNode) {
         return new RequestResponseTransaction(ctx, this, listeningNode);
@@ -56,7 +67,7 @@ public class Version extends DataFrame {
 
     public String toString() {
         String s = "ZW_VERSION";
-        if (libraryVersion != null) {
+        if (getLibraryVersion() != null) {
             s += "[" + libraryVersion + "]";
         }
         return s;
@@ -11,13 +11,13 @@ package com.whizzosoftware.wzwave.frame.transaction;
 
 import com.whizzosoftware.wzwave.channel.ZWaveChannelContext;
 import com.whizzosoftware.wzwave.channel.event.TransactionFailedEvent;
-import com.whizzosoftware.wzwave.channel.event.TransactionStartedEvent;
 import com.whizzosoftware.wzwave.frame.DataFrame;
 import com.whizzosoftware.wzwave.frame.OutboundDataFrame;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Abstract base class for all DataFrameTransaction implementations.
@@ -25,21 +25,24 @@ import java.util.UUID;
  * @author Dan Noguerol
  */
 abstract class AbstractDataFrameTransaction implements DataFrameTransaction {
-    private static final int MAX_SEND_COUNT = 2;
+    private static final AtomicLong nextId = new AtomicLong();
+    private static final int REASON_COUNT = FailureReason.values().length;
 
     private final Logger logger = LoggerFactory.getLogger(getClass());
 
-    private String id = UUID.randomUUID().toString();
+    private final long id = nextId.incrementAndGet();
     private DataFrame startFrame;
     private boolean listeningNode;
+    private int[] retries;
+    private OutboundDataFrame resendFrame;
 
     AbstractDataFrameTransaction(ZWaveChannelContext ctx, DataFrame startFrame, boolean listeningNode) {
         this.startFrame = startFrame;
         this.listeningNode = listeningNode;
-        ctx.fireEvent(new TransactionStartedEvent(getId()));
+        ctx.fireTransactionStarted(getId());
     }
 
-    public String getId() {
+    public long getId() {
         return id;
     }
 
@@ -52,7 +55,7 @@ abstract class AbstractDataFrameTransaction implements DataFrameTransaction {
     }
 
     public void timeout(ZWaveChannelContext ctx) {
-        attemptResend(ctx, false);
+        attemptResend(ctx, FailureReason.TIMEOUT);
     }
 
     @Override
@@ -61,28 +64,64 @@ abstract class AbstractDataFrameTransaction implements DataFrameTransaction {
     }
 
     /**
-     * Attempts to re-send the data frame that initiated this transaction.
+     * Retains an inbound frame that is being handed along in a transaction completion event. The eventual
+     * consumer of the event's frame is responsible for releasing it.
+     *
+     * @param frame the frame (may be null)
+     *
+     * @return the frame
+     */
+    static DataFrame retain(DataFrame frame) {
+        if (frame != null) {
+            frame.retain();
+        }
+        return frame;
+    }
+
+    /**
+     * Returns the ID of the node the transaction's start frame is addressed to.
+     *
+     * @return a node ID (or 0 if the frame is for the controller itself)
+     */
+    int getDestinationNodeId() {
+        return 0;
+    }
+
+    /**
+     * Attempts to re-send the data frame that initiated this transaction. The transaction's RetryPolicy decides
+     * whether the frame is re-sent and how long to wait before doing so.
      *
      * @param ctx the ChannelHandlerContext
-     * @param dueToCAN indicates whether the re-send attempt was due to a CAN frame that was received
+     * @param reason the reason the transaction attempt failed
      *
      * @return boolean indicating whether re-send was attempted
      */
-    boolean attemptResend(ZWaveChannelContext ctx, boolean dueToCAN) {
-        if (startFrame.getSendCount() < MAX_SEND_COUNT) {
-            logger.debug("Transaction {} has failed - will reset and resend initial request", getId());
+    boolean attemptResend(ZWaveChannelContext ctx, FailureReason reason) {
+        if (retries == null) {
+            retries = new int[REASON_COUNT];
+        }
+        long delay = ctx.getRetryPolicy().getRetryDelay(getDestinationNodeId(), reason, startFrame.getSendCount(), retries[reason.ordinal()]);
+        if (delay != RetryPolicy.NO_RETRY) {
+            logger.debug("Transaction {} has failed ({}) - will reset and resend initial request in {} ms", getId(), reason, delay);
+            retries[reason.ordinal()]++;
             reset();
-            // if a CAN was received, then we decrement the send count by one so this attempt doesn't count towards the maximum resend count
-            if (dueToCAN) {
+            // attempts that never made it onto the network don't count towards the send count
+            if (!reason.isSendCounted()) {
                 startFrame.decrementSendCount();
             }
-            ctx.writeFrame(new OutboundDataFrame(startFrame, isListeningNode()));
+            // the wrapper is immutable and the previous send is done with it, so it's shared by all re-sends
+            if (resendFrame == null) {
+                resendFrame = new OutboundDataFrame(startFrame, isListeningNode());
+            }
+            if (delay > 0) {
+                ctx.writeFrame(resendFrame, delay, TimeUnit.MILLISECONDS);
+            } else {
+                ctx.writeFrame(resendFrame);
+            }
             return true;
         } else {
-            logger.debug("Exceeded max transaction resends");
-            ctx.fireEvent(new TransactionFailedEvent(getId(), startFrame));
+            ctx.fireEvent(new TransactionFailedEvent(getId(), startFrame, null, reason));
             return false;
         }
     }
-
 }
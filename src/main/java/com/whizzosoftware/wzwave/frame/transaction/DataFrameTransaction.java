@@ -23,11 +23,11 @@ import com.whizzosoftware.wzwave.frame.Frame;
  */
 public interface DataFrameTransaction {
     /**
-     * Get the globally unique ID for this transaction.
+     * Get the unique ID for this transaction. IDs are allocated in increasing order and are never 0.
      *
-     * @return a String
+     * @return a long
      */
-    String getId();
+    long getId();
 
     /**
      * Returns the first frame of the transaction.
@@ -43,6 +43,13 @@ public interface DataFrameTransaction {
      */
     long getTimeout();
 
+    /**
+     * Returns the phase the transaction is currently waiting on.
+     *
+     * @return a TransactionPhase (or null if the transaction is complete or its phases aren't timed)
+     */
+    TransactionPhase getExpectedPhase();
+
     /**
      * Add a Frame to the transaction.
      *
@@ -0,0 +1,205 @@
+/*
+ *******************************************************************************
+ * Copyright (c) 2019 Whizzo Software, LLC.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************
+*/
+package com.whizzosoftware.wzwave.frame.transaction;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The default RetryPolicy implementation.
+ *
+ * Each failure reason has its own retry budget and backoff. Failures that never reached the network (CAN, a full
+ * controller queue or congestion) are retried after an exponentially growing, jittered delay so that the retries of
+ * many frames (e.g. after a power failure brings every node back at once) don't collide again. Other failures are
+ * retried immediately as long as the frame hasn't been sent the maximum number of times.
+ *
+ * A node that fails a number of transactions in a row has its circuit opened: its frames are not retried and new
+ * frames are not sent to it until the circuit has been open for a while. After that, one frame is let through and
+ * its outcome decides whether the circuit closes again.
+ *
+ * @author Dan Noguerol
+ */
+public class DefaultRetryPolicy implements RetryPolicy {
+    private static final Logger logger = LoggerFactory.getLogger(DefaultRetryPolicy.class);
+
+    public static final int DEFAULT_MAX_SEND_COUNT = 2;
+    public static final int DEFAULT_FAILURE_THRESHOLD = 5;
+    public static final long DEFAULT_OPEN_INTERVAL = 30000;
+    public static final long DEFAULT_MAX_DELAY = 5000;
+
+    private static final int NODE_SLOTS = 256;
+
+    private final Random random;
+    private final int[] retryBudgets = new int[FailureReason.values().length];
+    private final long[] baseDelays = new long[FailureReason.values().length];
+    private int maxSendCount = DEFAULT_MAX_SEND_COUNT;
+    private long maxDelay = DEFAULT_MAX_DELAY;
+    private int failureThreshold = DEFAULT_FAILURE_THRESHOLD;
+    private long openInterval = TimeUnit.MILLISECONDS.toNanos(DEFAULT_OPEN_INTERVAL);
+    private final int[] consecutiveFailures = new int[NODE_SLOTS];
+    private final long[] openUntil = new long[NODE_SLOTS];
+
+    public DefaultRetryPolicy() {
+        this(new Random());
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param random the source of the backoff jitter
+     */
+    public DefaultRetryPolicy(Random random) {
+        this.random = random;
+        setRetryBudget(FailureReason.CAN, 5);
+        setBackoff(FailureReason.CAN, 100, TimeUnit.MILLISECONDS);
+        setRetryBudget(FailureReason.CONTROLLER_BUSY, 5);
+        setBackoff(FailureReason.CONTROLLER_BUSY, 250, TimeUnit.MILLISECONDS);
+        setRetryBudget(FailureReason.NETWORK_CONGESTION, 3);
+        setBackoff(FailureReason.NETWORK_CONGESTION, 500, TimeUnit.MILLISECONDS);
+        // these are limited by the maximum send count
+        setRetryBudget(FailureReason.NO_ACK, Integer.MAX_VALUE);
+        setRetryBudget(FailureReason.TIMEOUT, Integer.MAX_VALUE);
+        setRetryBudget(FailureReason.FAILED, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Sets the maximum number of times a frame is sent. Failures that don't count towards a frame's send count
+     * aren't limited by this.
+     *
+     * @param maxSendCount the maximum send count
+     */
+    public void setMaxSendCount(int maxSendCount) {
+        this.maxSendCount = maxSendCount;
+    }
+
+    /**
+     * Sets the number of times a transaction can be retried for a failure reason.
+     *
+     * @param reason the failure reason
+     * @param retries the maximum number of retries
+     */
+    public void setRetryBudget(FailureReason reason, int retries) {
+        retryBudgets[reason.ordinal()] = retries;
+    }
+
+    /**
+     * Sets the delay before the first retry for a failure reason. Subsequent retries double the delay up to the
+     * maximum delay; each delay is randomized between half and all of its value.
+     *
+     * @param reason the failure reason
+     * @param baseDelay the initial delay (or 0 to retry immediately)
+     * @param unit the time unit of baseDelay
+     */
+    public void setBackoff(FailureReason reason, long baseDelay, TimeUnit unit) {
+        baseDelays[reason.ordinal()] = unit.toMillis(baseDelay);
+    }
+
+    /**
+     * Sets the upper limit of the backoff delay.
+     *
+     * @param maxDelay the maximum delay
+     * @param unit the time unit of maxDelay
+     */
+    public void setMaxDelay(long maxDelay, TimeUnit unit) {
+        this.maxDelay = unit.toMillis(maxDelay);
+    }
+
+    /**
+     * Configures the per-node circuit breaker.
+     *
+     * @param failureThreshold the number of consecutive failed transactions that open a node's circuit (or 0 to
+     *                         disable the circuit breaker)
+     * @param openInterval how long the circuit stays open before a frame is let through again
+     * @param unit the time unit of openInterval
+     */
+    public void setCircuitBreaker(int failureThreshold, long openInterval, TimeUnit unit) {
+        this.failureThreshold = failureThreshold;
+        this.openInterval = unit.toNanos(openInterval);
+    }
+
+    @Override
+    public long getRetryDelay(int nodeId, FailureReason reason, int sendCount, int reasonRetries) {
+        if (reasonRetries >= retryBudgets[reason.ordinal()]) {
+            logger.debug("Retry budget for {} exhausted", reason);
+            return NO_RETRY;
+        } else if (reason.isSendCounted() && sendCount >= maxSendCount) {
+            logger.debug("Exceeded max transaction resends");
+            return NO_RETRY;
+        } else if (isOpen(nodeId)) {
+            logger.debug("Circuit for node {} is open; not retrying", nodeId);
+            return NO_RETRY;
+        }
+
+        long delay = baseDelays[reason.ordinal()];
+        if (delay > 0) {
+            delay = Math.min(delay << Math.min(reasonRetries, 20), maxDelay);
+            delay = delay / 2 + (long)(random.nextDouble() * (delay / 2 + 1));
+        }
+        return delay;
+    }
+
+    @Override
+    public boolean isSendAllowed(int nodeId) {
+        int slot = nodeId & 0xFF;
+        if (openUntil[slot] == 0) {
+            return true;
+        }
+        return (System.nanoTime() - openUntil[slot] >= 0);
+    }
+
+    @Override
+    public void onSendAllowed(int nodeId) {
+        int slot = nodeId & 0xFF;
+        if (openUntil[slot] != 0) {
+            long now = System.nanoTime();
+            if (now - openUntil[slot] >= 0) {
+                // let a single probe through and hold the rest off for another interval
+                logger.debug("Circuit for node {} is half-open; allowing a frame through", nodeId);
+                openUntil[slot] = now + openInterval;
+            }
+        }
+    }
+
+    @Override
+    public void onTransactionCompleted(int nodeId) {
+        int slot = nodeId & 0xFF;
+        if (openUntil[slot] != 0) {
+            logger.debug("Closing circuit for node {}", nodeId);
+        }
+        consecutiveFailures[slot] = 0;
+        openUntil[slot] = 0;
+    }
+
+    @Override
+    public void onTransactionFailed(int nodeId) {
+        int slot = nodeId & 0xFF;
+        if (slot != 0 && failureThreshold > 0 && ++consecutiveFailures[slot] >= failureThreshold) {
+            if (openUntil[slot] == 0) {
+                logger.info("Node {} failed {} transactions in a row; opening its circuit", nodeId, consecutiveFailures[slot]);
+            }
+            openUntil[slot] = System.nanoTime() + openInterval;
+        }
+    }
+
+    /**
+     * Indicates whether a node's circuit is open.
+     *
+     * @param nodeId the node ID
+     *
+     * @return a boolean
+     */
+    public boolean isOpen(int nodeId) {
+        int slot = nodeId & 0xFF;
+        return (openUntil[slot] != 0 && consecutiveFailures[slot] >= failureThreshold);
+    }
+}
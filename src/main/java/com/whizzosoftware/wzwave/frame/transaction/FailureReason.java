@@ -0,0 +1,58 @@
+/*
+ *******************************************************************************
+ * Copyright (c) 2019 Whizzo Software, LLC.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************
+*/
+package com.whizzosoftware.wzwave.frame.transaction;
+
+/**
+ * The reasons a transaction attempt can fail.
+ *
+ * @author Dan Noguerol
+ */
+public enum FailureReason {
+    /**
+     * The controller answered the frame with a CAN (it was busy receiving a frame of its own).
+     */
+    CAN(false),
+    /**
+     * The controller refused the frame because its transmit queue is full (a RESPONSE with a return value of 0).
+     */
+    CONTROLLER_BUSY(false),
+    /**
+     * The controller reported that it couldn't transmit the frame due to network congestion.
+     */
+    NETWORK_CONGESTION(false),
+    /**
+     * The destination node didn't acknowledge the frame.
+     */
+    NO_ACK(true),
+    /**
+     * Nothing was received within the transaction's timeout.
+     */
+    TIMEOUT(true),
+    /**
+     * Any other failure (e.g. an unexpected or unsuccessful response).
+     */
+    FAILED(true);
+
+    private final boolean sendCounted;
+
+    FailureReason(boolean sendCounted) {
+        this.sendCounted = sendCounted;
+    }
+
+    /**
+     * Indicates whether a failed attempt counts towards the frame's send count. Attempts that never made it onto
+     * the network only count towards the reason's own retry budget.
+     *
+     * @return a boolean
+     */
+    public boolean isSendCounted() {
+        return sendCounted;
+    }
+}
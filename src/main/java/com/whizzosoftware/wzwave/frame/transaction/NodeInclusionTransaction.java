@@ -10,7 +10,6 @@
 package com.whizzosoftware.wzwave.frame.transaction;
 
 import com.whizzosoftware.wzwave.channel.ZWaveChannelContext;
-import com.whizzosoftware.wzwave.channel.event.TransactionCompletedEvent;
 import com.whizzosoftware.wzwave.channel.event.TransactionFailedEvent;
 import com.whizzosoftware.wzwave.frame.AddNodeToNetwork;
 import com.whizzosoftware.wzwave.frame.DataFrame;
@@ -43,16 +42,23 @@ public class NodeInclusionTransaction extends AbstractDataFrameTransaction {
                 case AddNodeToNetwork.ADD_NODE_STATUS_ADDING_CONTROLLER:
                 case AddNodeToNetwork.ADD_NODE_STATUS_ADDING_SLAVE:
                     logger.debug("A node has been found that wants to be included: {}", ByteUtil.createString(((AddNodeToNetwork)f).getSource()));
-                    finalFrame = (DataFrame)f;
+                    if (finalFrame != null) {
+                        finalFrame.release();
+                    }
+                    finalFrame = retain((DataFrame)f);
                     return true;
                 case AddNodeToNetwork.ADD_NODE_STATUS_PROTOCOL_DONE:
                     logger.trace("AddNodeToNetwork is complete");
                     finished = true;
-                    ctx.fireEvent(new TransactionCompletedEvent(getId(), finalFrame));
+                    ctx.fireTransactionCompleted(getId(), finalFrame);
                     return true;
                 case AddNodeToNetwork.ADD_NODE_STATUS_FAILED:
                     logger.error("AddNodeToNetwork failed");
                     finished = true;
+                    if (finalFrame != null) {
+                        finalFrame.release();
+                        finalFrame = null;
+                    }
                     ctx.fireEvent(new TransactionFailedEvent(getId(), (DataFrame)f));
                     return true;
                 default:
@@ -62,6 +68,12 @@ public class NodeInclusionTransaction extends AbstractDataFrameTransaction {
         return false;
     }
 
+    @Override
+    public TransactionPhase getExpectedPhase() {
+        // inclusion is paced by the user pressing buttons on the device so it isn't timed
+        return null;
+    }
+
     @Override
     public boolean isComplete() {
         return finished;
@@ -10,7 +10,6 @@
 package com.whizzosoftware.wzwave.frame.transaction;
 
 import com.whizzosoftware.wzwave.channel.ZWaveChannelContext;
-import com.whizzosoftware.wzwave.channel.event.TransactionCompletedEvent;
 import com.whizzosoftware.wzwave.channel.event.TransactionFailedEvent;
 import com.whizzosoftware.wzwave.frame.*;
 import org.slf4j.Logger;
@@ -48,7 +47,7 @@ public class RequestCallbackTransaction extends AbstractDataFrameTransaction {
                     return true;
                 } else if (f instanceof CAN) {
                     logger.trace("Received CAN; will attempt re-send");
-                    failTransaction(ctx, true);
+                    failTransaction(ctx, FailureReason.CAN);
                     return true;
                 } else {
                     logger.error("Received unexpected frame for STATE_REQUEST_SENT: " + f);
@@ -58,7 +57,7 @@ public class RequestCallbackTransaction extends AbstractDataFrameTransaction {
             case STATE_ACK_RECEIVED:
                 if (f instanceof CAN) {
                     logger.trace("Received CAN; will attempt re-send");
-                    failTransaction(ctx, true);
+                    failTransaction(ctx, FailureReason.CAN);
                     return true;
                 } else if (f instanceof DataFrame && f.getClass() == getStartFrame().getClass()) {
                     if (((DataFrame)f).getType() == DataFrameType.REQUEST) {
@@ -67,7 +66,7 @@ public class RequestCallbackTransaction extends AbstractDataFrameTransaction {
                         return true;
                     } else {
                         logger.trace("Expected frame received but does not appear to be a request: {}", f);
-                        failTransaction(ctx, false);
+                        failTransaction(ctx, FailureReason.FAILED);
                         return true;
                     }
                 } else {
@@ -79,6 +78,18 @@ public class RequestCallbackTransaction extends AbstractDataFrameTransaction {
         return false;
     }
 
+    @Override
+    public TransactionPhase getExpectedPhase() {
+        switch (state) {
+            case STATE_REQUEST_SENT:
+                return TransactionPhase.ACK;
+            case STATE_ACK_RECEIVED:
+                return TransactionPhase.CALLBACK;
+            default:
+                return null;
+        }
+    }
+
     @Override
     public boolean isComplete() {
         return (state == STATE_COMPLETE);
@@ -91,14 +102,14 @@ public class RequestCallbackTransaction extends AbstractDataFrameTransaction {
 
     private void completeTransaction(ZWaveChannelContext ctx, DataFrame finalFrame) {
         state = STATE_COMPLETE;
-        ctx.fireEvent(new TransactionCompletedEvent(getId(), finalFrame));
+        ctx.fireTransactionCompleted(getId(), retain(finalFrame));
     }
 
-    private void failTransaction(ZWaveChannelContext ctx, boolean dueToCAN) {
-        if (!attemptResend(ctx, dueToCAN)) {
+    private void failTransaction(ZWaveChannelContext ctx, FailureReason reason) {
+        if (!attemptResend(ctx, reason)) {
             state = STATE_COMPLETE;
             logger.trace("Failing transaction {}", getId());
-            ctx.fireEvent(new TransactionFailedEvent(getId(), getStartFrame()));
+            ctx.fireEvent(new TransactionFailedEvent(getId(), getStartFrame(), null, reason));
         }
     }
 }
@@ -10,7 +10,6 @@
 package com.whizzosoftware.wzwave.frame.transaction;
 
 import com.whizzosoftware.wzwave.channel.ZWaveChannelContext;
-import com.whizzosoftware.wzwave.channel.event.TransactionCompletedEvent;
 import com.whizzosoftware.wzwave.frame.ApplicationUpdate;
 import com.whizzosoftware.wzwave.frame.DataFrame;
 import com.whizzosoftware.wzwave.frame.RequestNodeInfo;
@@ -25,6 +24,13 @@ public class RequestNodeInfoTransaction extends RequestResponseCallbackTransacti
         super(ctx, startFrame, listeningNode);
     }
 
+    @Override
+    public TransactionPhase getExpectedPhase() {
+        // the "callback" for a node info request is the ApplicationUpdate sent by the node itself
+        TransactionPhase phase = super.getExpectedPhase();
+        return (phase == TransactionPhase.CALLBACK) ? TransactionPhase.REPORT : phase;
+    }
+
     @Override
     protected void completeTransaction(ZWaveChannelContext ctx, DataFrame finalFrame) {
         setState(STATE_COMPLETE);
@@ -38,7 +44,7 @@ public class RequestNodeInfoTransaction extends RequestResponseCallbackTransacti
             }
         }
 
-        ctx.fireEvent(new TransactionCompletedEvent(getId(), finalFrame));
+        ctx.fireTransactionCompleted(getId(), retain(finalFrame));
     }
 
     protected boolean wasSendSuccessful(DataFrame dataFrame) {
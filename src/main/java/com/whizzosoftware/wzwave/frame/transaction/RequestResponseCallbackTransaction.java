@@ -10,7 +10,6 @@
 package com.whizzosoftware.wzwave.frame.transaction;
 
 import com.whizzosoftware.wzwave.channel.ZWaveChannelContext;
-import com.whizzosoftware.wzwave.channel.event.TransactionCompletedEvent;
 import com.whizzosoftware.wzwave.channel.event.TransactionFailedEvent;
 import com.whizzosoftware.wzwave.frame.*;
 import org.slf4j.Logger;
@@ -51,7 +50,7 @@ class RequestResponseCallbackTransaction extends AbstractDataFrameTransaction {
                     return true;
                 } else if (bs instanceof CAN) {
                     logger.trace("Received CAN; will attempt re-send");
-                    failTransaction(ctx, true);
+                    failTransaction(ctx, FailureReason.CAN);
                     return true;
                 } else {
                     logger.trace("Received unexpected frame for STATE_REQUEST_SENT: {}" + bs);
@@ -61,7 +60,7 @@ class RequestResponseCallbackTransaction extends AbstractDataFrameTransaction {
             case STATE_ACK_RECEIVED:
                 if (bs instanceof CAN) {
                     logger.trace("Received CAN; will attempt re-send");
-                    failTransaction(ctx, true);
+                    failTransaction(ctx, FailureReason.CAN);
                     return true;
                 } else if (bs instanceof DataFrame) {
                     DataFrame response = (DataFrame)bs;
@@ -72,12 +71,12 @@ class RequestResponseCallbackTransaction extends AbstractDataFrameTransaction {
                             return true;
                         } else {
                             logger.trace("{} not sent successfully", getStartFrame().getClass().getName());
-                            failTransaction(ctx, false);
+                            failTransaction(ctx, FailureReason.FAILED);
                             return true;
                         }
                     } else {
                         logger.trace("Received frame but doesn't appear to be a response: {}", bs);
-                        failTransaction(ctx, false);
+                        failTransaction(ctx, FailureReason.FAILED);
                     }
                 } else {
                     logger.trace("Received unexpected frame for STATE_ACK_RECEIVED");
@@ -87,7 +86,7 @@ class RequestResponseCallbackTransaction extends AbstractDataFrameTransaction {
             case STATE_RESPONSE_RECEIVED:
                 if (bs instanceof CAN) {
                     logger.trace("Received CAN; will attempt re-send");
-                    failTransaction(ctx, true);
+                    failTransaction(ctx, FailureReason.CAN);
                     return true;
                 } else if (bs instanceof DataFrame) {
                     if (((DataFrame)bs).getType() == DataFrameType.REQUEST) {
@@ -96,7 +95,7 @@ class RequestResponseCallbackTransaction extends AbstractDataFrameTransaction {
                         return true;
                     } else {
                         logger.trace("Received data frame but doesn't appear to be a request: {}", bs);
-                        failTransaction(ctx, false);
+                        failTransaction(ctx, FailureReason.FAILED);
                     }
                 } else {
                     logger.trace("Received unexpected frame for STATE_RETVAL_RECEIVED");
@@ -108,6 +107,20 @@ class RequestResponseCallbackTransaction extends AbstractDataFrameTransaction {
         return false;
     }
 
+    @Override
+    public TransactionPhase getExpectedPhase() {
+        switch (state) {
+            case STATE_REQUEST_SENT:
+                return TransactionPhase.ACK;
+            case STATE_ACK_RECEIVED:
+                return TransactionPhase.RESPONSE;
+            case STATE_RESPONSE_RECEIVED:
+                return TransactionPhase.CALLBACK;
+            default:
+                return null;
+        }
+    }
+
     @Override
     public boolean isComplete() {
         return (state == STATE_COMPLETE);
@@ -124,14 +137,14 @@ class RequestResponseCallbackTransaction extends AbstractDataFrameTransaction {
 
     protected void completeTransaction(ZWaveChannelContext ctx, DataFrame finalFrame) {
         state = STATE_COMPLETE;
-        ctx.fireEvent(new TransactionCompletedEvent(getId(), finalFrame));
+        ctx.fireTransactionCompleted(getId(), retain(finalFrame));
     }
 
-    private void failTransaction(ZWaveChannelContext ctx, boolean dueToCAN) {
-        if (!attemptResend(ctx, dueToCAN)) {
+    private void failTransaction(ZWaveChannelContext ctx, FailureReason reason) {
+        if (!attemptResend(ctx, reason)) {
             state = STATE_COMPLETE;
             logger.trace("Failing transaction {}", getId());
-            ctx.fireEvent(new TransactionFailedEvent(getId(), getStartFrame()));
+            ctx.fireEvent(new TransactionFailedEvent(getId(), getStartFrame(), null, reason));
         }
     }
 
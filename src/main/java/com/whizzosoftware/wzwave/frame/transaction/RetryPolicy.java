@@ -0,0 +1,67 @@
+/*
+ *******************************************************************************
+ * Copyright (c) 2019 Whizzo Software, LLC.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************
+*/
+package com.whizzosoftware.wzwave.frame.transaction;
+
+/**
+ * Decides whether and when a failed transaction is retried. Implementations are only called from the channel's
+ * event loop.
+ *
+ * @author Dan Noguerol
+ */
+public interface RetryPolicy {
+    /**
+     * Returned by getRetryDelay() when the transaction should not be retried.
+     */
+    long NO_RETRY = -1;
+
+    /**
+     * Returns how long to wait before re-sending a transaction's start frame.
+     *
+     * @param nodeId the destination node ID (or 0 if the frame is for the controller itself)
+     * @param reason the reason the attempt failed
+     * @param sendCount the number of times the start frame has been sent
+     * @param reasonRetries the number of times the transaction has already been retried for the same reason
+     *
+     * @return a delay in milliseconds (or NO_RETRY if the transaction should fail)
+     */
+    long getRetryDelay(int nodeId, FailureReason reason, int sendCount, int reasonRetries);
+
+    /**
+     * Indicates whether frames should currently be sent to a node. This has no side effects; callers that go on to
+     * send a frame must call onSendAllowed().
+     *
+     * @param nodeId the node ID
+     *
+     * @return a boolean
+     */
+    boolean isSendAllowed(int nodeId);
+
+    /**
+     * Called when a frame that isSendAllowed() let through is sent to a node. If the node's circuit is half-open,
+     * this frame is its probe and further frames are held off until its outcome is known.
+     *
+     * @param nodeId the node ID
+     */
+    void onSendAllowed(int nodeId);
+
+    /**
+     * Called when a transaction with a node completes successfully.
+     *
+     * @param nodeId the node ID
+     */
+    void onTransactionCompleted(int nodeId);
+
+    /**
+     * Called when a transaction with a listening node has failed for good.
+     *
+     * @param nodeId the node ID
+     */
+    void onTransactionFailed(int nodeId);
+}
@@ -0,0 +1,155 @@
+/*
+ *******************************************************************************
+ * Copyright (c) 2019 Whizzo Software, LLC.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************
+*/
+package com.whizzosoftware.wzwave.frame.transaction;
+
+import com.whizzosoftware.wzwave.channel.ZWaveChannelContext;
+import com.whizzosoftware.wzwave.frame.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A SendDataMultiTransaction is a transaction that is considered complete when:
+ *
+ * 1. An ACK is received
+ * 2. A response is received with retVal != 0x00
+ * 3. A callback is received with a successful transmission status
+ *
+ * Nodes don't acknowledge multicast frames so a successful callback only means that the frame went out on the
+ * network; confirming that the nodes acted on it is up to the sender (e.g. with singlecast follow-ups).
+ *
+ * @author Dan Noguerol
+ */
+public class SendDataMultiTransaction extends AbstractDataFrameTransaction {
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private static final int STATE_REQUEST_SENT = 1;
+    private static final int STATE_ACK_RECEIVED = 2;
+    private static final int STATE_RESPONSE_RECEIVED = 3;
+    private static final int STATE_COMPLETE = 4;
+
+    private static final int TRANSMIT_COMPLETE_OK = 0;
+    private static final int TRANSMIT_COMPLETE_NO_ACK = 1;
+    private static final int TRANSMIT_COMPLETE_FAIL = 2;
+
+    private static final int RETVAL_QUEUE_FULL = 0;
+
+    private int state;
+
+    /**
+     * Constructor.
+     *
+     * @param startFrame the frame that started the transaction
+     * @param listeningNode indicates whether the target nodes are listening nodes or not
+     */
+    public SendDataMultiTransaction(ZWaveChannelContext ctx, SendDataMulti startFrame, boolean listeningNode) {
+        super(ctx, startFrame, listeningNode);
+        reset();
+    }
+
+    @Override
+    public boolean addFrame(ZWaveChannelContext ctx, Frame bs) {
+        switch (state) {
+
+            case STATE_REQUEST_SENT:
+                if (bs instanceof ACK) {
+                    logger.trace("Received ACK as expected");
+                    state = STATE_ACK_RECEIVED;
+                    return true;
+                } else if (bs instanceof CAN) {
+                    logger.trace("Received CAN; will attempt re-send");
+                    failTransaction(ctx, FailureReason.CAN);
+                    return true;
+                } else {
+                    logger.warn("Received unexpected frame for STATE_REQUEST_SENT: {}", bs);
+                }
+                break;
+
+            case STATE_ACK_RECEIVED:
+                if (bs instanceof CAN) {
+                    logger.trace("Received CAN; will attempt re-send");
+                    failTransaction(ctx, FailureReason.CAN);
+                    return true;
+                } else if (bs instanceof SendDataMulti && ((SendDataMulti)bs).getType() == DataFrameType.RESPONSE) {
+                    SendDataMulti sd = (SendDataMulti)bs;
+                    if (sd.hasRetVal() && sd.getRetVal() == RETVAL_QUEUE_FULL) {
+                        logger.debug("Controller transmit queue is full");
+                        failTransaction(ctx, FailureReason.CONTROLLER_BUSY);
+                    } else {
+                        logger.trace("SendDataMulti acknowledgement received");
+                        state = STATE_RESPONSE_RECEIVED;
+                    }
+                    return true;
+                } else {
+                    logger.warn("Received unexpected frame for STATE_ACK_RECEIVED: {}", bs);
+                }
+                break;
+
+            case STATE_RESPONSE_RECEIVED:
+                if (bs instanceof CAN) {
+                    logger.trace("Received CAN; will attempt re-send");
+                    failTransaction(ctx, FailureReason.CAN);
+                    return true;
+                } else if (bs instanceof SendDataMulti && ((SendDataMulti)bs).getType() == DataFrameType.REQUEST) {
+                    SendDataMulti sd = (SendDataMulti)bs;
+                    if (sd.hasTx() && sd.getTx() == TRANSMIT_COMPLETE_OK) {
+                        logger.trace("SendDataMulti sent successfully");
+                        state = STATE_COMPLETE;
+                        ctx.fireTransactionCompleted(getId(), null);
+                    } else if (sd.hasTx() && sd.getTx() == TRANSMIT_COMPLETE_NO_ACK) {
+                        failTransaction(ctx, FailureReason.NO_ACK);
+                    } else if (sd.hasTx() && sd.getTx() == TRANSMIT_COMPLETE_FAIL) {
+                        logger.error("Multicast transmission failure due to possible network congestion");
+                        failTransaction(ctx, FailureReason.NETWORK_CONGESTION);
+                    } else {
+                        logger.error("Received SendDataMulti callback with no transmission status");
+                        failTransaction(ctx, FailureReason.FAILED);
+                    }
+                    return true;
+                } else {
+                    logger.warn("Received unexpected frame for STATE_RESPONSE_RECEIVED: {}", bs);
+                }
+                break;
+        }
+
+        return false;
+    }
+
+    @Override
+    public TransactionPhase getExpectedPhase() {
+        switch (state) {
+            case STATE_REQUEST_SENT:
+                return TransactionPhase.ACK;
+            case STATE_ACK_RECEIVED:
+                return TransactionPhase.RESPONSE;
+            case STATE_RESPONSE_RECEIVED:
+                return TransactionPhase.CALLBACK;
+            default:
+                return null;
+        }
+    }
+
+    @Override
+    public boolean isComplete() {
+        return (state == STATE_COMPLETE);
+    }
+
+    @Override
+    public void reset() {
+        state = STATE_REQUEST_SENT;
+    }
+
+    private void failTransaction(ZWaveChannelContext ctx, FailureReason reason) {
+        // attemptResend fires the TransactionFailedEvent if the frame won't be re-sent
+        if (!attemptResend(ctx, reason)) {
+            state = STATE_COMPLETE;
+            logger.trace("Failing transaction {}", getId());
+        }
+    }
+}
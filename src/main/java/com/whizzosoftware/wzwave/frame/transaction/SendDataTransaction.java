@@ -22,7 +22,17 @@ import org.slf4j.LoggerFactory;
  * 1. An ACK is received
  * 2. A response is received with retVal == 0x01
  * 3. A callback is received
- * 4. An ApplicationCommand is received (if the original SendData frame was flagged as requiring a response)
+ *
+ * The transaction doesn't wait for the ApplicationCommand a node answers a GET with since that would hold the serial
+ * link idle while the report makes its way back through the network. Instead, the transaction reports that a report
+ * is pending (see isReportPending()) and the wait for it is tracked outside of the transaction. If the report
+ * arrives before the SendData callback, the transaction keeps it (see getReport()) and no report is pending.
+ *
+ * The report can only be told apart from other commands if the start frame has an expected report key. If it
+ * doesn't (see SendData.getExpectedReportKey()), the transaction instead waits for the next ApplicationCommand from
+ * the node:
+ *
+ * 4. An ApplicationCommand is received from the node
  *
  * @author Dan Noguerol
  */
@@ -39,16 +49,19 @@ public class SendDataTransaction extends AbstractDataFrameTransaction {
     private static final int TRANSMIT_COMPLETE_NO_ACK = 1;
     private static final int TRANSMIT_COMPLETE_FAIL = 2;
 
+    private static final int RETVAL_QUEUE_FULL = 0;
+
     private int state;
     private boolean isResponseExpected;
-    private boolean applicationCommandReceived;
+    private ApplicationCommand report;
+    private boolean reportPending;
 
     /**
      * Constructor.
      *
      * @param startFrame the frame that started the transaction
      * @param listeningNode indicates whether the target node is a listening node or not
-     * @param isResponseExpected indicates if a response is expected
+     * @param isResponseExpected indicates if the node is expected to answer with a report
      */
     public SendDataTransaction(ZWaveChannelContext ctx, SendData startFrame, boolean listeningNode, boolean isResponseExpected) {
         super(ctx, startFrame, listeningNode);
@@ -71,7 +84,7 @@ public class SendDataTransaction extends AbstractDataFrameTransaction {
                     return true;
                 } else if (bs instanceof CAN) {
                     logger.trace("Received CAN; will attempt re-send");
-                    failTransaction(ctx, true, false, false);
+                    failTransaction(ctx, FailureReason.CAN, false);
                     return true;
                 } else {
                     logger.warn("Received unexpected frame for STATE_REQUEST_SENT: {}", bs);
@@ -81,16 +94,21 @@ public class SendDataTransaction extends AbstractDataFrameTransaction {
             case STATE_ACK_RECEIVED:
                 if (bs instanceof CAN) {
                     logger.trace("Received CAN; will attempt re-send");
-                    failTransaction(ctx, true, false, false);
+                    failTransaction(ctx, FailureReason.CAN, false);
                     return true;
                 } else if (bs instanceof SendData) {
-                    if (((SendData)bs).getType() == DataFrameType.RESPONSE) {
+                    SendData sd = (SendData)bs;
+                    if (sd.getType() == DataFrameType.RESPONSE && sd.hasRetVal() && sd.getRetVal() == RETVAL_QUEUE_FULL) {
+                        logger.debug("Controller transmit queue is full");
+                        failTransaction(ctx, FailureReason.CONTROLLER_BUSY, false);
+                        return true;
+                    } else if (sd.getType() == DataFrameType.RESPONSE) {
                         logger.trace("SendData acknowledgement received");
                         state = STATE_RESPONSE_RECEIVED;
                         return true;
                     } else {
                         logger.trace("Received SendData frame but doesn't appear to be an acknowledgement: {}", bs);
-                        failTransaction(ctx, false, false, false);
+                        failTransaction(ctx, FailureReason.FAILED, false);
                     }
                 } else {
                     logger.warn("Received unexpected frame for STATE_ACK_RECEIVED: {}", bs);
@@ -100,7 +118,7 @@ public class SendDataTransaction extends AbstractDataFrameTransaction {
             case STATE_RESPONSE_RECEIVED:
                 if (bs instanceof CAN) {
                     logger.trace("Received CAN; will attempt re-send");
-                    failTransaction(ctx, true, false, false);
+                    failTransaction(ctx, FailureReason.CAN, false);
                     return true;
                 } else if (bs instanceof SendData) {
                     SendData sd = (SendData)bs;
@@ -108,12 +126,13 @@ public class SendDataTransaction extends AbstractDataFrameTransaction {
                         // if the controller told us the transmission was ACKed, move on
                         if (sd.hasTx() && sd.getTx() == TRANSMIT_COMPLETE_OK) {
                             logger.trace("SendData sent successfully");
-                            // if we shouldn't expect a response, the transaction is complete
-                            if (!isResponseExpected || applicationCommandReceived) {
-                                completeTransaction(ctx, null);
-                            // otherwise, wait for the response
-                            } else {
+                            if (isResponseExpected && report == null && !hasExpectedReportKey()) {
+                                // there's no telling the report apart from other commands once the transaction is over
                                 state = STATE_CALLBACK_RECEIVED;
+                            } else {
+                                // the serial exchange is done; any report will arrive on its own
+                                reportPending = (isResponseExpected && report == null);
+                                completeTransaction(ctx, null);
                             }
                         } else if (sd.hasTx() && sd.getTx() == TRANSMIT_COMPLETE_NO_ACK) {
                             if (isListeningNode()) {
@@ -121,22 +140,27 @@ public class SendDataTransaction extends AbstractDataFrameTransaction {
                             } else {
                                 logger.trace("Received no ACK from target node; may be asleep");
                             }
-                            failTransaction(ctx, false, false, false);
+                            failTransaction(ctx, FailureReason.NO_ACK, false);
                         } else if (sd.hasTx() && sd.getTx() == TRANSMIT_COMPLETE_FAIL){
                             logger.error("Transmission failure due to possible network congestion");
-                            failTransaction(ctx, false, true, true);
+                            failTransaction(ctx, FailureReason.NETWORK_CONGESTION, true);
                         } else {
                             logger.error("Received SendData callback with no transmission status");
-                            failTransaction(ctx, false, false, false);
+                            failTransaction(ctx, FailureReason.FAILED, false);
                         }
                         return true;
                     } else {
                         logger.error("Received data frame but doesn't appear to be a SendData callback: {}", bs, false);
-                        failTransaction(ctx, false, false, false);
+                        failTransaction(ctx, FailureReason.FAILED, false);
                     }
                 } else if (bs instanceof ApplicationCommand) {
-                    // sometimes the ApplicationCommand is returned before the SendData callback; flag that case here
-                    applicationCommandReceived = true;
+                    // sometimes the report is returned before the SendData callback; keep it so it isn't waited for
+                    // (the command is still passed along so it must remain readable once its buffer is released)
+                    ApplicationCommand cmd = (ApplicationCommand)bs;
+                    if (isExpectedReport(cmd)) {
+                        logger.trace("Received expected report before SendData callback");
+                        report = (ApplicationCommand)cmd.materialize();
+                    }
                 } else {
                     logger.warn("Received unexpected frame for STATE_RESPONSE_RECEIVED: {}", bs);
                 }
@@ -145,11 +169,14 @@ public class SendDataTransaction extends AbstractDataFrameTransaction {
             case STATE_CALLBACK_RECEIVED:
                 if (bs instanceof CAN) {
                     logger.trace("Received CAN; will attempt re-send");
-                    failTransaction(ctx, true, false, true);
+                    failTransaction(ctx, FailureReason.CAN, true);
                     return true;
-                } else if (bs instanceof ApplicationCommand) {
-                    logger.trace("Application command received for {}", getStartFrame().getClass().getName());
-                    completeTransaction(ctx, (DataFrame)bs);
+                } else if (bs instanceof ApplicationCommand && ((ApplicationCommand)bs).getNodeId() == getNodeId()) {
+                    logger.trace("Application command received for {}", getStartFrame());
+                    // the command is passed along with the completion event so it must remain readable once its
+                    // buffer is released
+                    report = (ApplicationCommand)((ApplicationCommand)bs).materialize();
+                    completeTransaction(ctx, report);
                     return true;
                 } else {
                     logger.warn("Received unexpected frame for STATE_CALLBACK_RECEIVED: {}", bs);
@@ -160,6 +187,52 @@ public class SendDataTransaction extends AbstractDataFrameTransaction {
         return false;
     }
 
+    @Override
+    public TransactionPhase getExpectedPhase() {
+        switch (state) {
+            case STATE_REQUEST_SENT:
+                return TransactionPhase.ACK;
+            case STATE_ACK_RECEIVED:
+                return TransactionPhase.RESPONSE;
+            case STATE_RESPONSE_RECEIVED:
+                return TransactionPhase.CALLBACK;
+            case STATE_CALLBACK_RECEIVED:
+                return TransactionPhase.REPORT;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Indicates whether the transaction completed successfully and the node has yet to answer with a report.
+     *
+     * @return a boolean
+     */
+    public boolean isReportPending() {
+        return reportPending;
+    }
+
+    /**
+     * Returns the report the node answered with before the transaction completed.
+     *
+     * @return an ApplicationCommand (or null if none was received)
+     */
+    public ApplicationCommand getReport() {
+        return report;
+    }
+
+    private boolean isExpectedReport(ApplicationCommand cmd) {
+        if (!isResponseExpected || cmd.getNodeId() != getNodeId()) {
+            return false;
+        }
+        int key = ((SendData)getStartFrame()).getExpectedReportKey();
+        return (key >= 0 && cmd.getReportKey() == key);
+    }
+
+    private boolean hasExpectedReportKey() {
+        return (((SendData)getStartFrame()).getExpectedReportKey() >= 0);
+    }
+
     @Override
     public boolean isComplete() {
         return (state == STATE_COMPLETE);
@@ -170,20 +243,30 @@ public class SendDataTransaction extends AbstractDataFrameTransaction {
         state = STATE_REQUEST_SENT;
     }
 
-    private void completeTransaction(ZWaveChannelContext ctx, DataFrame finalFrame) {
+    private void completeTransaction(ZWaveChannelContext ctx, ApplicationCommand finalFrame) {
         state = STATE_COMPLETE;
-        ctx.fireEvent(new SendDataTransactionCompletedEvent(getId(), finalFrame, getNodeId()));
+        if (finalFrame != null) {
+            ctx.fireEvent(new SendDataTransactionCompletedEvent(getId(), finalFrame, getNodeId()));
+        } else {
+            ctx.fireSendDataTransactionCompleted(getId(), getNodeId());
+        }
+    }
+
+    @Override
+    int getDestinationNodeId() {
+        return getNodeId() & 0xFF;
     }
 
-    private void failTransaction(ZWaveChannelContext ctx, boolean canReceived, boolean networkError, boolean targetNodeACKReceived) {
+    private void failTransaction(ZWaveChannelContext ctx, FailureReason reason, boolean targetNodeACKReceived) {
         boolean fail = true;
-        if ((canReceived || networkError || isListeningNode() || targetNodeACKReceived)) {
-            fail = !attemptResend(ctx, canReceived);
+        // a sleeping node that didn't ACK is handled by queueing the frame until it wakes up
+        if (!reason.isSendCounted() || isListeningNode() || targetNodeACKReceived) {
+            fail = !attemptResend(ctx, reason);
         }
         if (fail) {
             state = STATE_COMPLETE;
             logger.trace("Failing transaction {}", getId());
-            ctx.fireEvent(new SendDataTransactionFailedEvent(getId(), getStartFrame(), getNodeId(), isListeningNode(), targetNodeACKReceived));
+            ctx.fireEvent(new SendDataTransactionFailedEvent(getId(), getStartFrame(), getNodeId(), isListeningNode(), targetNodeACKReceived, reason));
         }
     }
 }
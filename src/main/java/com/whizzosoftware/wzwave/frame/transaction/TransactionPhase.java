@@ -0,0 +1,36 @@
+/*
+ *******************************************************************************
+ * Copyright (c) 2019 Whizzo Software, LLC.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************
+*/
+package com.whizzosoftware.wzwave.frame.transaction;
+
+/**
+ * The phases of a transaction that each wait on a different part of the Z-Wave network to respond. They are tracked
+ * separately since their round-trip times differ by orders of magnitude (e.g. an ACK comes straight from the
+ * controller while a report has to cross the mesh and back).
+ *
+ * @author Dan Noguerol
+ */
+public enum TransactionPhase {
+    /**
+     * Waiting for the controller to ACK the frame that was written to it.
+     */
+    ACK,
+    /**
+     * Waiting for the controller's RESPONSE frame.
+     */
+    RESPONSE,
+    /**
+     * Waiting for the controller's callback REQUEST (e.g. a SendData transmit status).
+     */
+    CALLBACK,
+    /**
+     * Waiting for a report from the destination node (e.g. an ApplicationCommand or ApplicationUpdate).
+     */
+    REPORT
+}
@@ -0,0 +1,453 @@
+/*
+ *******************************************************************************
+ * Copyright (c) 2019 Whizzo Software, LLC.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************
+*/
+package com.whizzosoftware.wzwave.metrics;
+
+import com.whizzosoftware.wzwave.frame.transaction.FailureReason;
+import com.whizzosoftware.wzwave.util.LatencyHistogram;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Runtime metrics for the serial link, frame queues and transactions of a controller. The pipeline's handlers update
+ * them as frames flow through; updates are lock-free and don't allocate, so they can be made from the event loop while
+ * other threads read the values.
+ *
+ * Applications can read the live values (also exposed through JMX, see ZWaveMetricsMXBean) or take a snapshot of them.
+ *
+ * @author Dan Noguerol
+ */
+public class ZWaveMetrics implements ZWaveMetricsMXBean {
+    private static final FailureReason[] REASONS = FailureReason.values();
+
+    private final AtomicLong dataFramesReceived = new AtomicLong();
+    private final AtomicLong dataFramesSent = new AtomicLong();
+    private final AtomicLong acksReceived = new AtomicLong();
+    private final AtomicLong naksReceived = new AtomicLong();
+    private final AtomicLong cansReceived = new AtomicLong();
+    private final AtomicLong checksumErrors = new AtomicLong();
+    private final AtomicLong framingErrors = new AtomicLong();
+
+    private volatile int sendQueueDepth;
+    private volatile int maxSendQueueDepth;
+    private volatile int wakeupQueueDepth;
+    private final AtomicLong framesCoalesced = new AtomicLong();
+    private final AtomicLong framesExpired = new AtomicLong();
+    private final AtomicLong framesDiscarded = new AtomicLong();
+    private final LatencyHistogram queueWait = new LatencyHistogram();
+
+    private final AtomicLong transactionsStarted = new AtomicLong();
+    private final AtomicLong transactionsCompleted = new AtomicLong();
+    private final AtomicLongArray transactionFailures = new AtomicLongArray(REASONS.length);
+    private final AtomicLong transactionTimeouts = new AtomicLong();
+    private final AtomicLong transactionRetries = new AtomicLong();
+    private final AtomicLong reportTimeouts = new AtomicLong();
+    private final LatencyHistogram transactionDuration = new LatencyHistogram();
+    private final LatencyHistogram ackLatency = new LatencyHistogram();
+
+    private final AtomicLong updatesConflated = new AtomicLong();
+    private final AtomicLong dispatchRejected = new AtomicLong();
+
+    /*
+     * Serial link
+     */
+
+    public void onDataFrameReceived() {
+        dataFramesReceived.incrementAndGet();
+    }
+
+    public void onDataFrameSent() {
+        dataFramesSent.incrementAndGet();
+    }
+
+    public void onACKReceived() {
+        acksReceived.incrementAndGet();
+    }
+
+    public void onNAKReceived() {
+        naksReceived.incrementAndGet();
+    }
+
+    public void onCANReceived() {
+        cansReceived.incrementAndGet();
+    }
+
+    /**
+     * Called when a data frame with an invalid checksum is received (and NAKed).
+     */
+    public void onChecksumError() {
+        checksumErrors.incrementAndGet();
+    }
+
+    /**
+     * Called when received bytes that can't be part of a frame are skipped.
+     */
+    public void onFramingError() {
+        framingErrors.incrementAndGet();
+    }
+
+    /*
+     * Queues
+     */
+
+    /**
+     * Updates the number of frames waiting in the queues. This should only be called by the thread that owns the
+     * queues.
+     *
+     * @param sendQueueDepth the number of frames waiting to be sent
+     * @param wakeupQueueDepth the number of frames waiting for their node to wake up
+     */
+    public void setQueueDepths(int sendQueueDepth, int wakeupQueueDepth) {
+        this.sendQueueDepth = sendQueueDepth;
+        this.wakeupQueueDepth = wakeupQueueDepth;
+        if (sendQueueDepth > maxSendQueueDepth) {
+            maxSendQueueDepth = sendQueueDepth;
+        }
+    }
+
+    public void onFrameCoalesced() {
+        framesCoalesced.incrementAndGet();
+    }
+
+    public void onFrameExpired() {
+        framesExpired.incrementAndGet();
+    }
+
+    public void onFrameDiscarded() {
+        framesDiscarded.incrementAndGet();
+    }
+
+    /**
+     * Records how long a frame waited in the send queue before it was sent.
+     *
+     * @param nanos the wait in nanoseconds
+     */
+    public void recordQueueWait(long nanos) {
+        queueWait.record(nanos);
+    }
+
+    /*
+     * Transactions
+     */
+
+    public void onTransactionStarted() {
+        transactionsStarted.incrementAndGet();
+    }
+
+    /**
+     * Called when a transaction completes successfully.
+     *
+     * @param durationNanos the time from the transaction's start frame being sent to its completion
+     */
+    public void onTransactionCompleted(long durationNanos) {
+        transactionsCompleted.incrementAndGet();
+        transactionDuration.record(durationNanos);
+    }
+
+    public void onTransactionFailed(FailureReason reason) {
+        transactionFailures.incrementAndGet((reason != null ? reason : FailureReason.FAILED).ordinal());
+    }
+
+    /**
+     * Called when a phase of a transaction times out (whether or not the transaction is retried).
+     */
+    public void onTransactionTimeout() {
+        transactionTimeouts.incrementAndGet();
+    }
+
+    public void onTransactionRetry() {
+        transactionRetries.incrementAndGet();
+    }
+
+    /**
+     * Called when a node doesn't send a report it was expected to send in time.
+     */
+    public void onReportTimeout() {
+        reportTimeouts.incrementAndGet();
+    }
+
+    /*
+     * Node dispatch
+     */
+
+    /**
+     * Called when a pending node update is replaced by a newer one before it was delivered.
+     */
+    public void onUpdateConflated() {
+        updatesConflated.incrementAndGet();
+    }
+
+    /**
+     * Called when a node update is rejected because the node has too many updates waiting to be delivered.
+     */
+    public void onDispatchRejected() {
+        dispatchRejected.incrementAndGet();
+    }
+
+    /*
+     * Histograms
+     */
+
+    /**
+     * Returns the distribution of time between a data frame being received and its ACK being written.
+     *
+     * @return a LatencyHistogram
+     */
+    public LatencyHistogram getACKLatencyHistogram() {
+        return ackLatency;
+    }
+
+    /**
+     * Returns the distribution of time frames wait in the send queue.
+     *
+     * @return a LatencyHistogram
+     */
+    public LatencyHistogram getQueueWaitHistogram() {
+        return queueWait;
+    }
+
+    /**
+     * Returns the distribution of the durations of successful transactions.
+     *
+     * @return a LatencyHistogram
+     */
+    public LatencyHistogram getTransactionDurationHistogram() {
+        return transactionDuration;
+    }
+
+    /**
+     * Returns a copy of the current values. Values that change while the snapshot is taken may or may not be
+     * included in it.
+     *
+     * @return a ZWaveMetricsSnapshot
+     */
+    public ZWaveMetricsSnapshot snapshot() {
+        long[] failures = new long[REASONS.length];
+        for (int i=0; i < failures.length; i++) {
+            failures[i] = transactionFailures.get(i);
+        }
+        return new ZWaveMetricsSnapshot(
+            System.currentTimeMillis(),
+            dataFramesReceived.get(),
+            dataFramesSent.get(),
+            acksReceived.get(),
+            naksReceived.get(),
+            cansReceived.get(),
+            checksumErrors.get(),
+            framingErrors.get(),
+            sendQueueDepth,
+            maxSendQueueDepth,
+            wakeupQueueDepth,
+            framesCoalesced.get(),
+            framesExpired.get(),
+            framesDiscarded.get(),
+            transactionsStarted.get(),
+            transactionsCompleted.get(),
+            failures,
+            transactionTimeouts.get(),
+            transactionRetries.get(),
+            reportTimeouts.get(),
+            updatesConflated.get(),
+            dispatchRejected.get(),
+            queueWait.copy(),
+            transactionDuration.copy(),
+            ackLatency.copy()
+        );
+    }
+
+    /*
+     * ZWaveMetricsMXBean
+     */
+
+    @Override
+    public long getDataFramesReceived() {
+        return dataFramesReceived.get();
+    }
+
+    @Override
+    public long getDataFramesSent() {
+        return dataFramesSent.get();
+    }
+
+    @Override
+    public long getACKsReceived() {
+        return acksReceived.get();
+    }
+
+    @Override
+    public long getNAKsReceived() {
+        return naksReceived.get();
+    }
+
+    @Override
+    public long getCANsReceived() {
+        return cansReceived.get();
+    }
+
+    @Override
+    public long getChecksumErrors() {
+        return checksumErrors.get();
+    }
+
+    @Override
+    public long getFramingErrors() {
+        return framingErrors.get();
+    }
+
+    @Override
+    public int getSendQueueDepth() {
+        return sendQueueDepth;
+    }
+
+    @Override
+    public int getMaxSendQueueDepth() {
+        return maxSendQueueDepth;
+    }
+
+    @Override
+    public int getWakeupQueueDepth() {
+        return wakeupQueueDepth;
+    }
+
+    @Override
+    public long getFramesCoalesced() {
+        return framesCoalesced.get();
+    }
+
+    @Override
+    public long getFramesExpired() {
+        return framesExpired.get();
+    }
+
+    @Override
+    public long getFramesDiscarded() {
+        return framesDiscarded.get();
+    }
+
+    @Override
+    public long getQueueWaitP99Millis() {
+        return queueWait.getPercentile(99, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public long getTransactionsStarted() {
+        return transactionsStarted.get();
+    }
+
+    @Override
+    public long getTransactionsCompleted() {
+        return transactionsCompleted.get();
+    }
+
+    @Override
+    public long getTransactionsFailed() {
+        long total = 0;
+        for (int i=0; i < REASONS.length; i++) {
+            total += transactionFailures.get(i);
+        }
+        return total;
+    }
+
+    /**
+     * Returns the number of failed transactions for a particular reason.
+     *
+     * @param reason the failure reason
+     *
+     * @return a long
+     */
+    public long getTransactionsFailed(FailureReason reason) {
+        return transactionFailures.get(reason.ordinal());
+    }
+
+    @Override
+    public Map<String,Long> getTransactionFailuresByReason() {
+        Map<String,Long> m = new LinkedHashMap<>();
+        for (FailureReason r : REASONS) {
+            m.put(r.name(), transactionFailures.get(r.ordinal()));
+        }
+        return m;
+    }
+
+    @Override
+    public long getTransactionTimeouts() {
+        return transactionTimeouts.get();
+    }
+
+    @Override
+    public long getTransactionRetries() {
+        return transactionRetries.get();
+    }
+
+    @Override
+    public long getReportTimeouts() {
+        return reportTimeouts.get();
+    }
+
+    @Override
+    public long getUpdatesConflated() {
+        return updatesConflated.get();
+    }
+
+    @Override
+    public long getDispatchRejected() {
+        return dispatchRejected.get();
+    }
+
+    @Override
+    public long getTransactionDurationP50Millis() {
+        return transactionDuration.getPercentile(50, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public long getTransactionDurationP99Millis() {
+        return transactionDuration.getPercentile(99, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public long getTransactionDurationMaxMillis() {
+        return transactionDuration.getMax(TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public long getACKLatencyP99Micros() {
+        return ackLatency.getPercentile(99, TimeUnit.MICROSECONDS);
+    }
+
+    @Override
+    public void reset() {
+        dataFramesReceived.set(0);
+        dataFramesSent.set(0);
+        acksReceived.set(0);
+        naksReceived.set(0);
+        cansReceived.set(0);
+        checksumErrors.set(0);
+        framingErrors.set(0);
+        maxSendQueueDepth = sendQueueDepth;
+        framesCoalesced.set(0);
+        framesExpired.set(0);
+        framesDiscarded.set(0);
+        queueWait.reset();
+        transactionsStarted.set(0);
+        transactionsCompleted.set(0);
+        for (int i=0; i < REASONS.length; i++) {
+            transactionFailures.set(i, 0);
+        }
+        transactionTimeouts.set(0);
+        transactionRetries.set(0);
+        reportTimeouts.set(0);
+        updatesConflated.set(0);
+        dispatchRejected.set(0);
+        transactionDuration.reset();
+        ackLatency.reset();
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ *******************************************************************************
+ * Copyright (c) 2019 Whizzo Software, LLC.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************
+*/
+package com.whizzosoftware.wzwave.metrics;
+
+import java.util.Map;
+
+/**
+ * The JMX view of a controller's ZWaveMetrics. Counters are cumulative since the controller was started or the
+ * metrics were last reset.
+ *
+ * @author Dan Noguerol
+ */
+public interface ZWaveMetricsMXBean {
+    long getDataFramesReceived();
+    long getDataFramesSent();
+    long getACKsReceived();
+    long getNAKsReceived();
+    long getCANsReceived();
+    long getChecksumErrors();
+    long getFramingErrors();
+
+    int getSendQueueDepth();
+    int getMaxSendQueueDepth();
+    int getWakeupQueueDepth();
+    long getFramesCoalesced();
+    long getFramesExpired();
+    long getFramesDiscarded();
+    long getQueueWaitP99Millis();
+
+    long getTransactionsStarted();
+    long getTransactionsCompleted();
+    long getTransactionsFailed();
+    Map<String,Long> getTransactionFailuresByReason();
+    long getTransactionTimeouts();
+    long getTransactionRetries();
+    long getReportTimeouts();
+    long getTransactionDurationP50Millis();
+    long getTransactionDurationP99Millis();
+    long getTransactionDurationMaxMillis();
+    long getACKLatencyP99Micros();
+
+    long getUpdatesConflated();
+    long getDispatchRejected();
+
+    /**
+     * Resets all counters and histograms.
+     */
+    void reset();
+}
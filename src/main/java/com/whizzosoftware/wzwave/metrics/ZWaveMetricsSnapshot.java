@@ -0,0 +1,207 @@
+/*
+ *******************************************************************************
+ * Copyright (c) 2019 Whizzo Software, LLC.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************
+*/
+package com.whizzosoftware.wzwave.metrics;
+
+import com.whizzosoftware.wzwave.frame.transaction.FailureReason;
+import com.whizzosoftware.wzwave.util.LatencyHistogram;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An immutable copy of a controller's metrics at a point in time (see ZWaveMetrics.snapshot()). Its histograms are
+ * copies as well, so they don't change after the snapshot is taken.
+ *
+ * @author Dan Noguerol
+ */
+public class ZWaveMetricsSnapshot {
+    private final long timestamp;
+    private final long dataFramesReceived;
+    private final long dataFramesSent;
+    private final long acksReceived;
+    private final long naksReceived;
+    private final long cansReceived;
+    private final long checksumErrors;
+    private final long framingErrors;
+    private final int sendQueueDepth;
+    private final int maxSendQueueDepth;
+    private final int wakeupQueueDepth;
+    private final long framesCoalesced;
+    private final long framesExpired;
+    private final long framesDiscarded;
+    private final long transactionsStarted;
+    private final long transactionsCompleted;
+    private final long[] transactionFailures;
+    private final long transactionTimeouts;
+    private final long transactionRetries;
+    private final long reportTimeouts;
+    private final long updatesConflated;
+    private final long dispatchRejected;
+    private final LatencyHistogram queueWait;
+    private final LatencyHistogram transactionDuration;
+    private final LatencyHistogram ackLatency;
+
+    ZWaveMetricsSnapshot(long timestamp, long dataFramesReceived, long dataFramesSent, long acksReceived, long naksReceived, long cansReceived, long checksumErrors, long framingErrors, int sendQueueDepth, int maxSendQueueDepth, int wakeupQueueDepth, long framesCoalesced, long framesExpired, long framesDiscarded, long transactionsStarted, long transactionsCompleted, long[] transactionFailures, long transactionTimeouts, long transactionRetries, long reportTimeouts, long updatesConflated, long dispatchRejected, LatencyHistogram queueWait, LatencyHistogram transactionDuration, LatencyHistogram ackLatency) {
+        this.timestamp = timestamp;
+        this.dataFramesReceived = dataFramesReceived;
+        this.dataFramesSent = dataFramesSent;
+        this.acksReceived = acksReceived;
+        this.naksReceived = naksReceived;
+        this.cansReceived = cansReceived;
+        this.checksumErrors = checksumErrors;
+        this.framingErrors = framingErrors;
+        this.sendQueueDepth = sendQueueDepth;
+        this.maxSendQueueDepth = maxSendQueueDepth;
+        this.wakeupQueueDepth = wakeupQueueDepth;
+        this.framesCoalesced = framesCoalesced;
+        this.framesExpired = framesExpired;
+        this.framesDiscarded = framesDiscarded;
+        this.transactionsStarted = transactionsStarted;
+        this.transactionsCompleted = transactionsCompleted;
+        this.transactionFailures = transactionFailures;
+        this.transactionTimeouts = transactionTimeouts;
+        this.transactionRetries = transactionRetries;
+        this.reportTimeouts = reportTimeouts;
+        this.updatesConflated = updatesConflated;
+        this.dispatchRejected = dispatchRejected;
+        this.queueWait = queueWait;
+        this.transactionDuration = transactionDuration;
+        this.ackLatency = ackLatency;
+    }
+
+    /**
+     * Returns when the snapshot was taken.
+     *
+     * @return a wall clock time in milliseconds
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public long getDataFramesReceived() {
+        return dataFramesReceived;
+    }
+
+    public long getDataFramesSent() {
+        return dataFramesSent;
+    }
+
+    public long getACKsReceived() {
+        return acksReceived;
+    }
+
+    public long getNAKsReceived() {
+        return naksReceived;
+    }
+
+    public long getCANsReceived() {
+        return cansReceived;
+    }
+
+    public long getChecksumErrors() {
+        return checksumErrors;
+    }
+
+    public long getFramingErrors() {
+        return framingErrors;
+    }
+
+    public int getSendQueueDepth() {
+        return sendQueueDepth;
+    }
+
+    public int getMaxSendQueueDepth() {
+        return maxSendQueueDepth;
+    }
+
+    public int getWakeupQueueDepth() {
+        return wakeupQueueDepth;
+    }
+
+    public long getFramesCoalesced() {
+        return framesCoalesced;
+    }
+
+    public long getFramesExpired() {
+        return framesExpired;
+    }
+
+    public long getFramesDiscarded() {
+        return framesDiscarded;
+    }
+
+    public long getTransactionsStarted() {
+        return transactionsStarted;
+    }
+
+    public long getTransactionsCompleted() {
+        return transactionsCompleted;
+    }
+
+    public long getTransactionsFailed() {
+        long total = 0;
+        for (long n : transactionFailures) {
+            total += n;
+        }
+        return total;
+    }
+
+    public long getTransactionsFailed(FailureReason reason) {
+        return transactionFailures[reason.ordinal()];
+    }
+
+    public long getTransactionTimeouts() {
+        return transactionTimeouts;
+    }
+
+    public long getTransactionRetries() {
+        return transactionRetries;
+    }
+
+    public long getReportTimeouts() {
+        return reportTimeouts;
+    }
+
+    public long getUpdatesConflated() {
+        return updatesConflated;
+    }
+
+    public long getDispatchRejected() {
+        return dispatchRejected;
+    }
+
+    public LatencyHistogram getQueueWait() {
+        return queueWait;
+    }
+
+    public LatencyHistogram getTransactionDuration() {
+        return transactionDuration;
+    }
+
+    public LatencyHistogram getACKLatency() {
+        return ackLatency;
+    }
+
+    public String toString() {
+        return "ZWaveMetricsSnapshot{" +
+            "rx=" + dataFramesReceived +
+            ", tx=" + dataFramesSent +
+            ", nak=" + naksReceived +
+            ", can=" + cansReceived +
+            ", checksumErrors=" + checksumErrors +
+            ", framingErrors=" + framingErrors +
+            ", sendQueue=" + sendQueueDepth +
+            ", wakeupQueues=" + wakeupQueueDepth +
+            ", transactions=" + transactionsCompleted + "/" + transactionsStarted +
+            ", failed=" + getTransactionsFailed() +
+            ", retries=" + transactionRetries +
+            ", duration p99=" + transactionDuration.getPercentile(99, TimeUnit.MILLISECONDS) + "ms" +
+            '}';
+    }
+}
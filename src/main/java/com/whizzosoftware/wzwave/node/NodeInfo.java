@@ -40,7 +40,8 @@ public class NodeInfo {
         basicDeviceClass = buffer.readByte();
         genericDeviceClass = buffer.readByte();
         specificDeviceClass = buffer.readByte();
-        commandClasses = buffer.readBytes(nodeInfoLength - 3).array();
+        commandClasses = new byte[nodeInfoLength - 3];
+        buffer.readBytes(commandClasses);
     }
 
     public byte getNodeId() {
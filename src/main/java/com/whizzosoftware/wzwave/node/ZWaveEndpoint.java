@@ -16,13 +16,16 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * An abstract base class for Z-Wave nodes. This allows common handling of "top-level" nodes as well as
  * multi-channel endpoint nodes.
  *
+ * Command classes are added as the node is interviewed, so they are kept in a concurrent map that can be read from
+ * any thread.
+ *
  * @author Dan Noguerol
  */
 abstract public class ZWaveEndpoint {
@@ -31,7 +34,7 @@ abstract public class ZWaveEndpoint {
     private byte nodeId;
     private Byte genericDeviceClass;
     private Byte specificDeviceClass;
-    private final Map<Byte,CommandClass> commandClassMap = new HashMap<>();
+    private final Map<Byte,CommandClass> commandClassMap = new ConcurrentHashMap<>();
 
     public ZWaveEndpoint(byte nodeId, Byte genericDeviceClass, Byte specificDeviceClass) {
         this.nodeId = nodeId;
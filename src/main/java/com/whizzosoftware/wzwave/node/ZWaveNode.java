@@ -11,6 +11,7 @@ package com.whizzosoftware.wzwave.node;
 
 import com.whizzosoftware.wzwave.channel.event.NodeSleepChangeEvent;
 import com.whizzosoftware.wzwave.commandclass.*;
+import com.whizzosoftware.wzwave.controller.PrioritizedZWaveControllerContext;
 import com.whizzosoftware.wzwave.controller.ZWaveControllerContext;
 import com.whizzosoftware.wzwave.frame.*;
 import com.whizzosoftware.wzwave.persist.PersistenceContext;
@@ -30,16 +31,20 @@ abstract public class ZWaveNode extends ZWaveEndpoint {
 
     private Byte basicDeviceClass;
     private boolean isListeningNode;
-    private ZWaveNodeState nodeState;
+    /**
+     * The node state, sleeping and availability flags change on the controller's event loop after the node has been
+     * published to other threads, so they are volatile.
+     */
+    private volatile ZWaveNodeState nodeState;
     /**
      * Indicates whether a non-listening node is sleeping.
      */
-    private boolean sleeping;
+    private volatile boolean sleeping;
     /**
      * Indicates that the node is available. This means it is either a listening node and has been contacted recently
      * or is a sleeping node and has checked in before its wakeup interval has expired.
      */
-    private Boolean available;
+    private volatile Boolean available;
     private int stateRetries;
     /**
      * Indicates whether the Version command class has sent its startup messages
@@ -192,7 +197,12 @@ abstract public class ZWaveNode extends ZWaveEndpoint {
     }
 
     protected void sendDataFrame(ZWaveControllerContext context, DataFrame frame) {
-        context.sendDataFrame(frame, isListeningNode());
+        if (context instanceof PrioritizedZWaveControllerContext) {
+            // anything sent before the node has finished starting is part of its interview
+            ((PrioritizedZWaveControllerContext)context).sendDataFrame(frame, isListeningNode(), (nodeState == ZWaveNodeState.Started) ? FramePriority.NORMAL : FramePriority.INTERVIEW);
+        } else {
+            context.sendDataFrame(frame, isListeningNode());
+        }
         if (nodeState == ZWaveNodeState.RetrieveStateSent) {
             pendingStatusResponses++;
         }
@@ -0,0 +1,27 @@
+/*
+ *******************************************************************************
+ * Copyright (c) 2019 Whizzo Software, LLC.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************
+*/
+package com.whizzosoftware.wzwave.persist;
+
+/**
+ * A persistent store that can hold nodes for more than one Z-Wave network.
+ *
+ * @author Dan Noguerol
+ */
+public interface PartitionedPersistentStore extends PersistentStore {
+    /**
+     * Returns a view of the store containing only the nodes of a single Z-Wave network. Closing the view has no
+     * effect on the underlying store.
+     *
+     * @param homeId the home ID of the network
+     *
+     * @return a PersistentStore instance
+     */
+    PersistentStore getPartition(int homeId);
+}
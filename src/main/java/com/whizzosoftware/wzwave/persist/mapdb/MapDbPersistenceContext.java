@@ -21,20 +21,32 @@ import java.util.Map;
  */
 public class MapDbPersistenceContext implements PersistenceContext {
     private DB db;
+    private String keyPrefix;
 
     public MapDbPersistenceContext(DB db) {
+        this(db, "");
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param db the database
+     * @param keyPrefix a prefix applied to all map names so that several networks can share one database
+     */
+    public MapDbPersistenceContext(DB db, String keyPrefix) {
         this.db = db;
+        this.keyPrefix = keyPrefix;
     }
 
     @Override
     public Map<String, Object> getNodeMap(int nodeId) {
-        String key = Integer.toString(nodeId);
+        String key = keyPrefix + Integer.toString(nodeId);
         return db.createHashMap(key).makeOrGet();
     }
 
     @Override
     public Map<String, Object> getCommandClassMap(int nodeId, int commandClassId) {
-        String key = nodeId + "." + commandClassId;
+        String key = keyPrefix + nodeId + "." + commandClassId;
         return db.createHashMap(key).makeOrGet();
     }
 }
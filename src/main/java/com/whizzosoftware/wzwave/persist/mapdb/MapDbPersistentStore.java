@@ -13,6 +13,7 @@ import com.whizzosoftware.wzwave.node.NodeCreationException;
 import com.whizzosoftware.wzwave.node.NodeListener;
 import com.whizzosoftware.wzwave.node.ZWaveNode;
 import com.whizzosoftware.wzwave.node.ZWaveNodeFactory;
+import com.whizzosoftware.wzwave.persist.PartitionedPersistentStore;
 import com.whizzosoftware.wzwave.persist.PersistentStore;
 import org.mapdb.DB;
 import org.mapdb.DBMaker;
@@ -24,7 +25,7 @@ import java.io.File;
  *
  * @author Dan Noguerol
  */
-public class MapDbPersistentStore implements PersistentStore {
+public class MapDbPersistentStore implements PartitionedPersistentStore {
     private DB db;
 
     public MapDbPersistentStore(File dataDirectory) {
@@ -50,4 +51,36 @@ public class MapDbPersistentStore implements PersistentStore {
     public void close() {
         db.close();
     }
+
+    @Override
+    public PersistentStore getPartition(int homeId) {
+        return new Partition(String.format("%08x/", homeId));
+    }
+
+    /**
+     * A view of the store that only sees nodes belonging to one Z-Wave network.
+     */
+    private class Partition implements PersistentStore {
+        private String keyPrefix;
+
+        Partition(String keyPrefix) {
+            this.keyPrefix = keyPrefix;
+        }
+
+        @Override
+        public ZWaveNode getNode(byte nodeId, NodeListener listener) throws NodeCreationException {
+            return ZWaveNodeFactory.createNode(new MapDbPersistenceContext(db, keyPrefix), nodeId, listener);
+        }
+
+        @Override
+        public void saveNode(ZWaveNode node) {
+            node.save(new MapDbPersistenceContext(db, keyPrefix));
+            db.commit();
+        }
+
+        @Override
+        public void close() {
+            // the underlying store is shared so it is closed by its owner
+        }
+    }
 }
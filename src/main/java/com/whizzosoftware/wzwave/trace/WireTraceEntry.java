@@ -0,0 +1,60 @@
+/*
+ *******************************************************************************
+ * Copyright (c) 2019 Whizzo Software, LLC.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************
+*/
+package com.whizzosoftware.wzwave.trace;
+
+import com.whizzosoftware.wzwave.util.ByteUtil;
+
+/**
+ * A single record read from a wire trace capture file.
+ *
+ * @author Dan Noguerol
+ */
+public class WireTraceEntry {
+    private long time;
+    private long nanoTime;
+    private byte direction;
+    private byte[] data;
+
+    public WireTraceEntry(long time, long nanoTime, byte direction, byte[] data) {
+        this.time = time;
+        this.nanoTime = nanoTime;
+        this.direction = direction;
+        this.data = data;
+    }
+
+    /**
+     * Returns the wall clock time of the record.
+     *
+     * @return milliseconds since the epoch
+     */
+    public long getTime() {
+        return time;
+    }
+
+    public long getNanoTime() {
+        return nanoTime;
+    }
+
+    public byte getDirection() {
+        return direction;
+    }
+
+    public boolean isReceived() {
+        return (direction == WireTraceRecorder.DIRECTION_RX);
+    }
+
+    public byte[] getData() {
+        return data;
+    }
+
+    public String toString() {
+        return (isReceived() ? "RX " : "TX ") + nanoTime + ": " + ByteUtil.createString(data, data.length);
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ *******************************************************************************
+ * Copyright (c) 2019 Whizzo Software, LLC.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************
+*/
+package com.whizzosoftware.wzwave.trace;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reads capture files written by WireTraceRecorder.
+ *
+ * @author Dan Noguerol
+ */
+public class WireTraceReader {
+    /**
+     * Reads all records from a capture file.
+     *
+     * @param file the capture file
+     *
+     * @return a List of WireTraceEntry instances in the order they were recorded
+     *
+     * @throws IOException on failure or if the file is not a valid capture file
+     */
+    public static List<WireTraceEntry> read(File file) throws IOException {
+        InputStream is = new BufferedInputStream(new FileInputStream(file));
+        try {
+            return read(is);
+        } finally {
+            is.close();
+        }
+    }
+
+    /**
+     * Reads all records from a stream in capture file format.
+     *
+     * @param is the stream to read from
+     *
+     * @return a List of WireTraceEntry instances in the order they were recorded
+     *
+     * @throws IOException on failure or if the stream is not in capture file format
+     */
+    public static List<WireTraceEntry> read(InputStream is) throws IOException {
+        DataInputStream dis = new DataInputStream(is);
+
+        byte[] magic = new byte[WireTraceRecorder.MAGIC.length];
+        dis.readFully(magic);
+        if (!Arrays.equals(magic, WireTraceRecorder.MAGIC)) {
+            throw new IOException("Not a wire trace capture file");
+        }
+        byte version = dis.readByte();
+        if (version != WireTraceRecorder.VERSION) {
+            throw new IOException("Unsupported wire trace capture version: " + version);
+        }
+        long baseMillis = dis.readLong();
+        long baseNanos = dis.readLong();
+        int count = dis.readInt();
+
+        List<WireTraceEntry> entries = new ArrayList<>(count);
+        for (int i=0; i < count; i++) {
+            long nanoTime = dis.readLong();
+            byte direction = dis.readByte();
+            byte[] data = new byte[dis.readUnsignedByte()];
+            dis.readFully(data);
+            entries.add(new WireTraceEntry(baseMillis + (nanoTime - baseNanos) / 1000000, nanoTime, direction, data));
+        }
+        return entries;
+    }
+}
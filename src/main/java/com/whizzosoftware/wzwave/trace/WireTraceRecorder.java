@@ -0,0 +1,218 @@
+/*
+ *******************************************************************************
+ * Copyright (c) 2019 Whizzo Software, LLC.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************
+*/
+package com.whizzosoftware.wzwave.trace;
+
+import io.netty.buffer.ByteBuf;
+
+import java.io.*;
+
+/**
+ * Records raw bytes sent to and received from the Z-Wave controller into a pre-allocated ring buffer so that recent
+ * serial traffic can be examined after the fact. Recording does not allocate; once the buffer is full the oldest
+ * records are overwritten.
+ *
+ * Each record holds up to MAX_RECORD_LENGTH bytes. Larger reads or writes are split across consecutive records with
+ * the same timestamp and direction.
+ *
+ * The recording thread (the channel's event loop) only holds the recorder's lock while it writes a record. Readers
+ * copy the ring in short batches so that writing a capture never holds the recording thread up for long.
+ *
+ * The capture file written by writeTo() is big-endian and laid out as follows:
+ *
+ * <pre>
+ * header: magic "WZWT" (4 bytes), version (1 byte), base wall clock millis (8 bytes), base nano time (8 bytes),
+ *         record count (4 bytes)
+ * record: nano time (8 bytes), direction (1 byte, 0 = RX, 1 = TX), length (1 byte, unsigned), data (length bytes)
+ * </pre>
+ *
+ * A record's wall clock time is base millis + (nano time - base nano time) / 1,000,000. WireTraceReader can be used
+ * to read capture files back.
+ *
+ * @author Dan Noguerol
+ */
+public class WireTraceRecorder {
+    public static final byte DIRECTION_RX = 0;
+    public static final byte DIRECTION_TX = 1;
+
+    public static final int DEFAULT_RECORD_COUNT = 4096;
+    public static final int MAX_RECORD_LENGTH = 64;
+
+    static final byte[] MAGIC = new byte[] {'W', 'Z', 'W', 'T'};
+    static final byte VERSION = 1;
+
+    /**
+     * The number of records writeTo() copies per acquisition of the lock.
+     */
+    static final int COPY_BATCH_SIZE = 256;
+
+    private final int capacity;
+    private final long[] timestamps;
+    private final byte[] directions;
+    private final byte[] lengths;
+    private final byte[] data;
+    private final long baseMillis;
+    private final long baseNanos;
+    private long recordCount;
+    private long clearedCount;
+    private volatile boolean enabled = true;
+
+    /**
+     * Constructor that uses the default ring buffer size.
+     */
+    public WireTraceRecorder() {
+        this(DEFAULT_RECORD_COUNT);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param capacity the number of records the ring buffer can hold
+     */
+    public WireTraceRecorder(int capacity) {
+        this.capacity = capacity;
+        this.timestamps = new long[capacity];
+        this.directions = new byte[capacity];
+        this.lengths = new byte[capacity];
+        this.data = new byte[capacity * MAX_RECORD_LENGTH];
+        this.baseMillis = System.currentTimeMillis();
+        this.baseNanos = System.nanoTime();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns the number of records currently held in the ring buffer.
+     *
+     * @return an int
+     */
+    public synchronized int getRecordCount() {
+        return (int)Math.min(recordCount - clearedCount, capacity);
+    }
+
+    /**
+     * Records the readable bytes of a buffer without consuming them.
+     *
+     * @param direction DIRECTION_RX or DIRECTION_TX
+     * @param buf the buffer
+     */
+    public void record(byte direction, ByteBuf buf) {
+        if (enabled) {
+            record(direction, buf, buf.readerIndex(), buf.readableBytes());
+        }
+    }
+
+    private synchronized void record(byte direction, ByteBuf buf, int index, int length) {
+        long now = System.nanoTime();
+        int offset = 0;
+        while (offset < length) {
+            int slot = (int)(recordCount % capacity);
+            int len = Math.min(MAX_RECORD_LENGTH, length - offset);
+            timestamps[slot] = now;
+            directions[slot] = direction;
+            lengths[slot] = (byte)len;
+            buf.getBytes(index + offset, data, slot * MAX_RECORD_LENGTH, len);
+            offset += len;
+            recordCount++;
+        }
+    }
+
+    /**
+     * Discards all records.
+     */
+    public synchronized void clear() {
+        clearedCount = recordCount;
+    }
+
+    /**
+     * Writes the current contents of the ring buffer to a capture file.
+     *
+     * @param file the file to write
+     *
+     * @throws IOException on failure
+     */
+    public void writeTo(File file) throws IOException {
+        OutputStream os = new BufferedOutputStream(new FileOutputStream(file));
+        try {
+            writeTo(os);
+        } finally {
+            os.close();
+        }
+    }
+
+    /**
+     * Writes the current contents of the ring buffer in capture file format. The records are copied newest first in
+     * batches of COPY_BATCH_SIZE, each under the lock; records the recording thread overwrote between batches are left
+     * out.
+     *
+     * @param os the stream to write to
+     *
+     * @throws IOException on failure
+     */
+    public void writeTo(OutputStream os) throws IOException {
+        long end;
+        long start;
+        synchronized (this) {
+            end = recordCount;
+            start = Math.max(clearedCount, end - capacity);
+        }
+        int n = (int)(end - start);
+        long[] ts = new long[n];
+        byte[] dirs = new byte[n];
+        byte[] lens = new byte[n];
+        byte[] d = new byte[n * MAX_RECORD_LENGTH];
+
+        long first = end;
+        while (first > start) {
+            synchronized (this) {
+                // anything older has been overwritten since the copy started
+                long oldest = Math.max(start, recordCount - capacity);
+                if (first <= oldest) {
+                    break;
+                }
+                long from = Math.max(oldest, first - COPY_BATCH_SIZE);
+                for (long seq = from; seq < first; seq++) {
+                    int slot = (int)(seq % capacity);
+                    int i = (int)(seq - start);
+                    ts[i] = timestamps[slot];
+                    dirs[i] = directions[slot];
+                    lens[i] = lengths[slot];
+                    System.arraycopy(data, slot * MAX_RECORD_LENGTH, d, i * MAX_RECORD_LENGTH, MAX_RECORD_LENGTH);
+                }
+                first = from;
+            }
+        }
+        int count = (int)(end - first);
+
+        DataOutputStream dos = new DataOutputStream(os);
+        dos.write(MAGIC);
+        dos.writeByte(VERSION);
+        dos.writeLong(baseMillis);
+        dos.writeLong(baseNanos);
+        dos.writeInt(count);
+        for (int i=(int)(first - start); i < n; i++) {
+            int len = lens[i] & 0xFF;
+            dos.writeLong(ts[i]);
+            dos.writeByte(dirs[i]);
+            dos.writeByte(len);
+            dos.write(d, i * MAX_RECORD_LENGTH, len);
+        }
+        dos.flush();
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ *******************************************************************************
+ * Copyright (c) 2019 Whizzo Software, LLC.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************
+*/
+package com.whizzosoftware.wzwave.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free histogram of latency values recorded in nanoseconds. Like an HDR histogram, values are counted in
+ * log-linear buckets: each power of two is split into eight equally sized sub-buckets. Recording never allocates and
+ * percentiles are accurate to within 12.5%.
+ *
+ * @author Dan Noguerol
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKET_COUNT = SUB_BUCKET_COUNT + (63 - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records a latency value.
+     *
+     * @param nanos the latency in nanoseconds
+     */
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        buckets.incrementAndGet(getBucketIndex(nanos));
+        count.incrementAndGet();
+        long m = max.get();
+        while (nanos > m && !max.compareAndSet(m, nanos)) {
+            m = max.get();
+        }
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * Returns the largest value recorded.
+     *
+     * @param unit the unit to return the value in
+     *
+     * @return a long
+     */
+    public long getMax(TimeUnit unit) {
+        return unit.convert(max.get(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns an upper bound for the value at a given percentile.
+     *
+     * @param percentile the percentile (0.0 - 100.0)
+     * @param unit the unit to return the value in
+     *
+     * @return a long (or 0 if no values have been recorded)
+     */
+    public long getPercentile(double percentile, TimeUnit unit) {
+        long total = count.get();
+        if (total == 0) {
+            return 0;
+        }
+        long target = (long)Math.ceil(total * percentile / 100.0);
+        long seen = 0;
+        for (int i=0; i < BUCKET_COUNT; i++) {
+            seen += buckets.get(i);
+            if (seen >= Math.max(target, 1)) {
+                return unit.convert(Math.min(getBucketUpperBound(i), max.get()), TimeUnit.NANOSECONDS);
+            }
+        }
+        return getMax(unit);
+    }
+
+    /**
+     * Returns a copy of the histogram's current values. Values recorded while the copy is made may or may not be
+     * included in it.
+     *
+     * @return a new LatencyHistogram
+     */
+    public LatencyHistogram copy() {
+        LatencyHistogram h = new LatencyHistogram();
+        long total = 0;
+        for (int i=0; i < BUCKET_COUNT; i++) {
+            long n = buckets.get(i);
+            h.buckets.set(i, n);
+            total += n;
+        }
+        h.count.set(total);
+        h.max.set(max.get());
+        return h;
+    }
+
+    /**
+     * Discards all recorded values.
+     */
+    public void reset() {
+        for (int i=0; i < BUCKET_COUNT; i++) {
+            buckets.set(i, 0);
+        }
+        count.set(0);
+        max.set(0);
+    }
+
+    static int getBucketIndex(long nanos) {
+        if (nanos < SUB_BUCKET_COUNT) {
+            return (int)nanos;
+        }
+        // the sub-bucket is given by the bits that follow the highest one bit
+        int shift = 63 - Long.numberOfLeadingZeros(nanos) - SUB_BUCKET_BITS;
+        return SUB_BUCKET_COUNT + shift * SUB_BUCKET_COUNT + (int)((nanos >>> shift) & (SUB_BUCKET_COUNT - 1));
+    }
+
+    static long getBucketUpperBound(int ix) {
+        if (ix < SUB_BUCKET_COUNT) {
+            return ix;
+        }
+        int shift = (ix - SUB_BUCKET_COUNT) / SUB_BUCKET_COUNT;
+        long sub = (ix - SUB_BUCKET_COUNT) % SUB_BUCKET_COUNT;
+        long lower = (1L << (shift + SUB_BUCKET_BITS)) | (sub << shift);
+        return lower + (1L << shift) - 1;
+    }
+
+    public String toString() {
+        return "count=" + getCount() +
+            ", p50=" + getPercentile(50, TimeUnit.MICROSECONDS) + "us" +
+            ", p99=" + getPercentile(99, TimeUnit.MICROSECONDS) + "us" +
+            ", max=" + getMax(TimeUnit.MICROSECONDS) + "us";
+    }
+}
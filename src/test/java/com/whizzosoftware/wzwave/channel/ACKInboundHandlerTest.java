@@ -0,0 +1,46 @@
+/*
+ *******************************************************************************
+ * Copyright (c) 2019 Whizzo Software, LLC.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************
+*/
+package com.whizzosoftware.wzwave.channel;
+
+import com.whizzosoftware.wzwave.frame.ACK;
+import com.whizzosoftware.wzwave.frame.Version;
+import io.netty.buffer.ByteBuf;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ACKInboundHandlerTest {
+    @Test
+    public void testDataFrameIsACKed() {
+        ACKInboundHandler h = new ACKInboundHandler();
+        MockChannelHandlerContext ctx = new MockChannelHandlerContext();
+        Version v = new Version();
+        v.setReceiveTime(System.nanoTime());
+        h.channelRead(ctx, v);
+
+        // a pre-encoded ACK should be written directly from the handler context
+        assertEquals(1, ctx.getWriteQueue().size());
+        assertTrue(ctx.getWriteQueue().get(0) instanceof ByteBuf);
+        ByteBuf buf = (ByteBuf)ctx.getWriteQueue().get(0);
+        assertEquals(1, buf.readableBytes());
+        assertEquals(ACK.ID, buf.getByte(buf.readerIndex()));
+        assertEquals(1, h.getLatencyHistogram().getCount());
+    }
+
+    @Test
+    public void testACKIsNotACKed() {
+        ACKInboundHandler h = new ACKInboundHandler();
+        MockChannelHandlerContext ctx = new MockChannelHandlerContext();
+        h.channelRead(ctx, ACK.INSTANCE);
+        assertEquals(0, ctx.getWriteQueue().size());
+        assertEquals(0, h.getLatencyHistogram().getCount());
+    }
+}
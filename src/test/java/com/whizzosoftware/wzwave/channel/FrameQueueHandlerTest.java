@@ -15,14 +15,28 @@ import com.whizzosoftware.wzwave.channel.event.*;
 import com.whizzosoftware.wzwave.commandclass.BasicCommandClass;
 import com.whizzosoftware.wzwave.commandclass.BinarySwitchCommandClass;
 import com.whizzosoftware.wzwave.commandclass.MeterCommandClass;
+import com.whizzosoftware.wzwave.commandclass.MultilevelSwitchCommandClass;
+import com.whizzosoftware.wzwave.commandclass.VersionCommandClass;
 import com.whizzosoftware.wzwave.frame.DataFrame;
+import com.whizzosoftware.wzwave.frame.FramePriority;
 import com.whizzosoftware.wzwave.frame.OutboundDataFrame;
+import com.whizzosoftware.wzwave.frame.SendData;
 import com.whizzosoftware.wzwave.frame.Version;
+import com.whizzosoftware.wzwave.frame.transaction.DefaultRetryPolicy;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.DefaultChannelPromise;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.concurrent.ImmediateEventExecutor;
+import io.netty.util.concurrent.Promise;
 import org.junit.Test;
 
+import java.util.concurrent.TimeUnit;
+
 import static junit.framework.TestCase.assertTrue;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 
 public class FrameQueueHandlerTest {
     @Test
@@ -70,7 +84,7 @@ public class FrameQueueHandlerTest {
         assertFalse(h.hasWakeupFrames((byte)0x02));
         assertFalse(h.hasTransaction());
 
-        h.write(ctx, new TransactionStartedEvent(""), null);
+        h.write(ctx, new TransactionStartedEvent(1), null);
         assertTrue(h.hasTransaction());
 
         h.write(ctx, new OutboundDataFrame(new Version(), false), null);
@@ -79,16 +93,16 @@ public class FrameQueueHandlerTest {
         assertFalse(h.hasWakeupFrames((byte)0x02));
         assertTrue(h.hasTransaction());
 
-        h.write(ctx, new TransactionCompletedEvent("", null), null);
+        h.write(ctx, new TransactionCompletedEvent(1, null), null);
         assertEquals(2, ctx.getWriteQueue().size());
         assertTrue(h.hasPendingFrames());
         assertFalse(h.hasWakeupFrames((byte)0x02));
         assertFalse(h.hasTransaction());
 
-        h.write(ctx, new TransactionStartedEvent(""), null);
+        h.write(ctx, new TransactionStartedEvent(1), null);
         assertTrue(h.hasTransaction());
 
-        h.write(ctx, new SendDataTransactionFailedEvent("", sbg, (byte)0x02, false, false), null);
+        h.write(ctx, new SendDataTransactionFailedEvent(1, sbg, (byte)0x02, false, false), null);
         assertEquals(3, ctx.getWriteQueue().size());
         assertFalse(h.hasPendingFrames());
         assertTrue(h.hasWakeupFrames((byte)0x02));
@@ -102,10 +116,10 @@ public class FrameQueueHandlerTest {
         MockChannelHandlerContext ctx = new MockChannelHandlerContext();
         FrameQueueHandler h = new FrameQueueHandler();
         h.write(ctx, new OutboundDataFrame(df, true), null);
-        h.write(ctx, new TransactionStartedEvent(""), null);
+        h.write(ctx, new TransactionStartedEvent(1), null);
         assertEquals(1, ctx.getWriteQueue().size());
         assertEquals(0, h.getWakeupQueueSize((byte)0x02));
-        h.write(ctx, new TransactionFailedEvent("", df, (byte)0x02), null);
+        h.write(ctx, new TransactionFailedEvent(1, df, (byte)0x02), null);
         assertEquals(1, ctx.getWriteQueue().size());
         assertEquals(0, h.getWakeupQueueSize((byte)0x02));
     }
@@ -116,10 +130,10 @@ public class FrameQueueHandlerTest {
         MockChannelHandlerContext ctx = new MockChannelHandlerContext();
         FrameQueueHandler h = new FrameQueueHandler();
         h.write(ctx, new OutboundDataFrame(df, false), null);
-        h.write(ctx, new TransactionStartedEvent(""), null);
+        h.write(ctx, new TransactionStartedEvent(1), null);
         assertEquals(1, ctx.getWriteQueue().size());
         assertEquals(0, h.getWakeupQueueSize((byte)0x02));
-        h.write(ctx, new SendDataTransactionFailedEvent("", df, (byte)0x02, false, false), null);
+        h.write(ctx, new SendDataTransactionFailedEvent(1, df, (byte)0x02, false, false), null);
         assertEquals(1, ctx.getWriteQueue().size());
         assertEquals(1, h.getWakeupQueueSize((byte)0x02));
     }
@@ -138,8 +152,8 @@ public class FrameQueueHandlerTest {
         assertEquals(0, h.getWakeupQueueSize((byte)0x02));
 
         // initiate a new transaction
-        df.setTransactionId("aaa");
-        h.write(ctx, new TransactionStartedEvent("aaa"), null);
+        df.setTransactionId(2);
+        h.write(ctx, new TransactionStartedEvent(2), null);
         assertEquals(1, ctx.getWriteQueue().size());
         assertEquals(0, h.getWakeupQueueSize((byte)0x02));
 
@@ -148,4 +162,271 @@ public class FrameQueueHandlerTest {
         h.write(ctx, new OutboundDataFrame(df, true), null);
         assertEquals(2, ctx.getWriteQueue().size());
     }
+
+    @Test
+    public void testInteractiveFrameSentBeforeQueuedInterviewFrames() throws Exception {
+        MockChannelHandlerContext ctx = new MockChannelHandlerContext();
+        FrameQueueHandler h = new FrameQueueHandler();
+        h.write(ctx, new OutboundDataFrame(new Version(), true), null);
+        h.write(ctx, new TransactionStartedEvent(1), null);
+        assertEquals(1, ctx.getWriteQueue().size());
+
+        // queue up interview traffic followed by a user command
+        for (int i=0; i < 3; i++) {
+            h.write(ctx, new OutboundDataFrame(new VersionCommandClass().createCommandClassGet((byte)0x03, (byte)(0x20 + i)), true, FramePriority.INTERVIEW), null);
+        }
+        DataFrame set = new BinarySwitchCommandClass().createSet((byte)0x02, true);
+        h.write(ctx, new OutboundDataFrame(set, true, FramePriority.INTERACTIVE), null);
+        assertEquals(3, h.getPendingFrameCount(FramePriority.INTERVIEW));
+        assertEquals(1, h.getPendingFrameCount(FramePriority.INTERACTIVE));
+
+        // the user command should go out as soon as the current transaction completes
+        h.write(ctx, new TransactionCompletedEvent(1, null), null);
+        assertEquals(2, ctx.getWriteQueue().size());
+        assertSame(set, ctx.getWriteQueue().get(1));
+        assertEquals(0, h.getPendingFrameCount(FramePriority.INTERACTIVE));
+    }
+
+    @Test
+    public void testSendQueueCoalescing() throws Exception {
+        MockChannelHandlerContext ctx = new MockChannelHandlerContext();
+        FrameQueueHandler h = new FrameQueueHandler();
+        h.write(ctx, new OutboundDataFrame(new Version(), true), null);
+        h.write(ctx, new TransactionStartedEvent(1), null);
+
+        // a burst of level changes while a transaction is in progress
+        MultilevelSwitchCommandClass mlcc = new MultilevelSwitchCommandClass();
+        DataFrame last = null;
+        for (int i=0; i < 10; i++) {
+            last = mlcc.createSet((byte)0x02, (byte)(i * 10));
+            h.write(ctx, new OutboundDataFrame(last, true, FramePriority.INTERACTIVE), null);
+        }
+        assertEquals(1, h.getPendingFrameCount(FramePriority.INTERACTIVE));
+
+        h.write(ctx, new TransactionCompletedEvent(1, null), null);
+        assertEquals(2, ctx.getWriteQueue().size());
+        assertSame(last, ctx.getWriteQueue().get(1));
+        assertFalse(h.hasPendingFrames());
+    }
+
+    @Test
+    public void testWakeupQueueCoalescing() throws Exception {
+        MockChannelHandlerContext ctx = new MockChannelHandlerContext();
+        FrameQueueHandler h = new FrameQueueHandler();
+        h.write(ctx, new NodeSleepChangeEvent((byte)0x02, true), null);
+
+        MultilevelSwitchCommandClass mlcc = new MultilevelSwitchCommandClass();
+        DataFrame last = mlcc.createSet((byte)0x02, (byte)0x30);
+        h.write(ctx, new OutboundDataFrame(mlcc.createSet((byte)0x02, (byte)0x10), false), null);
+        h.write(ctx, new OutboundDataFrame(new BasicCommandClass().createGet((byte)0x02), false), null);
+        h.write(ctx, new OutboundDataFrame(mlcc.createSet((byte)0x02, (byte)0x20), false), null);
+        h.write(ctx, new OutboundDataFrame(new BasicCommandClass().createGet((byte)0x02), false), null);
+        h.write(ctx, new OutboundDataFrame(last, false), null);
+        assertEquals(2, h.getWakeupQueueSize((byte)0x02));
+
+        // the failed start frame of an older SET is discarded since a newer one is waiting
+        h.write(ctx, new SendDataTransactionFailedEvent(1, mlcc.createSet((byte)0x02, (byte)0x05), (byte)0x02, false, false), null);
+        assertEquals(2, h.getWakeupQueueSize((byte)0x02));
+
+        // the frames are sent in their original order with the latest SET value
+        h.write(ctx, new NodeSleepChangeEvent((byte)0x02, false), null);
+        assertEquals(1, ctx.getWriteQueue().size());
+        assertSame(last, ctx.getWriteQueue().get(0));
+        h.write(ctx, new TransactionStartedEvent(1), null);
+        h.write(ctx, new TransactionCompletedEvent(1, null), null);
+        assertEquals(2, ctx.getWriteQueue().size());
+        assertEquals("BASIC_GET", ((SendData)ctx.getWriteQueue().get(1)).getName());
+    }
+
+    @Test
+    public void testExpiredFrameDiscardedBeforeSend() throws Exception {
+        MockChannelHandlerContext ctx = new MockChannelHandlerContext();
+        FrameQueueHandler h = new FrameQueueHandler();
+        h.write(ctx, new OutboundDataFrame(new Version(), true), null);
+        h.write(ctx, new TransactionStartedEvent(1), null);
+
+        ChannelPromise expiredPromise = new DefaultChannelPromise(null, ImmediateEventExecutor.INSTANCE);
+        h.write(ctx, new OutboundDataFrame(new BasicCommandClass().createGet((byte)0x02), true, FramePriority.NORMAL, System.nanoTime() - 1), expiredPromise);
+        DataFrame live = new BasicCommandClass().createGet((byte)0x03);
+        h.write(ctx, new OutboundDataFrame(live, true, FramePriority.NORMAL, System.nanoTime() + TimeUnit.MINUTES.toNanos(1)), null);
+
+        h.write(ctx, new TransactionCompletedEvent(1, null), null);
+        assertEquals(2, ctx.getWriteQueue().size());
+        assertSame(live, ctx.getWriteQueue().get(1));
+        assertTrue(expiredPromise.cause() instanceof FrameExpiredException);
+        assertEquals(1, h.getExpiredFrameCount());
+    }
+
+    @Test
+    public void testWakeupQueueTimeToLive() throws Exception {
+        MockChannelHandlerContext ctx = new MockChannelHandlerContext();
+        FrameQueueHandler h = new FrameQueueHandler();
+        h.setWakeupQueueTimeToLive(1, TimeUnit.MILLISECONDS);
+        h.write(ctx, new NodeSleepChangeEvent((byte)0x02, true), null);
+
+        ChannelPromise promise = new DefaultChannelPromise(null, ImmediateEventExecutor.INSTANCE);
+        h.write(ctx, new OutboundDataFrame(new BasicCommandClass().createGet((byte)0x02), false), promise);
+        assertEquals(1, h.getWakeupQueueSize((byte)0x02));
+        Thread.sleep(5);
+
+        // the frame expired while the node was asleep so it's never sent
+        h.write(ctx, new NodeSleepChangeEvent((byte)0x02, false), null);
+        assertEquals(0, ctx.getWriteQueue().size());
+        assertFalse(h.hasPendingFrames());
+        assertTrue(promise.cause() instanceof FrameExpiredException);
+    }
+
+    @Test
+    public void testExpiryTimerRemovesWakeupFrames() throws Exception {
+        HashedWheelTimer timer = new HashedWheelTimer(10, TimeUnit.MILLISECONDS);
+        try {
+            FrameQueueHandler h = new FrameQueueHandler(timer);
+            EmbeddedChannel channel = new EmbeddedChannel(h);
+            channel.write(new NodeSleepChangeEvent((byte)0x02, true));
+            ChannelPromise promise = channel.newPromise();
+            channel.write(new OutboundDataFrame(new BasicCommandClass().createGet((byte)0x02), false, FramePriority.NORMAL, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(20)), promise);
+            assertEquals(1, h.getWakeupQueueSize((byte)0x02));
+
+            // the frame is removed from the wakeup queue once the timer fires
+            long end = System.currentTimeMillis() + 5000;
+            while (!promise.isDone() && System.currentTimeMillis() < end) {
+                Thread.sleep(10);
+                channel.runPendingTasks();
+            }
+            assertTrue(promise.cause() instanceof FrameExpiredException);
+            assertEquals(0, h.getWakeupQueueSize((byte)0x02));
+            assertEquals(1, h.getExpiredFrameCount());
+        } finally {
+            timer.stop();
+        }
+    }
+
+    @Test
+    public void testQueueCapacityReject() throws Exception {
+        MockChannelHandlerContext ctx = new MockChannelHandlerContext();
+        FrameQueueHandler h = new FrameQueueHandler();
+        h.setCapacity(2, Integer.MAX_VALUE, OverflowPolicy.REJECT);
+        h.write(ctx, new OutboundDataFrame(new Version(), true), null);
+        h.write(ctx, new TransactionStartedEvent(1), null);
+
+        h.write(ctx, new OutboundDataFrame(new BasicCommandClass().createGet((byte)0x02), true), null);
+        assertTrue(h.isWritable());
+        h.write(ctx, new OutboundDataFrame(new BasicCommandClass().createGet((byte)0x03), true), null);
+        assertFalse(h.isWritable());
+        QueueWritabilityChangedEvent evt = (QueueWritabilityChangedEvent)ctx.getUserEvents().get(ctx.getUserEvents().size() - 1);
+        assertFalse(evt.isWritable());
+
+        ChannelPromise promise = new DefaultChannelPromise(null, ImmediateEventExecutor.INSTANCE);
+        h.write(ctx, new OutboundDataFrame(new BasicCommandClass().createGet((byte)0x04), true), promise);
+        assertTrue(promise.cause() instanceof QueueFullException);
+        assertEquals(1, h.getDiscardedFrameCount());
+
+        // the queue becomes writable again once it has drained to half its capacity
+        h.write(ctx, new TransactionCompletedEvent(1, null), null);
+        assertTrue(h.isWritable());
+        evt = (QueueWritabilityChangedEvent)ctx.getUserEvents().get(ctx.getUserEvents().size() - 1);
+        assertTrue(evt.isWritable());
+    }
+
+    @Test
+    public void testUnavailableNodeFramesDiscarded() throws Exception {
+        MockChannelHandlerContext ctx = new MockChannelHandlerContext();
+        FrameQueueHandler h = new FrameQueueHandler();
+        DefaultRetryPolicy policy = new DefaultRetryPolicy();
+        policy.setCircuitBreaker(1, 1, TimeUnit.HOURS);
+        policy.onTransactionFailed(3);
+        h.setRetryPolicy(policy);
+        h.write(ctx, new OutboundDataFrame(new Version(), true), null);
+        h.write(ctx, new TransactionStartedEvent(1), null);
+
+        ChannelPromise promise = new DefaultChannelPromise(null, ImmediateEventExecutor.INSTANCE);
+        h.write(ctx, new OutboundDataFrame(new BasicCommandClass().createGet((byte)0x03), true), promise);
+        h.write(ctx, new OutboundDataFrame(new BasicCommandClass().createGet((byte)0x02), true), null);
+
+        // the frame for the unavailable node is skipped when the queue moves on
+        h.write(ctx, new TransactionCompletedEvent(1, null), null);
+        assertTrue(promise.cause() instanceof NodeUnavailableException);
+        assertEquals(1, h.getDiscardedFrameCount());
+        assertEquals(2, ctx.getWriteQueue().size());
+        assertEquals(0x02, ((SendData)ctx.getWriteQueue().get(1)).getNodeId());
+    }
+
+    @Test
+    public void testQueueCapacityDropOldest() throws Exception {
+        MockChannelHandlerContext ctx = new MockChannelHandlerContext();
+        FrameQueueHandler h = new FrameQueueHandler();
+        h.setCapacity(2, Integer.MAX_VALUE, OverflowPolicy.DROP_OLDEST);
+        h.write(ctx, new OutboundDataFrame(new Version(), true), null);
+        h.write(ctx, new TransactionStartedEvent(1), null);
+
+        ChannelPromise promise = new DefaultChannelPromise(null, ImmediateEventExecutor.INSTANCE);
+        h.write(ctx, new OutboundDataFrame(new BasicCommandClass().createGet((byte)0x02), true, FramePriority.POLLING), promise);
+        h.write(ctx, new OutboundDataFrame(new BasicCommandClass().createGet((byte)0x03), true), null);
+        DataFrame set = new BinarySwitchCommandClass().createSet((byte)0x04, true);
+        h.write(ctx, new OutboundDataFrame(set, true), null);
+
+        // the polling frame was dropped to make room
+        assertTrue(promise.cause() instanceof QueueFullException);
+        assertEquals(0, h.getPendingFrameCount(FramePriority.POLLING));
+        assertEquals(2, h.getPendingFrameCount(FramePriority.NORMAL));
+    }
+
+    @Test
+    public void testNodeQueueCapacity() throws Exception {
+        MockChannelHandlerContext ctx = new MockChannelHandlerContext();
+        FrameQueueHandler h = new FrameQueueHandler();
+        h.setCapacity(Integer.MAX_VALUE, 1, OverflowPolicy.REJECT);
+        h.write(ctx, new NodeSleepChangeEvent((byte)0x02, true), null);
+
+        h.write(ctx, new OutboundDataFrame(new BasicCommandClass().createGet((byte)0x02), false), null);
+        ChannelPromise promise = new DefaultChannelPromise(null, ImmediateEventExecutor.INSTANCE);
+        h.write(ctx, new OutboundDataFrame(new BinarySwitchCommandClass().createGet((byte)0x02), false), promise);
+        assertEquals(1, h.getWakeupQueueSize((byte)0x02));
+        assertTrue(promise.cause() instanceof QueueFullException);
+
+        // coalesced frames don't count against the capacity
+        h.write(ctx, new OutboundDataFrame(new BasicCommandClass().createGet((byte)0x02), false), null);
+        assertEquals(1, h.getWakeupQueueSize((byte)0x02));
+        assertEquals(1, h.getDiscardedFrameCount());
+    }
+
+    @Test
+    public void testResponsePromises() throws Exception {
+        MockChannelHandlerContext ctx = new MockChannelHandlerContext();
+        FrameQueueHandler h = new FrameQueueHandler();
+
+        // the response promise is handed along with the sent frame
+        Promise<DataFrame> sent = ImmediateEventExecutor.INSTANCE.newPromise();
+        h.write(ctx, new OutboundDataFrame(new BasicCommandClass().createGet((byte)0x02), true, FramePriority.NORMAL, 0, sent), null);
+        assertSame(sent, ((DataFrameSentEvent)ctx.getUserEvents().get(0)).getResponsePromise());
+        assertFalse(sent.isDone());
+        h.write(ctx, new TransactionStartedEvent(1), null);
+
+        // a coalesced frame completes the promise of the frame it superseded
+        MultilevelSwitchCommandClass mlcc = new MultilevelSwitchCommandClass();
+        Promise<DataFrame> superseded = ImmediateEventExecutor.INSTANCE.newPromise();
+        Promise<DataFrame> latest = ImmediateEventExecutor.INSTANCE.newPromise();
+        h.write(ctx, new OutboundDataFrame(mlcc.createSet((byte)0x03, (byte)0x10), true, FramePriority.NORMAL, 0, superseded), null);
+        h.write(ctx, new OutboundDataFrame(mlcc.createSet((byte)0x03, (byte)0x20), true, FramePriority.NORMAL, 0, latest), null);
+        h.write(ctx, new TransactionCompletedEvent(1, null), null);
+        assertSame(latest, ((DataFrameSentEvent)ctx.getUserEvents().get(1)).getResponsePromise());
+        // the handler fires the same (re-initialized) event for each sent frame
+        assertSame(ctx.getUserEvents().get(0), ctx.getUserEvents().get(1));
+        latest.setSuccess(null);
+        assertTrue(superseded.isSuccess());
+
+        // frames for sleeping nodes are queued and their promises failed
+        h.write(ctx, new NodeSleepChangeEvent((byte)0x04, true), null);
+        Promise<DataFrame> asleep = ImmediateEventExecutor.INSTANCE.newPromise();
+        h.write(ctx, new OutboundDataFrame(new BasicCommandClass().createGet((byte)0x04), false, FramePriority.NORMAL, 0, asleep), null);
+        assertTrue(asleep.cause() instanceof NodeSleepingException);
+        assertEquals(1, h.getWakeupQueueSize((byte)0x04));
+
+        // discarded frames fail their promises with the same cause as their writes
+        h.write(ctx, new TransactionStartedEvent(2), null);
+        Promise<DataFrame> expired = ImmediateEventExecutor.INSTANCE.newPromise();
+        h.write(ctx, new OutboundDataFrame(new BasicCommandClass().createGet((byte)0x02), true, FramePriority.NORMAL, System.nanoTime() - 1, expired), null);
+        h.write(ctx, new TransactionCompletedEvent(2, null), null);
+        assertTrue(expired.cause() instanceof FrameExpiredException);
+    }
 }
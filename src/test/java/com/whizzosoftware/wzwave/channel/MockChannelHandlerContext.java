@@ -77,7 +77,7 @@ public class MockChannelHandlerContext implements ChannelHandlerContext {
 
             @Override
             public boolean isWritable() {
-                return false;
+                return true;
             }
 
             @Override
@@ -0,0 +1,88 @@
+/*
+ *******************************************************************************
+ * Copyright (c) 2019 Whizzo Software, LLC.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************
+*/
+package com.whizzosoftware.wzwave.channel;
+
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+import io.netty.util.TimerTask;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A Timer that records the timeouts it was asked to schedule without ever firing them.
+ */
+public class MockTimer implements Timer {
+    private final List<MockTimeout> timeouts = new ArrayList<>();
+
+    public List<MockTimeout> getTimeouts() {
+        return timeouts;
+    }
+
+    public MockTimeout getLastTimeout() {
+        return timeouts.isEmpty() ? null : timeouts.get(timeouts.size() - 1);
+    }
+
+    @Override
+    public Timeout newTimeout(TimerTask task, long delay, TimeUnit unit) {
+        MockTimeout t = new MockTimeout(task, unit.toMillis(delay));
+        timeouts.add(t);
+        return t;
+    }
+
+    @Override
+    public Set<Timeout> stop() {
+        return Collections.emptySet();
+    }
+
+    public class MockTimeout implements Timeout {
+        private final TimerTask task;
+        private final long delay;
+        private boolean cancelled;
+
+        MockTimeout(TimerTask task, long delay) {
+            this.task = task;
+            this.delay = delay;
+        }
+
+        public long getDelay() {
+            return delay;
+        }
+
+        @Override
+        public Timer timer() {
+            return MockTimer.this;
+        }
+
+        @Override
+        public TimerTask task() {
+            return task;
+        }
+
+        @Override
+        public boolean isExpired() {
+            return false;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        @Override
+        public boolean cancel() {
+            cancelled = true;
+            return true;
+        }
+    }
+}
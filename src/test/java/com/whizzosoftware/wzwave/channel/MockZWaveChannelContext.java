@@ -9,14 +9,23 @@
 */
 package com.whizzosoftware.wzwave.channel;
 
+import com.whizzosoftware.wzwave.channel.event.SendDataTransactionCompletedEvent;
+import com.whizzosoftware.wzwave.channel.event.TransactionCompletedEvent;
+import com.whizzosoftware.wzwave.channel.event.TransactionStartedEvent;
+import com.whizzosoftware.wzwave.frame.DataFrame;
 import com.whizzosoftware.wzwave.frame.OutboundDataFrame;
+import com.whizzosoftware.wzwave.frame.transaction.DefaultRetryPolicy;
+import com.whizzosoftware.wzwave.frame.transaction.RetryPolicy;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 public class MockZWaveChannelContext implements ZWaveChannelContext {
     private final List<Object> writeQueue = new ArrayList<>();
     private final List<Object> userEvents = new ArrayList<>();
+    private final List<Long> writeDelays = new ArrayList<>();
+    private RetryPolicy retryPolicy = new DefaultRetryPolicy();
 
     public List<Object> getWriteQueue() {
         return writeQueue;
@@ -26,13 +35,47 @@ public class MockZWaveChannelContext implements ZWaveChannelContext {
         return userEvents;
     }
 
+    public List<Long> getWriteDelays() {
+        return writeDelays;
+    }
+
+    public void setRetryPolicy(RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+    }
+
     @Override
     public void fireEvent(Object o) {
         userEvents.add(o);
     }
 
+    @Override
+    public void fireTransactionStarted(long id) {
+        fireEvent(new TransactionStartedEvent(id));
+    }
+
+    @Override
+    public void fireTransactionCompleted(long id, DataFrame frame) {
+        fireEvent(new TransactionCompletedEvent(id, frame));
+    }
+
+    @Override
+    public void fireSendDataTransactionCompleted(long id, byte nodeId) {
+        fireEvent(new SendDataTransactionCompletedEvent(id, null, nodeId));
+    }
+
     @Override
     public void writeFrame(OutboundDataFrame f) {
+        writeFrame(f, 0, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void writeFrame(OutboundDataFrame f, long delay, TimeUnit unit) {
         writeQueue.add(f);
+        writeDelays.add(unit.toMillis(delay));
+    }
+
+    @Override
+    public RetryPolicy getRetryPolicy() {
+        return retryPolicy;
     }
 }
@@ -0,0 +1,84 @@
+/*
+ *******************************************************************************
+ * Copyright (c) 2019 Whizzo Software, LLC.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************
+*/
+package com.whizzosoftware.wzwave.channel;
+
+import com.whizzosoftware.wzwave.frame.transaction.TransactionPhase;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class RttEstimatorTest {
+    @Test
+    public void testDefaultTimeoutWithNoSamples() {
+        RttEstimator e = new RttEstimator();
+        assertEquals(2000, e.getTimeout(2, TransactionPhase.ACK, 2000));
+        assertEquals(0, e.getSmoothedRtt(2, TransactionPhase.ACK, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testFirstSample() {
+        RttEstimator e = new RttEstimator();
+        e.setTimeoutBounds(1, 10000, TimeUnit.MILLISECONDS);
+        e.addSample(2, TransactionPhase.REPORT, TimeUnit.MILLISECONDS.toNanos(100));
+        assertEquals(100, e.getSmoothedRtt(2, TransactionPhase.REPORT, TimeUnit.MILLISECONDS));
+        assertEquals(50, e.getRttVariation(2, TransactionPhase.REPORT, TimeUnit.MILLISECONDS));
+        // srtt + 4 * rttvar
+        assertEquals(300, e.getTimeout(2, TransactionPhase.REPORT, 2000));
+        // other nodes and phases are unaffected
+        assertEquals(2000, e.getTimeout(3, TransactionPhase.REPORT, 2000));
+        assertEquals(2000, e.getTimeout(2, TransactionPhase.CALLBACK, 2000));
+    }
+
+    @Test
+    public void testSmoothing() {
+        RttEstimator e = new RttEstimator();
+        e.setTimeoutBounds(1, 10000, TimeUnit.MILLISECONDS);
+        e.addSample(2, TransactionPhase.CALLBACK, TimeUnit.MILLISECONDS.toNanos(80));
+        e.addSample(2, TransactionPhase.CALLBACK, TimeUnit.MILLISECONDS.toNanos(160));
+        // srtt = 80 + (160 - 80) / 8, rttvar = 40 + (80 - 40) / 4
+        assertEquals(90, e.getSmoothedRtt(2, TransactionPhase.CALLBACK, TimeUnit.MILLISECONDS));
+        assertEquals(50, e.getRttVariation(2, TransactionPhase.CALLBACK, TimeUnit.MILLISECONDS));
+        assertEquals(290, e.getTimeout(2, TransactionPhase.CALLBACK, 2000));
+
+        // a steady RTT converges on a tight timeout
+        for (int i = 0; i < 100; i++) {
+            e.addSample(2, TransactionPhase.CALLBACK, TimeUnit.MILLISECONDS.toNanos(100));
+        }
+        assertEquals(100, e.getSmoothedRtt(2, TransactionPhase.CALLBACK, TimeUnit.MILLISECONDS), 1);
+        assertTrue(e.getTimeout(2, TransactionPhase.CALLBACK, 2000) < 110);
+    }
+
+    @Test
+    public void testTimeoutBounds() {
+        RttEstimator e = new RttEstimator();
+        e.setTimeoutBounds(250, 1000, TimeUnit.MILLISECONDS);
+        e.addSample(1, TransactionPhase.ACK, TimeUnit.MILLISECONDS.toNanos(2));
+        assertEquals(250, e.getTimeout(1, TransactionPhase.ACK, 2000));
+        e.addSample(5, TransactionPhase.REPORT, TimeUnit.SECONDS.toNanos(3));
+        assertEquals(1000, e.getTimeout(5, TransactionPhase.REPORT, 2000));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidTimeoutBounds() {
+        new RttEstimator().setTimeoutBounds(1000, 250, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    public void testReset() {
+        RttEstimator e = new RttEstimator();
+        e.addSample(5, TransactionPhase.ACK, TimeUnit.MILLISECONDS.toNanos(10));
+        e.addSample(6, TransactionPhase.ACK, TimeUnit.MILLISECONDS.toNanos(10));
+        e.reset(5);
+        assertEquals(2000, e.getTimeout(5, TransactionPhase.ACK, 2000));
+        assertEquals(250, e.getTimeout(6, TransactionPhase.ACK, 2000));
+    }
+}
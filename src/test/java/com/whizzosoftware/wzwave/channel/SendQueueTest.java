@@ -0,0 +1,279 @@
+/*
+ *******************************************************************************
+ * Copyright (c) 2019 Whizzo Software, LLC.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************
+*/
+package com.whizzosoftware.wzwave.channel;
+
+import com.whizzosoftware.wzwave.commandclass.BasicCommandClass;
+import com.whizzosoftware.wzwave.commandclass.MultilevelSwitchCommandClass;
+import com.whizzosoftware.wzwave.commandclass.VersionCommandClass;
+import com.whizzosoftware.wzwave.frame.FramePriority;
+import com.whizzosoftware.wzwave.frame.SendData;
+import com.whizzosoftware.wzwave.frame.Version;
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import static org.junit.Assert.*;
+
+public class SendQueueTest {
+    @Test
+    public void testPriorityOrder() {
+        SendQueue q = new SendQueue();
+        FrameWrite interview = write(FramePriority.INTERVIEW);
+        FrameWrite polling = write(FramePriority.POLLING);
+        FrameWrite normal = write(FramePriority.NORMAL);
+        FrameWrite interactive = write(FramePriority.INTERACTIVE);
+        q.add(interview);
+        q.add(polling);
+        q.add(normal);
+        q.add(interactive);
+        assertEquals(4, q.size());
+        assertSame(interactive, q.poll());
+        assertSame(normal, q.poll());
+        assertSame(polling, q.poll());
+        assertSame(interview, q.poll());
+        assertNull(q.poll());
+        assertTrue(q.isEmpty());
+    }
+
+    @Test
+    public void testAddFirstBypassesPriority() {
+        SendQueue q = new SendQueue();
+        FrameWrite interactive = write(FramePriority.INTERACTIVE);
+        FrameWrite continuation = write(FramePriority.INTERVIEW);
+        q.add(interactive);
+        q.addFirst(continuation);
+        assertSame(continuation, q.poll());
+        assertSame(interactive, q.poll());
+    }
+
+    @Test
+    public void testStarvationProtection() {
+        SendQueue q = new SendQueue(2);
+        FrameWrite interview = write(FramePriority.INTERVIEW);
+        q.add(interview);
+        for (int i=0; i < 10; i++) {
+            q.add(write(FramePriority.INTERACTIVE));
+        }
+
+        // the interview frame is passed over twice and then served
+        assertEquals(FramePriority.INTERACTIVE, q.poll().priority);
+        assertEquals(FramePriority.INTERACTIVE, q.poll().priority);
+        assertSame(interview, q.poll());
+        assertEquals(8, q.size(FramePriority.INTERACTIVE));
+        assertEquals(0, q.size(FramePriority.INTERVIEW));
+    }
+
+    @Test
+    public void testMoveFramesForNode() {
+        SendQueue q = new SendQueue();
+        q.add(new FrameWrite(new BasicCommandClass().createGet((byte)0x02), false, FramePriority.NORMAL, null));
+        q.add(new FrameWrite(new BasicCommandClass().createGet((byte)0x03), false, FramePriority.INTERVIEW, null));
+        q.addFirst(new FrameWrite(new BasicCommandClass().createGet((byte)0x02), false, FramePriority.POLLING, null));
+        q.add(write(FramePriority.NORMAL));
+
+        Deque<FrameWrite> dest = new ArrayDeque<>();
+        q.moveFramesForNode((byte)0x02, dest);
+        assertEquals(2, dest.size());
+        assertEquals(2, q.size());
+    }
+
+    @Test
+    public void testRoundRobinAcrossNodes() {
+        SendQueue q = new SendQueue();
+        for (int i=0; i < 5; i++) {
+            q.add(nodeWrite((byte)0x02));
+        }
+        q.add(nodeWrite((byte)0x03));
+        q.add(write(FramePriority.NORMAL));
+        q.add(nodeWrite((byte)0xE8));
+        assertEquals(5, q.size((byte)0x02));
+
+        // each node gets one frame per turn in the order they became active
+        assertEquals((byte)0x02, (byte)q.poll().getNodeId());
+        assertEquals((byte)0x03, (byte)q.poll().getNodeId());
+        assertNull(q.poll().getNodeId());
+        assertEquals((byte)0xE8, (byte)q.poll().getNodeId());
+        for (int i=0; i < 4; i++) {
+            assertEquals((byte)0x02, (byte)q.poll().getNodeId());
+        }
+        assertTrue(q.isEmpty());
+    }
+
+    @Test
+    public void testRoundRobinAfterMove() {
+        SendQueue q = new SendQueue();
+        q.add(nodeWrite((byte)0x02));
+        q.add(nodeWrite((byte)0x03));
+        q.add(nodeWrite((byte)0x04));
+        q.moveFramesForNode((byte)0x03, new ArrayDeque<FrameWrite>());
+        assertEquals(2, q.size());
+        assertEquals((byte)0x02, (byte)q.poll().getNodeId());
+        assertEquals((byte)0x04, (byte)q.poll().getNodeId());
+        assertNull(q.poll());
+    }
+
+    @Test
+    public void testCoalesceSet() {
+        SendQueue q = new SendQueue();
+        q.add(levelWrite((byte)0x02, (byte)0x10, FramePriority.NORMAL));
+        q.add(nodeWrite((byte)0x02));
+        q.add(nodeWrite((byte)0x03));
+        FrameWrite last = levelWrite((byte)0x02, (byte)0x20, FramePriority.NORMAL);
+        assertFalse(q.add(last));
+        assertEquals(3, q.size());
+        assertEquals(2, q.size((byte)0x02));
+
+        // the newer SET takes the place of the older one
+        assertSame(last, q.poll());
+        assertEquals((byte)0x03, (byte)q.poll().getNodeId());
+        assertEquals((byte)0x02, (byte)q.poll().getNodeId());
+        assertTrue(q.isEmpty());
+    }
+
+    @Test
+    public void testCoalesceDuplicateGets() {
+        SendQueue q = new SendQueue();
+        assertTrue(q.add(new FrameWrite(new BasicCommandClass().createGet((byte)0x02), true, FramePriority.POLLING, null)));
+        assertFalse(q.add(new FrameWrite(new BasicCommandClass().createGet((byte)0x02), true, FramePriority.POLLING, null)));
+        assertFalse(q.add(new FrameWrite(new BasicCommandClass().createGet((byte)0x02), true, FramePriority.POLLING, null)));
+        assertTrue(q.add(new FrameWrite(new BasicCommandClass().createGet((byte)0x03), true, FramePriority.POLLING, null)));
+        assertEquals(2, q.size());
+    }
+
+    @Test
+    public void testCoalesceKeepsOrderWithOtherCommands() {
+        SendQueue q = new SendQueue();
+        FrameWrite get1 = getWrite((byte)0x02);
+        FrameWrite set = new FrameWrite(new SendData("", (byte)0x02, new byte[] {BasicCommandClass.ID, 0x01, (byte)0xFF}, (byte)0x05, false), true, FramePriority.NORMAL, null);
+        assertTrue(q.add(get1));
+        assertTrue(q.add(set));
+
+        // a GET can't take the place of one queued ahead of a SET for the same command class
+        FrameWrite get2 = getWrite((byte)0x02);
+        assertTrue(q.add(get2));
+        assertEquals(3, q.size());
+
+        // but it can take the place of one queued behind it
+        FrameWrite get3 = getWrite((byte)0x02);
+        assertFalse(q.add(get3));
+        assertEquals(3, q.size());
+
+        // commands for other command classes don't matter
+        assertTrue(q.add(nodeWrite((byte)0x02)));
+        assertFalse(q.add(getWrite((byte)0x02)));
+        assertEquals(4, q.size());
+
+        assertSame(get1, q.poll());
+        assertSame(set, q.poll());
+        assertEquals(BasicCommandClass.ID, ((SendData)q.poll().frame).getSendData()[0]);
+        assertTrue(get2.dequeued);
+    }
+
+    @Test
+    public void testCoalesceNewestFirstKeepsOrder() {
+        // a wakeup queue has its newest frame at the head
+        Deque<FrameWrite> q = new ArrayDeque<>();
+        FrameWrite get1 = getWrite((byte)0x02);
+        FrameWrite set = new FrameWrite(new SendData("", (byte)0x02, new byte[] {BasicCommandClass.ID, 0x01, (byte)0xFF}, (byte)0x05, false), true, FramePriority.NORMAL, null);
+        q.push(get1);
+        q.push(set);
+        assertFalse(SendQueue.coalesce(q, getWrite((byte)0x02), true));
+
+        FrameWrite get2 = getWrite((byte)0x02);
+        q.push(get2);
+        FrameWrite get3 = getWrite((byte)0x02);
+        assertTrue(SendQueue.coalesce(q, get3, true));
+        assertSame(get3, q.peekFirst());
+        assertSame(get1, q.peekLast());
+    }
+
+    @Test
+    public void testCoalesceAcrossPriorities() {
+        SendQueue q = new SendQueue();
+
+        // a higher priority SET removes the queued lower priority one
+        q.add(levelWrite((byte)0x02, (byte)0x10, FramePriority.POLLING));
+        FrameWrite interactive = levelWrite((byte)0x02, (byte)0x20, FramePriority.INTERACTIVE);
+        assertTrue(q.add(interactive));
+        assertEquals(1, q.size());
+        assertEquals(0, q.size(FramePriority.POLLING));
+        assertEquals(1, q.size(FramePriority.INTERACTIVE));
+
+        // a lower priority SET replaces the queued higher priority one in place
+        FrameWrite polling = levelWrite((byte)0x02, (byte)0x30, FramePriority.POLLING);
+        assertFalse(q.add(polling));
+        assertEquals(1, q.size(FramePriority.INTERACTIVE));
+        assertSame(polling, q.poll());
+        assertTrue(q.isEmpty());
+    }
+
+    @Test
+    public void testRemoveOldest() {
+        SendQueue q = new SendQueue();
+        FrameWrite interactive = levelWrite((byte)0x02, (byte)0x10, FramePriority.INTERACTIVE);
+        FrameWrite polling1 = new FrameWrite(nodeWrite((byte)0x03).frame, true, FramePriority.POLLING, null);
+        FrameWrite polling2 = new FrameWrite(nodeWrite((byte)0x02).frame, true, FramePriority.POLLING, null);
+        q.add(interactive);
+        q.add(polling1);
+        q.add(polling2);
+        q.addFirst(write(FramePriority.NORMAL));
+
+        // the oldest frame of the lowest priority level goes first
+        assertSame(polling2, q.removeOldest((byte)0x02));
+        assertSame(interactive, q.removeOldest((byte)0x02));
+        assertNull(q.removeOldest((byte)0x02));
+        assertSame(polling1, q.removeOldest());
+
+        // frames at the head of the queue are never removed
+        assertNull(q.removeOldest());
+        assertEquals(1, q.size());
+    }
+
+    @Test
+    public void testRemoveOldestIgnoresRoundRobinOrder() {
+        SendQueue q = new SendQueue();
+        FrameWrite first = nodeWrite((byte)0x02);
+        FrameWrite second = nodeWrite((byte)0x02);
+        FrameWrite third = nodeWrite((byte)0x03);
+        FrameWrite fourth = nodeWrite((byte)0x02);
+        first.queueTime = 1000;
+        second.queueTime = 2000;
+        third.queueTime = 3000;
+        fourth.queueTime = 4000;
+        q.add(first);
+        q.add(second);
+        q.add(third);
+        q.add(fourth);
+
+        // node 3 is next in line once node 2 has had its turn, but node 2's second frame was queued before it
+        assertSame(first, q.poll());
+        assertSame(second, q.removeOldest());
+        assertSame(third, q.removeOldest());
+        assertSame(fourth, q.removeOldest());
+        assertNull(q.removeOldest());
+    }
+
+    private FrameWrite levelWrite(byte nodeId, byte level, FramePriority priority) {
+        return new FrameWrite(new MultilevelSwitchCommandClass().createSet(nodeId, level), true, priority, null);
+    }
+
+    private FrameWrite getWrite(byte nodeId) {
+        return new FrameWrite(new BasicCommandClass().createGet(nodeId), true, FramePriority.NORMAL, null);
+    }
+
+    private FrameWrite nodeWrite(byte nodeId) {
+        return new FrameWrite(new VersionCommandClass().createCommandClassGet(nodeId, BasicCommandClass.ID), true, FramePriority.NORMAL, null);
+    }
+
+    private FrameWrite write(FramePriority priority) {
+        return new FrameWrite(new Version(), true, priority, null);
+    }
+}
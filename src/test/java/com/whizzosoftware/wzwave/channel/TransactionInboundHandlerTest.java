@@ -13,9 +13,19 @@ import com.whizzosoftware.wzwave.channel.MockChannelHandlerContext;
 import com.whizzosoftware.wzwave.channel.TransactionInboundHandler;
 import com.whizzosoftware.wzwave.channel.event.*;
 import com.whizzosoftware.wzwave.frame.*;
+import com.whizzosoftware.wzwave.frame.transaction.DefaultRetryPolicy;
+import com.whizzosoftware.wzwave.frame.transaction.FailureReason;
+import com.whizzosoftware.wzwave.frame.transaction.TransactionPhase;
+import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.concurrent.ImmediateEventExecutor;
+import io.netty.util.concurrent.Promise;
 
 import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
 import static org.junit.Assert.*;
 
 public class TransactionInboundHandlerTest {
@@ -194,7 +204,9 @@ public class TransactionInboundHandlerTest {
     @Test
     public void testSendDataSleepingNodeTransactionNetworkCongestionFailure() throws Exception {
         MockChannelHandlerContext ctx = new MockChannelHandlerContext();
-        TransactionInboundHandler h = new TransactionInboundHandler();
+        MockTimer timer = new MockTimer();
+        TransactionInboundHandler h = new TransactionInboundHandler(timer, new RttEstimator(), new DefaultRetryPolicy());
+        h.handlerAdded(ctx);
 
         h.userEventTriggered(ctx, new DataFrameSentEvent(new SendData(Unpooled.wrappedBuffer(new byte[] {0x01, 0x09, 0x00, 0x13, 0x06, 0x02, 0x00, 0x00, 0x25, 0x0a, (byte)0xce})), false));
         assertEquals(1, ctx.getUserEvents().size());
@@ -208,53 +220,256 @@ public class TransactionInboundHandlerTest {
         assertEquals(0, ctx.getWriteQueue().size());
         h.channelRead(ctx, new SendData(Unpooled.wrappedBuffer(new byte[] {0x01, 0x05, 0x00, 0x13, 0x0a, 0x02, (byte)0xe2})));
         assertEquals(1, ctx.getUserEvents().size());
-        assertEquals(1, ctx.getWriteQueue().size());
-        assertTrue(ctx.getWriteQueue().get(0) instanceof OutboundDataFrame);
+
+        // the re-send waits out the congestion backoff
+        assertEquals(0, ctx.getWriteQueue().size());
+        assertFalse(timer.getLastTimeout().isCancelled());
+        assertTrue(timer.getLastTimeout().getDelay() > 0);
     }
 
-    @Test
-    public void testSendDataResponseFrameTimeout() throws Exception {
+    @Test(expected = IllegalStateException.class)
+    public void testDelayedRetryWithoutTimerOrExecutor() throws Exception {
         MockChannelHandlerContext ctx = new MockChannelHandlerContext();
         TransactionInboundHandler h = new TransactionInboundHandler();
 
-        assertEquals(0, ctx.getUserEvents().size());
+        h.userEventTriggered(ctx, new DataFrameSentEvent(new SendData(Unpooled.wrappedBuffer(new byte[] {0x01, 0x09, 0x00, 0x13, 0x06, 0x02, 0x00, 0x00, 0x25, 0x0a, (byte)0xce})), false));
+        h.channelRead(ctx, new ACK());
+        h.channelRead(ctx, new SendData(Unpooled.wrappedBuffer(new byte[] {0x01, 0x04, 0x01, 0x13, 0x01, (byte)0xe8})));
+        h.channelRead(ctx, new SendData(Unpooled.wrappedBuffer(new byte[] {0x01, 0x05, 0x00, 0x13, 0x0a, 0x02, (byte)0xe2})));
+    }
 
-        SendData sendData = new SendData("", (byte)0x01, new byte[] {0x01, 0x09, 0x00, 0x13, 0x06, 0x02, 0x00, 0x00, 0x25, 0x0a, (byte)0xce}, (byte)0x05, true);
-        h.userEventTriggered(ctx, new DataFrameSentEvent(sendData, true));
-        assertEquals(1, ctx.getUserEvents().size());
+    @Test
+    public void testSendDataReportTimeout() throws Exception {
+        MockChannelHandlerContext ctx = new MockChannelHandlerContext();
+        MockTimer timer = new MockTimer();
+        TransactionInboundHandler h = new TransactionInboundHandler(timer, new RttEstimator(), new DefaultRetryPolicy());
+        h.handlerAdded(ctx);
+
+        SendData sendData = new SendData("", (byte)0x01, new byte[] {0x25, 0x02}, (byte)0x05, true);
+        sendData.incremenentSendCount(); // simulate that the frame was sent to the network
+        sendDataUntilCallback(h, ctx, sendData);
+
+        // the transaction is complete as soon as the frame has been transmitted
+        assertEquals(2, ctx.getUserEvents().size());
+        assertTrue(ctx.getUserEvents().get(1) instanceof TransactionCompletedEvent);
+        assertFalse(h.hasCurrentTransaction());
+        assertEquals(1, h.getPendingReportCount());
         assertEquals(0, ctx.getWriteQueue().size());
-        assertTrue(ctx.getUserEvents().get(0) instanceof TransactionStartedEvent);
+
+        // the report doesn't arrive so the frame is queued again
+        h.onReportTimeout(ctx, h.getReportWaits().get((byte)0x01, sendData.getExpectedReportKey()));
+        assertEquals(0, h.getPendingReportCount());
+        assertEquals(1, ctx.getWriteQueue().size());
+        assertTrue(ctx.getWriteQueue().get(0) instanceof OutboundDataFrame);
+        assertSame(sendData, ((OutboundDataFrame)ctx.getWriteQueue().get(0)).getDataFrame());
+
+        // the second time the frame has used up its sends
+        sendData.incremenentSendCount();
+        sendDataUntilCallback(h, ctx, sendData);
+        assertEquals(1, h.getPendingReportCount());
+        h.onReportTimeout(ctx, h.getReportWaits().get((byte)0x01, sendData.getExpectedReportKey()));
+        assertEquals(0, h.getPendingReportCount());
+        assertEquals(1, ctx.getWriteQueue().size());
+        for (Object o : ctx.getUserEvents()) {
+            assertFalse(o instanceof TransactionFailedEvent);
+        }
+    }
+
+    @Test
+    public void testReportTimeoutResendKeepsPriorityDeadlineAndBackoff() throws Exception {
+        MockChannelHandlerContext ctx = new MockChannelHandlerContext();
+        MockTimer timer = new MockTimer();
+        final long[] delay = new long[] {0};
+        TransactionInboundHandler h = new TransactionInboundHandler(timer, new RttEstimator(), new DefaultRetryPolicy() {
+            @Override
+            public long getRetryDelay(int nodeId, FailureReason reason, int sendCount, int reasonRetries) {
+                return delay[0];
+            }
+        });
+        h.handlerAdded(ctx);
+
+        // an interactive GET with a deadline is re-sent the same way
+        SendData get = new SendData("", (byte)0x03, new byte[] {0x25, 0x02}, (byte)0x05, true);
+        h.userEventTriggered(ctx, new DataFrameSentEvent(get, true, FramePriority.INTERACTIVE, 12345L, null));
         h.channelRead(ctx, new ACK());
-        assertEquals(1, ctx.getUserEvents().size());
-        assertEquals(0, ctx.getWriteQueue().size());
         h.channelRead(ctx, new SendData(Unpooled.wrappedBuffer(new byte[] {0x01, 0x04, 0x01, 0x13, 0x01, (byte)0xe8})));
-        assertEquals(1, ctx.getUserEvents().size());
-        assertEquals(0, ctx.getWriteQueue().size());
         h.channelRead(ctx, new SendData(Unpooled.wrappedBuffer(new byte[] {0x01, 0x05, 0x00, 0x13, 0x0a, 0x00, (byte)0xe2})));
-        assertEquals(1, ctx.getUserEvents().size());
-        assertEquals(0, ctx.getWriteQueue().size());
-        h.userEventTriggered(ctx, new TransactionTimeoutEvent(h.getCurrentTransaction().getId()));
+        h.onReportTimeout(ctx, h.getReportWaits().get((byte)0x03, get.getExpectedReportKey()));
         assertEquals(1, ctx.getWriteQueue().size());
-        assertTrue(ctx.getWriteQueue().get(0) instanceof OutboundDataFrame);
-        assertTrue(((OutboundDataFrame)ctx.getWriteQueue().get(0)).getDataFrame() instanceof SendData);
-        sendData.incremenentSendCount(); // simulate that the frame was sent to the network
+        OutboundDataFrame f = (OutboundDataFrame)ctx.getWriteQueue().get(0);
+        assertSame(get, f.getDataFrame());
+        assertEquals(FramePriority.INTERACTIVE, f.getPriority());
+        assertEquals(12345L, f.getDeadline());
+
+        // the retry policy's backoff is honored
+        delay[0] = 500;
+        sendDataUntilCallback(h, ctx, get);
+        int timeouts = timer.getTimeouts().size();
+        h.onReportTimeout(ctx, h.getReportWaits().get((byte)0x03, get.getExpectedReportKey()));
+        assertEquals(1, ctx.getWriteQueue().size());
+        assertEquals(timeouts + 1, timer.getTimeouts().size());
+        assertEquals(500, timer.getLastTimeout().getDelay());
+    }
 
-        h.userEventTriggered(ctx, new TransactionTimeoutEvent(h.getCurrentTransaction().getId()));
-        assertEquals(2, ctx.getWriteQueue().size());
-        assertTrue(ctx.getWriteQueue().get(1) instanceof OutboundDataFrame);
-        assertTrue(((OutboundDataFrame)ctx.getWriteQueue().get(1)).getDataFrame() instanceof SendData);
-        sendData.incremenentSendCount(); // simulate that the frame was sent to the network
+    @Test
+    public void testSendDataReportReceived() throws Exception {
+        MockChannelHandlerContext ctx = new MockChannelHandlerContext();
+        MockTimer timer = new MockTimer();
+        RttEstimator rtt = new RttEstimator();
+        TransactionInboundHandler h = new TransactionInboundHandler(timer, rtt, new DefaultRetryPolicy());
+        h.handlerAdded(ctx);
+
+        // a BASIC_GET to node 3
+        SendData sendData = new SendData("", (byte)0x03, new byte[] {0x20, 0x02}, (byte)0x05, true);
+        sendData.incremenentSendCount();
+        sendDataUntilCallback(h, ctx, sendData);
+        assertEquals(1, h.getPendingReportCount());
+        MockTimer.MockTimeout reportTimeout = timer.getLastTimeout();
+        assertFalse(reportTimeout.isCancelled());
+
+        // a report from another node doesn't match
+        h.channelRead(ctx, new ApplicationCommand(DataFrameType.REQUEST, (byte)0x00, (byte)0x04, new byte[] {0x20, 0x03, (byte)0xFF}));
+        assertEquals(1, h.getPendingReportCount());
+
+        // the BASIC_REPORT from node 3 does
+        h.channelRead(ctx, new ApplicationCommand(DataFrameType.REQUEST, (byte)0x00, (byte)0x03, new byte[] {0x20, 0x03, (byte)0xFF}));
+        assertEquals(0, h.getPendingReportCount());
+        assertTrue(reportTimeout.isCancelled());
+        assertTrue(rtt.getSmoothedRtt(3, TransactionPhase.REPORT, TimeUnit.NANOSECONDS) > 0);
+
+        // a late timeout has no effect
+        h.onReportTimeout(ctx, new ReportWaitTable.ReportWait(sendData, sendData.getExpectedReportKey(), true, 0));
+        assertEquals(0, ctx.getWriteQueue().size());
+    }
 
-        assertEquals(1, ctx.getUserEvents().size());
-        h.userEventTriggered(ctx, new TransactionTimeoutEvent(h.getCurrentTransaction().getId()));
-        assertEquals(2, ctx.getWriteQueue().size());
-        assertEquals(2, ctx.getUserEvents().size());
-        assertTrue(ctx.getUserEvents().get(1) instanceof TransactionFailedEvent);
+    @Test
+    public void testResponsePromises() throws Exception {
+        MockChannelHandlerContext ctx = new MockChannelHandlerContext();
+        TransactionInboundHandler h = new TransactionInboundHandler(new MockTimer(), new RttEstimator(), new DefaultRetryPolicy());
+        h.handlerAdded(ctx);
+
+        // a transaction's final frame completes the promise
+        Promise<DataFrame> nodeInfo = ImmediateEventExecutor.INSTANCE.newPromise();
+        h.userEventTriggered(ctx, new DataFrameSentEvent(new RequestNodeInfo((byte)0x02), true, nodeInfo));
+        h.channelRead(ctx, new ACK());
+        h.channelRead(ctx, new RequestNodeInfo(Unpooled.wrappedBuffer(new byte[] {0x01, 0x04, 0x01, 0x60, RequestNodeInfo.UPDATE_STATE_NODE_INFO_RECEIVED, (byte)0x9a})));
+        assertFalse(nodeInfo.isDone());
+        h.channelRead(ctx, new ApplicationUpdate(Unpooled.wrappedBuffer(new byte[] {0x01, 16, 0x00, 0x49, (byte)0x84, 0x02, 0x0a, 0x04, 0x10, 0x01, 0x25, 0x27, 0x75, 0x73, (byte)0x86, 0x72, 0x77, (byte)0xb8})));
+        assertTrue(nodeInfo.getNow() instanceof ApplicationUpdate);
+
+        // the promise of a GET is completed with the node's report, which remains readable once released
+        Promise<DataFrame> report = ImmediateEventExecutor.INSTANCE.newPromise();
+        SendData get = new SendData("", (byte)0x03, new byte[] {0x20, 0x02}, (byte)0x05, true);
+        get.incremenentSendCount();
+        sendDataUntilCallback(h, ctx, get, report);
+        assertFalse(report.isDone());
+        ApplicationCommand cmd = new ApplicationCommand(Unpooled.wrappedBuffer(new byte[] {0x01, 0x09, 0x00, 0x04, 0x00, 0x03, 0x03, 0x20, 0x03, (byte)0xFF, 0x2B}));
+        h.channelRead(ctx, cmd);
+        assertSame(cmd, report.getNow());
+        ReferenceCountUtil.release(cmd);
+        assertArrayEquals(new byte[] {0x20, 0x03, (byte)0xFF}, ((ApplicationCommand)report.getNow()).getCommandClassBytes());
+
+        // a report that arrives ahead of the SendData callback completes the promise with it
+        Promise<DataFrame> early = ImmediateEventExecutor.INSTANCE.newPromise();
+        get = new SendData("", (byte)0x03, new byte[] {0x20, 0x02}, (byte)0x05, true);
+        h.userEventTriggered(ctx, new DataFrameSentEvent(get, true, early));
+        h.channelRead(ctx, new ACK());
+        h.channelRead(ctx, new SendData(Unpooled.wrappedBuffer(new byte[] {0x01, 0x04, 0x01, 0x13, 0x01, (byte)0xe8})));
+        h.channelRead(ctx, new ApplicationCommand(Unpooled.wrappedBuffer(new byte[] {0x01, 0x09, 0x00, 0x04, 0x00, 0x03, 0x03, 0x20, 0x03, 0x10, (byte)0xD4})));
+        assertFalse(early.isDone());
+        h.channelRead(ctx, new SendData(Unpooled.wrappedBuffer(new byte[] {0x01, 0x05, 0x00, 0x13, 0x0a, 0x00, (byte)0xe2})));
+        assertTrue(early.isSuccess());
+        assertArrayEquals(new byte[] {0x20, 0x03, 0x10}, ((ApplicationCommand)early.getNow()).getCommandClassBytes());
+        assertEquals(0, h.getPendingReportCount());
+
+        // a GET whose report can't be recognized later keeps its transaction open for the node's next command
+        Promise<DataFrame> unknown = ImmediateEventExecutor.INSTANCE.newPromise();
+        sendDataUntilCallback(h, ctx, new SendData("", (byte)0x03, new byte[] {0x20}, (byte)0x05, true), unknown);
+        assertFalse(unknown.isDone());
         assertTrue(h.hasCurrentTransaction());
+        h.channelRead(ctx, new ApplicationCommand(DataFrameType.REQUEST, (byte)0x00, (byte)0x03, new byte[] {0x20, 0x03, 0x00}));
+        assertTrue(unknown.isSuccess());
+        assertArrayEquals(new byte[] {0x20, 0x03, 0x00}, ((ApplicationCommand)unknown.getNow()).getCommandClassBytes());
+        assertFalse(h.hasCurrentTransaction());
 
-        // simulate Netty passing along the TransactionFailedEvent
-        h.userEventTriggered(ctx, ctx.getUserEvents().get(1));
+        // a report that never arrives after the last send fails the promise
+        Promise<DataFrame> timeout = ImmediateEventExecutor.INSTANCE.newPromise();
+        get = new SendData("", (byte)0x03, new byte[] {0x20, 0x02}, (byte)0x05, true);
+        get.incremenentSendCount();
+        get.incremenentSendCount();
+        sendDataUntilCallback(h, ctx, get, timeout);
+        h.onReportTimeout(ctx, h.getReportWaits().get((byte)0x03, get.getExpectedReportKey()));
+        assertTrue(timeout.cause() instanceof TransactionFailedException);
+        assertEquals(FailureReason.TIMEOUT, ((TransactionFailedException)timeout.cause()).getReason());
+
+        // a sleeping node that doesn't ACK fails the promise and the frame waits for it to wake up
+        Promise<DataFrame> asleep = ImmediateEventExecutor.INSTANCE.newPromise();
+        h.userEventTriggered(ctx, new DataFrameSentEvent(new SendData(Unpooled.wrappedBuffer(new byte[] {0x01, 0x09, 0x00, 0x13, 0x06, 0x02, 0x00, 0x00, 0x25, 0x0a, (byte)0xce})), false, asleep));
+        h.channelRead(ctx, new ACK());
+        h.channelRead(ctx, new SendData(Unpooled.wrappedBuffer(new byte[] {0x01, 0x04, 0x01, 0x13, 0x01, (byte)0xe8})));
+        h.channelRead(ctx, new SendData(Unpooled.wrappedBuffer(new byte[] {0x01, 0x05, 0x00, 0x13, 0x0a, 0x01, (byte)0xe2})));
+        assertTrue(asleep.cause() instanceof NodeSleepingException);
+    }
+
+    @Test
+    public void testMeterGetsWithDifferentScales() throws Exception {
+        MockChannelHandlerContext ctx = new MockChannelHandlerContext();
+        TransactionInboundHandler h = new TransactionInboundHandler(new MockTimer(), new RttEstimator(), new DefaultRetryPolicy());
+        h.handlerAdded(ctx);
+
+        // METER_GETs for W and kWh expect the same report command so neither can wait for it by key; each holds its
+        // transaction open until the node answers instead
+        Promise<DataFrame> watts = ImmediateEventExecutor.INSTANCE.newPromise();
+        sendDataUntilCallback(h, ctx, new SendData("", (byte)0x03, new byte[] {0x32, 0x01, 0x10}, (byte)0x05, true), watts);
+        assertEquals(0, h.getPendingReportCount());
+        assertTrue(h.hasCurrentTransaction());
+        byte[] wattsReport = new byte[] {0x32, 0x02, 0x21, 0x54, 0x00, 0x00, 0x00, 0x64};
+        h.channelRead(ctx, new ApplicationCommand(DataFrameType.REQUEST, (byte)0x00, (byte)0x03, wattsReport));
+        assertArrayEquals(wattsReport, ((ApplicationCommand)watts.getNow()).getCommandClassBytes());
+
+        Promise<DataFrame> kwh = ImmediateEventExecutor.INSTANCE.newPromise();
+        sendDataUntilCallback(h, ctx, new SendData("", (byte)0x03, new byte[] {0x32, 0x01, 0x00}, (byte)0x05, true), kwh);
+        assertEquals(0, h.getPendingReportCount());
+        byte[] kwhReport = new byte[] {0x32, 0x02, 0x21, 0x44, 0x00, 0x00, 0x00, 0x64};
+        h.channelRead(ctx, new ApplicationCommand(DataFrameType.REQUEST, (byte)0x00, (byte)0x03, kwhReport));
+        assertArrayEquals(kwhReport, ((ApplicationCommand)kwh.getNow()).getCommandClassBytes());
+        assertArrayEquals(wattsReport, ((ApplicationCommand)watts.getNow()).getCommandClassBytes());
+    }
+
+    private void sendDataUntilCallback(TransactionInboundHandler h, MockChannelHandlerContext ctx, SendData sendData) throws Exception {
+        sendDataUntilCallback(h, ctx, sendData, null);
+    }
+
+    private void sendDataUntilCallback(TransactionInboundHandler h, MockChannelHandlerContext ctx, SendData sendData, Promise<DataFrame> responsePromise) throws Exception {
+        h.userEventTriggered(ctx, new DataFrameSentEvent(sendData, true, responsePromise));
+        h.channelRead(ctx, new ACK());
+        h.channelRead(ctx, new SendData(Unpooled.wrappedBuffer(new byte[] {0x01, 0x04, 0x01, 0x13, 0x01, (byte)0xe8})));
+        h.channelRead(ctx, new SendData(Unpooled.wrappedBuffer(new byte[] {0x01, 0x05, 0x00, 0x13, 0x0a, 0x00, (byte)0xe2})));
+    }
+
+    @Test
+    public void testStaleTimeoutIgnored() throws Exception {
+        MockChannelHandlerContext ctx = new MockChannelHandlerContext();
+        TransactionInboundHandler h = new TransactionInboundHandler();
+
+        h.userEventTriggered(ctx, new DataFrameSentEvent(new RequestNodeInfo((byte)0x02), true));
+        long staleId = h.getCurrentTransaction().getId();
+        assertEquals(1, h.getInFlightTransactionCount());
+
+        // a new transaction replaces the completed one
+        h.channelRead(ctx, new ACK());
+        h.channelRead(ctx, new RequestNodeInfo(Unpooled.wrappedBuffer(new byte[] {0x01, 0x04, 0x01, 0x60, RequestNodeInfo.UPDATE_STATE_NODE_INFO_RECEIVED, (byte)0x9a})));
+        h.channelRead(ctx, new ApplicationUpdate(Unpooled.wrappedBuffer(new byte[] {0x01, 16, 0x00, 0x49, (byte)0x84, 0x02, 0x0a, 0x04, 0x10, 0x01, 0x25, 0x27, 0x75, 0x73, (byte)0x86, 0x72, 0x77, (byte)0xb8})));
         assertFalse(h.hasCurrentTransaction());
+        assertEquals(0, h.getInFlightTransactionCount());
+        h.userEventTriggered(ctx, new DataFrameSentEvent(new RequestNodeInfo((byte)0x03), true));
+        assertEquals(1, h.getInFlightTransactionCount());
+
+        // a late timeout for the old transaction doesn't affect the new one
+        int writes = ctx.getWriteQueue().size();
+        h.userEventTriggered(ctx, new TransactionTimeoutEvent(staleId));
+        assertEquals(writes, ctx.getWriteQueue().size());
+        assertTrue(h.hasCurrentTransaction());
     }
 
     @Test
@@ -276,4 +491,104 @@ public class TransactionInboundHandlerTest {
         assertEquals(2, ctx.getUserEvents().size());
         assertTrue(ctx.getUserEvents().get(1) instanceof TransactionCompletedEvent);
     }
+
+    @Test
+    public void testEventsReused() throws Exception {
+        MockChannelHandlerContext ctx = new MockChannelHandlerContext();
+        TransactionInboundHandler h = new TransactionInboundHandler();
+
+        sendDataUntilCallback(h, ctx, new SendData("", (byte)0x02, new byte[] {0x25, 0x01, (byte)0xFF}, (byte)0x05, (byte)0x0a, false));
+        long firstId = ((TransactionStartedEvent)ctx.getUserEvents().get(0)).getId();
+        sendDataUntilCallback(h, ctx, new SendData("", (byte)0x03, new byte[] {0x25, 0x01, (byte)0xFF}, (byte)0x05, (byte)0x0a, false));
+        long secondId = h.getCurrentTransaction().getId();
+        assertEquals(4, ctx.getUserEvents().size());
+        assertTrue(secondId > firstId);
+
+        // the second transaction's events are the first's, re-initialized
+        assertSame(ctx.getUserEvents().get(0), ctx.getUserEvents().get(2));
+        assertSame(ctx.getUserEvents().get(1), ctx.getUserEvents().get(3));
+        assertEquals(secondId, ((TransactionStartedEvent)ctx.getUserEvents().get(2)).getId());
+        SendDataTransactionCompletedEvent tce = (SendDataTransactionCompletedEvent)ctx.getUserEvents().get(3);
+        assertEquals(secondId, tce.getId());
+        assertEquals(0x03, (byte)tce.getNodeId());
+    }
+
+    @Test
+    public void testConsumedFramesAreReleased() throws Exception {
+        MockChannelHandlerContext ctx = new MockChannelHandlerContext();
+        TransactionInboundHandler h = new TransactionInboundHandler();
+
+        h.userEventTriggered(ctx, new DataFrameSentEvent(new Version(), true));
+        h.channelRead(ctx, new ACK());
+
+        // the response frame is consumed by the transaction but handed along in the completion event
+        ByteBuf buf = Unpooled.wrappedBuffer(new byte[] {0x01, 0x10, 0x01, 0x15, 0x5a, 0x2d, 0x57, 0x61, 0x76, 0x65, 0x20, 0x32, 0x2e, 0x37, 0x38, 0x00, 0x01, (byte)0x9b});
+        h.channelRead(ctx, new Version(buf));
+        assertEquals(2, ctx.getUserEvents().size());
+        assertTrue(ctx.getUserEvents().get(1) instanceof TransactionCompletedEvent);
+        assertEquals(1, buf.refCnt());
+
+        TransactionCompletedEvent tce = (TransactionCompletedEvent)ctx.getUserEvents().get(1);
+        assertEquals("Z-Wave 2.78", ((Version)tce.getFrame()).getLibraryVersion());
+        assertTrue(tce.getFrame().release());
+        assertEquals(0, buf.refCnt());
+    }
+
+    @Test
+    public void testPhaseTimeoutsDerivedFromRttEstimates() throws Exception {
+        MockChannelHandlerContext ctx = new MockChannelHandlerContext();
+        MockTimer timer = new MockTimer();
+        RttEstimator rtt = new RttEstimator();
+        rtt.setTimeoutBounds(1, 10000, TimeUnit.MILLISECONDS);
+        rtt.addSample(6, TransactionPhase.ACK, TimeUnit.MILLISECONDS.toNanos(10));
+        TransactionInboundHandler h = new TransactionInboundHandler(timer, rtt, new DefaultRetryPolicy());
+        h.handlerAdded(ctx);
+
+        // the ACK phase has an estimate for node 6
+        h.userEventTriggered(ctx, new DataFrameSentEvent(new SendData(Unpooled.wrappedBuffer(new byte[] {0x01, 0x09, 0x00, 0x13, 0x06, 0x02, 0x00, 0x00, 0x25, 0x0a, (byte)0xce})), false));
+        assertEquals(1, timer.getTimeouts().size());
+        assertEquals(30, timer.getLastTimeout().getDelay());
+
+        // the RESPONSE phase doesn't so it uses the transaction default
+        h.channelRead(ctx, new ACK());
+        assertEquals(2, timer.getTimeouts().size());
+        assertTrue(timer.getTimeouts().get(0).isCancelled());
+        assertEquals(2000, timer.getLastTimeout().getDelay());
+
+        h.channelRead(ctx, new SendData(Unpooled.wrappedBuffer(new byte[] {0x01, 0x04, 0x01, 0x13, 0x01, (byte)0xe8})));
+        assertEquals(3, timer.getTimeouts().size());
+        h.channelRead(ctx, new SendData(Unpooled.wrappedBuffer(new byte[] {0x01, 0x05, 0x00, 0x13, 0x0a, 0x00, (byte)0xe2})));
+        assertTrue(ctx.getUserEvents().get(1) instanceof TransactionCompletedEvent);
+        assertTrue(timer.getLastTimeout().isCancelled());
+
+        // every phase of the transaction was sampled
+        assertTrue(rtt.getSmoothedRtt(6, TransactionPhase.RESPONSE, TimeUnit.NANOSECONDS) > 0);
+        assertTrue(rtt.getSmoothedRtt(6, TransactionPhase.CALLBACK, TimeUnit.NANOSECONDS) > 0);
+        assertEquals(0, rtt.getSmoothedRtt(6, TransactionPhase.REPORT, TimeUnit.NANOSECONDS));
+    }
+
+    @Test
+    public void testResentFramePhasesNotSampled() throws Exception {
+        MockChannelHandlerContext ctx = new MockChannelHandlerContext();
+        MockTimer timer = new MockTimer();
+        RttEstimator rtt = new RttEstimator();
+        TransactionInboundHandler h = new TransactionInboundHandler(timer, rtt, new DefaultRetryPolicy());
+        h.handlerAdded(ctx);
+
+        SendData frame = new SendData(Unpooled.wrappedBuffer(new byte[] {0x01, 0x09, 0x00, 0x13, 0x06, 0x02, 0x00, 0x00, 0x25, 0x0a, (byte)0xce}));
+        frame.incremenentSendCount();
+        h.userEventTriggered(ctx, new DataFrameSentEvent(frame, true));
+
+        // the transaction times out and its start frame is re-sent
+        h.userEventTriggered(ctx, new TransactionTimeoutEvent(h.getCurrentTransaction().getId()));
+        assertEquals(1, ctx.getWriteQueue().size());
+        frame.incremenentSendCount();
+        h.userEventTriggered(ctx, new DataFrameSentEvent(frame, true));
+        assertEquals(2, timer.getTimeouts().size());
+
+        // there's no telling which send the ACK belongs to
+        h.channelRead(ctx, new ACK());
+        assertEquals(0, rtt.getSmoothedRtt(6, TransactionPhase.ACK, TimeUnit.NANOSECONDS));
+        assertEquals(3, timer.getTimeouts().size());
+    }
 }
@@ -0,0 +1,74 @@
+/*
+ *******************************************************************************
+ * Copyright (c) 2019 Whizzo Software, LLC.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************
+*/
+package com.whizzosoftware.wzwave.channel;
+
+import com.whizzosoftware.wzwave.frame.DataFrame;
+import com.whizzosoftware.wzwave.frame.RequestNodeInfo;
+import com.whizzosoftware.wzwave.frame.transaction.DataFrameTransaction;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TransactionRegistryTest {
+    @Test
+    public void testAddGetRemove() {
+        TransactionRegistry r = new TransactionRegistry();
+        DataFrameTransaction t1 = createTransaction();
+        DataFrameTransaction t2 = createTransaction();
+        assertTrue(t2.getId() > t1.getId());
+
+        r.add(t1);
+        r.add(t2);
+        assertEquals(2, r.size());
+        assertSame(t1, r.get(t1.getId()));
+        assertSame(t2, r.get(t2.getId()));
+
+        assertSame(t1, r.remove(t1.getId()));
+        assertNull(r.get(t1.getId()));
+        assertNull(r.remove(t1.getId()));
+        assertEquals(1, r.size());
+        assertNull(r.get(0));
+    }
+
+    @Test
+    public void testStaleIdSharingSlot() {
+        TransactionRegistry r = new TransactionRegistry(2);
+        DataFrameTransaction t1 = createTransaction();
+        DataFrameTransaction t2 = createTransaction();
+        DataFrameTransaction t3 = createTransaction();
+        r.add(t1);
+        r.remove(t1.getId());
+        r.add(t3);
+
+        // an ID that maps to an occupied slot but doesn't match isn't found
+        assertNull(r.get(t1.getId()));
+        assertNull(r.get(t2.getId()));
+        assertSame(t3, r.get(t3.getId()));
+    }
+
+    @Test
+    public void testGrow() {
+        TransactionRegistry r = new TransactionRegistry(2);
+        DataFrameTransaction[] ts = new DataFrameTransaction[20];
+        for (int i=0; i < ts.length; i++) {
+            ts[i] = createTransaction();
+            r.add(ts[i]);
+        }
+        assertEquals(20, r.size());
+        for (DataFrameTransaction t : ts) {
+            assertSame(t, r.get(t.getId()));
+        }
+    }
+
+    private DataFrameTransaction createTransaction() {
+        DataFrame f = new RequestNodeInfo((byte)0x02);
+        return f.createTransaction(new MockZWaveChannelContext(), true);
+    }
+}
@@ -12,7 +12,7 @@ import com.whizzosoftware.wzwave.commandclass.VersionCommandClass;
 import com.whizzosoftware.wzwave.frame.*;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
-import io.netty.handler.codec.CorruptedFrameException;
+import io.netty.util.ReferenceCountUtil;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -20,6 +20,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 import static io.netty.buffer.Unpooled.buffer;
+import static io.netty.buffer.Unpooled.directBuffer;
 import static io.netty.buffer.Unpooled.wrappedBuffer;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
@@ -322,7 +323,46 @@ public class ZWaveFrameDecoderTest {
         assertEquals(39, in.readableBytes());
         decoder.callDecode(ctx, in, out);
         assertEquals(0, in.readableBytes());
+        assertEquals(1, out.size());
+        assertEquals(2, in.refCnt());
+        ReferenceCountUtil.release(out.get(0));
+        assertEquals(1, in.refCnt());
+    }
+
+    @Test
+    public void testDirectBufferApplicationCommand() throws Exception {
+        ZWaveFrameDecoder decoder = new ZWaveFrameDecoder();
+        List<Object> out = new ArrayList<Object>();
+        ByteBuf in = directBuffer();
+        in.writeBytes(new byte[] {0x01, 0x0d, 0x00, 0x04, 0x00, 0x0e, 0x07, (byte)0x86, 0x12, 0x06, 0x03, 0x28, 0x03, 0x19, 0x5c});
+        decoder.callDecode(ctx, in, out);
+        assertEquals(1, out.size());
+        ApplicationCommand ach = (ApplicationCommand)out.get(0);
+        assertEquals(VersionCommandClass.ID, ach.getCommandClassId());
+        assertEquals(7, ach.getCommandClassBytes().length);
+        assertEquals((byte)0x19, ach.getCommandClassBytes()[6]);
+        assertEquals(2, in.refCnt());
+        assertFalse(ach.release());
+        assertEquals(1, in.refCnt());
+        in.release();
+    }
+
+    @Test
+    public void testDirectBufferSendData() throws Exception {
+        ZWaveFrameDecoder decoder = new ZWaveFrameDecoder();
+        List<Object> out = new ArrayList<Object>();
+        ByteBuf in = directBuffer();
+        in.writeBytes(new byte[] {0x01, 0x09, 0x00, 0x13, 0x06, 0x02, 0x25, 0x02, 0x05, 0x01, (byte)0xC2});
+        decoder.callDecode(ctx, in, out);
+        assertEquals(1, out.size());
+        SendData sd = (SendData)out.get(0);
+        assertEquals((byte)0x06, sd.getNodeId());
+        assertEquals(2, sd.getSendData().length);
+        assertEquals((byte)0x25, sd.getSendData()[0]);
+        assertEquals((byte)0x02, sd.getSendData()[1]);
+        sd.release();
         assertEquals(1, in.refCnt());
+        in.release();
     }
 
     @Test
@@ -413,21 +453,132 @@ public class ZWaveFrameDecoderTest {
         List<Object> out = new ArrayList<>();
         ByteBuf buf = wrappedBuffer(new byte[] {0x01, 0x07, 0x00, (byte)0x99, 0x02, 0x01, 0x00, 0x00, (byte)98});
         decoder.callDecode(ctx, buf, out);
-        assertEquals(0, out.size());
+        assertEquals(1, out.size());
+        assertTrue(out.get(0) instanceof RawDataFrame);
+        RawDataFrame rdf = (RawDataFrame)out.get(0);
+        assertEquals((byte)0x99, rdf.getCommandId());
+        assertEquals(DataFrameType.REQUEST, rdf.getType());
+        assertEquals(4, rdf.getPayload().length);
+        assertEquals(0x02, rdf.getPayload()[0]);
+        rdf.release();
+        assertEquals(1, buf.refCnt());
+    }
+
+    @Test
+    public void testRegisteredFrameFactory() throws Exception {
+        DataFrameFactoryRegistry registry = new DataFrameFactoryRegistry();
+        final List<ByteBuf> created = new ArrayList<>();
+        registry.register((byte)0x99, new DataFrameFactory() {
+            @Override
+            public DataFrame createDataFrame(ByteBuf buffer) {
+                created.add(buffer);
+                return new RawDataFrame(buffer);
+            }
+        });
+        ZWaveFrameDecoder decoder = new ZWaveFrameDecoder(registry);
+        List<Object> out = new ArrayList<>();
+        decoder.callDecode(ctx, wrappedBuffer(new byte[] {0x01, 0x07, 0x00, (byte)0x99, 0x02, 0x01, 0x00, 0x00, (byte)98}), out);
+        assertEquals(1, out.size());
+        assertEquals(1, created.size());
+
+        registry.unregister(Version.ID);
+        decoder.callDecode(ctx, wrappedBuffer(new byte[] {0x01, 0x10, 0x01, 0x15, 0x5a, 0x2d, 0x57, 0x61, 0x76, 0x65, 0x20, 0x32, 0x2e, 0x37, 0x38, 0x00, 0x01, (byte)0x9b}), out);
+        assertEquals(2, out.size());
+        assertTrue(out.get(1) instanceof RawDataFrame);
+        assertEquals(Version.ID, ((RawDataFrame)out.get(1)).getCommandId());
     }
 
-    @Test (expected = CorruptedFrameException.class)
+    @Test
     public void testInvalidChecksum() throws Exception {
         ZWaveFrameDecoder decoder = new ZWaveFrameDecoder();
         List<Object> out = new ArrayList<Object>();
         ByteBuf in = wrappedBuffer(new byte[] {0x01, 0x04, 0x01, 0x13, 0x01, (byte)0xe9});
-        try {
-            decoder.callDecode(ctx, in, out);
-        }
-        finally {
-            assertEquals(0, in.readableBytes());
-            assertEquals(0, out.size());
+        decoder.callDecode(ctx, in, out);
+        // only the SOF is discarded; the next byte that can start a frame is kept until it's known to be complete
+        assertEquals(4, in.readableBytes());
+        assertEquals(0, out.size());
+        assertEquals(1, decoder.getFramingErrorCount());
+
+        // a NAK should have been sent immediately
+        List<Object> writes = ((MockChannelHandlerContext)ctx).getWriteQueue();
+        assertEquals(1, writes.size());
+        ByteBuf nak = (ByteBuf)writes.get(0);
+        assertEquals(1, nak.readableBytes());
+        assertEquals(NAK.ID, nak.getByte(nak.readerIndex()));
+    }
+
+    @Test
+    public void testInvalidChecksumFollowedByValidFrame() throws Exception {
+        ZWaveFrameDecoder decoder = new ZWaveFrameDecoder();
+        List<Object> out = new ArrayList<Object>();
+        ByteBuf in = wrappedBuffer(new byte[] {0x01, 0x04, 0x00, 0x13, 0x05, (byte)0xee, 0x01, 0x04, 0x01, 0x13, 0x01, (byte)0xe8});
+        decoder.callDecode(ctx, in, out);
+        assertEquals(0, in.readableBytes());
+        assertEquals(1, out.size());
+        assertTrue(out.get(0) instanceof SendData);
+        assertEquals(1, decoder.getFramingErrorCount());
+        ReferenceCountUtil.release(out.get(0));
+    }
+
+    @Test
+    public void testSpuriousSOFFollowedByValidFrame() throws Exception {
+        ZWaveFrameDecoder decoder = new ZWaveFrameDecoder();
+        List<Object> out = new ArrayList<Object>();
+        // the stray SOF's length covers most of the valid frame that follows it
+        ByteBuf in = wrappedBuffer(new byte[] {0x01, 0x05, 0x01, 0x04, 0x01, 0x13, 0x01, (byte)0xe8});
+        decoder.callDecode(ctx, in, out);
+        assertEquals(0, in.readableBytes());
+        assertEquals(1, out.size());
+        assertTrue(out.get(0) instanceof SendData);
+        assertEquals(1, decoder.getFramingErrorCount());
+
+        // the bad "frame" was NAKed
+        List<Object> writes = ((MockChannelHandlerContext)ctx).getWriteQueue();
+        assertEquals(1, writes.size());
+        assertEquals(NAK.ID, ((ByteBuf)writes.get(0)).getByte(0));
+        ReferenceCountUtil.release(out.get(0));
+    }
+
+    @Test
+    public void testBulkResync() throws Exception {
+        ZWaveFrameDecoder decoder = new ZWaveFrameDecoder();
+        List<Object> out = new ArrayList<Object>();
+        byte[] b = new byte[101];
+        for (int i=0; i < 100; i++) {
+            b[i] = (byte)0xFF;
         }
+        b[100] = 0x06;
+        ByteBuf in = wrappedBuffer(b);
+        decoder.decode(ctx, in, out);
+        assertEquals(1, in.readableBytes());
+        assertEquals(0, out.size());
+        assertEquals(1, decoder.getFramingErrorCount());
+        decoder.decode(ctx, in, out);
+        assertEquals(1, out.size());
+        assertTrue(out.get(0) instanceof ACK);
+    }
+
+    @Test
+    public void testResyncDiscardsAllGarbage() throws Exception {
+        ZWaveFrameDecoder decoder = new ZWaveFrameDecoder();
+        List<Object> out = new ArrayList<Object>();
+        ByteBuf in = wrappedBuffer(new byte[] {0x02, 0x03, 0x04, 0x05});
+        decoder.callDecode(ctx, in, out);
+        assertEquals(0, in.readableBytes());
+        assertEquals(0, out.size());
+        assertEquals(1, decoder.getFramingErrorCount());
+    }
+
+    @Test
+    public void testImplausibleFrameLength() throws Exception {
+        ZWaveFrameDecoder decoder = new ZWaveFrameDecoder();
+        List<Object> out = new ArrayList<Object>();
+        ByteBuf in = wrappedBuffer(new byte[] {0x01, 0x02, 0x06});
+        decoder.callDecode(ctx, in, out);
+        assertEquals(0, in.readableBytes());
+        assertEquals(1, out.size());
+        assertTrue(out.get(0) instanceof ACK);
+        assertEquals(1, decoder.getFramingErrorCount());
     }
 
     @Test
@@ -2,7 +2,10 @@ package com.whizzosoftware.wzwave.codec;
 
 import com.whizzosoftware.wzwave.frame.ACK;
 import com.whizzosoftware.wzwave.frame.CAN;
+import com.whizzosoftware.wzwave.frame.DataFrame;
 import com.whizzosoftware.wzwave.frame.NAK;
+import com.whizzosoftware.wzwave.frame.SendData;
+import com.whizzosoftware.wzwave.frame.Version;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
 import org.junit.Test;
@@ -35,4 +38,36 @@ public class ZWaveFrameEncoderTest {
         assertEquals(1, buf.readableBytes());
         assertEquals(CAN.ID, buf.getByte(0));
     }
+
+    @Test
+    public void testDataFrame() throws Exception {
+        ZWaveFrameEncoder encoder = new ZWaveFrameEncoder();
+        SendData sd = new SendData("test", (byte)0x06, new byte[] {0x25, 0x02}, (byte)0x05, (byte)0x01, true);
+        ByteBuf buf = Unpooled.buffer();
+        encoder.encode(null, sd, buf);
+        byte[] expected = sd.getBytes();
+        assertEquals(expected.length, buf.readableBytes());
+        for (int i=0; i < expected.length; i++) {
+            assertEquals(expected[i], buf.getByte(i));
+        }
+        assertEquals((byte)0xC2, buf.getByte(buf.readableBytes() - 1));
+
+        // a re-send should produce the identical encoding
+        ByteBuf buf2 = Unpooled.buffer();
+        encoder.encode(null, sd, buf2);
+        assertEquals(buf, buf2);
+    }
+
+    @Test
+    public void testDataFrameWithNoData() throws Exception {
+        ZWaveFrameEncoder encoder = new ZWaveFrameEncoder();
+        ByteBuf buf = Unpooled.buffer();
+        encoder.encode(null, new Version(), buf);
+        assertEquals(5, buf.readableBytes());
+        assertEquals(DataFrame.START_OF_FRAME, buf.getByte(0));
+        assertEquals(0x03, buf.getByte(1));
+        assertEquals(0x00, buf.getByte(2));
+        assertEquals(Version.ID, buf.getByte(3));
+        assertEquals((byte)0xE9, buf.getByte(4));
+    }
 }
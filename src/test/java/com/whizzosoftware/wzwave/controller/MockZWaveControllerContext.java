@@ -10,12 +10,14 @@
 package com.whizzosoftware.wzwave.controller;
 
 import com.whizzosoftware.wzwave.frame.DataFrame;
+import com.whizzosoftware.wzwave.frame.FramePriority;
 
 import java.util.ArrayList;
 import java.util.List;
 
-public class MockZWaveControllerContext implements ZWaveControllerContext {
+public class MockZWaveControllerContext implements PrioritizedZWaveControllerContext {
     private List<DataFrame> sentFrames = new ArrayList<>();
+    private List<FramePriority> sentFramePriorities = new ArrayList<>();
 
     @Override
     public byte getNodeId() {
@@ -24,7 +26,13 @@ public class MockZWaveControllerContext implements ZWaveControllerContext {
 
     @Override
     public void sendDataFrame(DataFrame frame, boolean isListeningNode) {
+        sendDataFrame(frame, isListeningNode, FramePriority.NORMAL);
+    }
+
+    @Override
+    public void sendDataFrame(DataFrame frame, boolean isListeningNode, FramePriority priority) {
         sentFrames.add(frame);
+        sentFramePriorities.add(priority);
     }
 
     @Override
@@ -40,7 +48,12 @@ public class MockZWaveControllerContext implements ZWaveControllerContext {
         return sentFrames;
     }
 
+    public List<FramePriority> getSentFramePriorities() {
+        return sentFramePriorities;
+    }
+
     public void clearSentFrames() {
         sentFrames.clear();
+        sentFramePriorities.clear();
     }
 }
@@ -0,0 +1,114 @@
+/*
+ *******************************************************************************
+ * Copyright (c) 2019 Whizzo Software, LLC.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************
+*/
+package com.whizzosoftware.wzwave.controller.netty;
+
+import com.whizzosoftware.wzwave.channel.MockTimer;
+import com.whizzosoftware.wzwave.controller.InterviewProgress;
+import com.whizzosoftware.wzwave.node.BasicDeviceClasses;
+import com.whizzosoftware.wzwave.node.NodeInfo;
+import com.whizzosoftware.wzwave.node.ZWaveNode;
+import com.whizzosoftware.wzwave.node.generic.BinarySwitch;
+import com.whizzosoftware.wzwave.node.specific.BinaryPowerSwitch;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class InterviewSchedulerTest {
+    @Test
+    public void testUnresponsiveNodeTimesOut() throws Exception {
+        MockTimer timer = new MockTimer();
+        MockListener l = new MockListener();
+        InterviewScheduler s = new InterviewScheduler(l);
+        s.setConcurrency(1, false);
+        s.setTimeout(timer, 30000);
+
+        // the first node never answers, which holds up the second one
+        ZWaveNode dead = createNode((byte)0x02);
+        ZWaveNode next = createNode((byte)0x03);
+        s.schedule(dead);
+        s.schedule(next);
+        assertEquals(1, l.started.size());
+        assertSame(dead, l.started.get(0));
+        assertEquals(1, timer.getTimeouts().size());
+        assertEquals(30000, timer.getLastTimeout().getDelay());
+
+        // until its interview times out; that's handled off the timer thread
+        MockTimer.MockTimeout t = timer.getLastTimeout();
+        t.task().run(t);
+        assertEquals(1, l.started.size());
+        assertTrue(l.progress.isEmpty());
+        l.runTasks();
+        assertEquals(2, l.started.size());
+        assertSame(next, l.started.get(1));
+        InterviewProgress p = l.progress.get(0);
+        assertEquals(0, p.getCompleted());
+        assertEquals(1, p.getTimedOut());
+        assertEquals(1, p.getActive());
+        assertEquals(0, p.getPending());
+
+        // a late completion of the timed out interview is ignored
+        s.onInterviewCompleted(dead);
+        assertEquals(1, l.progress.size());
+
+        // a completed interview cancels its timeout
+        s.onInterviewCompleted(next);
+        assertTrue(timer.getLastTimeout().isCancelled());
+        p = l.progress.get(1);
+        assertEquals(1, p.getCompleted());
+        assertEquals(1, p.getTimedOut());
+        assertTrue(p.isComplete());
+    }
+
+    @Test
+    public void testNoTimeoutWithoutTimer() {
+        MockListener l = new MockListener();
+        InterviewScheduler s = new InterviewScheduler(l);
+        s.setConcurrency(1, false);
+        s.setTimeout(null, 30000);
+        s.schedule(createNode((byte)0x02));
+        assertEquals(1, l.started.size());
+        assertEquals(1, s.getProgress().getActive());
+    }
+
+    private ZWaveNode createNode(byte nodeId) {
+        return new BinarySwitch(new NodeInfo(nodeId, BasicDeviceClasses.ROUTING_SLAVE, BinarySwitch.ID, BinaryPowerSwitch.ID), true, null);
+    }
+
+    private class MockListener implements InterviewScheduler.Listener {
+        final List<ZWaveNode> started = new ArrayList<>();
+        final List<InterviewProgress> progress = new ArrayList<>();
+        final List<Runnable> tasks = new ArrayList<>();
+
+        @Override
+        public void startInterview(ZWaveNode node) {
+            started.add(node);
+        }
+
+        @Override
+        public void onInterviewProgress(InterviewProgress progress) {
+            this.progress.add(progress);
+        }
+
+        @Override
+        public void execute(Runnable task) {
+            tasks.add(task);
+        }
+
+        void runTasks() {
+            for (Runnable r : tasks) {
+                r.run();
+            }
+            tasks.clear();
+        }
+    }
+}
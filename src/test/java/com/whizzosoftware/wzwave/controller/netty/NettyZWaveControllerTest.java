@@ -11,8 +11,14 @@ package com.whizzosoftware.wzwave.controller.netty;
 
 import com.whizzosoftware.wzwave.MockChannel;
 import com.whizzosoftware.wzwave.channel.event.SendDataTransactionCompletedEvent;
+import com.whizzosoftware.wzwave.channel.event.SendDataTransactionFailedEvent;
 import com.whizzosoftware.wzwave.channel.event.TransactionCompletedEvent;
+import com.whizzosoftware.wzwave.controller.InterviewProgress;
+import com.whizzosoftware.wzwave.controller.InterviewProgressListener;
 import com.whizzosoftware.wzwave.controller.ZWaveControllerListener;
+import com.whizzosoftware.wzwave.controller.netty.transport.LocalTransport;
+import com.whizzosoftware.wzwave.frame.ApplicationCommand;
+import com.whizzosoftware.wzwave.frame.DataFrameType;
 import com.whizzosoftware.wzwave.frame.NodeProtocolInfo;
 import com.whizzosoftware.wzwave.frame.OutboundDataFrame;
 import com.whizzosoftware.wzwave.frame.SendData;
@@ -22,11 +28,22 @@ import com.whizzosoftware.wzwave.node.generic.BinarySwitch;
 import com.whizzosoftware.wzwave.node.specific.BinaryPowerSwitch;
 import com.whizzosoftware.wzwave.node.specific.RoutingBinarySensor;
 import com.whizzosoftware.wzwave.persist.MockPersistentStore;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.*;
+import io.netty.channel.local.LocalAddress;
+import io.netty.channel.local.LocalEventLoopGroup;
+import io.netty.channel.local.LocalServerChannel;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.*;
 
@@ -46,6 +63,44 @@ public class NettyZWaveControllerTest {
         assertEquals(1, (byte)l.getNodeId());
     }
 
+    @Test
+    public void testStartWithLocalTransport() throws Exception {
+        // a fake Z-Wave controller that records whatever is sent to it
+        final ByteBuf received = Unpooled.buffer();
+        final CountDownLatch latch = new CountDownLatch(1);
+        EventLoopGroup serverGroup = new LocalEventLoopGroup(1);
+        Channel server = new ServerBootstrap()
+            .group(serverGroup)
+            .channel(LocalServerChannel.class)
+            .childHandler(new ChannelInboundHandlerAdapter() {
+                @Override
+                public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                    received.writeBytes((ByteBuf)msg);
+                    ((ByteBuf)msg).release();
+                    if (received.readableBytes() >= 5) {
+                        latch.countDown();
+                    }
+                }
+            })
+            .bind(new LocalAddress("wzwave-test")).sync().channel();
+
+        NettyZWaveController c = new NettyZWaveController(new LocalTransport("wzwave-test"), new MockPersistentStore());
+        try {
+            c.start();
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+            // the first thing sent should be a Version request
+            assertEquals(0x01, received.getByte(0));
+            assertEquals(0x03, received.getByte(1));
+            assertEquals(0x00, received.getByte(2));
+            assertEquals(0x15, received.getByte(3));
+            assertEquals((byte)0xE9, received.getByte(4));
+        } finally {
+            c.stop();
+            server.close().sync();
+            serverGroup.shutdownGracefully();
+        }
+    }
+
     @Test
     public void testNewPersistentListeningNodeInterview() throws IOException {
         MockChannel channel = new MockChannel();
@@ -100,15 +155,78 @@ public class NettyZWaveControllerTest {
         assertEquals(1, channel.getWrittenMessageCount());
         assertEquals(ZWaveNodeState.Ping, node.getState());
 
-        c.onTransactionComplete(new SendDataTransactionCompletedEvent("foo", null, (byte)0x02));
+        c.onTransactionComplete(new SendDataTransactionCompletedEvent(1, null, (byte)0x02));
         assertEquals(4, channel.getWrittenMessageCount());
         assertEquals(ZWaveNodeState.NodeInfo, node.getState());
     }
 
-    private class MockZWaveControllerListener implements ZWaveControllerListener {
+    @Test
+    public void testInterviewConcurrency() throws IOException {
+        MockChannel channel = new MockChannel();
+        MockZWaveControllerListener l = new MockZWaveControllerListener();
+        NettyZWaveController c = new NettyZWaveController("/dev/null", folder.newFolder());
+        c.setChannel(channel);
+        c.setListener(l);
+        c.setInterviewProgressListener(l);
+        c.setInterviewConcurrency(1, false);
+
+        // the listening node is interviewed first even though the other node was found first
+        c.onNodeProtocolInfo((byte)0x02, new NodeProtocolInfo(BasicDeviceClasses.ROUTING_SLAVE, BinarySensor.ID, RoutingBinarySensor.ID, false));
+        assertEquals(ZWaveNodeState.Ping, c.getNode((byte)0x02).getState());
+        c.onNodeProtocolInfo((byte)0x03, new NodeProtocolInfo(BasicDeviceClasses.ROUTING_SLAVE, BinarySwitch.ID, BinaryPowerSwitch.ID, true));
+        c.onNodeProtocolInfo((byte)0x04, new NodeProtocolInfo(BasicDeviceClasses.ROUTING_SLAVE, BinarySensor.ID, RoutingBinarySensor.ID, false));
+        assertNull(c.getNode((byte)0x03).getState());
+        assertNull(c.getNode((byte)0x04).getState());
+        assertEquals(1, channel.getWrittenMessageCount());
+
+        InterviewProgress p = c.getInterviewProgress();
+        assertEquals(3, p.getTotal());
+        assertEquals(1, p.getActive());
+        assertEquals(2, p.getPending());
+        assertEquals(-1, p.getEstimatedMillisRemaining());
+
+        // once the first interview completes, the next one starts
+        c.onTransactionFailed(new SendDataTransactionFailedEvent(1, null, (byte)0x02, false, false));
+        assertEquals(ZWaveNodeState.Started, c.getNode((byte)0x02).getState());
+        assertEquals(ZWaveNodeState.Ping, c.getNode((byte)0x03).getState());
+        assertNull(c.getNode((byte)0x04).getState());
+        assertEquals(1, l.getInterviewProgress().size());
+        p = l.getInterviewProgress().get(0);
+        assertEquals(1, p.getCompleted());
+        assertEquals(1, p.getActive());
+        assertEquals(1, p.getPending());
+        assertTrue(p.getEstimatedMillisRemaining() >= 0);
+        assertFalse(p.isComplete());
+    }
+
+    @Test
+    public void testDeferredSleepingNodeInterview() throws IOException {
+        MockChannel channel = new MockChannel();
+        MockZWaveControllerListener l = new MockZWaveControllerListener();
+        NettyZWaveController c = new NettyZWaveController("/dev/null", folder.newFolder());
+        c.setChannel(channel);
+        c.setListener(l);
+        c.setInterviewConcurrency(1, true);
+
+        c.onNodeProtocolInfo((byte)0x02, new NodeProtocolInfo(BasicDeviceClasses.ROUTING_SLAVE, BinarySensor.ID, RoutingBinarySensor.ID, false));
+        assertNull(c.getNode((byte)0x02).getState());
+        assertEquals(0, channel.getWrittenMessageCount());
+        assertEquals(1, c.getInterviewProgress().getDeferred());
+        assertTrue(c.getInterviewProgress().isComplete());
+
+        // a wake up notification starts the interview
+        c.onApplicationCommand(new ApplicationCommand(DataFrameType.REQUEST, (byte)0x00, (byte)0x02, new byte[] {(byte)0x84, 0x07}));
+        assertEquals(ZWaveNodeState.Ping, c.getNode((byte)0x02).getState());
+        assertTrue(channel.getWrittenMessage(channel.getWrittenMessageCount() - 1) instanceof OutboundDataFrame);
+        assertEquals(0, c.getInterviewProgress().getDeferred());
+        assertEquals(1, c.getInterviewProgress().getActive());
+    }
+
+    private class MockZWaveControllerListener implements ZWaveControllerListener, InterviewProgressListener {
         private String libraryVersion;
         private Integer homeId;
         private Byte nodeId;
+        private final List<InterviewProgress> interviewProgress = new ArrayList<>();
 
         String getLibraryVersion() {
             return libraryVersion;
@@ -122,6 +240,10 @@ public class NettyZWaveControllerTest {
             return nodeId;
         }
 
+        List<InterviewProgress> getInterviewProgress() {
+            return interviewProgress;
+        }
+
         @Override
         public void onZWaveNodeAdded(ZWaveEndpoint node) {
 
@@ -173,5 +295,11 @@ public class NettyZWaveControllerTest {
         public void onZWaveExclusionStopped() {
 
         }
+
+        @Override
+        public void onInterviewProgress(InterviewProgress progress) {
+            interviewProgress.add(progress);
+        }
+
     }
 }
@@ -0,0 +1,198 @@
+/*
+ *******************************************************************************
+ * Copyright (c) 2019 Whizzo Software, LLC.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************
+*/
+package com.whizzosoftware.wzwave.controller.netty;
+
+import com.whizzosoftware.wzwave.metrics.ZWaveMetrics;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class NodeDispatcherTest {
+    @Test
+    public void testPerNodeOrdering() throws Exception {
+        NodeDispatcher d = new NodeDispatcher(2, 1000, false, new ZWaveMetrics());
+        try {
+            final List<Integer> results = Collections.synchronizedList(new ArrayList<Integer>());
+            final CountDownLatch latch = new CountDownLatch(100);
+            for (int i = 0; i < 100; i++) {
+                final int n = i;
+                assertTrue(d.dispatch((byte)0x02, new Runnable() {
+                    @Override
+                    public void run() {
+                        results.add(n);
+                        latch.countDown();
+                    }
+                }));
+            }
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+            for (int i = 0; i < 100; i++) {
+                assertEquals(i, (int)results.get(i));
+            }
+        } finally {
+            d.shutdown();
+        }
+    }
+
+    @Test
+    public void testSlowNodeDoesNotBlockOtherStripes() throws Exception {
+        NodeDispatcher d = new NodeDispatcher(2, 10, false, new ZWaveMetrics());
+        try {
+            final CountDownLatch release = new CountDownLatch(1);
+            final CountDownLatch done = new CountDownLatch(1);
+            d.dispatch((byte)0x02, new BlockingTask(release));
+            d.dispatch((byte)0x03, new Runnable() {
+                @Override
+                public void run() {
+                    done.countDown();
+                }
+            });
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+            release.countDown();
+        } finally {
+            d.shutdown();
+        }
+    }
+
+    @Test
+    public void testConflatedUpdates() throws Exception {
+        ZWaveMetrics metrics = new ZWaveMetrics();
+        NodeDispatcher d = new NodeDispatcher(1, 10, true, metrics);
+        try {
+            CountDownLatch release = new CountDownLatch(1);
+            final List<String> results = Collections.synchronizedList(new ArrayList<String>());
+            final CountDownLatch done = new CountDownLatch(1);
+
+            // hold up the stripe so that work piles up in the mailbox
+            d.dispatch((byte)0x02, new BlockingTask(release));
+            d.dispatch((byte)0x02, new RecordingTask(results, "cmd1", null));
+            d.dispatchUpdate((byte)0x02, new RecordingTask(results, "update1", null));
+            d.dispatch((byte)0x02, new RecordingTask(results, "cmd2", null));
+            d.dispatchUpdate((byte)0x02, new RecordingTask(results, "update2", null));
+            d.dispatch((byte)0x02, new RecordingTask(results, "cmd3", done));
+            release.countDown();
+
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+            // the latest update is delivered where the first one was dispatched
+            assertEquals(4, results.size());
+            assertEquals("cmd1", results.get(0));
+            assertEquals("update2", results.get(1));
+            assertEquals("cmd2", results.get(2));
+            assertEquals("cmd3", results.get(3));
+            assertEquals(1, metrics.getUpdatesConflated());
+        } finally {
+            d.shutdown();
+        }
+    }
+
+    @Test
+    public void testUnconflatedUpdates() throws Exception {
+        NodeDispatcher d = new NodeDispatcher(1, 10, false, new ZWaveMetrics());
+        try {
+            CountDownLatch release = new CountDownLatch(1);
+            final List<String> results = Collections.synchronizedList(new ArrayList<String>());
+            final CountDownLatch done = new CountDownLatch(1);
+            d.dispatch((byte)0x02, new BlockingTask(release));
+            d.dispatchUpdate((byte)0x02, new RecordingTask(results, "update1", null));
+            d.dispatchUpdate((byte)0x02, new RecordingTask(results, "update2", done));
+            release.countDown();
+
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+            assertEquals(2, results.size());
+        } finally {
+            d.shutdown();
+        }
+    }
+
+    @Test
+    public void testUpdateCapacity() throws Exception {
+        ZWaveMetrics metrics = new ZWaveMetrics();
+        NodeDispatcher d = new NodeDispatcher(1, 2, false, metrics);
+        try {
+            CountDownLatch release = new CountDownLatch(1);
+            CountDownLatch started = new CountDownLatch(1);
+            final List<String> results = Collections.synchronizedList(new ArrayList<String>());
+            final CountDownLatch done = new CountDownLatch(1);
+            d.dispatch((byte)0x02, new BlockingTask(release, started));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+
+            assertTrue(d.dispatchUpdate((byte)0x02, new RecordingTask(results, "update1", null)));
+            assertTrue(d.dispatchUpdate((byte)0x02, new RecordingTask(results, "update2", null)));
+            assertFalse(d.dispatchUpdate((byte)0x02, new RecordingTask(results, "update3", null)));
+            // node work is never rejected
+            for (int i = 0; i < 10; i++) {
+                assertTrue(d.dispatch((byte)0x02, new RecordingTask(results, "cmd" + i, null)));
+            }
+            assertTrue(d.dispatch((byte)0x02, new RecordingTask(results, "last", done)));
+            // other nodes have mailboxes of their own
+            assertTrue(d.dispatchUpdate((byte)0x03, new RecordingTask(results, "update4", null)));
+            assertEquals(1, metrics.getDispatchRejected());
+            release.countDown();
+
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+            assertEquals("update1", results.get(0));
+            assertEquals("update2", results.get(1));
+            assertEquals("cmd0", results.get(2));
+
+            // once delivered, updates make room for new ones
+            assertTrue(d.dispatchUpdate((byte)0x02, new RecordingTask(results, "update5", null)));
+            assertTrue(d.dispatchUpdate((byte)0x02, new RecordingTask(results, "update6", null)));
+        } finally {
+            d.shutdown();
+        }
+    }
+
+    private static class BlockingTask implements Runnable {
+        private final CountDownLatch release;
+        private final CountDownLatch started;
+
+        BlockingTask(CountDownLatch release) {
+            this(release, new CountDownLatch(1));
+        }
+
+        BlockingTask(CountDownLatch release, CountDownLatch started) {
+            this.release = release;
+            this.started = started;
+        }
+
+        @Override
+        public void run() {
+            started.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException ignored) {}
+        }
+    }
+
+    private static class RecordingTask implements Runnable {
+        private final List<String> results;
+        private final String name;
+        private final CountDownLatch latch;
+
+        RecordingTask(List<String> results, String name, CountDownLatch latch) {
+            this.results = results;
+            this.name = name;
+            this.latch = latch;
+        }
+
+        @Override
+        public void run() {
+            results.add(name);
+            if (latch != null) {
+                latch.countDown();
+            }
+        }
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ *******************************************************************************
+ * Copyright (c) 2019 Whizzo Software, LLC.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************
+*/
+package com.whizzosoftware.wzwave.controller.netty;
+
+import com.whizzosoftware.wzwave.node.BasicDeviceClasses;
+import com.whizzosoftware.wzwave.node.NodeInfo;
+import com.whizzosoftware.wzwave.node.ZWaveNode;
+import com.whizzosoftware.wzwave.node.generic.BinarySwitch;
+import com.whizzosoftware.wzwave.node.specific.BinaryPowerSwitch;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class NodeRegistryTest {
+    @Test
+    public void testPutAndGet() {
+        NodeRegistry r = new NodeRegistry();
+        assertNull(r.get((byte)0x02));
+        ZWaveNode n = createNode((byte)0x02);
+        assertNull(r.put(n));
+        assertSame(n, r.get((byte)0x02));
+        assertEquals(1, r.size());
+
+        // replacing a node keeps a single entry
+        ZWaveNode n2 = createNode((byte)0x02);
+        assertSame(n, r.put(n2));
+        assertSame(n2, r.get((byte)0x02));
+        assertEquals(1, r.size());
+
+        assertSame(n2, r.remove((byte)0x02));
+        assertNull(r.get((byte)0x02));
+        assertEquals(0, r.size());
+    }
+
+    @Test
+    public void testOutOfRangeNodeId() {
+        NodeRegistry r = new NodeRegistry();
+        assertNull(r.get((byte)0xE9));
+        assertNull(r.get((byte)0xFF));
+        assertNull(r.remove((byte)0xFF));
+        try {
+            r.put(createNode((byte)0xFF));
+            fail("Should have thrown exception");
+        } catch (IllegalArgumentException ignored) {}
+    }
+
+    @Test
+    public void testSnapshot() {
+        NodeRegistry r = new NodeRegistry();
+        r.put(createNode((byte)0x05));
+        r.put(createNode((byte)0x02));
+        r.put(createNode((byte)0xE8));
+        List<ZWaveNode> s = r.snapshot();
+
+        // snapshots are ordered by node ID
+        assertEquals(3, s.size());
+        assertEquals((byte)0x02, s.get(0).getNodeId());
+        assertEquals((byte)0x05, s.get(1).getNodeId());
+        assertEquals((byte)0xE8, s.get(2).getNodeId());
+
+        // and aren't affected by later changes
+        r.put(createNode((byte)0x03));
+        r.remove((byte)0x05);
+        assertEquals(3, s.size());
+        assertEquals((byte)0x05, s.get(1).getNodeId());
+        assertEquals(3, r.snapshot().size());
+
+        try {
+            s.clear();
+            fail("Should have thrown exception");
+        } catch (UnsupportedOperationException ignored) {}
+    }
+
+    private ZWaveNode createNode(byte nodeId) {
+        return new BinarySwitch(new NodeInfo(nodeId, BasicDeviceClasses.ROUTING_SLAVE, BinarySwitch.ID, BinaryPowerSwitch.ID), true, null);
+    }
+}
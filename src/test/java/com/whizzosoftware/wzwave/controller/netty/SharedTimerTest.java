@@ -0,0 +1,49 @@
+/*
+ *******************************************************************************
+ * Copyright (c) 2019 Whizzo Software, LLC.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************
+*/
+package com.whizzosoftware.wzwave.controller.netty;
+
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+import io.netty.util.TimerTask;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class SharedTimerTest {
+    @Test
+    public void testStoppedAfterLastRelease() {
+        SharedTimer st = new SharedTimer();
+        Timer t1 = st.acquire();
+        Timer t2 = st.acquire();
+        assertSame(t1, t2);
+
+        // still usable while another controller holds it
+        st.release();
+        t1.newTimeout(new NoopTask(), 1, TimeUnit.HOURS).cancel();
+
+        st.release();
+        try {
+            t1.newTimeout(new NoopTask(), 1, TimeUnit.HOURS);
+            fail("Timer should have been stopped");
+        } catch (IllegalStateException ignored) {}
+
+        // the next controller gets a new one
+        Timer t3 = st.acquire();
+        assertNotSame(t1, t3);
+        st.release();
+    }
+
+    private static class NoopTask implements TimerTask {
+        @Override
+        public void run(Timeout timeout) {}
+    }
+}
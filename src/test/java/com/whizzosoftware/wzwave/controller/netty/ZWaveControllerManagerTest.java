@@ -0,0 +1,91 @@
+/*
+ *******************************************************************************
+ * Copyright (c) 2019 Whizzo Software, LLC.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************
+*/
+package com.whizzosoftware.wzwave.controller.netty;
+
+import com.whizzosoftware.wzwave.MockChannel;
+import com.whizzosoftware.wzwave.controller.netty.transport.LocalTransport;
+import com.whizzosoftware.wzwave.controller.netty.transport.TcpTransport;
+import com.whizzosoftware.wzwave.frame.NodeProtocolInfo;
+import com.whizzosoftware.wzwave.node.BasicDeviceClasses;
+import com.whizzosoftware.wzwave.node.NodeInfo;
+import com.whizzosoftware.wzwave.node.generic.BinarySwitch;
+import com.whizzosoftware.wzwave.node.specific.BinaryPowerSwitch;
+import com.whizzosoftware.wzwave.persist.mapdb.MapDbPersistentStore;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+public class ZWaveControllerManagerTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testSharedEventLoopGroups() throws Exception {
+        ZWaveControllerManager m = new ZWaveControllerManager(new MapDbPersistentStore(folder.newFolder()), true, 2);
+        try {
+            LocalTransport t1 = new LocalTransport("a");
+            LocalTransport t2 = new LocalTransport("b");
+            TcpTransport t3 = new TcpTransport("localhost", 2001);
+            assertSame(m.getEventLoopGroup(t1), m.getEventLoopGroup(t2));
+            assertNotSame(m.getEventLoopGroup(t1), m.getEventLoopGroup(t3));
+        } finally {
+            m.stop();
+        }
+    }
+
+    @Test
+    public void testUnifiedView() throws Exception {
+        ZWaveControllerManager m = new ZWaveControllerManager(new MapDbPersistentStore(folder.newFolder()), true, 1);
+        try {
+            NettyZWaveController c1 = m.addController(new LocalTransport("a"));
+            NettyZWaveController c2 = m.addController(new LocalTransport("b"));
+            c1.setChannel(new MockChannel());
+            c2.setChannel(new MockChannel());
+            assertEquals(2, m.getControllers().size());
+            assertNull(m.getController(0x11111111));
+
+            c1.onControllerInfo(0x11111111, (byte)1);
+            c2.onControllerInfo(0x22222222, (byte)1);
+            assertSame(c1, m.getController(0x11111111));
+            assertSame(c2, m.getController(0x22222222));
+
+            // the same node ID on two networks results in two distinct nodes
+            c1.onNodeProtocolInfo((byte)0x02, new NodeProtocolInfo(BasicDeviceClasses.ROUTING_SLAVE, BinarySwitch.ID, BinaryPowerSwitch.ID, true));
+            c2.onNodeProtocolInfo((byte)0x02, new NodeProtocolInfo(BasicDeviceClasses.ROUTING_SLAVE, BinarySwitch.ID, BinaryPowerSwitch.ID, true));
+            assertEquals(2, m.getNodes().size());
+
+            m.removeController(c2);
+            assertEquals(1, m.getControllers().size());
+            assertEquals(1, m.getNodes().size());
+        } finally {
+            m.stop();
+        }
+    }
+
+    @Test
+    public void testSaveBeforeHomeIdKnown() throws Exception {
+        MapDbPersistentStore store = new MapDbPersistentStore(folder.newFolder());
+        ZWaveControllerManager m = new ZWaveControllerManager(store, true, 1);
+        try {
+            NettyZWaveController c = m.addController(new LocalTransport("a"));
+            c.setChannel(new MockChannel());
+
+            // a node saved before the home ID is known is written as soon as it arrives
+            c.onNodeStarted(new BinarySwitch(new NodeInfo((byte)0x02, BasicDeviceClasses.ROUTING_SLAVE, BinarySwitch.ID, BinaryPowerSwitch.ID), true, null));
+            assertNull(store.getPartition(0x11111111).getNode((byte)0x02, null));
+            c.onControllerInfo(0x11111111, (byte)1);
+            assertNotNull(store.getPartition(0x11111111).getNode((byte)0x02, null));
+        } finally {
+            m.stop();
+        }
+    }
+}
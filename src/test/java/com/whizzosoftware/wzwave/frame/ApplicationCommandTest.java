@@ -41,4 +41,14 @@ public class ApplicationCommandTest {
         assertEquals(6, cmd.getNodeId());
         assertEquals(BinarySwitchCommandClass.ID, cmd.getCommandClassId());
     }
+
+    @Test
+    public void testReportKey() {
+        ApplicationCommand cmd = new ApplicationCommand(Unpooled.wrappedBuffer(new byte[] {0x01,0x09,0x00,0x04,0x00,0x06,0x03,0x25,0x03,0x00,-45}));
+        assertEquals(0x2503, cmd.getReportKey());
+
+        // a report from endpoint 1 of a multi channel node
+        cmd = new ApplicationCommand(Unpooled.wrappedBuffer(new byte[] {0x01, 0x0D, 0x00, 0x04, 0x00, 0x03, 0x07, 0x60, 0x0D, 0x01, 0x00, 0x20, 0x03, (byte)0xFF, 0x42}));
+        assertEquals(0x012003, cmd.getReportKey());
+    }
 }
@@ -0,0 +1,23 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Whizzo Software, LLC.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package com.whizzosoftware.wzwave.frame;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class CallbackIdAllocatorTest {
+    @Test
+    public void testNextSkipsZero() {
+        CallbackIdAllocator a = new CallbackIdAllocator();
+        for (int i = 1; i <= 255; i++) {
+            assertEquals(i, a.next() & 0xFF);
+        }
+        // wraps around to 1 rather than 0
+        assertEquals(1, a.next());
+    }
+}
@@ -0,0 +1,62 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Whizzo Software, LLC.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package com.whizzosoftware.wzwave.frame;
+
+import com.whizzosoftware.wzwave.ZWaveRuntimeException;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class SendDataMultiTest {
+    @Test
+    public void testMessageArgConstructor() {
+        SendDataMulti sd = new SendDataMulti("", new byte[] {0x02, 0x03, 0x04}, new byte[] {0x25, 0x01, (byte)0xFF}, (byte)0x05, (byte)0x01);
+        byte[] mb = sd.getBytes();
+        assertEquals(15, mb.length);
+        assertEquals(0x01, mb[0]);
+        assertEquals(13, mb[1]);
+        assertEquals(0x00, mb[2]);
+        assertEquals(0x14, mb[3]);
+        assertEquals(0x03, mb[4]);
+        assertEquals(0x02, mb[5]);
+        assertEquals(0x03, mb[6]);
+        assertEquals(0x04, mb[7]);
+        assertEquals(0x03, mb[8]);
+        assertEquals(0x25, mb[9]);
+        assertEquals(0x01, mb[10]);
+        assertEquals((byte)0xFF, mb[11]);
+        assertEquals(0x05, mb[12]);
+        assertEquals(0x01, mb[13]);
+    }
+
+    @Test
+    public void testMessageByteArrayConstructorWithRetval() {
+        ByteBuf buffer = Unpooled.wrappedBuffer(new byte[] {0x01, 0x04, 0x01, 0x14, 0x01, (byte)0xEF});
+        SendDataMulti sd = new SendDataMulti(buffer);
+        assertEquals(1, buffer.readableBytes());
+        assertEquals(DataFrameType.RESPONSE, sd.getType());
+        assertTrue(sd.hasRetVal());
+        assertEquals((byte)0x01, (byte)sd.getRetVal());
+    }
+
+    @Test
+    public void testMessageByteArrayConstructorWithCallback() {
+        ByteBuf buffer = Unpooled.wrappedBuffer(new byte[] {0x01, 0x05, 0x00, 0x14, 0x01, 0x00, (byte)0xEF});
+        SendDataMulti sd = new SendDataMulti(buffer);
+        assertEquals(1, buffer.readableBytes());
+        assertEquals(DataFrameType.REQUEST, sd.getType());
+        assertEquals((byte)0x01, (byte)sd.getCallbackId());
+        assertEquals((byte)0x00, (byte)sd.getTx());
+    }
+
+    @Test(expected = ZWaveRuntimeException.class)
+    public void testNoNodes() {
+        new SendDataMulti("", new byte[0], new byte[] {0x25, 0x01, (byte)0xFF}, (byte)0x05);
+    }
+}
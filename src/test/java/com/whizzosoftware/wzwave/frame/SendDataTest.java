@@ -53,4 +53,50 @@ public class SendDataTest {
         assertTrue(sd.hasRetVal());
         assertEquals((byte)0x01, (byte)sd.getRetVal());
     }
+
+    @Test
+    public void testCoalescingKey() {
+        SendData sd = new SendData("", (byte)0x02, new byte[] {0x26, 0x01, 0x10}, (byte)0x05, (byte)0x01, false);
+        assertFalse(sd.isCoalescable());
+        assertEquals(-1, sd.getCoalescingKey());
+
+        sd.setCoalescable(true);
+        assertEquals(0x02002601L, sd.getCoalescingKey());
+
+        // the value being set isn't part of the key
+        SendData sd2 = new SendData("", (byte)0x02, new byte[] {0x26, 0x01, 0x20}, (byte)0x05, (byte)0x02, false);
+        sd2.setCoalescable(true);
+        assertEquals(sd.getCoalescingKey(), sd2.getCoalescingKey());
+
+        // high node IDs still produce a valid key
+        SendData sd3 = new SendData("", (byte)0xE8, new byte[] {0x26, 0x02}, (byte)0x05, (byte)0x03, true);
+        sd3.setCoalescable(true);
+        assertEquals(0xE8002602L, sd3.getCoalescingKey());
+    }
+
+    @Test
+    public void testCoalescingKeyWithMultiChannelEncapsulation() {
+        SendData sd = new SendData("", (byte)0x02, new byte[] {0x60, 0x0D, 0x00, 0x03, 0x26, 0x01, 0x10}, (byte)0x05, (byte)0x01, false);
+        sd.setCoalescable(true);
+        assertEquals(0x02032601L, sd.getCoalescingKey());
+    }
+
+    @Test
+    public void testExpectedReportKey() {
+        // a SWITCH_BINARY_GET expects a SWITCH_BINARY_REPORT
+        SendData sd = new SendData("", (byte)0x02, new byte[] {0x25, 0x02}, (byte)0x05, (byte)0x01, true);
+        assertEquals(0x2503, sd.getExpectedReportKey());
+
+        // the endpoint of a multi channel encapsulated command is part of the key
+        sd = new SendData("", (byte)0x02, new byte[] {0x60, 0x0D, 0x00, 0x03, 0x25, 0x02}, (byte)0x05, (byte)0x01, true);
+        assertEquals(0x032503, sd.getExpectedReportKey());
+
+        // nor do GETs with parameters that select the report (a METER_GET for a specific scale)
+        sd = new SendData("", (byte)0x02, new byte[] {0x32, 0x01, 0x10}, (byte)0x05, (byte)0x01, true);
+        assertEquals(-1, sd.getExpectedReportKey());
+
+        // frames that don't expect a response have no key
+        sd = new SendData("", (byte)0x02, new byte[] {0x25, 0x01, (byte)0xFF}, (byte)0x05, (byte)0x01, false);
+        assertEquals(-1, sd.getExpectedReportKey());
+    }
 }
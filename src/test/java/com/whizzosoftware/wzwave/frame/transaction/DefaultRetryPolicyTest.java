@@ -0,0 +1,103 @@
+/*
+ *******************************************************************************
+ * Copyright (c) 2019 Whizzo Software, LLC.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************
+*/
+package com.whizzosoftware.wzwave.frame.transaction;
+
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class DefaultRetryPolicyTest {
+    @Test
+    public void testSendCountLimit() {
+        DefaultRetryPolicy p = new DefaultRetryPolicy();
+        assertEquals(0, p.getRetryDelay(2, FailureReason.TIMEOUT, 1, 0));
+        assertEquals(RetryPolicy.NO_RETRY, p.getRetryDelay(2, FailureReason.TIMEOUT, 2, 1));
+        assertEquals(RetryPolicy.NO_RETRY, p.getRetryDelay(2, FailureReason.NO_ACK, 2, 0));
+
+        // failures that never reached the network aren't limited by the send count
+        assertTrue(p.getRetryDelay(2, FailureReason.CAN, 2, 0) > 0);
+    }
+
+    @Test
+    public void testRetryBudget() {
+        DefaultRetryPolicy p = new DefaultRetryPolicy();
+        p.setRetryBudget(FailureReason.CAN, 2);
+        assertTrue(p.getRetryDelay(2, FailureReason.CAN, 1, 0) >= 0);
+        assertTrue(p.getRetryDelay(2, FailureReason.CAN, 1, 1) >= 0);
+        assertEquals(RetryPolicy.NO_RETRY, p.getRetryDelay(2, FailureReason.CAN, 1, 2));
+    }
+
+    @Test
+    public void testJitteredExponentialBackoff() {
+        DefaultRetryPolicy p = new DefaultRetryPolicy(new Random(1));
+        p.setRetryBudget(FailureReason.NETWORK_CONGESTION, 10);
+        p.setBackoff(FailureReason.NETWORK_CONGESTION, 100, TimeUnit.MILLISECONDS);
+        p.setMaxDelay(1000, TimeUnit.MILLISECONDS);
+        for (int i = 0; i < 10; i++) {
+            long max = Math.min(100 << i, 1000);
+            long d = p.getRetryDelay(2, FailureReason.NETWORK_CONGESTION, 1, i);
+            assertTrue(d >= max / 2);
+            assertTrue(d <= max);
+        }
+    }
+
+    @Test
+    public void testCircuitBreaker() {
+        DefaultRetryPolicy p = new DefaultRetryPolicy();
+        p.setCircuitBreaker(3, 1, TimeUnit.HOURS);
+        p.onTransactionFailed(5);
+        p.onTransactionFailed(5);
+        assertFalse(p.isOpen(5));
+        assertTrue(p.isSendAllowed(5));
+        p.onTransactionFailed(5);
+        assertTrue(p.isOpen(5));
+        assertFalse(p.isSendAllowed(5));
+        assertEquals(RetryPolicy.NO_RETRY, p.getRetryDelay(5, FailureReason.TIMEOUT, 1, 0));
+
+        // other nodes are unaffected
+        assertTrue(p.isSendAllowed(6));
+        assertEquals(0, p.getRetryDelay(6, FailureReason.TIMEOUT, 1, 0));
+
+        p.onTransactionCompleted(5);
+        assertFalse(p.isOpen(5));
+        assertTrue(p.isSendAllowed(5));
+    }
+
+    @Test
+    public void testCircuitBreakerHalfOpen() throws Exception {
+        DefaultRetryPolicy p = new DefaultRetryPolicy();
+        p.setCircuitBreaker(1, 1, TimeUnit.MILLISECONDS);
+        p.onTransactionFailed(5);
+        Thread.sleep(5);
+
+        // checking doesn't use up the probe
+        assertTrue(p.isSendAllowed(5));
+        assertTrue(p.isSendAllowed(5));
+
+        // a single probe is let through once the circuit has been open long enough
+        p.setCircuitBreaker(1, 1, TimeUnit.HOURS);
+        p.onSendAllowed(5);
+        assertFalse(p.isSendAllowed(5));
+        p.setCircuitBreaker(1, 1, TimeUnit.HOURS);
+        p.onTransactionFailed(5);
+        assertFalse(p.isSendAllowed(5));
+    }
+
+    @Test
+    public void testControllerFailuresDontOpenCircuit() {
+        DefaultRetryPolicy p = new DefaultRetryPolicy();
+        p.setCircuitBreaker(1, 1, TimeUnit.HOURS);
+        p.onTransactionFailed(0);
+        assertTrue(p.isSendAllowed(0));
+    }
+}
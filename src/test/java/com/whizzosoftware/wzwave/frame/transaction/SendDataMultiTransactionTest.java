@@ -0,0 +1,84 @@
+/*******************************************************************************
+ * Copyright (c) 2019 Whizzo Software, LLC.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package com.whizzosoftware.wzwave.frame.transaction;
+
+import com.whizzosoftware.wzwave.channel.MockZWaveChannelContext;
+import com.whizzosoftware.wzwave.channel.event.TransactionCompletedEvent;
+import com.whizzosoftware.wzwave.channel.event.TransactionFailedEvent;
+import com.whizzosoftware.wzwave.channel.event.TransactionStartedEvent;
+import com.whizzosoftware.wzwave.frame.*;
+import io.netty.buffer.Unpooled;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class SendDataMultiTransactionTest {
+    @Test
+    public void testSuccessfulTransaction() {
+        MockZWaveChannelContext ctx = new MockZWaveChannelContext();
+
+        SendDataMulti startFrame = new SendDataMulti("", new byte[] {0x02, 0x03}, new byte[] {0x25, 0x01, (byte)0xFF}, (byte)0x05, (byte)0x01);
+        SendDataMultiTransaction t = new SendDataMultiTransaction(ctx, startFrame, true);
+        assertEquals(1, ctx.getUserEvents().size());
+        assertTrue(ctx.getUserEvents().get(0) instanceof TransactionStartedEvent);
+        assertEquals(TransactionPhase.ACK, t.getExpectedPhase());
+
+        assertTrue(t.addFrame(ctx, new ACK()));
+        assertEquals(TransactionPhase.RESPONSE, t.getExpectedPhase());
+
+        assertTrue(t.addFrame(ctx, new SendDataMulti(Unpooled.wrappedBuffer(new byte[] {0x01, 0x04, 0x01, 0x14, 0x01, (byte)0xEF}))));
+        assertFalse(t.isComplete());
+        assertEquals(TransactionPhase.CALLBACK, t.getExpectedPhase());
+
+        // unrelated frames are passed along
+        assertFalse(t.addFrame(ctx, new ApplicationCommand(DataFrameType.REQUEST, (byte)0x00, (byte)0x02, new byte[] {0x25, 0x03, (byte)0xFF})));
+
+        assertTrue(t.addFrame(ctx, new SendDataMulti(Unpooled.wrappedBuffer(new byte[] {0x01, 0x05, 0x00, 0x14, 0x01, 0x00, (byte)0xEF}))));
+        assertTrue(t.isComplete());
+        assertEquals(2, ctx.getUserEvents().size());
+        assertTrue(ctx.getUserEvents().get(1) instanceof TransactionCompletedEvent);
+        assertEquals(0, ctx.getWriteQueue().size());
+    }
+
+    @Test
+    public void testControllerQueueFull() {
+        MockZWaveChannelContext ctx = new MockZWaveChannelContext();
+
+        SendDataMulti startFrame = new SendDataMulti("", new byte[] {0x02, 0x03}, new byte[] {0x25, 0x01, (byte)0xFF}, (byte)0x05, (byte)0x01);
+        startFrame.incremenentSendCount();
+        SendDataMultiTransaction t = new SendDataMultiTransaction(ctx, startFrame, true);
+        assertTrue(t.addFrame(ctx, new ACK()));
+        assertTrue(t.addFrame(ctx, new SendDataMulti(Unpooled.wrappedBuffer(new byte[] {0x01, 0x04, 0x01, 0x14, 0x00, (byte)0xEE}))));
+
+        // the frame is re-sent after a backoff without counting as a send
+        assertFalse(t.isComplete());
+        assertEquals(1, ctx.getUserEvents().size());
+        assertEquals(1, ctx.getWriteQueue().size());
+        assertTrue(ctx.getWriteDelays().get(0) > 0);
+        assertEquals(0, startFrame.getSendCount());
+    }
+
+    @Test
+    public void testFailedTransmission() {
+        MockZWaveChannelContext ctx = new MockZWaveChannelContext();
+
+        SendDataMulti startFrame = new SendDataMulti("", new byte[] {0x02, 0x03}, new byte[] {0x25, 0x01, (byte)0xFF}, (byte)0x05, (byte)0x01);
+        startFrame.incremenentSendCount();
+        startFrame.incremenentSendCount();
+        SendDataMultiTransaction t = new SendDataMultiTransaction(ctx, startFrame, true);
+        assertTrue(t.addFrame(ctx, new ACK()));
+        assertTrue(t.addFrame(ctx, new SendDataMulti(Unpooled.wrappedBuffer(new byte[] {0x01, 0x04, 0x01, 0x14, 0x01, (byte)0xEF}))));
+        assertTrue(t.addFrame(ctx, new SendDataMulti(Unpooled.wrappedBuffer(new byte[] {0x01, 0x05, 0x00, 0x14, 0x01, 0x03, (byte)0xEC}))));
+
+        // the frame has used up its sends so the transaction fails (once)
+        assertTrue(t.isComplete());
+        assertEquals(0, ctx.getWriteQueue().size());
+        assertEquals(2, ctx.getUserEvents().size());
+        assertTrue(ctx.getUserEvents().get(1) instanceof TransactionFailedEvent);
+        assertEquals(FailureReason.FAILED, ((TransactionFailedEvent)ctx.getUserEvents().get(1)).getReason());
+    }
+}
@@ -11,6 +11,7 @@ package com.whizzosoftware.wzwave.frame.transaction;
 
 import com.whizzosoftware.wzwave.channel.MockChannelHandlerContext;
 import com.whizzosoftware.wzwave.channel.MockZWaveChannelContext;
+import com.whizzosoftware.wzwave.channel.event.SendDataTransactionFailedEvent;
 import com.whizzosoftware.wzwave.channel.event.TransactionCompletedEvent;
 import com.whizzosoftware.wzwave.channel.event.TransactionFailedEvent;
 import com.whizzosoftware.wzwave.channel.event.TransactionStartedEvent;
@@ -24,8 +25,7 @@ public class SendDataTransactionTest {
     public void testTransactionWithExpectedResponse() {
         MockZWaveChannelContext ctx = new MockZWaveChannelContext();
 
-        byte[] b = new byte[] {0x01, 0x09, 0x00, 0x13, 0x06, 0x02, 0x25, 0x02, 0x05, 0x08, -45};
-        SendData startFrame = new SendData(Unpooled.wrappedBuffer(b));
+        SendData startFrame = new SendData("", (byte)0x06, new byte[] {0x25, 0x02}, (byte)0x05, (byte)0x08, true);
         SendDataTransaction t = new SendDataTransaction(ctx, startFrame, true, true);
         assertFalse(t.isComplete());
         assertEquals(1, ctx.getUserEvents().size());
@@ -37,26 +37,55 @@ public class SendDataTransactionTest {
         assertEquals(1, ctx.getUserEvents().size());
         assertEquals(0, ctx.getWriteQueue().size());
 
-        b = new byte[] {0x01, 0x04, 0x01, 0x13, 0x00, -45};
+        byte[] b = new byte[] {0x01, 0x04, 0x01, 0x13, 0x01, (byte)0xE8};
         assertTrue(t.addFrame(ctx, new SendData(Unpooled.wrappedBuffer(b))));
         assertFalse(t.isComplete());
         assertEquals(1, ctx.getUserEvents().size());
         assertEquals(0, ctx.getWriteQueue().size());
 
+        // the transaction completes once the frame is transmitted; the report is awaited outside of it
         b = new byte[] {0x01, 0x05, 0x00, 0x13, 0x00, 0x00, -45};
         assertTrue(t.addFrame(ctx, new SendData(Unpooled.wrappedBuffer(b))));
-        assertFalse(t.isComplete());
-        assertEquals(1, ctx.getUserEvents().size());
-        assertEquals(0, ctx.getWriteQueue().size());
-
-        assertTrue(t.addFrame(ctx, new ApplicationCommand(DataFrameType.RESPONSE, (byte) 0x00, (byte) 0x01, new byte[]{0x00})));
         assertTrue(t.isComplete());
+        assertTrue(t.isReportPending());
         assertEquals(2, ctx.getUserEvents().size());
         assertEquals(0, ctx.getWriteQueue().size());
         assertTrue(ctx.getUserEvents().get(1) instanceof TransactionCompletedEvent);
         TransactionCompletedEvent tcd = (TransactionCompletedEvent)ctx.getUserEvents().get(1);
-        assertTrue(tcd.hasFrame());
-        assertTrue(tcd.getFrame() instanceof ApplicationCommand);
+        assertFalse(tcd.hasFrame());
+
+        assertFalse(t.addFrame(ctx, new ApplicationCommand(DataFrameType.RESPONSE, (byte) 0x00, (byte) 0x01, new byte[]{0x00})));
+        assertEquals(2, ctx.getUserEvents().size());
+    }
+
+    @Test
+    public void testTransactionWithExpectedResponseWithoutReportKey() {
+        MockZWaveChannelContext ctx = new MockZWaveChannelContext();
+
+        // a METER_GET for a specific scale
+        SendData startFrame = new SendData("", (byte)0x06, new byte[] {0x32, 0x01, 0x10}, (byte)0x05, (byte)0x08, true);
+        SendDataTransaction t = new SendDataTransaction(ctx, startFrame, true, true);
+        assertTrue(t.addFrame(ctx, new ACK()));
+        assertTrue(t.addFrame(ctx, new SendData(Unpooled.wrappedBuffer(new byte[] {0x01, 0x04, 0x01, 0x13, 0x01, (byte)0xE8}))));
+
+        // its report can't be recognized later so the transaction waits for it
+        assertTrue(t.addFrame(ctx, new SendData(Unpooled.wrappedBuffer(new byte[] {0x01, 0x05, 0x00, 0x13, 0x08, 0x00, -45}))));
+        assertFalse(t.isComplete());
+        assertFalse(t.isReportPending());
+        assertEquals(TransactionPhase.REPORT, t.getExpectedPhase());
+        assertEquals(1, ctx.getUserEvents().size());
+
+        // commands from other nodes are ignored
+        assertFalse(t.addFrame(ctx, new ApplicationCommand(DataFrameType.REQUEST, (byte)0x00, (byte)0x07, new byte[] {0x32, 0x02, 0x21, 0x44, 0x00, 0x00, 0x00, 0x64})));
+        assertFalse(t.isComplete());
+
+        ApplicationCommand report = new ApplicationCommand(DataFrameType.REQUEST, (byte)0x00, (byte)0x06, new byte[] {0x32, 0x02, 0x21, 0x54, 0x00, 0x00, 0x00, 0x64});
+        assertTrue(t.addFrame(ctx, report));
+        assertTrue(t.isComplete());
+        assertFalse(t.isReportPending());
+        assertArrayEquals(report.getCommandClassBytes(), t.getReport().getCommandClassBytes());
+        assertEquals(2, ctx.getUserEvents().size());
+        assertTrue(((TransactionCompletedEvent)ctx.getUserEvents().get(1)).hasFrame());
     }
 
     @Test
@@ -65,7 +94,7 @@ public class SendDataTransactionTest {
 
         byte[] b = new byte[] {0x01, 0x09, 0x00, 0x13, 0x06, 0x02, 0x25, 0x02, 0x05, 0x08, -45};
         SendData startFrame = new SendData(Unpooled.wrappedBuffer(b));
-        SendDataTransaction t = new SendDataTransaction(ctx, startFrame, true, true);
+        SendDataTransaction t = new SendDataTransaction(ctx, startFrame, true, false);
         assertFalse(t.isComplete());
         assertEquals(1, ctx.getUserEvents().size());
         assertEquals(0, ctx.getWriteQueue().size());
@@ -76,25 +105,19 @@ public class SendDataTransactionTest {
         assertEquals(1, ctx.getUserEvents().size());
         assertEquals(0, ctx.getWriteQueue().size());
 
-        b = new byte[] {0x01, 0x04, 0x01, 0x13, 0x00, -45};
+        b = new byte[] {0x01, 0x04, 0x01, 0x13, 0x01, (byte)0xE8};
         assertTrue(t.addFrame(null, new SendData(Unpooled.wrappedBuffer(b))));
         assertFalse(t.isComplete());
         assertEquals(1, ctx.getUserEvents().size());
         assertEquals(0, ctx.getWriteQueue().size());
 
         b = new byte[] {0x01, 0x05, 0x00, 0x13, 0x00, 0x00, -45};
-        assertTrue(t.addFrame(null, new SendData(Unpooled.wrappedBuffer(b))));
-        assertFalse(t.isComplete());
-        assertEquals(1, ctx.getUserEvents().size());
-
-        // timeout waiting for expected response
-        t.timeout(ctx);
-        assertEquals(1, ctx.getUserEvents().size());
-        assertEquals(1, ctx.getWriteQueue().size());
-        assertTrue(ctx.getWriteQueue().get(0) instanceof OutboundDataFrame);
-        SendData sd = (SendData)((OutboundDataFrame)ctx.getWriteQueue().get(0)).getDataFrame();
-        assertTrue(sd == startFrame);
-        assertEquals(0, sd.getSendCount());
+        assertTrue(t.addFrame(ctx, new SendData(Unpooled.wrappedBuffer(b))));
+        assertTrue(t.isComplete());
+        assertFalse(t.isReportPending());
+        assertEquals(2, ctx.getUserEvents().size());
+        assertTrue(ctx.getUserEvents().get(1) instanceof TransactionCompletedEvent);
+        assertEquals(0, ctx.getWriteQueue().size());
     }
 
     @Test
@@ -120,6 +143,11 @@ public class SendDataTransactionTest {
 
         // confirm that send count was decremented so the retry doesn't count towards the send count
         assertEquals(-1, sd.getSendCount());
+
+        // a second re-send reuses the outbound frame wrapper
+        assertTrue(t.addFrame(ctx, new CAN()));
+        assertEquals(2, ctx.getWriteQueue().size());
+        assertSame(ctx.getWriteQueue().get(0), ctx.getWriteQueue().get(1));
     }
 
     @Test
@@ -168,7 +196,7 @@ public class SendDataTransactionTest {
         assertEquals(0, ctx.getWriteQueue().size());
 
         // receive response
-        b = new byte[] {0x01, 0x04, 0x01, 0x13, 0x00, -45};
+        b = new byte[] {0x01, 0x04, 0x01, 0x13, 0x01, (byte)0xE8};
         assertTrue(t.addFrame(ctx, new SendData(Unpooled.wrappedBuffer(b))));
         assertFalse(t.isComplete());
         assertEquals(1, ctx.getUserEvents().size());
@@ -206,13 +234,7 @@ public class SendDataTransactionTest {
         assertEquals(0, ctx.getWriteQueue().size());
 
         // receive response
-        b = new byte[] {0x01, 0x04, 0x01, 0x13, 0x00, -45};
-        assertTrue(t.addFrame(ctx, new SendData(Unpooled.wrappedBuffer(b))));
-        assertFalse(t.isComplete());
-        assertEquals(1, ctx.getUserEvents().size());
-        assertEquals(0, ctx.getWriteQueue().size());
-
-        b = new byte[] {0x01, 0x05, 0x00, 0x13, 0x00, 0x00, -45};
+        b = new byte[] {0x01, 0x04, 0x01, 0x13, 0x01, (byte)0xE8};
         assertTrue(t.addFrame(ctx, new SendData(Unpooled.wrappedBuffer(b))));
         assertFalse(t.isComplete());
         assertEquals(1, ctx.getUserEvents().size());
@@ -236,8 +258,7 @@ public class SendDataTransactionTest {
     public void testApplicationCommandReceivedBeforeSendDataCallback() {
         MockZWaveChannelContext ctx = new MockZWaveChannelContext();
 
-        byte[] b = new byte[] {0x01, 0x0D, 0x00, 0x13, 0x03, 0x06, 0x60, 0x0D, 0x00, 0x01, 0x20, 0x02, 0x05, 0x1B, (byte)0xB4};
-        SendData startFrame = new SendData(Unpooled.wrappedBuffer(b));
+        SendData startFrame = new SendData("", (byte)0x03, new byte[] {0x60, 0x0D, 0x00, 0x01, 0x20, 0x02}, (byte)0x05, (byte)0x1B, true);
         SendDataTransaction t = new SendDataTransaction(ctx, startFrame, true, true);
         assertFalse(t.isComplete());
         assertEquals(1, ctx.getUserEvents().size());
@@ -251,7 +272,7 @@ public class SendDataTransactionTest {
         assertEquals(0, ctx.getWriteQueue().size());
 
         // receive response
-        b = new byte[] {0x01, 0x04, 0x01, 0x13, 0x01, (byte)0xE8};
+        byte[] b = new byte[] {0x01, 0x04, 0x01, 0x13, 0x01, (byte)0xE8};
         assertTrue(t.addFrame(ctx, new SendData(Unpooled.wrappedBuffer(b))));
         assertFalse(t.isComplete());
         assertEquals(1, ctx.getUserEvents().size());
@@ -267,11 +288,61 @@ public class SendDataTransactionTest {
         b = new byte[] {0x01, 0x05, 0x00, 0x13, 0x1B, 0x00, (byte)0xF3};
         assertTrue(t.addFrame(ctx, new SendData(Unpooled.wrappedBuffer(b))));
         assertTrue(t.isComplete());
+        assertFalse(t.isReportPending());
+        assertNotNull(t.getReport());
+        assertEquals(0x03, t.getReport().getNodeId());
         assertEquals(2, ctx.getUserEvents().size());
         assertEquals(0, ctx.getWriteQueue().size());
         assertTrue(ctx.getUserEvents().get(1) instanceof TransactionCompletedEvent);
     }
 
+    @Test
+    public void testUnrelatedApplicationCommandReceivedBeforeSendDataCallback() {
+        MockZWaveChannelContext ctx = new MockZWaveChannelContext();
+
+        SendData startFrame = new SendData("", (byte)0x03, new byte[] {0x20, 0x02}, (byte)0x05, (byte)0x1B, true);
+        SendDataTransaction t = new SendDataTransaction(ctx, startFrame, true, true);
+        assertTrue(t.addFrame(ctx, new ACK()));
+        assertTrue(t.addFrame(ctx, new SendData(Unpooled.wrappedBuffer(new byte[] {0x01, 0x04, 0x01, 0x13, 0x01, (byte)0xE8}))));
+
+        // receive a basic report from another node
+        assertFalse(t.addFrame(ctx, new ApplicationCommand(Unpooled.wrappedBuffer(new byte[] {0x01, 0x09, 0x00, 0x04, 0x00, 0x04, 0x03, 0x20, 0x03, (byte)0xFF, 0x2C}))));
+        // receive a multilevel sensor report from the target node
+        assertFalse(t.addFrame(ctx, new ApplicationCommand(Unpooled.wrappedBuffer(new byte[] {0x01, 0x09, 0x00, 0x04, 0x00, 0x03, 0x03, 0x31, 0x05, 0x01, 0x3A}))));
+        assertFalse(t.isComplete());
+
+        // receive callback
+        assertTrue(t.addFrame(ctx, new SendData(Unpooled.wrappedBuffer(new byte[] {0x01, 0x05, 0x00, 0x13, 0x1B, 0x00, (byte)0xF3}))));
+        assertTrue(t.isComplete());
+        assertTrue(t.isReportPending());
+        assertNull(t.getReport());
+        assertEquals(2, ctx.getUserEvents().size());
+        assertTrue(ctx.getUserEvents().get(1) instanceof TransactionCompletedEvent);
+    }
+
+    @Test
+    public void testExpectedReportReceivedBeforeSendDataCallback() {
+        MockZWaveChannelContext ctx = new MockZWaveChannelContext();
+
+        SendData startFrame = new SendData("", (byte)0x03, new byte[] {0x20, 0x02}, (byte)0x05, (byte)0x1B, true);
+        SendDataTransaction t = new SendDataTransaction(ctx, startFrame, true, true);
+        assertTrue(t.addFrame(ctx, new ACK()));
+        assertTrue(t.addFrame(ctx, new SendData(Unpooled.wrappedBuffer(new byte[] {0x01, 0x04, 0x01, 0x13, 0x01, (byte)0xE8}))));
+
+        // receive the basic report from the target node; it's passed along but kept by the transaction
+        ApplicationCommand cmd = new ApplicationCommand(Unpooled.wrappedBuffer(new byte[] {0x01, 0x09, 0x00, 0x04, 0x00, 0x03, 0x03, 0x20, 0x03, (byte)0xFF, 0x2B}));
+        assertFalse(t.addFrame(ctx, cmd));
+        assertFalse(t.isComplete());
+
+        // receive callback
+        assertTrue(t.addFrame(ctx, new SendData(Unpooled.wrappedBuffer(new byte[] {0x01, 0x05, 0x00, 0x13, 0x1B, 0x00, (byte)0xF3}))));
+        assertTrue(t.isComplete());
+        assertFalse(t.isReportPending());
+        assertNotNull(t.getReport());
+        assertEquals(cmd.getReportKey(), t.getReport().getReportKey());
+        assertEquals(startFrame.getExpectedReportKey(), t.getReport().getReportKey());
+    }
+
     @Test
     public void testTransactionWithListeningNodeNoACKCallback() {
         MockZWaveChannelContext ctx = new MockZWaveChannelContext();
@@ -370,6 +441,49 @@ public class SendDataTransactionTest {
         assertTrue(ctx.getWriteQueue().get(0) instanceof OutboundDataFrame);
         SendData sd = (SendData)((OutboundDataFrame)ctx.getWriteQueue().get(0)).getDataFrame();
         assertTrue(sd == startFrame);
-        assertEquals(0, sd.getSendCount());
+
+        // a congestion failure is retried after a backoff and doesn't count towards the send count
+        assertTrue(ctx.getWriteDelays().get(0) >= 250);
+        assertEquals(-1, sd.getSendCount());
+    }
+
+    @Test
+    public void testTransactionWithControllerQueueFull() {
+        MockZWaveChannelContext ctx = new MockZWaveChannelContext();
+
+        SendData startFrame = new SendData(Unpooled.wrappedBuffer(new byte[] {0x01, 0x09, 0x00, 0x13, 0x06, 0x02, 0x00, 0x00, 0x25, 0x0a, (byte)0xce}));
+        startFrame.incremenentSendCount();
+        SendDataTransaction t = new SendDataTransaction(ctx, startFrame, false, true);
+        assertTrue(t.addFrame(ctx, new ACK()));
+
+        // a response with a return value of 0 means the controller didn't accept the frame
+        assertTrue(t.addFrame(ctx, new SendData(Unpooled.wrappedBuffer(new byte[] {0x01, 0x04, 0x01, 0x13, 0x00, (byte)0xe9}))));
+        assertFalse(t.isComplete());
+        assertEquals(1, ctx.getUserEvents().size());
+        assertEquals(1, ctx.getWriteQueue().size());
+        assertTrue(ctx.getWriteDelays().get(0) >= 125);
+        assertEquals(0, startFrame.getSendCount());
+    }
+
+    @Test
+    public void testCANRetryBudget() {
+        MockZWaveChannelContext ctx = new MockZWaveChannelContext();
+
+        SendData startFrame = new SendData(Unpooled.wrappedBuffer(new byte[] {0x01, 0x09, 0x00, 0x13, 0x06, 0x02, 0x00, 0x00, 0x25, 0x0a, (byte)0xce}));
+        SendDataTransaction t = new SendDataTransaction(ctx, startFrame, true, true);
+
+        // CAN retries back off and don't count towards the send count but they are limited
+        for (int i = 0; i < 5; i++) {
+            startFrame.incremenentSendCount();
+            assertTrue(t.addFrame(ctx, new CAN()));
+            assertFalse(t.isComplete());
+            assertEquals(i + 1, ctx.getWriteQueue().size());
+        }
+        assertTrue(ctx.getWriteDelays().get(4) > ctx.getWriteDelays().get(0));
+        startFrame.incremenentSendCount();
+        assertTrue(t.addFrame(ctx, new CAN()));
+        assertTrue(t.isComplete());
+        assertEquals(5, ctx.getWriteQueue().size());
+        assertTrue(ctx.getUserEvents().get(ctx.getUserEvents().size() - 1) instanceof SendDataTransactionFailedEvent);
     }
 }
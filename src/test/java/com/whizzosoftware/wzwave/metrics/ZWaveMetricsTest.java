@@ -0,0 +1,125 @@
+/*
+ *******************************************************************************
+ * Copyright (c) 2019 Whizzo Software, LLC.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************
+*/
+package com.whizzosoftware.wzwave.metrics;
+
+import com.whizzosoftware.wzwave.frame.transaction.FailureReason;
+import org.junit.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class ZWaveMetricsTest {
+    @Test
+    public void testCounters() {
+        ZWaveMetrics m = new ZWaveMetrics();
+        m.onDataFrameReceived();
+        m.onDataFrameSent();
+        m.onDataFrameSent();
+        m.onACKReceived();
+        m.onNAKReceived();
+        m.onCANReceived();
+        m.onChecksumError();
+        m.onFramingError();
+        m.onFrameCoalesced();
+        m.onFrameExpired();
+        m.onFrameDiscarded();
+        m.onTransactionStarted();
+        m.onTransactionCompleted(TimeUnit.MILLISECONDS.toNanos(50));
+        m.onTransactionFailed(FailureReason.TIMEOUT);
+        m.onTransactionFailed(FailureReason.TIMEOUT);
+        m.onTransactionFailed(null);
+        m.onTransactionTimeout();
+        m.onTransactionRetry();
+        m.onReportTimeout();
+
+        assertEquals(1, m.getDataFramesReceived());
+        assertEquals(2, m.getDataFramesSent());
+        assertEquals(1, m.getACKsReceived());
+        assertEquals(1, m.getNAKsReceived());
+        assertEquals(1, m.getCANsReceived());
+        assertEquals(1, m.getChecksumErrors());
+        assertEquals(1, m.getFramingErrors());
+        assertEquals(1, m.getFramesCoalesced());
+        assertEquals(1, m.getFramesExpired());
+        assertEquals(1, m.getFramesDiscarded());
+        assertEquals(1, m.getTransactionsStarted());
+        assertEquals(1, m.getTransactionsCompleted());
+        assertEquals(3, m.getTransactionsFailed());
+        assertEquals(2, m.getTransactionsFailed(FailureReason.TIMEOUT));
+        assertEquals(1, m.getTransactionsFailed(FailureReason.FAILED));
+        assertEquals(Long.valueOf(2), m.getTransactionFailuresByReason().get("TIMEOUT"));
+        assertEquals(1, m.getTransactionTimeouts());
+        assertEquals(1, m.getTransactionRetries());
+        assertEquals(1, m.getReportTimeouts());
+        assertTrue(m.getTransactionDurationMaxMillis() >= 50);
+    }
+
+    @Test
+    public void testQueueDepths() {
+        ZWaveMetrics m = new ZWaveMetrics();
+        m.setQueueDepths(3, 1);
+        m.setQueueDepths(1, 2);
+        assertEquals(1, m.getSendQueueDepth());
+        assertEquals(3, m.getMaxSendQueueDepth());
+        assertEquals(2, m.getWakeupQueueDepth());
+
+        // the maximum restarts from the current depth
+        m.reset();
+        assertEquals(1, m.getMaxSendQueueDepth());
+        assertEquals(2, m.getWakeupQueueDepth());
+    }
+
+    @Test
+    public void testSnapshot() {
+        ZWaveMetrics m = new ZWaveMetrics();
+        m.onDataFrameSent();
+        m.recordQueueWait(TimeUnit.MILLISECONDS.toNanos(10));
+        ZWaveMetricsSnapshot s = m.snapshot();
+
+        m.onDataFrameSent();
+        m.recordQueueWait(TimeUnit.MILLISECONDS.toNanos(10));
+        assertEquals(1, s.getDataFramesSent());
+        assertEquals(1, s.getQueueWait().getCount());
+        assertEquals(2, m.getDataFramesSent());
+        assertEquals(2, m.getQueueWaitHistogram().getCount());
+    }
+
+    @Test
+    public void testReset() {
+        ZWaveMetrics m = new ZWaveMetrics();
+        m.onACKReceived();
+        m.onTransactionFailed(FailureReason.CAN);
+        m.getACKLatencyHistogram().record(1000);
+        m.reset();
+        assertEquals(0, m.getACKsReceived());
+        assertEquals(0, m.getTransactionsFailed());
+        assertEquals(0, m.getACKLatencyHistogram().getCount());
+    }
+
+    @Test
+    public void testMXBean() throws Exception {
+        ZWaveMetrics m = new ZWaveMetrics();
+        m.onNAKReceived();
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName("com.whizzosoftware.wzwave:type=ZWaveController,name=test");
+        server.registerMBean(m, name);
+        try {
+            assertEquals(1L, server.getAttribute(name, "NAKsReceived"));
+            server.invoke(name, "reset", null, null);
+            assertEquals(0L, server.getAttribute(name, "NAKsReceived"));
+        } finally {
+            server.unregisterMBean(name);
+        }
+    }
+}
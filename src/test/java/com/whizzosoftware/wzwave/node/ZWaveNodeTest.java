@@ -10,10 +10,16 @@
 package com.whizzosoftware.wzwave.node;
 
 import com.whizzosoftware.wzwave.controller.MockZWaveControllerContext;
+import com.whizzosoftware.wzwave.controller.ZWaveControllerContext;
+import com.whizzosoftware.wzwave.frame.DataFrame;
+import com.whizzosoftware.wzwave.frame.FramePriority;
 import com.whizzosoftware.wzwave.node.generic.BinarySwitch;
 import com.whizzosoftware.wzwave.node.specific.BinaryPowerSwitch;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import static junit.framework.TestCase.assertTrue;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
@@ -26,6 +32,7 @@ public class ZWaveNodeTest {
         node.startInterview(ctx);
         assertEquals(ZWaveNodeState.Ping, node.getState());
         assertEquals(1, ctx.getSentFrames().size());
+        assertEquals(FramePriority.INTERVIEW, ctx.getSentFramePriorities().get(0));
         node.onSendDataCallback(ctx, false);
         assertFalse(node.isAvailable());
         assertFalse(node.isSleeping());
@@ -45,6 +52,31 @@ public class ZWaveNodeTest {
         assertTrue(node.isStarted());
     }
 
+    @Test
+    public void testInterviewWithContextWithoutPriorities() {
+        final List<DataFrame> sent = new ArrayList<>();
+        ZWaveControllerContext ctx = new ZWaveControllerContext() {
+            @Override
+            public byte getNodeId() {
+                return 0x01;
+            }
+
+            @Override
+            public void sendDataFrame(DataFrame frame, boolean isListeningNode) {
+                sent.add(frame);
+            }
+
+            @Override
+            public void sendEvent(Object e) {
+
+            }
+        };
+        MockNode node = new MockNode((byte)0x02, BasicDeviceClasses.ROUTING_SLAVE, BinarySwitch.ID, BinaryPowerSwitch.ID, true, null);
+        node.startInterview(ctx);
+        assertEquals(ZWaveNodeState.Ping, node.getState());
+        assertEquals(1, sent.size());
+    }
+
     private class MockNode extends ZWaveNode {
         public MockNode(byte nodeId, byte basicDeviceClass, byte genericDeviceClass, byte specificDeviceClass, boolean isListeningNode, NodeListener listener) {
             super(new NodeInfo(nodeId, basicDeviceClass, genericDeviceClass, specificDeviceClass), isListeningNode, listener);
@@ -21,6 +21,8 @@ import org.junit.rules.TemporaryFolder;
 
 import static junit.framework.TestCase.assertTrue;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 
 public class MapDbPersistentStoreTest {
     @Rule
@@ -39,4 +41,22 @@ public class MapDbPersistentStoreTest {
         assertEquals(3, node.getCommandClasses().size());
         assertTrue(node.isListeningNode());
     }
+
+    @Test
+    public void testPartitions() throws Exception {
+        ZWaveNode node = new BinaryPowerSwitch(new NodeInfo((byte)0x02, BasicDeviceClasses.ROUTING_SLAVE, BinarySwitch.ID, BinaryPowerSwitch.ID), true, null);
+        MapDbPersistentStore store = new MapDbPersistentStore(folder.newFolder());
+        PersistentStore p1 = store.getPartition(0x11111111);
+        PersistentStore p2 = store.getPartition(0x22222222);
+        p1.saveNode(node);
+
+        assertNotNull(p1.getNode((byte)0x02, null));
+        assertNull(p2.getNode((byte)0x02, null));
+        assertNull(store.getNode((byte)0x02, null));
+
+        // closing a partition leaves the shared store open
+        p1.close();
+        assertNotNull(store.getPartition(0x11111111).getNode((byte)0x02, null));
+        store.close();
+    }
 }
@@ -0,0 +1,122 @@
+/*
+ *******************************************************************************
+ * Copyright (c) 2019 Whizzo Software, LLC.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************
+*/
+package com.whizzosoftware.wzwave.trace;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class WireTraceRecorderTest {
+    @Test
+    public void testRoundTrip() throws Exception {
+        WireTraceRecorder r = new WireTraceRecorder(8);
+        ByteBuf rx = Unpooled.wrappedBuffer(new byte[] {0x01, 0x04, 0x01, 0x13, 0x01, (byte)0xE8});
+        r.record(WireTraceRecorder.DIRECTION_RX, rx);
+        r.record(WireTraceRecorder.DIRECTION_TX, Unpooled.wrappedBuffer(new byte[] {0x06}));
+        assertEquals(0, rx.readerIndex());
+        assertEquals(2, r.getRecordCount());
+
+        List<WireTraceEntry> entries = read(r);
+        assertEquals(2, entries.size());
+        assertTrue(entries.get(0).isReceived());
+        assertArrayEquals(new byte[] {0x01, 0x04, 0x01, 0x13, 0x01, (byte)0xE8}, entries.get(0).getData());
+        assertFalse(entries.get(1).isReceived());
+        assertArrayEquals(new byte[] {0x06}, entries.get(1).getData());
+        assertTrue(entries.get(1).getNanoTime() >= entries.get(0).getNanoTime());
+    }
+
+    @Test
+    public void testWrapAround() throws Exception {
+        WireTraceRecorder r = new WireTraceRecorder(3);
+        for (int i=0; i < 5; i++) {
+            r.record(WireTraceRecorder.DIRECTION_RX, Unpooled.wrappedBuffer(new byte[] {(byte)i}));
+        }
+        assertEquals(3, r.getRecordCount());
+
+        List<WireTraceEntry> entries = read(r);
+        assertEquals(3, entries.size());
+        assertEquals(2, entries.get(0).getData()[0]);
+        assertEquals(3, entries.get(1).getData()[0]);
+        assertEquals(4, entries.get(2).getData()[0]);
+    }
+
+    @Test
+    public void testLongWriteIsSplit() throws Exception {
+        WireTraceRecorder r = new WireTraceRecorder(8);
+        byte[] b = new byte[WireTraceRecorder.MAX_RECORD_LENGTH + 10];
+        for (int i=0; i < b.length; i++) {
+            b[i] = (byte)i;
+        }
+        r.record(WireTraceRecorder.DIRECTION_TX, Unpooled.wrappedBuffer(b));
+
+        List<WireTraceEntry> entries = read(r);
+        assertEquals(2, entries.size());
+        assertEquals(WireTraceRecorder.MAX_RECORD_LENGTH, entries.get(0).getData().length);
+        assertEquals(10, entries.get(1).getData().length);
+        assertEquals((byte)WireTraceRecorder.MAX_RECORD_LENGTH, entries.get(1).getData()[0]);
+        assertEquals(entries.get(0).getNanoTime(), entries.get(1).getNanoTime());
+    }
+
+    @Test
+    public void testDisabledAndClear() throws Exception {
+        WireTraceRecorder r = new WireTraceRecorder(8);
+        r.record(WireTraceRecorder.DIRECTION_RX, Unpooled.wrappedBuffer(new byte[] {0x06}));
+        r.clear();
+        assertEquals(0, r.getRecordCount());
+        r.setEnabled(false);
+        r.record(WireTraceRecorder.DIRECTION_RX, Unpooled.wrappedBuffer(new byte[] {0x06}));
+        assertEquals(0, read(r).size());
+    }
+
+    @Test
+    public void testWriteWhileRecording() throws Exception {
+        final WireTraceRecorder r = new WireTraceRecorder(4 * WireTraceRecorder.COPY_BATCH_SIZE);
+        final int recordCount = 2000000;
+        Thread writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                ByteBuf buf = Unpooled.buffer(4);
+                for (int i=0; i < recordCount; i++) {
+                    buf.clear();
+                    buf.writeInt(0x01010101 * (i & 0xFF));
+                    r.record(WireTraceRecorder.DIRECTION_RX, buf);
+                }
+            }
+        });
+        writer.start();
+
+        // every record written out is intact and they are consecutive, even if the ring wrapped between copied batches
+        while (writer.isAlive()) {
+            List<WireTraceEntry> entries = read(r);
+            for (int i=0; i < entries.size(); i++) {
+                byte[] d = entries.get(i).getData();
+                assertEquals(4, d.length);
+                assertTrue(d[0] == d[1] && d[0] == d[2] && d[0] == d[3]);
+                if (i > 0) {
+                    assertEquals((byte)(entries.get(i - 1).getData()[0] + 1), d[0]);
+                }
+            }
+        }
+        writer.join();
+        assertEquals(4 * WireTraceRecorder.COPY_BATCH_SIZE, read(r).size());
+    }
+
+    private List<WireTraceEntry> read(WireTraceRecorder r) throws Exception {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        r.writeTo(baos);
+        return WireTraceReader.read(new ByteArrayInputStream(baos.toByteArray()));
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ *******************************************************************************
+ * Copyright (c) 2019 Whizzo Software, LLC.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************
+*/
+package com.whizzosoftware.wzwave.util;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LatencyHistogramTest {
+    @Test
+    public void testPercentiles() {
+        LatencyHistogram h = new LatencyHistogram();
+        assertEquals(0, h.getPercentile(99, TimeUnit.NANOSECONDS));
+        for (int i=0; i < 99; i++) {
+            h.record(1000);
+        }
+        h.record(1000000);
+        assertEquals(100, h.getCount());
+        assertEquals(1000000, h.getMax(TimeUnit.NANOSECONDS));
+        long p50 = h.getPercentile(50, TimeUnit.NANOSECONDS);
+        assertTrue(p50 >= 1000 && p50 < 2000);
+        long p99 = h.getPercentile(99, TimeUnit.NANOSECONDS);
+        assertTrue(p99 >= 1000 && p99 < 2000);
+        assertEquals(1000000, h.getPercentile(100, TimeUnit.NANOSECONDS));
+    }
+
+    @Test
+    public void testReset() {
+        LatencyHistogram h = new LatencyHistogram();
+        h.record(5);
+        h.reset();
+        assertEquals(0, h.getCount());
+        assertEquals(0, h.getMax(TimeUnit.NANOSECONDS));
+    }
+
+    @Test
+    public void testBucketIndex() {
+        assertEquals(0, LatencyHistogram.getBucketIndex(0));
+        assertEquals(1, LatencyHistogram.getBucketIndex(1));
+        assertEquals(7, LatencyHistogram.getBucketIndex(7));
+        assertEquals(8, LatencyHistogram.getBucketIndex(8));
+        assertEquals(15, LatencyHistogram.getBucketIndex(15));
+        assertEquals(16, LatencyHistogram.getBucketIndex(16));
+        assertEquals(16, LatencyHistogram.getBucketIndex(17));
+        assertEquals(17, LatencyHistogram.getBucketIndex(18));
+        assertEquals(487, LatencyHistogram.getBucketIndex(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void testBucketUpperBound() {
+        assertEquals(7, LatencyHistogram.getBucketUpperBound(7));
+        assertEquals(17, LatencyHistogram.getBucketUpperBound(16));
+        assertEquals(1023, LatencyHistogram.getBucketUpperBound(LatencyHistogram.getBucketIndex(1000)));
+        assertEquals(Long.MAX_VALUE, LatencyHistogram.getBucketUpperBound(487));
+        for (long v = 1; v > 0 && v < Long.MAX_VALUE / 3; v = v * 3 + 1) {
+            long upper = LatencyHistogram.getBucketUpperBound(LatencyHistogram.getBucketIndex(v));
+            assertTrue(upper >= v);
+            assertTrue(upper - v <= v / 8);
+        }
+    }
+
+    @Test
+    public void testCopy() {
+        LatencyHistogram h = new LatencyHistogram();
+        h.record(1000);
+        LatencyHistogram c = h.copy();
+        h.record(2000);
+        assertEquals(1, c.getCount());
+        assertEquals(1000, c.getMax(TimeUnit.NANOSECONDS));
+        assertEquals(2, h.getCount());
+    }
+}